@@ -1,8 +1,14 @@
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Creation of AbstractGrid class and individual
@@ -15,64 +21,284 @@ import java.util.NoSuchElementException;
 
 public abstract class AbstractGrid<E> implements Grid<E> {
 
+  // Largest grid, in cells, that may enable the location cache.
+  static final int MAX_CACHED_LOCATIONS = 1 << 24;
+
+  private Location[] locationCache;
+
+  private ChangeTracker changeTracker;
+  private long retiredEpoch;
+
   /**
-   * Check the surrounding eight neighbors of a location.
-   * @return - Iterator able to parse eight neighbors
+   * Put the parameter item into the designated spot.
+   * @param packed - coordinate built by Location.pack
+   * @param item - item to be placed
    */
-  public Iterable<Location> eightNeighbors(Location loc) {
-    int currRow = loc.getRow();
-    int currCol = loc.getCol();
-    Collection<Location> collection = new ArrayList<Location>();
-    
-    if (currRow >= numRows() || currCol >= numCols()) {
-      throw new IllegalArgumentException();
+  @Override
+  public void put(long packed, E item) {
+    put(Location.unpackRow(packed), Location.unpackCol(packed), item);
+  }
+
+  /**
+   * Get object at respective position.
+   * @param packed - coordinate built by Location.pack
+   * @return - grabbed value
+   */
+  @Override
+  public E get(long packed) {
+    return get(Location.unpackRow(packed), Location.unpackCol(packed));
+  }
+
+  /**
+   * Remove object at respective location.
+   * @param packed - coordinate built by Location.pack
+   * @return - removed value
+   */
+  @Override
+  public E remove(long packed) {
+    return remove(Location.unpackRow(packed), Location.unpackCol(packed));
+  }
+
+  /**
+   * Spliterator over the items. This default walks the iterator, so it
+   * knows its size but splits poorly; grids with random access to their
+   * storage override it.
+   * @return - a new Spliterator
+   */
+  @Override
+  public Spliterator<E> spliterator() {
+    return Spliterators.spliterator(iterator(), numItems(),
+        Spliterator.ORDERED | Spliterator.NONNULL);
+  }
+
+  /**
+   * Spliterator over the item locations; see spliterator().
+   * @return - a new Spliterator
+   */
+  protected Spliterator<Location> itemLocationSpliterator() {
+    return Spliterators.spliterator(itemLocations().iterator(), numItems(),
+        Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT);
+  }
+
+  /**
+   * Sequential stream of the items. The grid must not be modified while
+   * a stream over it is in use.
+   * @return - a new Stream
+   */
+  @Override
+  public Stream<E> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+
+  /**
+   * Parallel stream of the items.
+   * @return - a new Stream
+   */
+  @Override
+  public Stream<E> parallelStream() {
+    return StreamSupport.stream(spliterator(), true);
+  }
+
+  /**
+   * Sequential stream of the item locations; call parallel() on it to
+   * split the work.
+   * @return - a new Stream
+   */
+  @Override
+  public Stream<Location> itemLocationStream() {
+    return StreamSupport.stream(itemLocationSpliterator(), false);
+  }
+
+  /**
+   * Sequential stream of every location on the grid, in row-major order.
+   * @return - a new Stream
+   */
+  @Override
+  public Stream<Location> cellStream() {
+    return StreamSupport.stream(new CellSpliterator(this), false);
+  }
+
+  /**
+   * Check whether a cell holds an item.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - true if the cell is occupied
+   */
+  @Override
+  public boolean isOccupied(int row, int col) {
+    return get(row, col) != null;
+  }
+
+  /**
+   * Make iterators and neighbor queries hand out one shared Location per
+   * cell instead of allocating a new one each time. Entries are created
+   * lazily on first use.
+   * @throws IllegalStateException - if the grid has more cells than can be cached
+   */
+  public void enableLocationCache() {
+    long cells = (long) numRows() * numCols();
+    if (cells > MAX_CACHED_LOCATIONS) {
+      throw new IllegalStateException();
     }
-    
-    
-    
-    if (currRow + 1 < numRows()) {
-      //south
-      collection.add(new Location(currRow + 1, currCol));
+    if (locationCache == null) {
+      locationCache = new Location[(int) cells];
     }
-    
-    if (currRow - 1 >= 0) {
-      //north
-      collection.add(new Location(currRow - 1, currCol));
+  }
+
+  /**
+   * Go back to allocating a new Location for every cell handed out.
+   */
+  public void disableLocationCache() {
+    locationCache = null;
+  }
+
+  /**
+   * Check whether the location cache is enabled.
+   * @return - true if enabled
+   */
+  public boolean isLocationCacheEnabled() {
+    return locationCache != null;
+  }
+
+  /**
+   * Get a Location for a cell, shared with earlier callers when the
+   * location cache is enabled.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - Location for the cell
+   */
+  protected Location location(int row, int col) {
+    Location[] cache = locationCache;
+    if (cache == null) {
+      return new Location(row, col);
     }
-    
-    if (currCol + 1 < numCols()) {
-      //east
-      collection.add(new Location(currRow, currCol + 1));
+    int index = row * numCols() + col;
+    Location loc = cache[index];
+    if (loc == null) {
+      loc = new Location(row, col);
+      cache[index] = loc;
     }
-    
-    if (currCol - 1 >= 0) {
-      //west
-      collection.add(new Location(currRow, currCol - 1));
+    return loc;
+  }
+
+  /**
+   * Start recording which tiles of the grid are written, so a reader can
+   * ask for only what changed since an epoch it saw earlier. Each write
+   * then costs a few extra instructions.
+   */
+  public void enableChangeTracking() {
+    if (changeTracker == null) {
+      changeTracker = newChangeTracker(retiredEpoch + 1);
     }
-    
-    if (currCol - 1 >= 0 && currRow - 1 >= 0) {
-      //northwest
-      collection.add(new Location(currRow - 1, currCol - 1));
+  }
+
+  /**
+   * Make the change tracker for enableChangeTracking. Grids that several
+   * threads may write at once override this to get a tracker that allows
+   * it.
+   * @param startEpoch - first epoch of the new tracker
+   * @return - change tracker covering the whole grid
+   */
+  ChangeTracker newChangeTracker(long startEpoch) {
+    return new ChangeTracker(numRows(), numCols(), startEpoch);
+  }
+
+  /**
+   * Stop recording writes. Epochs handed out before this point report
+   * every tile as changed once tracking is enabled again.
+   */
+  public void disableChangeTracking() {
+    if (changeTracker != null) {
+      retiredEpoch = changeTracker.epoch();
+      changeTracker = null;
     }
-    
-    if (currCol + 1 < numCols() && currRow - 1 >= 0) {
-      //northeast
-      collection.add(new Location(currRow - 1, currCol + 1));
+  }
+
+  /**
+   * Check whether change tracking is enabled.
+   * @return - true if enabled
+   */
+  public boolean isChangeTrackingEnabled() {
+    return changeTracker != null;
+  }
+
+  /**
+   * Get the epoch of the latest write. Epochs only ever grow; pass one to
+   * changedSince to find the writes that came after it.
+   * @return - current epoch
+   * @throws IllegalStateException - if change tracking is not enabled
+   */
+  public long epoch() {
+    return tracker().epoch();
+  }
+
+  /**
+   * Get the tiles written after an epoch. Tiles are squares of 16 cells a
+   * side (larger on huge grids), clipped to the grid. An epoch from before
+   * tracking was last enabled reports every tile.
+   * @param epoch - epoch the caller last saw
+   * @return - changed tiles in row-major order
+   * @throws IllegalStateException - if change tracking is not enabled
+   */
+  public List<Region> changedSince(long epoch) {
+    return tracker().changedSince(epoch);
+  }
+
+  /**
+   * Get the change tracker, which must be enabled.
+   * @return - change tracker
+   */
+  private ChangeTracker tracker() {
+    ChangeTracker tracker = changeTracker;
+    if (tracker == null) {
+      throw new IllegalStateException();
     }
-    
-    if (currCol + 1 < numCols() && currRow + 1 < numRows()) {
-      //southeast
-      collection.add(new Location(currRow + 1, currCol + 1));
+    return tracker;
+  }
+
+  /**
+   * Hand the change tracker, or null, over to another representation of
+   * the same grid.
+   * @param target - grid with the same dimensions
+   */
+  void transferChangeTracking(AbstractGrid<?> target) {
+    target.changeTracker = changeTracker;
+    target.retiredEpoch = retiredEpoch;
+  }
+
+  /**
+   * Record a write to one cell if change tracking is enabled.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   */
+  protected final void markChanged(int row, int col) {
+    ChangeTracker tracker = changeTracker;
+    if (tracker != null) {
+      tracker.mark(row, col);
     }
-    
-    if (currCol - 1 >= 0 && currRow + 1 < numRows()) {
-      //southwest
-      collection.add(new Location(currRow + 1, currCol - 1));
+  }
+
+  /**
+   * Record a write to a rectangle if change tracking is enabled.
+   * @param rowFrom - first row, inclusive
+   * @param colFrom - first column, inclusive
+   * @param rowTo - last row, exclusive
+   * @param colTo - last column, exclusive
+   */
+  protected final void markChanged(int rowFrom, int colFrom, int rowTo, int colTo) {
+    ChangeTracker tracker = changeTracker;
+    if (tracker != null) {
+      tracker.mark(rowFrom, colFrom, rowTo, colTo);
     }
-    
-    
-    return Collections.unmodifiableCollection(collection);
-      
+  }
+
+  /**
+   * Check the surrounding eight neighbors of a location.
+   * @return - Iterator able to parse eight neighbors
+   */
+  @Override
+  public Iterable<Location> eightNeighbors(Location loc) {
+    return neighbors(loc, Neighborhood.MOORE);
   }
 
   /**
@@ -81,40 +307,548 @@ public abstract class AbstractGrid<E> implements Grid<E> {
    */
   @Override
   public Iterable<Location> fourNeighbors(Location loc) {
-    Collection<Location> collection;
-    int currRow = loc.getRow();
-    int currCol = loc.getCol();
-    
-    if (currRow >= numRows() || currCol >= numCols()) {
+    return neighbors(loc, Neighborhood.VON_NEUMANN);
+  }
+
+  /**
+   * Check the neighbors of a location in any neighborhood.
+   * @param loc - center location
+   * @param neighborhood - offsets to visit
+   * @return - Iterable over the neighbors, in the neighborhood's order
+   */
+  @Override
+  public Iterable<Location> neighbors(Location loc, final Neighborhood neighborhood) {
+    final int currRow = loc.getRow();
+    final int currCol = loc.getCol();
+    checkBounds(currRow, currCol);
+    if (neighborhood == null) {
+      throw new NullPointerException();
+    }
+
+    return new Iterable<Location>() {
+      @Override
+      public Iterator<Location> iterator() {
+        return new NeighborIterator(neighborCursor().around(currRow, currCol, neighborhood));
+      }
+    };
+  }
+
+  /**
+   * Visit the surrounding eight neighbors of a cell without allocating.
+   * @param row - row of the center cell
+   * @param col - column of the center cell
+   * @param action - callback given each neighbor
+   */
+  @Override
+  public void forEachEightNeighbor(int row, int col, IntBinaryConsumer action) {
+    forEachNeighbor(row, col, Neighborhood.MOORE, action);
+  }
+
+  /**
+   * Visit the surrounding four neighbors of a cell without allocating.
+   * @param row - row of the center cell
+   * @param col - column of the center cell
+   * @param action - callback given each neighbor
+   */
+  @Override
+  public void forEachFourNeighbor(int row, int col, IntBinaryConsumer action) {
+    forEachNeighbor(row, col, Neighborhood.VON_NEUMANN, action);
+  }
+
+  /**
+   * Visit the neighbors of a cell in any neighborhood without allocating.
+   * Cells whose whole neighborhood is on the grid skip the per-neighbor
+   * bounds checks.
+   * @param row - row of the center cell
+   * @param col - column of the center cell
+   * @param neighborhood - offsets to visit
+   * @param action - callback given each neighbor
+   */
+  @Override
+  public void forEachNeighbor(int row, int col, Neighborhood neighborhood,
+      IntBinaryConsumer action) {
+    checkBounds(row, col);
+    if (neighborhood == null || action == null) {
+      throw new NullPointerException();
+    }
+    neighborhood.forEach(row, col, numRows(), numCols(), action);
+  }
+
+  /**
+   * Create a cursor that can be reused to walk the neighbors of any cell.
+   * @return - a new NeighborCursor for this grid
+   */
+  @Override
+  public NeighborCursor neighborCursor() {
+    return new NeighborCursor(numRows(), numCols());
+  }
+
+  /**
+   * Put the item into every cell of a rectangle. This default puts one
+   * cell at a time; grids with array storage override it.
+   * @param rowFrom - first row, inclusive
+   * @param colFrom - first column, inclusive
+   * @param rowTo - last row, exclusive
+   * @param colTo - last column, exclusive
+   * @param item - item to be placed
+   */
+  @Override
+  public void fill(int rowFrom, int colFrom, int rowTo, int colTo, E item) {
+    if (item == null) {
+      throw new NullPointerException();
+    }
+    checkRegion(rowFrom, colFrom, rowTo, colTo);
+    for (int row = rowFrom; row < rowTo; row++) {
+      for (int col = colFrom; col < colTo; col++) {
+        put(row, col, item);
+      }
+    }
+  }
+
+  /**
+   * Remove every item in a region. This default removes one cell at a
+   * time.
+   * @param region - cells to clear
+   */
+  @Override
+  public void clear(Region region) {
+    checkRegion(region.rowFrom(), region.colFrom(), region.rowTo(), region.colTo());
+    for (int row = region.rowFrom(); row < region.rowTo(); row++) {
+      for (int col = region.colFrom(); col < region.colTo(); col++) {
+        remove(row, col);
+      }
+    }
+  }
+
+  /**
+   * Copy a region of a grid so that its top-left cell lands on dst. Empty
+   * source cells clear the matching destination cells. The source may be
+   * this grid, and the two regions may overlap.
+   * @param src - grid to copy from
+   * @param srcRegion - region of src to copy
+   * @param dst - destination of the region's top-left cell
+   */
+  @Override
+  public void copyRegion(Grid<? extends E> src, Region srcRegion, Location dst) {
+    checkCopy(src, srcRegion, dst);
+    int rowShift = dst.getRow() - srcRegion.rowFrom();
+    int colShift = dst.getCol() - srcRegion.colFrom();
+    // Like System.arraycopy, walk away from the destination so that an
+    // overlapping source is read before it is overwritten.
+    boolean rowsBackward = src == this && rowShift > 0;
+    boolean colsBackward = src == this && rowShift == 0 && colShift > 0;
+    for (int i = 0; i < srcRegion.numRows(); i++) {
+      int row = rowsBackward ? srcRegion.rowTo() - 1 - i : srcRegion.rowFrom() + i;
+      for (int j = 0; j < srcRegion.numCols(); j++) {
+        int col = colsBackward ? srcRegion.colTo() - 1 - j : srcRegion.colFrom() + j;
+        E item = src.get(row, col);
+        if (item == null) {
+          remove(row + rowShift, col + colShift);
+        } else {
+          put(row + rowShift, col + colShift, item);
+        }
+      }
+    }
+  }
+
+  /**
+   * Put every entry of a map into the grid.
+   * @param items - items keyed by location
+   */
+  @Override
+  public void putAll(Map<Location, ? extends E> items) {
+    for (Map.Entry<Location, ? extends E> entry : items.entrySet()) {
+      put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Visit every item in a rectangle in row-major order. This default
+   * probes each cell of the rectangle when it is smaller than the number
+   * of items, and otherwise filters the item locations; indexed grids
+   * override it.
+   * @param rowFrom - first row, inclusive
+   * @param colFrom - first column, inclusive
+   * @param rowTo - last row, exclusive
+   * @param colTo - last column, exclusive
+   * @param action - callback given each occupied cell
+   */
+  @Override
+  public void forEachItemIn(int rowFrom, int colFrom, int rowTo, int colTo,
+      IntBinaryConsumer action) {
+    checkRegion(rowFrom, colFrom, rowTo, colTo);
+    if ((long) (rowTo - rowFrom) * (colTo - colFrom) <= numItems()) {
+      for (int row = rowFrom; row < rowTo; row++) {
+        for (int col = colFrom; col < colTo; col++) {
+          if (isOccupied(row, col)) {
+            action.accept(row, col);
+          }
+        }
+      }
+    } else {
+      for (Location loc : itemLocations()) {
+        int row = loc.getRow();
+        int col = loc.getCol();
+        if (row >= rowFrom && row < rowTo && col >= colFrom && col < colTo) {
+          action.accept(row, col);
+        }
+      }
+    }
+  }
+
+  /**
+   * Iterator for the locations of the items in a region, in row-major
+   * order. Each iterator finds its cells with forEachItemIn when created.
+   * @param region - cells to search
+   * @return - Iterable object for the items' locations
+   */
+  @Override
+  public Iterable<Location> itemLocationsIn(Region region) {
+    checkRegion(region.rowFrom(), region.colFrom(), region.rowTo(), region.colTo());
+    return new Iterable<Location>() {
+
+      @Override
+      public Iterator<Location> iterator() {
+        return new Iterator<Location>() {
+
+          private final long[] keys = keysIn(region);
+          private int next = 0;
+
+          @Override
+          public boolean hasNext() {
+            return next < keys.length;
+          }
+
+          @Override
+          public Location next() {
+            if (next >= keys.length) {
+              throw new NoSuchElementException();
+            }
+            long key = keys[next++];
+            return location(Location.unpackRow(key), Location.unpackCol(key));
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Iterator for the items in a region, in row-major order. Each iterator
+   * finds its cells with forEachItemIn when created and reads each item
+   * as it is reached, skipping cells emptied in the meantime.
+   * @param region - cells to search
+   * @return - Iterable object for the items
+   */
+  @Override
+  public Iterable<E> itemsIn(Region region) {
+    checkRegion(region.rowFrom(), region.colFrom(), region.rowTo(), region.colTo());
+    return new Iterable<E>() {
+
+      @Override
+      public Iterator<E> iterator() {
+        return new Iterator<E>() {
+
+          private final long[] keys = keysIn(region);
+          private int next = 0;
+          private E item = advance();
+
+          /**
+           * Read the next cell that still holds an item.
+           * @return - item found, or null when exhausted
+           */
+          private E advance() {
+            while (next < keys.length) {
+              long key = keys[next++];
+              E found = get(Location.unpackRow(key), Location.unpackCol(key));
+              if (found != null) {
+                return found;
+              }
+            }
+            return null;
+          }
+
+          @Override
+          public boolean hasNext() {
+            return item != null;
+          }
+
+          @Override
+          public E next() {
+            if (item == null) {
+              throw new NoSuchElementException();
+            }
+            E found = item;
+            item = advance();
+            return found;
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Find the k occupied cells nearest to a location by straight-line
+   * distance, nearest first. The location itself counts if occupied.
+   * @param loc - center of the search
+   * @param k - most cells to return
+   * @return - locations in order of distance, ties in row-major order
+   */
+  @Override
+  public List<Location> nearest(Location loc, int k) {
+    List<Location> found = new ArrayList<Location>();
+    forEachNearest(loc.getRow(), loc.getCol(), k, Metric.EUCLIDEAN,
+        (row, col) -> found.add(location(row, col)));
+    return found;
+  }
+
+  /**
+   * Find the occupied cells within a distance of a location, nearest
+   * first.
+   * @param loc - center of the search
+   * @param radius - largest distance to include (not squared for EUCLIDEAN)
+   * @param metric - distance measure
+   * @return - locations in order of distance, ties in row-major order
+   */
+  @Override
+  public List<Location> withinRadius(Location loc, int radius, Metric metric) {
+    List<Location> found = new ArrayList<Location>();
+    forEachWithinRadius(loc.getRow(), loc.getCol(), radius, metric,
+        (row, col) -> found.add(location(row, col)));
+    return found;
+  }
+
+  /**
+   * Visit the k occupied cells nearest to a cell, nearest first, without
+   * allocating.
+   * @param row - row of the center
+   * @param col - column of the center
+   * @param k - most cells to visit
+   * @param metric - distance measure
+   * @param action - callback given each cell
+   */
+  @Override
+  public void forEachNearest(int row, int col, int k, Metric metric,
+      IntBinaryConsumer action) {
+    if (metric == null || action == null) {
+      throw new NullPointerException();
+    }
+    if (k < 0) {
       throw new IllegalArgumentException();
     }
-    
-    collection = new ArrayList<Location>();
-    
-    
-    
-    if (currRow + 1 < numRows()) {
-      //south
-      collection.add(new Location(currRow + 1, currCol));
-    }
-    
-    if (currRow - 1 >= 0) {
-      //north
-      collection.add(new Location(currRow - 1, currCol));
-    }
-    
-    if (currCol + 1 < numCols()) {
-      //east
-      collection.add(new Location(currRow, currCol + 1));
-    }
-    
-    if (currCol - 1 >= 0) {
-      //west
-      collection.add(new Location(currRow, currCol - 1));
-    }
-    
-    return Collections.unmodifiableCollection(collection);
-    
+    checkBounds(row, col);
+    ProximitySearch.acquire().run(this, row, col, metric, k, Long.MAX_VALUE, action);
+  }
+
+  /**
+   * Visit the occupied cells within a distance of a cell, nearest first,
+   * without allocating.
+   * @param row - row of the center
+   * @param col - column of the center
+   * @param radius - largest distance to include (not squared for EUCLIDEAN)
+   * @param metric - distance measure
+   * @param action - callback given each cell
+   */
+  @Override
+  public void forEachWithinRadius(int row, int col, int radius, Metric metric,
+      IntBinaryConsumer action) {
+    if (metric == null || action == null) {
+      throw new NullPointerException();
+    }
+    if (radius < 0) {
+      throw new IllegalArgumentException();
+    }
+    checkBounds(row, col);
+    ProximitySearch.acquire().run(this, row, col, metric, Long.MAX_VALUE,
+        metric.ringBound(radius), action);
+  }
+
+  /**
+   * Find the four-connected region of matching cells around a start cell.
+   * Empty cells are tested as null.
+   * @param start - cell to start from
+   * @param predicate - test a cell's item must pass to join the region
+   * @return - cells of the region in row-major order, empty if the start
+   *     cell does not match
+   */
+  @Override
+  public List<Location> floodFill(Location start, Predicate<? super E> predicate) {
+    KeyBuffer buffer = new KeyBuffer();
+    floodFill(start.getRow(), start.getCol(), Connectivity.FOUR, predicate, buffer);
+    long[] keys = buffer.keys;
+    Arrays.sort(keys, 0, buffer.size);
+    List<Location> region = new ArrayList<Location>(buffer.size);
+    for (int i = 0; i < buffer.size; i++) {
+      region.add(location(Location.unpackRow(keys[i]), Location.unpackCol(keys[i])));
+    }
+    return region;
+  }
+
+  /**
+   * Visit the connected region of matching cells around a start cell,
+   * using a bitset to remember the cells already reached. Empty cells are
+   * tested as null. The action may change the cells it is given.
+   * @param row - row of the start cell
+   * @param col - column of the start cell
+   * @param connectivity - which cells touch
+   * @param predicate - test a cell's item must pass to join the region
+   * @param action - callback given each cell of the region
+   * @return - number of cells in the region
+   */
+  @Override
+  public long floodFill(int row, int col, Connectivity connectivity,
+      Predicate<? super E> predicate, IntBinaryConsumer action) {
+    checkBounds(row, col);
+    if (connectivity == null || predicate == null || action == null) {
+      throw new NullPointerException();
+    }
+    return GridRegions.floodFill(this, row, col, connectivity, predicate, action);
+  }
+
+  /**
+   * Label every connected region of matching cells. Empty cells are tested
+   * as null. On dense grids the predicate may be called from several
+   * threads at once.
+   * @param connectivity - which cells touch
+   * @param predicate - test a cell's item must pass to be labeled
+   * @return - label grid and component sizes
+   * @throws IllegalArgumentException - if the grid has 2^31 cells or more
+   */
+  @Override
+  public Labeling labelComponents(Connectivity connectivity, Predicate<? super E> predicate) {
+    if (connectivity == null || predicate == null) {
+      throw new NullPointerException();
+    }
+    return GridRegions.label(this, connectivity, predicate);
+  }
+
+  /**
+   * Take a read-only copy of the grid as it is now. Later writes to the
+   * grid do not show through. This default copies every item into a
+   * ChunkedGrid and is the fallback for grids that cannot share their
+   * storage; ArrayGrid, SparseGrid and ChunkedGrid share theirs
+   * instead. Grids written by other threads during the copy may give a
+   * snapshot that mixes old and new cells. Any number of threads may read
+   * a snapshot at once.
+   * @return - immutable grid with the same items
+   */
+  @Override
+  public Grid<E> snapshot() {
+    ChunkedGrid<E> copy = new ChunkedGrid<E>(numRows(), numCols());
+    forEachItemIn(0, 0, numRows(), numCols(), (row, col) -> copy.put(row, col, get(row, col)));
+    return copy.snapshot();
+  }
+
+  /**
+   * Build an immutable copy of the grid compacted for reading: a flat
+   * array when at least half full, compressed sparse rows otherwise. It
+   * takes less memory than either mutable layout, answers get with an
+   * array read or a binary search within one row, and iterates in
+   * row-major order straight off its arrays.
+   * @return - frozen grid with the same items
+   */
+  @Override
+  public Grid<E> freeze() {
+    return FrozenGrid.copyOf(this);
+  }
+
+  /**
+   * Collect the packed coordinates of the items in a region.
+   * @param region - cells to search
+   * @return - packed coordinates in row-major order
+   */
+  private long[] keysIn(Region region) {
+    KeyBuffer buffer = new KeyBuffer();
+    forEachItemIn(region.rowFrom(), region.colFrom(), region.rowTo(), region.colTo(), buffer);
+    return Arrays.copyOf(buffer.keys, buffer.size);
+  }
+
+  /**
+   * Growable array of packed coordinates filled by forEachItemIn.
+   */
+  private static final class KeyBuffer implements IntBinaryConsumer {
+
+    long[] keys = new long[16];
+    int size;
+
+    @Override
+    public void accept(int row, int col) {
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+      }
+      keys[size++] = Location.pack(row, col);
+    }
+  }
+
+  /**
+   * Throw if the cell is not on the grid.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   */
+  protected void checkBounds(int row, int col) {
+    if (row < 0 || col < 0 || row >= numRows() || col >= numCols()) {
+      throw new IllegalArgumentException();
+    }
+  }
+
+  /**
+   * Throw if the rectangle is malformed or not entirely on the grid.
+   * @param rowFrom - first row, inclusive
+   * @param colFrom - first column, inclusive
+   * @param rowTo - last row, exclusive
+   * @param colTo - last column, exclusive
+   */
+  protected void checkRegion(int rowFrom, int colFrom, int rowTo, int colTo) {
+    if (rowFrom < 0 || colFrom < 0 || rowTo < rowFrom || colTo < colFrom
+        || rowTo > numRows() || colTo > numCols()) {
+      throw new IllegalArgumentException();
+    }
+  }
+
+  /**
+   * Throw if a copy would read outside the source or write outside this
+   * grid.
+   * @param src - grid to copy from
+   * @param srcRegion - region of src to copy
+   * @param dst - destination of the region's top-left cell
+   */
+  protected void checkCopy(Grid<?> src, Region srcRegion, Location dst) {
+    if (srcRegion.rowTo() > src.numRows() || srcRegion.colTo() > src.numCols()
+        || (long) dst.getRow() + srcRegion.numRows() > numRows()
+        || (long) dst.getCol() + srcRegion.numCols() > numCols()) {
+      throw new IllegalArgumentException();
+    }
+  }
+
+  /**
+   * Adapts a NeighborCursor to the Iterator interface.
+   */
+  private class NeighborIterator implements Iterator<Location> {
+
+    private final NeighborCursor cursor;
+    private boolean advanced;
+    private boolean available;
+
+    NeighborIterator(NeighborCursor cursor) {
+      this.cursor = cursor;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (!advanced) {
+        available = cursor.next();
+        advanced = true;
+      }
+      return available;
+    }
+
+    @Override
+    public Location next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      advanced = false;
+      return location(cursor.row(), cursor.col());
+    }
   }
 
 }
@@ -0,0 +1,335 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+
+/**
+ * Shared storage logic for the primitive-specialized grids. Cells are kept
+ * in a flat row-major array owned by the subclass, and an occupancy mask
+ * records which cells hold an item, so every primitive value (including
+ * zero) can be stored.
+ *
+ * @author Jordan Martin
+ */
+public abstract class AbstractPrimitiveGrid<E> extends AbstractGrid<E> {
+
+  protected final int rows;
+  protected final int cols;
+  protected final OccupancyMask occupied;
+  protected int numItems;
+
+  /**
+   * Constructor for AbstractPrimitiveGrid class.
+   * @param rows - number of rows
+   * @param cols - number of columns
+   */
+  protected AbstractPrimitiveGrid(int rows, int cols) {
+    if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException();
+    }
+    this.rows = rows;
+    this.cols = cols;
+    occupied = new OccupancyMask(rows * cols);
+    numItems = 0;
+  }
+
+  /**
+   * Box the value stored at the flat index.
+   * @param index - row-major cell index
+   * @return - boxed value
+   */
+  protected abstract E boxed(int index);
+
+  /**
+   * Unbox and store the item at the flat index.
+   * @param index - row-major cell index
+   * @param item - item to be stored
+   */
+  protected abstract void store(int index, E item);
+
+  /**
+   * Reset the storage at the flat index to its zero value.
+   * @param index - row-major cell index
+   */
+  protected abstract void erase(int index);
+
+  /**
+   * Convert a row and column into a flat index.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - row-major cell index
+   */
+  protected int index(int row, int col) {
+    if (row < 0 || col < 0 || row >= rows || col >= cols) {
+      throw new IllegalArgumentException();
+    }
+    return row * cols + col;
+  }
+
+  /**
+   * Record that a cell has just been written and now holds an item.
+   * @param index - row-major cell index
+   * @param row - row of the cell
+   * @param col - column of the cell
+   */
+  protected void markOccupied(int index, int row, int col) {
+    if (occupied.set(index)) {
+      numItems++;
+    }
+    markChanged(row, col);
+  }
+
+  /**
+   * Check whether a cell holds an item.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - true if the cell is occupied
+   */
+  @Override
+  public boolean isOccupied(int row, int col) {
+    return occupied.get(index(row, col));
+  }
+
+  /**
+   * Put the parameter item into the designated spot.
+   * @param loc -  location for object to be placed
+   * @param item - item to be placed
+   */
+  @Override
+  public void put(Location loc, E item) {
+    if (loc == null) {
+      throw new NullPointerException();
+    }
+    put(loc.getRow(), loc.getCol(), item);
+  }
+
+  /**
+   * Put the parameter item into the designated spot.
+   * @param row - row for object to be placed
+   * @param col - column for object to be placed
+   * @param item - item to be placed
+   */
+  @Override
+  public void put(int row, int col, E item) {
+    if (item == null) {
+      throw new NullPointerException();
+    }
+    int index = index(row, col);
+    store(index, item);
+    markOccupied(index, row, col);
+  }
+
+  /**
+   * Get object at respective position.
+   * @param loc - location to be grabbed
+   * @return - boxed value, or null for an empty cell
+   */
+  @Override
+  public E get(Location loc) {
+    return get(loc.getRow(), loc.getCol());
+  }
+
+  /**
+   * Get object at respective position.
+   * @param row - row to be grabbed
+   * @param col - column to be grabbed
+   * @return - boxed value, or null for an empty cell
+   */
+  @Override
+  public E get(int row, int col) {
+    int index = index(row, col);
+    return occupied.get(index) ? boxed(index) : null;
+  }
+
+  /**
+   * Remove object at respective location.
+   * @param loc - location to remove
+   * @return - removed value, or null for an empty cell
+   */
+  @Override
+  public E remove(Location loc) {
+    if (loc == null) {
+      throw new IllegalArgumentException();
+    }
+    return remove(loc.getRow(), loc.getCol());
+  }
+
+  /**
+   * Remove object at respective location.
+   * @param row - row to remove
+   * @param col - column to remove
+   * @return - removed value, or null for an empty cell
+   */
+  @Override
+  public E remove(int row, int col) {
+    return removeAt(index(row, col));
+  }
+
+  /**
+   * Remove the item at the flat index.
+   * @param index - row-major cell index
+   * @return - removed value, or null for an empty cell
+   */
+  private E removeAt(int index) {
+    if (!occupied.clear(index)) {
+      return null;
+    }
+    E element = boxed(index);
+    erase(index);
+    numItems--;
+    if (isChangeTrackingEnabled()) {
+      markChanged(index / cols, index % cols);
+    }
+    return element;
+  }
+
+  /**
+   * Get the number of rows.
+   * @return - number of rows
+   */
+  @Override
+  public int numRows() {
+    return rows;
+  }
+
+  /**
+   * Get the number of columns.
+   * @return - number of columns
+   */
+  @Override
+  public int numCols() {
+    return cols;
+  }
+
+  /**
+   * Get number of items in the grid.
+   * @return - number of items
+   */
+  @Override
+  public Integer numItems() {
+    return numItems;
+  }
+
+  /**
+   * Constructor for default iterator; visits occupied cells in row-major
+   * order by jumping between set bits of the occupancy mask.
+   * @return - a new Iterator
+   */
+  @Override
+  public Iterator<E> iterator() {
+    return new Iterator<E>() {
+
+      private int next = occupied.nextSetBit(0);
+      private int last = -1;
+
+      @Override
+      public boolean hasNext() {
+        return next >= 0;
+      }
+
+      @Override
+      public E next() {
+        if (next < 0) {
+          throw new NoSuchElementException();
+        }
+        last = next;
+        next = occupied.nextSetBit(next + 1);
+        return boxed(last);
+      }
+
+      @Override
+      public void remove() {
+        if (last < 0) {
+          throw new IllegalStateException();
+        }
+        removeAt(last);
+        last = -1;
+      }
+    };
+  }
+
+  /**
+   * Spliterator over the items, splitting into bands of rows.
+   * @return - a new Spliterator
+   */
+  @Override
+  public Spliterator<E> spliterator() {
+    return new MaskSpliterator<E>(occupied, cols, this::boxed);
+  }
+
+  /**
+   * Spliterator over the item locations, splitting into bands of rows.
+   * @return - a new Spliterator
+   */
+  @Override
+  protected Spliterator<Location> itemLocationSpliterator() {
+    return new MaskSpliterator<Location>(occupied, cols,
+        index -> location(index / cols, index % cols));
+  }
+
+  /**
+   * Iterator for all item locations, in row-major order.
+   * @return - Iterable object for all items
+   */
+  @Override
+  public Iterable<Location> itemLocations() {
+    return new Iterable<Location>() {
+
+      @Override
+      public Iterator<Location> iterator() {
+        return new Iterator<Location>() {
+
+          private int next = occupied.nextSetBit(0);
+
+          @Override
+          public boolean hasNext() {
+            return next >= 0;
+          }
+
+          @Override
+          public Location next() {
+            if (next < 0) {
+              throw new NoSuchElementException();
+            }
+            Location loc = location(next / cols, next % cols);
+            next = occupied.nextSetBit(next + 1);
+            return loc;
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Iterator to iterate through all locations, in row-major order.
+   * @return - Iterable object
+   */
+  @Override
+  public Iterable<Location> allLocations() {
+    return new Iterable<Location>() {
+
+      @Override
+      public Iterator<Location> iterator() {
+        return new Iterator<Location>() {
+
+          private int next = 0;
+
+          @Override
+          public boolean hasNext() {
+            return next < rows * cols;
+          }
+
+          @Override
+          public Location next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            Location loc = location(next / cols, next % cols);
+            next++;
+            return loc;
+          }
+        };
+      }
+    };
+  }
+
+}
@@ -0,0 +1,506 @@
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Predicate;
+
+/**
+ * Grid that picks its representation from how full it is. It starts out
+ * as a SparseGrid and migrates to an ArrayGrid once the fraction of
+ * occupied cells rises above the dense threshold, and back once it falls
+ * below the sparse threshold. The gap between the two thresholds keeps a
+ * grid hovering near one of them from flipping back and forth.
+ *
+ * <p>A migration copies every item, but the thresholds are fractions of
+ * the grid size, so at least (dense - sparse) * cells puts or removes
+ * happen between two migrations and the copy is paid for over them.
+ * Migration finishes before the put or remove that triggered it returns,
+ * and the old representation is left untouched, so iterators opened
+ * before the switch keep working.
+ *
+ * @author Jordan Martin
+ */
+public class AdaptiveGrid<E> extends AbstractGrid<E> {
+
+  /**
+   * The representation currently in use.
+   */
+  public enum Mode {
+    SPARSE, DENSE
+  }
+
+  public static final double DEFAULT_SPARSE_THRESHOLD = 0.05;
+  public static final double DEFAULT_DENSE_THRESHOLD = 0.25;
+
+  private final int numRows;
+  private final int numCols;
+  private final long denseAt;
+  private final long sparseAt;
+  private AbstractGrid<E> delegate;
+  private Mode mode;
+  private int migrationCount;
+
+  /**
+   * Constructor for AdaptiveGrid class with the default thresholds.
+   * @param rows - number of rows
+   * @param cols - number of columns
+   */
+  public AdaptiveGrid(int rows, int cols) {
+    this(rows, cols, DEFAULT_SPARSE_THRESHOLD, DEFAULT_DENSE_THRESHOLD);
+  }
+
+  /**
+   * Constructor for AdaptiveGrid class.
+   * @param rows - number of rows
+   * @param cols - number of columns
+   * @param sparseThreshold - fill fraction below which a dense grid goes sparse
+   * @param denseThreshold - fill fraction above which a sparse grid goes dense
+   */
+  public AdaptiveGrid(int rows, int cols, double sparseThreshold, double denseThreshold) {
+    if (rows <= 0 || cols <= 0 || !(sparseThreshold >= 0)
+        || !(sparseThreshold < denseThreshold) || !(denseThreshold <= 1)) {
+      throw new IllegalArgumentException();
+    }
+    numRows = rows;
+    numCols = cols;
+    long cells = (long) rows * cols;
+    // Grids too large for one array stay sparse.
+    denseAt = cells > Integer.MAX_VALUE - 8 ? Long.MAX_VALUE : (long) (denseThreshold * cells);
+    sparseAt = (long) Math.ceil(sparseThreshold * cells);
+    delegate = new SparseGrid<E>(rows, cols);
+    mode = Mode.SPARSE;
+  }
+
+  /**
+   * Get the representation currently in use.
+   * @return - SPARSE or DENSE
+   */
+  public Mode mode() {
+    return mode;
+  }
+
+  /**
+   * Get the number of migrations so far, in either direction.
+   * @return - number of migrations
+   */
+  public int migrationCount() {
+    return migrationCount;
+  }
+
+  /**
+   * Copy every item into a new representation and switch to it.
+   * @param target - empty grid of the new representation
+   * @param newMode - mode of the new representation
+   */
+  private void migrate(AbstractGrid<E> target, Mode newMode) {
+    if (delegate.isLocationCacheEnabled()) {
+      target.enableLocationCache();
+    }
+    for (Location loc : delegate.itemLocations()) {
+      target.put(loc.getRow(), loc.getCol(), delegate.get(loc.getRow(), loc.getCol()));
+    }
+    delegate.transferChangeTracking(target);
+    delegate = target;
+    mode = newMode;
+    migrationCount++;
+  }
+
+  /**
+   * Migrate if a bulk operation has pushed the fill fraction past either
+   * threshold.
+   */
+  private void rebalance() {
+    int items = delegate.numItems();
+    if (mode == Mode.SPARSE && items > denseAt) {
+      migrate(new ArrayGrid<E>(numRows, numCols), Mode.DENSE);
+    } else if (mode == Mode.DENSE && items < sparseAt) {
+      migrate(new SparseGrid<E>(numRows, numCols), Mode.SPARSE);
+    }
+  }
+
+  /**
+   * Put the parameter item into the designated spot.
+   * @param loc -  location for object to be placed
+   * @param item - item to be placed
+   */
+  @Override
+  public void put(Location loc, E item) {
+    if (loc == null) {
+      throw new NullPointerException();
+    }
+    put(loc.getRow(), loc.getCol(), item);
+  }
+
+  /**
+   * Put the parameter item into the designated spot, going dense if the
+   * grid has become full enough.
+   * @param row - row for object to be placed
+   * @param col - column for object to be placed
+   * @param item - item to be placed
+   */
+  @Override
+  public void put(int row, int col, E item) {
+    delegate.put(row, col, item);
+    if (mode == Mode.SPARSE && delegate.numItems() > denseAt) {
+      migrate(new ArrayGrid<E>(numRows, numCols), Mode.DENSE);
+    }
+  }
+
+  /**
+   * Get object at respective position.
+   * @param loc - location to be grabbed
+   * @return - grabbed value
+   */
+  @Override
+  public E get(Location loc) {
+    return delegate.get(loc.getRow(), loc.getCol());
+  }
+
+  /**
+   * Get object at respective position.
+   * @param row - row to be grabbed
+   * @param col - column to be grabbed
+   * @return - grabbed value
+   */
+  @Override
+  public E get(int row, int col) {
+    return delegate.get(row, col);
+  }
+
+  /**
+   * Remove object at respective location.
+   * @param loc - location to remove
+   * @return - removed value
+   */
+  @Override
+  public E remove(Location loc) {
+    if (loc == null) {
+      throw new IllegalArgumentException();
+    }
+    return remove(loc.getRow(), loc.getCol());
+  }
+
+  /**
+   * Remove object at respective location, going sparse if the grid has
+   * become empty enough.
+   * @param row - row to remove
+   * @param col - column to remove
+   * @return - removed value
+   */
+  @Override
+  public E remove(int row, int col) {
+    E element = delegate.remove(row, col);
+    if (element != null && mode == Mode.DENSE && delegate.numItems() < sparseAt) {
+      migrate(new SparseGrid<E>(numRows, numCols), Mode.SPARSE);
+    }
+    return element;
+  }
+
+  /**
+   * Put the item into every cell of a rectangle using the current
+   * representation's bulk fill, then migrate if needed.
+   * @param rowFrom - first row, inclusive
+   * @param colFrom - first column, inclusive
+   * @param rowTo - last row, exclusive
+   * @param colTo - last column, exclusive
+   * @param item - item to be placed
+   */
+  @Override
+  public void fill(int rowFrom, int colFrom, int rowTo, int colTo, E item) {
+    delegate.fill(rowFrom, colFrom, rowTo, colTo, item);
+    rebalance();
+  }
+
+  /**
+   * Remove every item in a region, then migrate if needed.
+   * @param region - cells to clear
+   */
+  @Override
+  public void clear(Region region) {
+    delegate.clear(region);
+    rebalance();
+  }
+
+  /**
+   * Copy a region of a grid so that its top-left cell lands on dst, then
+   * migrate if needed.
+   * @param src - grid to copy from
+   * @param srcRegion - region of src to copy
+   * @param dst - destination of the region's top-left cell
+   */
+  @Override
+  public void copyRegion(Grid<? extends E> src, Region srcRegion, Location dst) {
+    delegate.copyRegion(src == this ? delegate : src, srcRegion, dst);
+    rebalance();
+  }
+
+  /**
+   * Put every entry of a map into the grid, then migrate if needed.
+   * @param items - items keyed by location
+   */
+  @Override
+  public void putAll(Map<Location, ? extends E> items) {
+    delegate.putAll(items);
+    rebalance();
+  }
+
+  /**
+   * Visit every item in a rectangle using the current representation's
+   * index.
+   * @param rowFrom - first row, inclusive
+   * @param colFrom - first column, inclusive
+   * @param rowTo - last row, exclusive
+   * @param colTo - last column, exclusive
+   * @param action - callback given each occupied cell
+   */
+  @Override
+  public void forEachItemIn(int rowFrom, int colFrom, int rowTo, int colTo,
+      IntBinaryConsumer action) {
+    delegate.forEachItemIn(rowFrom, colFrom, rowTo, colTo, action);
+  }
+
+  /**
+   * Label every connected region of matching cells using the current
+   * representation, so a dense grid is labeled in parallel.
+   * @param connectivity - which cells touch
+   * @param predicate - test a cell's item must pass to be labeled
+   * @return - label grid and component sizes
+   */
+  @Override
+  public Labeling labelComponents(Connectivity connectivity, Predicate<? super E> predicate) {
+    return delegate.labelComponents(connectivity, predicate);
+  }
+
+  /**
+   * Take a read-only snapshot of the current representation.
+   * @return - immutable grid with the same items
+   */
+  @Override
+  public Grid<E> snapshot() {
+    return delegate.snapshot();
+  }
+
+  /**
+   * Check whether a cell holds an item.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - true if the cell is occupied
+   */
+  @Override
+  public boolean isOccupied(int row, int col) {
+    return delegate.isOccupied(row, col);
+  }
+
+  /**
+   * Get the number of rows.
+   * @return - number of rows
+   */
+  @Override
+  public int numRows() {
+    return numRows;
+  }
+
+  /**
+   * Get the number of columns.
+   * @return - number of columns
+   */
+  @Override
+  public int numCols() {
+    return numCols;
+  }
+
+  /**
+   * Enable the location cache of the current representation; it carries
+   * over to later representations.
+   */
+  @Override
+  public void enableLocationCache() {
+    delegate.enableLocationCache();
+  }
+
+  /**
+   * Go back to allocating a new Location for every cell handed out.
+   */
+  @Override
+  public void disableLocationCache() {
+    delegate.disableLocationCache();
+  }
+
+  /**
+   * Check whether the location cache is enabled.
+   * @return - true if enabled
+   */
+  @Override
+  public boolean isLocationCacheEnabled() {
+    return delegate.isLocationCacheEnabled();
+  }
+
+  /**
+   * Enable change tracking on the current representation. The tracker
+   * itself moves to later representations, so a migration does not count
+   * as a change.
+   */
+  @Override
+  public void enableChangeTracking() {
+    delegate.enableChangeTracking();
+  }
+
+  /**
+   * Stop recording writes.
+   */
+  @Override
+  public void disableChangeTracking() {
+    delegate.disableChangeTracking();
+  }
+
+  /**
+   * Check whether change tracking is enabled.
+   * @return - true if enabled
+   */
+  @Override
+  public boolean isChangeTrackingEnabled() {
+    return delegate.isChangeTrackingEnabled();
+  }
+
+  /**
+   * Get the epoch of the latest write.
+   * @return - current epoch
+   */
+  @Override
+  public long epoch() {
+    return delegate.epoch();
+  }
+
+  /**
+   * Get the tiles written after an epoch.
+   * @param epoch - epoch the caller last saw
+   * @return - changed tiles in row-major order
+   */
+  @Override
+  public List<Region> changedSince(long epoch) {
+    return delegate.changedSince(epoch);
+  }
+
+  /**
+   * Get a Location for a cell from the current representation's cache.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - Location for the cell
+   */
+  @Override
+  protected Location location(int row, int col) {
+    return delegate.location(row, col);
+  }
+
+  /**
+   * Get number of items in the grid.
+   * @return - number of items
+   */
+  @Override
+  public Integer numItems() {
+    return delegate.numItems();
+  }
+
+  /**
+   * Constructor for default iterator; visits items in row-major order.
+   * Items are read from the grid as it is when they are reached, and
+   * removal goes through the grid, so both stay correct across a
+   * migration.
+   * @return - a new Iterator
+   */
+  @Override
+  public Iterator<E> iterator() {
+    return new Iterator<E>() {
+
+      private final Iterator<Location> locations = delegate.itemLocations().iterator();
+      private Location nextLoc;
+      private E nextItem = advance();
+      private Location last;
+
+      /**
+       * Move to the next location that still holds an item.
+       * @return - item found, or null when exhausted
+       */
+      private E advance() {
+        while (locations.hasNext()) {
+          nextLoc = locations.next();
+          E found = get(nextLoc.getRow(), nextLoc.getCol());
+          if (found != null) {
+            return found;
+          }
+        }
+        return null;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return nextItem != null;
+      }
+
+      @Override
+      public E next() {
+        if (nextItem == null) {
+          throw new NoSuchElementException();
+        }
+        E item = nextItem;
+        last = nextLoc;
+        nextItem = advance();
+        return item;
+      }
+
+      @Override
+      public void remove() {
+        if (last == null) {
+          throw new IllegalStateException();
+        }
+        AdaptiveGrid.this.remove(last.getRow(), last.getCol());
+        last = null;
+      }
+    };
+  }
+
+  /**
+   * Iterator for all item locations, in row-major order.
+   * @return - Iterable object for all items
+   */
+  @Override
+  public Iterable<Location> itemLocations() {
+    return new Iterable<Location>() {
+
+      @Override
+      public Iterator<Location> iterator() {
+        return delegate.itemLocations().iterator();
+      }
+    };
+  }
+
+  /**
+   * Iterator to iterate through all locations, in row-major order.
+   * @return - Iterable object
+   */
+  @Override
+  public Iterable<Location> allLocations() {
+    return delegate.allLocations();
+  }
+
+  /**
+   * Spliterator over the items, taken from the current representation.
+   * @return - a new Spliterator
+   */
+  @Override
+  public Spliterator<E> spliterator() {
+    return delegate.spliterator();
+  }
+
+  /**
+   * Spliterator over the item locations, taken from the current
+   * representation.
+   * @return - a new Spliterator
+   */
+  @Override
+  protected Spliterator<Location> itemLocationSpliterator() {
+    return delegate.itemLocationSpliterator();
+  }
+
+}
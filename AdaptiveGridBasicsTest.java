@@ -0,0 +1,93 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for the basic functionality of the AdaptiveGrid class.
+ * 
+ * @author Jordan Martin
+ *
+ */
+class AdaptiveGridBasicsTest extends GridBasicsTest {
+
+  @Override
+  public <T> Grid<T> makeGrid(int rows, int cols) {
+    return new AdaptiveGrid<T>(rows, cols);
+  }
+
+  @Test
+  void testPutGetandRemoveWorkForHugeGrids() {
+    AdaptiveGrid<String> grid = new AdaptiveGrid<>(1000000, 1000000);
+    grid.put(new Location(999999, 999999), "A");
+    assertEquals("A", grid.get(new Location(999999, 999999)));
+    assertEquals("A", grid.remove(new Location(999999, 999999)));
+    assertEquals(null, grid.remove(new Location(999999, 999999)));
+    assertEquals(AdaptiveGrid.Mode.SPARSE, grid.mode());
+  }
+
+  @Test
+  void testMigratesToDenseAndBackWithHysteresis() {
+    AdaptiveGrid<Integer> grid = new AdaptiveGrid<>(10, 10, 0.1, 0.5);
+    assertEquals(AdaptiveGrid.Mode.SPARSE, grid.mode());
+    for (int i = 0; i < 50; i++) {
+      grid.put(i / 10, i % 10, i);
+    }
+    assertEquals(AdaptiveGrid.Mode.SPARSE, grid.mode());
+    grid.put(5, 0, 50);
+    assertEquals(AdaptiveGrid.Mode.DENSE, grid.mode());
+    assertEquals(1, grid.migrationCount());
+    for (int i = 0; i <= 50; i++) {
+      assertEquals(Integer.valueOf(i), grid.get(i / 10, i % 10));
+    }
+
+    // Dropping back below the dense threshold does not go sparse.
+    for (int i = 50; i >= 10; i--) {
+      grid.remove(i / 10, i % 10);
+    }
+    assertEquals(AdaptiveGrid.Mode.DENSE, grid.mode());
+    grid.remove(0, 9);
+    assertEquals(AdaptiveGrid.Mode.SPARSE, grid.mode());
+    assertEquals(2, grid.migrationCount());
+    assertEquals(9, grid.numItems());
+    for (int i = 0; i < 9; i++) {
+      assertEquals(Integer.valueOf(i), grid.get(0, i));
+    }
+  }
+
+  @Test
+  void testChangeTrackingSurvivesMigration() {
+    AdaptiveGrid<Integer> grid = new AdaptiveGrid<>(40, 40, 0.0, 0.00125);
+    grid.enableChangeTracking();
+    long start = grid.epoch();
+    grid.put(0, 0, 1);
+    grid.put(39, 39, 1);
+    long seen = grid.epoch();
+    assertEquals(AdaptiveGrid.Mode.SPARSE, grid.mode());
+    grid.put(20, 20, 1);
+    assertEquals(AdaptiveGrid.Mode.DENSE, grid.mode());
+    assertTrue(grid.isChangeTrackingEnabled());
+    // Copying the items across does not count as writing them.
+    assertEquals(seen + 1, grid.epoch());
+    assertEquals(List.of(new Region(16, 16, 32, 32)), grid.changedSince(seen));
+    assertEquals(3, grid.changedSince(start).size());
+  }
+
+  @Test
+  void testReplacingItemsDoesNotMigrate() {
+    AdaptiveGrid<String> grid = new AdaptiveGrid<>(4, 4, 0.0, 0.5);
+    for (int i = 0; i < 100; i++) {
+      grid.put(1, 1, "A" + i);
+    }
+    assertEquals(1, grid.numItems());
+    assertEquals(0, grid.migrationCount());
+  }
+
+  @Test
+  void testConstructorRejectsBadThresholds() {
+    assertThrows(IllegalArgumentException.class, () -> new AdaptiveGrid<String>(5, 5, 0.5, 0.5));
+    assertThrows(IllegalArgumentException.class, () -> new AdaptiveGrid<String>(5, 5, -0.1, 0.5));
+    assertThrows(IllegalArgumentException.class, () -> new AdaptiveGrid<String>(5, 5, 0.1, 1.5));
+    assertThrows(IllegalArgumentException.class, () -> new AdaptiveGrid<String>(5, 5, Double.NaN, 0.5));
+  }
+}
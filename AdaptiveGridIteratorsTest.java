@@ -0,0 +1,51 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for the iterator functionality of the AdaptiveGrid class.
+ * 
+ * @author Jordan Martin
+ *
+ */
+class AdaptiveGridIteratorsTest extends GridIteratorsTest {
+
+  @Override
+  public <T> Grid<T> makeGrid(int rows, int cols) {
+    return new AdaptiveGrid<T>(rows, cols);
+  }
+
+  @Test
+  void testItemLocationIteratorHugeSparseGrid() {
+    Grid<String> huge = makeGrid(1000000, 1000000);
+    huge.put(new Location(999999, 999999), "A");
+    Iterator<Location> it = huge.itemLocations().iterator();
+    assertEquals(new Location(999999, 999999), it.next());
+  }
+
+  @Test
+  void testIteratorSurvivesMigration() {
+    AdaptiveGrid<Integer> grid = new AdaptiveGrid<>(4, 4, 0.1, 0.5);
+    for (int i = 0; i < 8; i++) {
+      grid.put(i / 4, i % 4, i);
+    }
+    Iterator<Integer> it = grid.iterator();
+    assertEquals(Integer.valueOf(0), it.next());
+    grid.put(3, 3, 99);
+    assertEquals(AdaptiveGrid.Mode.DENSE, grid.mode());
+
+    // Removal through an iterator opened before the switch reaches the
+    // new representation.
+    it.remove();
+    assertEquals(null, grid.get(0, 0));
+    List<Integer> rest = new ArrayList<>();
+    while (it.hasNext()) {
+      rest.add(it.next());
+    }
+    assertEquals(List.of(1, 2, 3, 4, 5, 6, 7), rest);
+    assertEquals(8, grid.numItems());
+  }
+}
@@ -1,138 +1,301 @@
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
 
 
 /**
  * Creation of ArrayGrid class and individual
  * iterators for the methods.
  * I abide by the JMU Honor Code.
- * 
+ *
  * @extends AbstractGrid class
  * @author Jordan Martin
  */
-
-@SuppressWarnings("rawtypes")
 public class ArrayGrid<E> extends AbstractGrid<E> {
-  
-  private E[][] data;
+
+  private static final int PAGE_SHIFT = 10;
+  private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  private Object[] data;
+  private final OccupancyMask occupied;
+  private final int rows;
+  private final int cols;
   private int numItems;
-  
-  
+
+  // Null while this grid owns data. Once a snapshot holds data it is
+  // never written again, and pages holds the cells copied out of it
+  // since, 1024 consecutive cells to a page, each stamped with the
+  // generation it was copied in. Once every page has been copied in the
+  // current generation they are folded back into a new data array.
+  private Object[][] pages;
+  private long[] stamps;
+  private long generation;
+  private boolean pagesShared;
+  private int copiedPages;
+
+
   /**
-   * Constructor for ArrayGrid class.
+   * Constructor for ArrayGrid class. Cells are kept in a single
+   * row-major array, so cell (row, col) lives at index row * cols + col.
    * @param rows - number of rows
    * @param cols - number of columns
    */
-  @SuppressWarnings("unchecked")
   public ArrayGrid(int rows, int cols) {
-    if (rows <= 0 || cols <= 0) {
+    if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE - 8) {
       throw new IllegalArgumentException();
     }
-    data = (E[][]) new Object[rows][cols];
+    this.rows = rows;
+    this.cols = cols;
+    data = new Object[rows * cols];
+    occupied = new OccupancyMask(rows * cols);
     numItems = 0;
-    
-    
+
+
+  }
+
+  /**
+   * Constructor for a read-only ArrayGrid sharing another's cells and
+   * occupancy mask, which the other no longer writes in place.
+   * @param other - grid to share with
+   */
+  private ArrayGrid(ArrayGrid<E> other) {
+    rows = other.rows;
+    cols = other.cols;
+    data = other.data;
+    pages = other.pages;
+    occupied = other.occupied.share();
+    numItems = other.numItems;
+  }
+
+  /**
+   * Convert a row and column into an index into the data array.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - row-major cell index
+   */
+  private int index(int row, int col) {
+    if (row < 0 || col < 0 || row >= rows || col >= cols) {
+      throw new IllegalArgumentException();
+    }
+    return row * cols + col;
+  }
+
+  /**
+   * Get the item stored at an index of the data array.
+   * @param index - row-major cell index
+   * @return - stored item
+   */
+  @SuppressWarnings("unchecked")
+  private E elementAt(int index) {
+    Object[][] copied = pages;
+    if (copied != null) {
+      Object[] page = copied[index >>> PAGE_SHIFT];
+      if (page != null) {
+        return (E) page[index & PAGE_MASK];
+      }
+    }
+    return (E) data[index];
+  }
+
+  /**
+   * Store an item at an index of the data array, copying its page first
+   * if a snapshot may still read it.
+   * @param index - row-major cell index
+   * @param item - item to store, or null to empty the cell
+   */
+  private void store(int index, Object item) {
+    if (pages == null) {
+      data[index] = item;
+    } else {
+      page(index >>> PAGE_SHIFT)[index & PAGE_MASK] = item;
+      foldPages();
+    }
+  }
+
+  /**
+   * Get a page this grid may write in place, copying it from the shared
+   * data array or from an earlier generation's page if needed.
+   * @param page - page index
+   * @return - the page's cells
+   */
+  private Object[] page(int page) {
+    if (pagesShared) {
+      pages = pages.clone();
+      stamps = stamps.clone();
+      pagesShared = false;
+    }
+    Object[] copied = pages[page];
+    if (copied == null || stamps[page] != generation) {
+      int start = page << PAGE_SHIFT;
+      copied = copied == null
+          ? Arrays.copyOfRange(data, start, start + Math.min(PAGE_SIZE, data.length - start))
+          : copied.clone();
+      pages[page] = copied;
+      stamps[page] = generation;
+      copiedPages++;
+    }
+    return copied;
   }
-  
-  
+
+  /**
+   * Fold the pages back into one array this grid owns once every page
+   * has been copied since the last snapshot. Reads then stop going
+   * through the page table, and the old data array is left to the
+   * snapshots alone.
+   */
+  private void foldPages() {
+    if (copiedPages == pages.length) {
+      ownCells();
+    }
+  }
+
+  /**
+   * Gather the cells into a new array that this grid owns and writes in
+   * place again.
+   */
+  private void ownCells() {
+    Object[] own = new Object[data.length];
+    readCells(0, own);
+    data = own;
+    pages = null;
+    stamps = null;
+    pagesShared = false;
+  }
+
+  /**
+   * Find the first occupied index at or after the parameter index by
+   * jumping to the next set bit of the occupancy mask, so a pass over the
+   * items costs O(items + cells / 64).
+   * @param from - index to start searching from
+   * @return - next occupied index, or -1 if there is none
+   */
+  private int nextItemIndex(int from) {
+    return occupied.nextSetBit(from);
+  }
+
+  /**
+   * Check whether a cell holds an item.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - true if the cell is occupied
+   */
+  @Override
+  public boolean isOccupied(int row, int col) {
+    return occupied.get(index(row, col));
+  }
+
+
   /**
    * Constructor for default iterator.
    * @return - a new Iterator
    */
   public Iterator<E> iterator() {
     return new Iterator<E>() {
-      
-      private int currPosX = 0;
-      private int currPosY = 0;
-      private E last = null;
 
-      
+      private int next = nextItemIndex(0);
+      private int last = -1;
+
+
       /**
        * Check if a grid has a next spot.
        * @return - boolean depending on result
        */
       @Override
       public boolean hasNext() {
-        for (int row = currPosY; row < numRows(); row++) {
-          for (int col = currPosX; col < numCols(); col++) {
-            if (data[row][col] != null && last != data[row][col]) {
-              currPosX = col;
-              currPosY = row;
-              return true;
-            }
-          }
-        }
-        
-        return false;
+        return next >= 0;
       }
-      
-      
+
+
       /**
        * Move to the next spot in the grid.
        * @return - previous value
        */
       @Override
       public E next() {
-        if (!hasNext()) {
+        if (next < 0) {
           throw new NoSuchElementException();
-        } else {
-          last = data[currPosY][currPosX];
-          return last;
         }
-        
+        last = next;
+        next = nextItemIndex(next + 1);
+        return elementAt(last);
+
       }
-      
+
       /**
        * Remove the object at the current position.
        */
       @Override
       public void remove() {
-        if (numItems <= 0) {
+        if (last < 0) {
           throw new IllegalStateException();
         }
-        
-        if (data[currPosY][currPosX] != null) {
-          data[currPosY][currPosX] = null;
+
+        if (occupied.clear(last)) {
+          store(last, null);
           numItems--;
+          markChanged(last / cols, last % cols);
         }
-        
+        last = -1;
+
       }
-    
-    
+
+
     };
   }
-  
+
+  /**
+   * Spliterator over the items, splitting into bands of rows.
+   * @return - a new Spliterator
+   */
+  @Override
+  public Spliterator<E> spliterator() {
+    return new MaskSpliterator<E>(occupied, cols, this::elementAt);
+  }
+
+  /**
+   * Spliterator over the item locations, splitting into bands of rows.
+   * @return - a new Spliterator
+   */
+  @Override
+  protected Spliterator<Location> itemLocationSpliterator() {
+    return new MaskSpliterator<Location>(occupied, cols,
+        index -> location(index / cols, index % cols));
+  }
+
   /**
    * Put the parameter item into the designated spot.
    * @param loc -  location for object to be placed
    * @param item - item to be placed
    */
-  @SuppressWarnings("unchecked")
-  public void put(Location loc, Object item) {
-    if (loc == null || item == null) {
+  public void put(Location loc, E item) {
+    if (loc == null) {
       throw new NullPointerException();
     }
-    
-    if (loc.getRow() == 0 && loc.getCol() == 0) {
-      if (data[0][0] == null) {
-        data[0][0] = (E) item;
-        numItems++;
-      }
 
+    put(loc.getRow(), loc.getCol(), item);
+
+  }
+
+  /**
+   * Put the parameter item into the designated spot.
+   * @param row - row for object to be placed
+   * @param col - column for object to be placed
+   * @param item - item to be placed
+   */
+  public void put(int row, int col, E item) {
+    if (item == null) {
+      throw new NullPointerException();
     }
-    
-    if (loc.getRow() < data.length && loc.getCol() < data[0].length) {
-      if (data[loc.getRow()][loc.getCol()] == null) {
-        data[loc.getRow()][loc.getCol()] = (E) item;
-        numItems++;
-      }
-    } else {
-     
-      throw new IllegalArgumentException();
+
+    int index = index(row, col);
+    if (occupied.set(index)) {
+      numItems++;
     }
-    
-    
-    
+    store(index, item);
+    markChanged(row, col);
+
   }
 
   /**
@@ -141,17 +304,19 @@ public class ArrayGrid<E> extends AbstractGrid<E> {
    * @return - grabbed value
    */
   public E get(Location loc) {
-    if (loc.getRow() >= numRows() || loc.getCol() >= numCols()) {
-      throw new IllegalArgumentException();
-    } else if (loc == null || data[loc.getRow()][loc.getCol()] == null) {
-      return null;
-    }
-    
-    
-    return data[loc.getRow()][loc.getCol()];
-    
-    
-     
+    return get(loc.getRow(), loc.getCol());
+
+  }
+
+  /**
+   * Get object at respective position.
+   * @param row - row to be grabbed
+   * @param col - column to be grabbed
+   * @return - grabbed value
+   */
+  public E get(int row, int col) {
+    return elementAt(index(row, col));
+
   }
 
   /**
@@ -163,22 +328,299 @@ public class ArrayGrid<E> extends AbstractGrid<E> {
     if (loc == null) {
       throw new IllegalArgumentException();
     }
-    
-    if (loc.getRow() < data.length && loc.getCol() < data[0].length) {
-      if (data[loc.getRow()][loc.getCol()] != null) {
-        E element = data[loc.getRow()][loc.getCol()];
-        data[loc.getRow()][loc.getCol()] = null;
-        numItems--;
-        return element;
+
+    return remove(loc.getRow(), loc.getCol());
+
+  }
+
+  /**
+   * Remove object at respective location.
+   * @param row - row to remove
+   * @param col - column to remove
+   * @return - removed value
+   */
+  public E remove(int row, int col) {
+    int index = index(row, col);
+    if (!occupied.clear(index)) {
+      return null;
+    }
+    E element = elementAt(index);
+    store(index, null);
+    numItems--;
+    markChanged(row, col);
+    return element;
+
+  }
+
+  /**
+   * Put the item into every cell of a rectangle, one block fill per row
+   * (or one in total when the rectangle spans whole rows).
+   * @param rowFrom - first row, inclusive
+   * @param colFrom - first column, inclusive
+   * @param rowTo - last row, exclusive
+   * @param colTo - last column, exclusive
+   * @param item - item to be placed
+   */
+  @Override
+  public void fill(int rowFrom, int colFrom, int rowTo, int colTo, E item) {
+    if (item == null) {
+      throw new NullPointerException();
+    }
+    checkRegion(rowFrom, colFrom, rowTo, colTo);
+    markChanged(rowFrom, colFrom, rowTo, colTo);
+    if (colFrom == 0 && colTo == cols) {
+      fillRange(rowFrom * cols, rowTo * cols, item);
+      numItems += occupied.setRange(rowFrom * cols, rowTo * cols);
+      return;
+    }
+    for (int row = rowFrom; row < rowTo; row++) {
+      int base = row * cols;
+      fillRange(base + colFrom, base + colTo, item);
+      numItems += occupied.setRange(base + colFrom, base + colTo);
+    }
+  }
+
+  /**
+   * Store the item in a run of cells, one page at a time once a snapshot
+   * holds the data array. A null item clears the run.
+   * @param from - first index, inclusive
+   * @param to - last index, exclusive
+   * @param item - item to store
+   */
+  private void fillRange(int from, int to, Object item) {
+    if (pages == null) {
+      fillRange(data, from, to, item);
+      return;
+    }
+    for (int start = from; start < to;) {
+      int offset = start & PAGE_MASK;
+      int length = Math.min(to - start, PAGE_SIZE - offset);
+      fillRange(page(start >>> PAGE_SHIFT), offset, offset + length, item);
+      start += length;
+    }
+    foldPages();
+  }
+
+  /**
+   * Store the item in a run of an array. Copying the filled prefix onto
+   * the rest, doubling each time, beats a plain Arrays.fill on reference
+   * arrays because System.arraycopy moves references in bulk.
+   * @param cells - array to fill
+   * @param from - first index, inclusive
+   * @param to - last index, exclusive
+   * @param item - item to store
+   */
+  private static void fillRange(Object[] cells, int from, int to, Object item) {
+    if (from >= to) {
+      return;
+    }
+    cells[from] = item;
+    int filled = 1;
+    int length = to - from;
+    while (filled < length) {
+      int chunk = Math.min(filled, length - filled);
+      System.arraycopy(cells, from, cells, from + filled, chunk);
+      filled += chunk;
+    }
+  }
+
+  /**
+   * Remove every item in a region, one block fill per row.
+   * @param region - cells to clear
+   */
+  @Override
+  public void clear(Region region) {
+    checkRegion(region.rowFrom(), region.colFrom(), region.rowTo(), region.colTo());
+    markChanged(region.rowFrom(), region.colFrom(), region.rowTo(), region.colTo());
+    for (int row = region.rowFrom(); row < region.rowTo(); row++) {
+      int base = row * cols;
+      fillRange(base + region.colFrom(), base + region.colTo(), null);
+      numItems -= occupied.clearRange(base + region.colFrom(), base + region.colTo());
+    }
+  }
+
+  /**
+   * Copy a region of a grid so that its top-left cell lands on dst. When
+   * the source is an ArrayGrid each row is moved with System.arraycopy;
+   * otherwise cells are copied one at a time.
+   * @param src - grid to copy from
+   * @param srcRegion - region of src to copy
+   * @param dst - destination of the region's top-left cell
+   */
+  @Override
+  public void copyRegion(Grid<? extends E> src, Region srcRegion, Location dst) {
+    if (!(src instanceof ArrayGrid)) {
+      super.copyRegion(src, srcRegion, dst);
+      return;
+    }
+    checkCopy(src, srcRegion, dst);
+    markChanged(dst.getRow(), dst.getCol(), dst.getRow() + srcRegion.numRows(),
+        dst.getCol() + srcRegion.numCols());
+    ArrayGrid<?> from = (ArrayGrid<?>) src;
+    int rowShift = dst.getRow() - srcRegion.rowFrom();
+    int width = srcRegion.numCols();
+    boolean rowsBackward = from == this && rowShift > 0;
+    // Paged rows go through a buffer, which also keeps overlapping runs safe.
+    Object[] buffer = pages == null && from.pages == null ? null : new Object[width];
+    for (int i = 0; i < srcRegion.numRows(); i++) {
+      int row = rowsBackward ? srcRegion.rowTo() - 1 - i : srcRegion.rowFrom() + i;
+      int start = (row + rowShift) * cols + dst.getCol();
+      int source = row * from.cols + srcRegion.colFrom();
+      if (buffer == null) {
+        System.arraycopy(from.data, source, data, start, width);
       } else {
-        return null;
+        from.readCells(source, buffer);
+        writeCells(start, buffer);
+      }
+      copyBits(from.occupied, source, start, width);
+    }
+  }
+
+  /**
+   * Copy a run of cells out of the grid, page by page.
+   * @param from - first index
+   * @param into - array receiving the run, as long as the run
+   */
+  private void readCells(int from, Object[] into) {
+    for (int done = 0; done < into.length;) {
+      int index = from + done;
+      int offset = index & PAGE_MASK;
+      int length = Math.min(into.length - done, PAGE_SIZE - offset);
+      Object[] page = pages == null ? null : pages[index >>> PAGE_SHIFT];
+      if (page == null) {
+        System.arraycopy(data, index, into, done, length);
+      } else {
+        System.arraycopy(page, offset, into, done, length);
+      }
+      done += length;
+    }
+  }
+
+  /**
+   * Copy a run of cells into the grid, page by page.
+   * @param to - first index
+   * @param cells - the run
+   */
+  private void writeCells(int to, Object[] cells) {
+    if (pages == null) {
+      System.arraycopy(cells, 0, data, to, cells.length);
+      return;
+    }
+    for (int done = 0; done < cells.length;) {
+      int index = to + done;
+      int offset = index & PAGE_MASK;
+      int length = Math.min(cells.length - done, PAGE_SIZE - offset);
+      System.arraycopy(cells, done, page(index >>> PAGE_SHIFT), offset, length);
+      done += length;
+    }
+    foldPages();
+  }
+
+  /**
+   * Visit every item in a rectangle in row-major order, jumping between
+   * set bits of each row's slice of the occupancy mask.
+   * @param rowFrom - first row, inclusive
+   * @param colFrom - first column, inclusive
+   * @param rowTo - last row, exclusive
+   * @param colTo - last column, exclusive
+   * @param action - callback given each occupied cell
+   */
+  @Override
+  public void forEachItemIn(int rowFrom, int colFrom, int rowTo, int colTo,
+      IntBinaryConsumer action) {
+    checkRegion(rowFrom, colFrom, rowTo, colTo);
+    for (int row = rowFrom; row < rowTo; row++) {
+      int base = row * cols;
+      int end = base + colTo;
+      for (int index = occupied.nextSetBit(base + colFrom, end); index >= 0;
+          index = occupied.nextSetBit(index + 1, end)) {
+        action.accept(row, index - base);
       }
+    }
+  }
 
+  /**
+   * Copy a run of occupancy bits 64 at a time, keeping numItems in step.
+   * When the source is this grid's own mask and the runs overlap, the
+   * copy walks backward so every source bit is read before it is
+   * overwritten.
+   * @param source - mask to copy from
+   * @param from - first source bit
+   * @param to - first destination bit
+   * @param length - number of bits
+   */
+  private void copyBits(OccupancyMask source, int from, int to, int length) {
+    if (source == occupied && to > from) {
+      for (int end = length; end > 0; end -= 64) {
+        int count = Math.min(64, end);
+        numItems += occupied.setBits(to + end - count, count,
+            source.getBits(from + end - count, count));
+      }
+    } else {
+      for (int start = 0; start < length; start += 64) {
+        int count = Math.min(64, length - start);
+        numItems += occupied.setBits(to + start, count, source.getBits(from + start, count));
+      }
     }
-    
-    throw new IllegalArgumentException();
-    
-    
+  }
+
+  /**
+   * Take a read-only snapshot of the grid without copying any cells. The
+   * snapshot keeps the data array and occupancy mask, and this grid
+   * starts a new generation: the first write to a page of 1024 cells
+   * after that copies the page, so a snapshot taken every tick costs
+   * memory in proportion to the pages written during that tick. Once
+   * every page has been copied the grid goes back to one flat array.
+   * @return - immutable grid with the same items
+   */
+  @Override
+  public Grid<E> snapshot() {
+    ArrayGrid<E> frozen = new ArrayGrid<E>(this);
+    if (pages == null) {
+      int count = (data.length + PAGE_MASK) >>> PAGE_SHIFT;
+      pages = new Object[count][];
+      stamps = new long[count];
+    } else {
+      pagesShared = true;
+    }
+    generation++;
+    copiedPages = 0;
+    return new ImmutableGrid<E>(frozen);
+  }
+
+  /**
+   * Get the backing row-major array, so an engine can read a whole
+   * generation without a call per cell. Callers must not write to it. If
+   * a snapshot holds the array, the cells are first gathered into a new
+   * one that this grid owns again.
+   * @return - the backing array, null where empty
+   */
+  Object[] cells() {
+    if (pages != null) {
+      ownCells();
+    }
+    return data;
+  }
+
+  /**
+   * Replace the backing array with another of the same length, rebuilding
+   * the occupancy mask and item count from it. Every tile counts as
+   * changed.
+   * @param next - new row-major cells, null where empty
+   * @return - the array that was replaced, or null if a snapshot holds it
+   */
+  Object[] swapCells(Object[] next) {
+    if (next.length != data.length) {
+      throw new IllegalArgumentException();
+    }
+    Object[] old = pages == null ? data : null;
+    data = next;
+    pages = null;
+    stamps = null;
+    pagesShared = false;
+    numItems = occupied.assign(next);
+    markChanged(0, 0, rows, cols);
+    return old;
   }
 
   /**
@@ -188,7 +630,7 @@ public class ArrayGrid<E> extends AbstractGrid<E> {
   public Iterable<Location> itemLocations() {
     return new ItemIterator();
   }
-  
+
   /**
    * Creation of ItemIterator class and individual
    * overridden iterator methods.
@@ -203,11 +645,8 @@ public class ArrayGrid<E> extends AbstractGrid<E> {
     @Override
     public Iterator<Location> iterator() {
       return new Iterator<Location>() {
-        
-        private Location currLoc = new Location(0, 0);
-        private int currRow = currLoc.getRow();
-        private int currCol = currLoc.getCol();
-        private boolean currEnd = false;
+
+        private int next = nextItemIndex(0);
 
         /**
          * Check if there is a next spot in the grid with an item.
@@ -215,18 +654,8 @@ public class ArrayGrid<E> extends AbstractGrid<E> {
          */
         @Override
         public boolean hasNext() {
-            for (int row = currRow; row < numRows(); row++) {
-              for (int col = currCol; col < numCols(); col++) {
-                if (data[row][col] != null) {
-                  currCol = col;
-                  currRow = row;
-                  return true;
-                }
-              }
-            }
-            
-            return false;
-          }
+          return next >= 0;
+        }
 
         /**
          * Move to the next spot in the grid with an item.
@@ -234,22 +663,15 @@ public class ArrayGrid<E> extends AbstractGrid<E> {
          */
         @Override
         public Location next() {
-          if (hasNext() && !currEnd) {
-            currLoc = new Location(currRow, currCol);
-            currCol++;
-            return currLoc;
-          } else if (hasNext() && currEnd) {
-            currLoc = new Location(currRow, currCol);
-            currRow = currLoc.getRow() + 1;
-            currCol = 0;
-            currEnd = false;
-            return currLoc;
-          } 
-          
-          throw new NoSuchElementException();
-          
+          if (next < 0) {
+            throw new NoSuchElementException();
+          }
+          Location loc = location(next / cols, next % cols);
+          next = nextItemIndex(next + 1);
+          return loc;
+
         }
-        
+
         /**
          * Remove method; only implemented in default iterator.
          */
@@ -258,15 +680,15 @@ public class ArrayGrid<E> extends AbstractGrid<E> {
         }
       };
     }
-    
+
   }
-  
+
   /**
    * Get the number of rows.
    * @return - number of rows
    */
   public int numRows() {
-    return data.length;
+    return rows;
   }
 
   /**
@@ -274,19 +696,18 @@ public class ArrayGrid<E> extends AbstractGrid<E> {
    * @return - number of columns
    */
   public int numCols() {
-    return data[0].length;
+    return cols;
   }
 
   /**
    * Iterator to iterate through all locations.
    * @return - Iterable object
    */
-  @SuppressWarnings("unchecked")
-  public Iterable allLocations() {
+  public Iterable<Location> allLocations() {
 
     return new LocationIterator();
   }
-  
+
   /**
    * Creation of LocationIterator class and individual
    * overridden iterator methods.
@@ -301,11 +722,8 @@ public class ArrayGrid<E> extends AbstractGrid<E> {
     @Override
     public Iterator<Location> iterator() {
       return new Iterator<Location>() {
-        
-        private Location currLoc = new Location(0, 0);
-        private int currRow = currLoc.getRow();
-        private int currCol = currLoc.getCol();
-        private boolean currEnd = false;
+
+        private int next = 0;
 
         /**
          * Check if there is a next location.
@@ -313,19 +731,7 @@ public class ArrayGrid<E> extends AbstractGrid<E> {
          */
         @Override
         public boolean hasNext() {
-          if (currCol + 1 >= numCols() && currRow + 1 < numRows()) {
-            currEnd = true;
-            return true;
-          } else if (currRow >= numRows() || currCol >= numCols()) {
-            return false;
-          } else {
-            return true;
-          }
-          
-        
-        
-
-          
+          return next < data.length;
         }
 
         /**
@@ -334,35 +740,28 @@ public class ArrayGrid<E> extends AbstractGrid<E> {
          */
         @Override
         public Location next() {
-          if (hasNext() && !currEnd) {
-            currLoc = new Location(currRow, currCol);
-            currCol++;
-            return currLoc;
-          } else if (currEnd) {
-            currLoc = new Location(currRow, currCol);
-            currRow = currLoc.getRow() + 1;
-            currCol = 0;
-            currEnd = false;
-            return currLoc;
-          } 
-          
-          throw new NoSuchElementException();
-          
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          Location loc = location(next / cols, next % cols);
+          next++;
+          return loc;
+
         }
-        
+
         /**
          * Remove method; only implemented in default iterator.
          */
         public void remove() {
           throw new UnsupportedOperationException();
         }
-        
+
       };
-    
+
     }
-    
+
   }
-  
+
 
   /**
    * Get number of items in the grid.
@@ -1,4 +1,6 @@
 import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Iterator;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -15,4 +17,26 @@ class ArrayGridIteratorsTest extends GridIteratorsTest {
     return new ArrayGrid<T>(rows, cols);
   }
 
+  @Test
+  void testItemIteratorsSkipEmptyWords() {
+    Grid<Integer> grid = makeGrid(300, 300);
+    int count = 0;
+    for (int i = 0; i < 90000; i += 97) {
+      grid.put(new Location(i / 300, i % 300), i);
+      count++;
+    }
+
+    int seen = 0;
+    int previous = -1;
+    for (Integer item : grid) {
+      assertTrue(item > previous);
+      previous = item;
+      seen++;
+    }
+    assertEquals(count, seen);
+
+    Iterator<Location> it = grid.itemLocations().iterator();
+    assertEquals(new Location(0, 0), it.next());
+    assertEquals(new Location(0, 97), it.next());
+  }
 }
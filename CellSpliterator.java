@@ -0,0 +1,97 @@
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over every cell of a grid, in row-major order. Indices are
+ * longs so that grids with more than 2^31 cells can be streamed, and
+ * ranges split at row boundaries where possible.
+ *
+ * @author Jordan Martin
+ */
+final class CellSpliterator implements Spliterator<Location> {
+
+  private final AbstractGrid<?> grid;
+  private final int cols;
+  private long origin;
+  private final long fence;
+
+  /**
+   * Constructor for CellSpliterator class.
+   * @param grid - grid whose cells are reported
+   */
+  CellSpliterator(AbstractGrid<?> grid) {
+    this(grid, 0, (long) grid.numRows() * grid.numCols());
+  }
+
+  private CellSpliterator(AbstractGrid<?> grid, long origin, long fence) {
+    this.grid = grid;
+    this.cols = grid.numCols();
+    this.origin = origin;
+    this.fence = fence;
+  }
+
+  /**
+   * Pick the point to split a row-major range at: the row boundary
+   * nearest the middle, or the middle itself when the range lies within
+   * one row.
+   * @param origin - first index, inclusive
+   * @param fence - last index, exclusive
+   * @param cols - row length
+   * @return - split point
+   */
+  static long splitPoint(long origin, long fence, int cols) {
+    long mid = origin + (fence - origin) / 2;
+    long rowStart = mid - mid % cols;
+    if (rowStart > origin) {
+      return rowStart;
+    }
+    long nextRow = rowStart + cols;
+    return nextRow < fence ? nextRow : mid;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super Location> action) {
+    if (origin >= fence) {
+      return false;
+    }
+    long index = origin++;
+    action.accept(grid.location((int) (index / cols), (int) (index % cols)));
+    return true;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super Location> action) {
+    for (; origin < fence; origin++) {
+      action.accept(grid.location((int) (origin / cols), (int) (origin % cols)));
+    }
+  }
+
+  @Override
+  public Spliterator<Location> trySplit() {
+    long mid = splitPoint(origin, fence, cols);
+    if (mid <= origin || mid >= fence) {
+      return null;
+    }
+    Spliterator<Location> low = new CellSpliterator(grid, origin, mid);
+    origin = mid;
+    return low;
+  }
+
+  @Override
+  public long estimateSize() {
+    return fence - origin;
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | SIZED | SUBSIZED | NONNULL | DISTINCT | SORTED | IMMUTABLE;
+  }
+
+  @Override
+  public Comparator<? super Location> getComparator() {
+    // Natural ordering of Location is row-major.
+    return null;
+  }
+
+}
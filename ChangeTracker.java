@@ -0,0 +1,254 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records which tiles of a grid have been written and when. Every write
+ * advances a counter, the epoch, and stamps the written cell's tile and
+ * tile row with it, so a write costs an increment, a shift or two and two
+ * stores. A reader remembers the epoch it last saw and later asks for the
+ * tiles stamped after it; the per-row stamps let that query skip whole
+ * rows of clean tiles.
+ *
+ * <p>Tiles are 16 by 16 cells, or larger on grids so big that the stamp
+ * table would otherwise pass 2^22 entries. Asking about an epoch from
+ * before tracking started reports every tile, since nothing is known about
+ * what happened then.
+ *
+ * <p>A tracker for grids written by several threads at once keeps its
+ * stamps in atomic arrays and turns the epoch around: epoch() advances it,
+ * and each write stamps its tile with the current epoch, raising the stamp
+ * with a max so that a slow writer never lowers a newer one. A writer
+ * stamps after changing its cell and stamps again if the epoch moved in
+ * the meantime, so every write a reader cannot yet see after taking an
+ * epoch is stamped after it. Writers share no counter, and a write to a
+ * tile already stamped in the current epoch only reads.
+ *
+ * @author Jordan Martin
+ */
+final class ChangeTracker {
+
+  static final int DEFAULT_TILE_SHIFT = 4;
+  static final long MAX_TILES = 1L << 22;
+
+  private final int rows;
+  private final int cols;
+  private final int tileShift;
+  private final int tileRows;
+  private final int tileCols;
+  private final long[] tileStamps;
+  private final long[] rowStamps;
+  private final long startEpoch;
+  private long epoch;
+  // Used instead of the three fields above when writers are concurrent.
+  private final AtomicLongArray sharedTileStamps;
+  private final AtomicLongArray sharedRowStamps;
+  private final AtomicLong sharedEpoch;
+
+  /**
+   * Constructor for ChangeTracker class.
+   * @param rows - number of rows in the grid
+   * @param cols - number of columns in the grid
+   * @param startEpoch - first epoch, above zero; earlier ones report every tile
+   */
+  ChangeTracker(int rows, int cols, long startEpoch) {
+    this(rows, cols, startEpoch, false);
+  }
+
+  /**
+   * Constructor for ChangeTracker class.
+   * @param rows - number of rows in the grid
+   * @param cols - number of columns in the grid
+   * @param startEpoch - first epoch, above zero; earlier ones report every tile
+   * @param concurrent - true if several threads may write at once
+   */
+  ChangeTracker(int rows, int cols, long startEpoch, boolean concurrent) {
+    int shift = DEFAULT_TILE_SHIFT;
+    while ((long) tilesAlong(rows, shift) * tilesAlong(cols, shift) > MAX_TILES) {
+      shift++;
+    }
+    this.rows = rows;
+    this.cols = cols;
+    tileShift = shift;
+    tileRows = tilesAlong(rows, shift);
+    tileCols = tilesAlong(cols, shift);
+    this.startEpoch = startEpoch;
+    if (concurrent) {
+      tileStamps = null;
+      rowStamps = null;
+      sharedTileStamps = new AtomicLongArray(tileRows * tileCols);
+      sharedRowStamps = new AtomicLongArray(tileRows);
+      sharedEpoch = new AtomicLong(startEpoch);
+    } else {
+      tileStamps = new long[tileRows * tileCols];
+      rowStamps = new long[tileRows];
+      epoch = startEpoch;
+      sharedTileStamps = null;
+      sharedRowStamps = null;
+      sharedEpoch = null;
+    }
+  }
+
+  /**
+   * Get the number of tiles needed to cover a length.
+   * @param length - cells along one side of the grid
+   * @param shift - log2 of the tile size
+   * @return - number of tiles
+   */
+  private static int tilesAlong(int length, int shift) {
+    return (int) (((long) length + (1L << shift) - 1) >>> shift);
+  }
+
+  /**
+   * Get the side length of a tile.
+   * @return - cells along each side of a tile
+   */
+  int tileSize() {
+    return 1 << tileShift;
+  }
+
+  /**
+   * Get the epoch of the latest write. With concurrent writers, get the
+   * current epoch and advance it, so every write that follows is stamped
+   * after the value returned.
+   * @return - current epoch
+   */
+  long epoch() {
+    if (sharedEpoch != null) {
+      return sharedEpoch.getAndIncrement();
+    }
+    return epoch;
+  }
+
+  /**
+   * Record a write to one cell.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   */
+  void mark(int row, int col) {
+    if (sharedEpoch != null) {
+      markShared(row, col, row + 1, col + 1);
+      return;
+    }
+    long stamp = ++epoch;
+    int tileRow = row >>> tileShift;
+    tileStamps[tileRow * tileCols + (col >>> tileShift)] = stamp;
+    rowStamps[tileRow] = stamp;
+  }
+
+  /**
+   * Record a write to every cell of a rectangle, as one epoch.
+   * @param rowFrom - first row, inclusive
+   * @param colFrom - first column, inclusive
+   * @param rowTo - last row, exclusive
+   * @param colTo - last column, exclusive
+   */
+  void mark(int rowFrom, int colFrom, int rowTo, int colTo) {
+    if (rowFrom >= rowTo || colFrom >= colTo) {
+      return;
+    }
+    if (sharedEpoch != null) {
+      markShared(rowFrom, colFrom, rowTo, colTo);
+      return;
+    }
+    long stamp = ++epoch;
+    int lastRow = (rowTo - 1) >>> tileShift;
+    int firstCol = colFrom >>> tileShift;
+    int lastCol = (colTo - 1) >>> tileShift;
+    for (int tileRow = rowFrom >>> tileShift; tileRow <= lastRow; tileRow++) {
+      int base = tileRow * tileCols;
+      Arrays.fill(tileStamps, base + firstCol, base + lastCol + 1, stamp);
+      rowStamps[tileRow] = stamp;
+    }
+  }
+
+  /**
+   * Record a write to a rectangle from one of several concurrent writers,
+   * stamping its tiles with the current epoch until the epoch holds still
+   * across a whole pass.
+   * @param rowFrom - first row, inclusive
+   * @param colFrom - first column, inclusive
+   * @param rowTo - last row, exclusive
+   * @param colTo - last column, exclusive
+   */
+  private void markShared(int rowFrom, int colFrom, int rowTo, int colTo) {
+    int lastRow = (rowTo - 1) >>> tileShift;
+    int firstCol = colFrom >>> tileShift;
+    int lastCol = (colTo - 1) >>> tileShift;
+    long stamp = sharedEpoch.get();
+    while (true) {
+      for (int tileRow = rowFrom >>> tileShift; tileRow <= lastRow; tileRow++) {
+        int base = tileRow * tileCols;
+        for (int tileCol = firstCol; tileCol <= lastCol; tileCol++) {
+          raise(sharedTileStamps, base + tileCol, stamp);
+        }
+        raise(sharedRowStamps, tileRow, stamp);
+      }
+      long now = sharedEpoch.get();
+      if (now == stamp) {
+        return;
+      }
+      stamp = now;
+    }
+  }
+
+  /**
+   * Raise a stamp to at least a value, skipping the update if it is
+   * already there.
+   * @param stamps - stamp array
+   * @param index - stamp to raise
+   * @param stamp - new lowest value
+   */
+  private static void raise(AtomicLongArray stamps, int index, long stamp) {
+    if (stamps.get(index) < stamp) {
+      stamps.getAndAccumulate(index, stamp, Math::max);
+    }
+  }
+
+  /**
+   * Find the tiles written after an epoch.
+   * @param since - epoch the caller last saw
+   * @return - tiles clipped to the grid, in row-major order
+   */
+  List<Region> changedSince(long since) {
+    List<Region> tiles = new ArrayList<Region>();
+    boolean all = since < startEpoch;
+    int size = 1 << tileShift;
+    for (int tileRow = 0; tileRow < tileRows; tileRow++) {
+      if (!all && rowStamp(tileRow) <= since) {
+        continue;
+      }
+      int base = tileRow * tileCols;
+      int rowFrom = tileRow << tileShift;
+      int rowTo = (int) Math.min(rows, (long) rowFrom + size);
+      for (int tileCol = 0; tileCol < tileCols; tileCol++) {
+        if (all || tileStamp(base + tileCol) > since) {
+          int colFrom = tileCol << tileShift;
+          tiles.add(new Region(rowFrom, colFrom, rowTo, (int) Math.min(cols, (long) colFrom + size)));
+        }
+      }
+    }
+    return tiles;
+  }
+
+  /**
+   * Get the stamp of a tile.
+   * @param index - row-major tile index
+   * @return - epoch of the tile's latest write, or zero
+   */
+  private long tileStamp(int index) {
+    return sharedTileStamps != null ? sharedTileStamps.get(index) : tileStamps[index];
+  }
+
+  /**
+   * Get the stamp of a row of tiles.
+   * @param tileRow - row of tiles
+   * @return - epoch of the latest write to any of its tiles, or zero
+   */
+  private long rowStamp(int tileRow) {
+    return sharedRowStamps != null ? sharedRowStamps.get(tileRow) : rowStamps[tileRow];
+  }
+
+}
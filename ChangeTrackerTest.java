@@ -0,0 +1,50 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for the ChangeTracker class.
+ *
+ * @author Jordan Martin
+ *
+ */
+class ChangeTrackerTest {
+
+  @Test
+  void testTilesAreClippedToTheGrid() {
+    ChangeTracker tracker = new ChangeTracker(20, 33, 1);
+    assertEquals(16, tracker.tileSize());
+    assertEquals(List.of(new Region(0, 0, 16, 16), new Region(0, 16, 16, 32),
+        new Region(0, 32, 16, 33), new Region(16, 0, 20, 16), new Region(16, 16, 20, 32),
+        new Region(16, 32, 20, 33)), tracker.changedSince(0));
+    tracker.mark(19, 32);
+    assertEquals(List.of(new Region(16, 32, 20, 33)), tracker.changedSince(1));
+  }
+
+  @Test
+  void testRegionMarksUseOneEpoch() {
+    ChangeTracker tracker = new ChangeTracker(64, 64, 1);
+    tracker.mark(10, 10, 10, 40);
+    assertEquals(1, tracker.epoch());
+    tracker.mark(10, 10, 40, 40);
+    assertEquals(2, tracker.epoch());
+    assertEquals(9, tracker.changedSince(1).size());
+    tracker.mark(63, 63);
+    assertEquals(List.of(new Region(48, 48, 64, 64)), tracker.changedSince(2));
+  }
+
+  @Test
+  void testHugeGridsGetLargerTiles() {
+    ChangeTracker tracker = new ChangeTracker(1 << 16, 1 << 16, 1);
+    assertEquals(32, tracker.tileSize());
+    tracker.mark(65535, 65535);
+    assertEquals(List.of(new Region(65504, 65504, 65536, 65536)), tracker.changedSince(1));
+    ChangeTracker tall = new ChangeTracker(Integer.MAX_VALUE, 1, 1);
+    assertEquals(512, tall.tileSize());
+    tall.mark(Integer.MAX_VALUE - 1, 0);
+    assertEquals(List.of(new Region(Integer.MAX_VALUE - 511, 0, Integer.MAX_VALUE, 1)),
+        tall.changedSince(1));
+  }
+
+}
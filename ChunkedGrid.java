@@ -0,0 +1,549 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Grid that splits its cells into square tiles (64 x 64 by default). A
+ * tile is allocated on the first put into it and freed again when its
+ * last item is removed, so empty regions cost nothing while occupied
+ * regions are stored as compact arrays. Tiles are found through a
+ * LongHashMap keyed on the packed tile coordinate, and the most recently
+ * used tile is remembered so runs of nearby accesses skip the lookup.
+ *
+ * <p>snapshot() copies no cells: the snapshot shares the tile directory
+ * and every tile with the live grid. Each tile remembers the generation it was made
+ * in, and taking a snapshot starts a new generation, so the first write
+ * to an older tile copies it (and the directory, once per snapshot)
+ * before changing anything. A snapshot taken every tick costs memory in
+ * proportion to the tiles written during that tick.
+ *
+ * @author Jordan Martin
+ */
+public class ChunkedGrid<E> extends AbstractGrid<E> {
+
+  public static final int DEFAULT_TILE_SHIFT = 6;
+
+  private final int numRows;
+  private final int numCols;
+  private final int shift;
+  private final int tileSize;
+  private final int tileMask;
+  private LongHashMap<Tile> tiles = new LongHashMap<Tile>();
+  private int numItems;
+
+  // Generation of tiles this grid may write in place, and whether a
+  // snapshot still holds the directory.
+  private long generation;
+  private boolean tilesShared;
+
+  // Most recently used tile, or null. One field holding a tile that
+  // knows its own key, so readers sharing a snapshot can race on it.
+  private Tile lastTile;
+
+  // Tile keys in row-major order and their tiles; null when stale.
+  private long[] sortedKeys;
+  private Tile[] sortedTiles;
+
+  /**
+   * A square block of cells with its own item count.
+   */
+  private static final class Tile {
+    final long key;
+    final Object[] cells;
+    final long generation;
+    int count;
+
+    Tile(long key, int tileSize, long generation) {
+      this.key = key;
+      cells = new Object[tileSize * tileSize];
+      this.generation = generation;
+    }
+
+    Tile(Tile other, long generation) {
+      key = other.key;
+      cells = other.cells.clone();
+      count = other.count;
+      this.generation = generation;
+    }
+  }
+
+  /**
+   * Constructor for ChunkedGrid class with 64 x 64 tiles.
+   * @param rows - number of rows
+   * @param cols - number of columns
+   */
+  public ChunkedGrid(int rows, int cols) {
+    this(rows, cols, DEFAULT_TILE_SHIFT);
+  }
+
+  /**
+   * Constructor for ChunkedGrid class.
+   * @param rows - number of rows
+   * @param cols - number of columns
+   * @param tileShift - log2 of the tile side length, from 1 to 10
+   */
+  public ChunkedGrid(int rows, int cols, int tileShift) {
+    if (rows <= 0 || cols <= 0 || tileShift < 1 || tileShift > 10) {
+      throw new IllegalArgumentException();
+    }
+    numRows = rows;
+    numCols = cols;
+    shift = tileShift;
+    tileSize = 1 << tileShift;
+    tileMask = tileSize - 1;
+  }
+
+  /**
+   * Constructor for a ChunkedGrid sharing another's tiles, which neither
+   * may write in place afterward. The row-major tile order is built here
+   * so that reading the copy never fills it in lazily.
+   * @param other - grid to share with
+   */
+  private ChunkedGrid(ChunkedGrid<E> other) {
+    other.sortTiles();
+    numRows = other.numRows;
+    numCols = other.numCols;
+    shift = other.shift;
+    tileSize = other.tileSize;
+    tileMask = other.tileMask;
+    tiles = other.tiles;
+    numItems = other.numItems;
+    sortedKeys = other.sortedKeys;
+    sortedTiles = other.sortedTiles;
+    generation = other.generation + 1;
+    tilesShared = true;
+  }
+
+  /**
+   * Check that a cell is on the grid.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   */
+  private void check(int row, int col) {
+    if (row < 0 || col < 0 || row >= numRows || col >= numCols) {
+      throw new IllegalArgumentException();
+    }
+  }
+
+  /**
+   * Get the directory key of the tile holding a cell.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - packed tile coordinate
+   */
+  private long tileKey(int row, int col) {
+    return Location.pack(row >>> shift, col >>> shift);
+  }
+
+  /**
+   * Get the index of a cell within its tile.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - index into the tile's cells
+   */
+  private int offset(int row, int col) {
+    return ((row & tileMask) << shift) | (col & tileMask);
+  }
+
+  /**
+   * Find the tile with the given key, checking the last used tile first.
+   * @param key - packed tile coordinate
+   * @return - the tile, or null if it is not allocated
+   */
+  private Tile tile(long key) {
+    Tile last = lastTile;
+    if (last != null && last.key == key) {
+      return last;
+    }
+    Tile tile = tiles.get(key);
+    if (tile != null) {
+      lastTile = tile;
+    }
+    return tile;
+  }
+
+  /**
+   * Put the parameter item into the designated spot.
+   * @param loc -  location for object to be placed
+   * @param item - item to be placed
+   */
+  @Override
+  public void put(Location loc, E item) {
+    if (loc == null) {
+      throw new NullPointerException();
+    }
+    put(loc.getRow(), loc.getCol(), item);
+  }
+
+  /**
+   * Put the parameter item into the designated spot, allocating its tile
+   * if needed.
+   * @param row - row for object to be placed
+   * @param col - column for object to be placed
+   * @param item - item to be placed
+   */
+  @Override
+  public void put(int row, int col, E item) {
+    if (item == null) {
+      throw new NullPointerException();
+    }
+    check(row, col);
+    long key = tileKey(row, col);
+    Tile tile = tile(key);
+    if (tile == null) {
+      ownTiles();
+      tile = new Tile(key, tileSize, generation);
+      tiles.put(key, tile);
+      sortedKeys = null;
+      lastTile = tile;
+    } else if (tile.generation != generation) {
+      tile = unshare(key, tile);
+    }
+    int offset = offset(row, col);
+    if (tile.cells[offset] == null) {
+      tile.count++;
+      numItems++;
+    }
+    tile.cells[offset] = item;
+    markChanged(row, col);
+  }
+
+  /**
+   * Get object at respective position.
+   * @param loc - location to be grabbed
+   * @return - grabbed value
+   */
+  @Override
+  public E get(Location loc) {
+    return get(loc.getRow(), loc.getCol());
+  }
+
+  /**
+   * Get object at respective position.
+   * @param row - row to be grabbed
+   * @param col - column to be grabbed
+   * @return - grabbed value
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public E get(int row, int col) {
+    check(row, col);
+    Tile tile = tile(tileKey(row, col));
+    return tile == null ? null : (E) tile.cells[offset(row, col)];
+  }
+
+  /**
+   * Remove object at respective location.
+   * @param loc - location to remove
+   * @return - removed value
+   */
+  @Override
+  public E remove(Location loc) {
+    if (loc == null) {
+      throw new IllegalArgumentException();
+    }
+    return remove(loc.getRow(), loc.getCol());
+  }
+
+  /**
+   * Remove object at respective location, freeing its tile if it becomes
+   * empty.
+   * @param row - row to remove
+   * @param col - column to remove
+   * @return - removed value
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public E remove(int row, int col) {
+    check(row, col);
+    long key = tileKey(row, col);
+    Tile tile = tile(key);
+    if (tile == null) {
+      return null;
+    }
+    int offset = offset(row, col);
+    E element = (E) tile.cells[offset];
+    if (element != null) {
+      numItems--;
+      markChanged(row, col);
+      if (tile.count == 1) {
+        if (tile.generation == generation) {
+          tile.cells[offset] = null;
+        }
+        ownTiles();
+        tiles.remove(key);
+        sortedKeys = null;
+        lastTile = null;
+      } else {
+        if (tile.generation != generation) {
+          tile = unshare(key, tile);
+        }
+        tile.cells[offset] = null;
+        tile.count--;
+      }
+    }
+    return element;
+  }
+
+  /**
+   * Get the number of rows.
+   * @return - number of rows
+   */
+  @Override
+  public int numRows() {
+    return numRows;
+  }
+
+  /**
+   * Get the number of columns.
+   * @return - number of columns
+   */
+  @Override
+  public int numCols() {
+    return numCols;
+  }
+
+  /**
+   * Get number of items in the grid.
+   * @return - number of items
+   */
+  @Override
+  public Integer numItems() {
+    return numItems;
+  }
+
+  /**
+   * Get the number of allocated tiles.
+   * @return - number of tiles
+   */
+  public int numTiles() {
+    return tiles.size();
+  }
+
+  /**
+   * Take a read-only snapshot of the grid, sharing every tile until this
+   * grid next writes to it. The only work done is sorting the tile keys if
+   * tiles changed since they were last sorted, so that threads can read
+   * the snapshot without it filling anything in.
+   * @return - immutable grid with the same items
+   */
+  @Override
+  public Grid<E> snapshot() {
+    ChunkedGrid<E> frozen = new ChunkedGrid<E>(this);
+    generation++;
+    tilesShared = true;
+    return new ImmutableGrid<E>(frozen);
+  }
+
+  /**
+   * Take over the tile directory before changing it, copying it if a
+   * snapshot still holds it.
+   */
+  private void ownTiles() {
+    if (tilesShared) {
+      tiles = new LongHashMap<Tile>(tiles);
+      tilesShared = false;
+    }
+  }
+
+  /**
+   * Replace a tile from an earlier generation with a private copy. The
+   * row-major tile order still points at the old tile, so it is dropped.
+   * @param key - packed tile coordinate
+   * @param tile - tile a snapshot may hold
+   * @return - the copy, now in the directory
+   */
+  private Tile unshare(long key, Tile tile) {
+    ownTiles();
+    Tile copy = new Tile(tile, generation);
+    tiles.put(key, copy);
+    sortedKeys = null;
+    lastTile = copy;
+    return copy;
+  }
+
+  /**
+   * Rebuild the row-major tile order if tiles were allocated, freed or
+   * copied since it was last built.
+   */
+  private void sortTiles() {
+    if (sortedKeys == null) {
+      long[] keys = tiles.keys();
+      Arrays.sort(keys);
+      Tile[] sorted = new Tile[keys.length];
+      for (int i = 0; i < keys.length; i++) {
+        sorted[i] = tiles.get(keys[i]);
+      }
+      sortedTiles = sorted;
+      sortedKeys = keys;
+    }
+  }
+
+  /**
+   * Walks the occupied cells in row-major order. Within each band of
+   * tile rows it visits one grid row at a time across the band's tiles,
+   * so only allocated tiles are scanned.
+   */
+  private class Cursor {
+
+    private final long[] keys;
+    private final Tile[] band;
+    private int group = 0;
+    private int groupEnd = 0;
+    private int rowInTile = 0;
+    private int tile = 0;
+    private int colInTile = 0;
+
+    int row;
+    int col;
+    Object item;
+
+    Cursor() {
+      sortTiles();
+      keys = sortedKeys;
+      band = sortedTiles;
+      startGroup();
+    }
+
+    /**
+     * Find the end of the run of tiles sharing the current tile row.
+     */
+    private void startGroup() {
+      groupEnd = group;
+      if (group < keys.length) {
+        int tileRow = Location.unpackRow(keys[group]);
+        while (groupEnd < keys.length && Location.unpackRow(keys[groupEnd]) == tileRow) {
+          groupEnd++;
+        }
+      }
+      rowInTile = 0;
+      tile = group;
+      colInTile = 0;
+    }
+
+    /**
+     * Move to the next occupied cell.
+     * @return - true if one was found
+     */
+    boolean advance() {
+      while (group < keys.length) {
+        while (rowInTile < tileSize) {
+          while (tile < groupEnd) {
+            Object[] cells = band[tile].cells;
+            int base = rowInTile << shift;
+            while (colInTile < tileSize) {
+              Object found = cells[base + colInTile];
+              if (found != null) {
+                row = (Location.unpackRow(keys[tile]) << shift) + rowInTile;
+                col = (Location.unpackCol(keys[tile]) << shift) + colInTile;
+                item = found;
+                colInTile++;
+                return true;
+              }
+              colInTile++;
+            }
+            tile++;
+            colInTile = 0;
+          }
+          rowInTile++;
+          tile = group;
+        }
+        group = groupEnd;
+        startGroup();
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Constructor for default iterator; visits items in row-major order.
+   * @return - a new Iterator
+   */
+  @Override
+  public Iterator<E> iterator() {
+    return new Iterator<E>() {
+
+      private final Cursor cursor = new Cursor();
+      private boolean ready = cursor.advance();
+      private int lastRow = -1;
+      private int lastCol;
+
+      @Override
+      public boolean hasNext() {
+        return ready;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public E next() {
+        if (!ready) {
+          throw new NoSuchElementException();
+        }
+        E item = (E) cursor.item;
+        lastRow = cursor.row;
+        lastCol = cursor.col;
+        ready = cursor.advance();
+        return item;
+      }
+
+      @Override
+      public void remove() {
+        if (lastRow < 0) {
+          throw new IllegalStateException();
+        }
+        ChunkedGrid.this.remove(lastRow, lastCol);
+        lastRow = -1;
+      }
+    };
+  }
+
+  /**
+   * Iterator for all item locations, in row-major order.
+   * @return - Iterable object for all items
+   */
+  @Override
+  public Iterable<Location> itemLocations() {
+    return new Iterable<Location>() {
+
+      @Override
+      public Iterator<Location> iterator() {
+        return new Iterator<Location>() {
+
+          private final Cursor cursor = new Cursor();
+          private boolean ready = cursor.advance();
+
+          @Override
+          public boolean hasNext() {
+            return ready;
+          }
+
+          @Override
+          public Location next() {
+            if (!ready) {
+              throw new NoSuchElementException();
+            }
+            Location loc = location(cursor.row, cursor.col);
+            ready = cursor.advance();
+            return loc;
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Iterator to iterate through all locations, in row-major order.
+   * @return - Iterable object
+   */
+  @Override
+  public Iterable<Location> allLocations() {
+    return new Iterable<Location>() {
+
+      @Override
+      public Iterator<Location> iterator() {
+        return cellStream().iterator();
+      }
+    };
+  }
+
+}
@@ -0,0 +1,105 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for the basic functionality of the ChunkedGrid class.
+ * 
+ * @author Jordan Martin
+ *
+ */
+class ChunkedGridBasicsTest extends GridBasicsTest {
+
+  @Override
+  public <T> Grid<T> makeGrid(int rows, int cols) {
+    return new ChunkedGrid<T>(rows, cols);
+  }
+
+  @Test
+  void testPutGetandRemoveWorkForHugeGrids() {
+    Grid<String> grid = makeGrid(1000000, 1000000);
+    grid.put(new Location(999999, 999999), "A");
+    assertEquals("A", grid.get(new Location(999999, 999999)));
+    assertEquals("A", grid.remove(new Location(999999, 999999)));
+    assertEquals(null, grid.remove(new Location(999999, 999999)));
+  }
+
+  @Test
+  void testTilesAllocatedOnPutAndFreedWhenEmpty() {
+    ChunkedGrid<String> grid = new ChunkedGrid<>(1000, 1000);
+    assertEquals(0, grid.numTiles());
+    grid.put(0, 0, "A");
+    grid.put(63, 63, "B");
+    assertEquals(1, grid.numTiles());
+    grid.put(64, 0, "C");
+    assertEquals(2, grid.numTiles());
+    grid.remove(0, 0);
+    assertEquals(2, grid.numTiles());
+    grid.remove(63, 63);
+    assertEquals(1, grid.numTiles());
+    assertEquals(null, grid.get(63, 63));
+    assertEquals("C", grid.get(64, 0));
+    assertEquals(1, grid.numItems());
+  }
+
+  @Test
+  void testConstructorRejectsBadTileShift() {
+    assertThrows(IllegalArgumentException.class, () -> new ChunkedGrid<String>(5, 5, 0));
+    assertThrows(IllegalArgumentException.class, () -> new ChunkedGrid<String>(5, 5, 11));
+  }
+
+  @Test
+  void testSnapshotEveryTickKeepsEachTickIntact() {
+    ChunkedGrid<Integer> grid = new ChunkedGrid<>(40, 40, 3);
+    Random random = new Random(23);
+    List<Grid<Integer>> snapshots = new ArrayList<>();
+    List<String> expected = new ArrayList<>();
+    for (int tick = 0; tick < 30; tick++) {
+      for (int i = 0; i < 25; i++) {
+        int row = random.nextInt(40);
+        int col = random.nextInt(40);
+        if (random.nextInt(3) == 0) {
+          grid.remove(row, col);
+        } else {
+          grid.put(row, col, tick);
+        }
+      }
+      snapshots.add(grid.snapshot());
+      expected.add(render(grid));
+    }
+    for (int tick = 0; tick < 30; tick++) {
+      assertEquals(expected.get(tick), render(snapshots.get(tick)));
+    }
+  }
+
+  @Test
+  void testWritesAfterSnapshotCopyOnlyTheirTile() {
+    ChunkedGrid<String> grid = new ChunkedGrid<>(256, 256);
+    grid.put(0, 0, "A");
+    grid.put(0, 1, "B");
+    grid.put(100, 100, "C");
+    grid.put(200, 0, "D");
+    Grid<String> snap = grid.snapshot();
+    // Emptying a shared tile drops it from the live grid only.
+    grid.remove(200, 0);
+    // Changing a shared tile replaces it in the live grid only.
+    grid.remove(0, 1);
+    grid.put(0, 2, "E");
+    // A new tile goes into the live grid only.
+    grid.put(255, 255, "F");
+    assertEquals(3, grid.numTiles());
+    assertEquals(List.of("A", "E", "C", "F"), grid.stream().collect(Collectors.toList()));
+    assertEquals(List.of("A", "B", "C", "D"), snap.stream().collect(Collectors.toList()));
+    assertEquals(null, snap.get(255, 255));
+    // Tiles copied since the last snapshot are written in place again.
+    grid.put(0, 3, "G");
+    assertEquals(null, snap.get(0, 3));
+    assertEquals(4, snap.numItems());
+    assertEquals(5, grid.numItems());
+  }
+
+}
@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for the iterator functionality of the ChunkedGrid class.
+ * 
+ * @author Jordan Martin
+ *
+ */
+class ChunkedGridIteratorsTest extends GridIteratorsTest {
+
+  @Override
+  public <T> Grid<T> makeGrid(int rows, int cols) {
+    return new ChunkedGrid<T>(rows, cols);
+  }
+
+  @Test
+  void testItemLocationIteratorHugeSparseGrid() {
+    Grid<String> huge = makeGrid(1000000, 1000000);
+    huge.put(new Location(999999, 999999), "A");
+    Iterator<Location> it = huge.itemLocations().iterator();
+    assertEquals(new Location(999999, 999999), it.next());
+  }
+
+  @Test
+  void testRowMajorOrderAcrossTiles() {
+    ChunkedGrid<Integer> grid = new ChunkedGrid<>(10, 10, 2);
+    List<Location> correct = new ArrayList<>();
+    for (int row = 0; row < 10; row++) {
+      for (int col = (row * 3) % 4; col < 10; col += 3) {
+        grid.put(row, col, row * 10 + col);
+        correct.add(new Location(row, col));
+      }
+    }
+
+    List<Location> iterated = new ArrayList<>();
+    for (Location loc : grid.itemLocations()) {
+      iterated.add(loc);
+    }
+    assertEquals(correct, iterated);
+
+    int previous = -1;
+    for (Integer item : grid) {
+      assertTrue(item > previous);
+      previous = item;
+    }
+  }
+
+  @Test
+  void testIteratorRemoveFreesTiles() {
+    ChunkedGrid<Integer> grid = new ChunkedGrid<>(10, 10, 2);
+    grid.put(0, 0, 1);
+    grid.put(9, 9, 2);
+    Iterator<Integer> it = grid.iterator();
+    it.next();
+    it.remove();
+    assertEquals(Integer.valueOf(2), it.next());
+    assertEquals(1, grid.numTiles());
+    assertEquals(1, grid.numItems());
+  }
+}
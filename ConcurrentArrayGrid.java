@@ -0,0 +1,386 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dense grid that may be shared between threads without external locking.
+ * Each cell is a slot of an AtomicReferenceArray updated with single
+ * atomic operations, so writers never block each other, and the item
+ * count is a LongAdder, so writers on different cores do not contend on a
+ * shared counter. Iterators are weakly consistent: they never throw
+ * ConcurrentModificationException and see each cell as it was when they
+ * reached it. With change tracking on, each call to epoch() starts a new
+ * epoch, and changedSince reports every write not yet visible when the
+ * epoch passed to it was taken.
+ *
+ * @author Jordan Martin
+ */
+public class ConcurrentArrayGrid<E> extends AbstractGrid<E> {
+
+  private final AtomicReferenceArray<E> cells;
+  private final LongAdder numItems = new LongAdder();
+  private final int rows;
+  private final int cols;
+
+  /**
+   * Constructor for ConcurrentArrayGrid class.
+   * @param rows - number of rows
+   * @param cols - number of columns
+   */
+  public ConcurrentArrayGrid(int rows, int cols) {
+    if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException();
+    }
+    this.rows = rows;
+    this.cols = cols;
+    cells = new AtomicReferenceArray<E>(rows * cols);
+  }
+
+  /**
+   * Convert a row and column into a flat index.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - row-major cell index
+   */
+  private int index(int row, int col) {
+    if (row < 0 || col < 0 || row >= rows || col >= cols) {
+      throw new IllegalArgumentException();
+    }
+    return row * cols + col;
+  }
+
+  /**
+   * Put the parameter item into the designated spot.
+   * @param loc -  location for object to be placed
+   * @param item - item to be placed
+   */
+  @Override
+  public void put(Location loc, E item) {
+    if (loc == null) {
+      throw new NullPointerException();
+    }
+    put(loc.getRow(), loc.getCol(), item);
+  }
+
+  /**
+   * Put the parameter item into the designated spot.
+   * @param row - row for object to be placed
+   * @param col - column for object to be placed
+   * @param item - item to be placed
+   */
+  @Override
+  public void put(int row, int col, E item) {
+    if (item == null) {
+      throw new NullPointerException();
+    }
+    if (cells.getAndSet(index(row, col), item) == null) {
+      numItems.increment();
+    }
+    markChanged(row, col);
+  }
+
+  /**
+   * Put the item into the spot only if the spot is empty.
+   * @param row - row for object to be placed
+   * @param col - column for object to be placed
+   * @param item - item to be placed
+   * @return - the item already in the spot, or null if the put happened
+   */
+  public E putIfAbsent(int row, int col, E item) {
+    if (item == null) {
+      throw new NullPointerException();
+    }
+    int index = index(row, col);
+    while (true) {
+      if (cells.compareAndSet(index, null, item)) {
+        numItems.increment();
+        markChanged(row, col);
+        return null;
+      }
+      E current = cells.get(index);
+      if (current != null) {
+        return current;
+      }
+    }
+  }
+
+  /**
+   * Replace the item in the spot only if it is currently the expected
+   * item.
+   * @param row - row of the spot
+   * @param col - column of the spot
+   * @param expected - item expected to be in the spot
+   * @param item - replacement item
+   * @return - true if the spot held the expected item and was replaced
+   */
+  public boolean replace(int row, int col, E expected, E item) {
+    if (expected == null || item == null) {
+      throw new NullPointerException();
+    }
+    if (cells.compareAndSet(index(row, col), expected, item)) {
+      markChanged(row, col);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Get object at respective position.
+   * @param loc - location to be grabbed
+   * @return - grabbed value
+   */
+  @Override
+  public E get(Location loc) {
+    return get(loc.getRow(), loc.getCol());
+  }
+
+  /**
+   * Get object at respective position.
+   * @param row - row to be grabbed
+   * @param col - column to be grabbed
+   * @return - grabbed value
+   */
+  @Override
+  public E get(int row, int col) {
+    return cells.get(index(row, col));
+  }
+
+  /**
+   * Remove object at respective location.
+   * @param loc - location to remove
+   * @return - removed value
+   */
+  @Override
+  public E remove(Location loc) {
+    if (loc == null) {
+      throw new IllegalArgumentException();
+    }
+    return remove(loc.getRow(), loc.getCol());
+  }
+
+  /**
+   * Remove object at respective location.
+   * @param row - row to remove
+   * @param col - column to remove
+   * @return - removed value
+   */
+  @Override
+  public E remove(int row, int col) {
+    E element = cells.getAndSet(index(row, col), null);
+    if (element != null) {
+      numItems.decrement();
+      markChanged(row, col);
+    }
+    return element;
+  }
+
+  /**
+   * Get the number of rows.
+   * @return - number of rows
+   */
+  @Override
+  public int numRows() {
+    return rows;
+  }
+
+  /**
+   * Get the number of columns.
+   * @return - number of columns
+   */
+  @Override
+  public int numCols() {
+    return cols;
+  }
+
+  /**
+   * Get number of items in the grid. While other threads are writing, the
+   * count may not match any single instant.
+   * @return - number of items
+   */
+  @Override
+  public Integer numItems() {
+    return (int) numItems.sum();
+  }
+
+  /**
+   * Make a change tracker that several threads may write through at once.
+   * Here epoch() advances the epoch, so that each write is stamped after
+   * any epoch taken before it could be seen. Enable or disable tracking
+   * before other threads start writing, or while they are paused.
+   * @param startEpoch - first epoch of the new tracker
+   * @return - change tracker covering the whole grid
+   */
+  @Override
+  ChangeTracker newChangeTracker(long startEpoch) {
+    return new ChangeTracker(rows, cols, startEpoch, true);
+  }
+
+  /**
+   * Find the first occupied index at or after the parameter index.
+   * @param from - index to start searching from
+   * @return - next occupied index, or -1 if there is none
+   */
+  private int nextItemIndex(int from) {
+    for (int i = from; i < cells.length(); i++) {
+      if (cells.get(i) != null) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Constructor for default iterator. The iterator is weakly consistent.
+   * @return - a new Iterator
+   */
+  @Override
+  public Iterator<E> iterator() {
+    return new Iterator<E>() {
+
+      private int index = 0;
+      private E item = advance();
+      private int last = -1;
+      private E lastItem;
+
+      /**
+       * Move to the next occupied cell and read it.
+       * @return - item found, or null when exhausted
+       */
+      private E advance() {
+        while (index < cells.length()) {
+          E found = cells.get(index);
+          if (found != null) {
+            return found;
+          }
+          index++;
+        }
+        return null;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return item != null;
+      }
+
+      @Override
+      public E next() {
+        if (item == null) {
+          throw new NoSuchElementException();
+        }
+        last = index;
+        lastItem = item;
+        index++;
+        item = advance();
+        return lastItem;
+      }
+
+      /**
+       * Remove the item last returned, unless another thread has already
+       * replaced or removed it.
+       */
+      @Override
+      public void remove() {
+        if (last < 0) {
+          throw new IllegalStateException();
+        }
+        if (cells.compareAndSet(last, lastItem, null)) {
+          numItems.decrement();
+          markChanged(last / cols, last % cols);
+        }
+        last = -1;
+      }
+    };
+  }
+
+  /**
+   * Iterator for all item locations. The iterator is weakly consistent.
+   * @return - Iterable object for all items
+   */
+  @Override
+  public Iterable<Location> itemLocations() {
+    return new Iterable<Location>() {
+
+      @Override
+      public Iterator<Location> iterator() {
+        return new Iterator<Location>() {
+
+          private int next = nextItemIndex(0);
+
+          @Override
+          public boolean hasNext() {
+            return next >= 0;
+          }
+
+          @Override
+          public Location next() {
+            if (next < 0) {
+              throw new NoSuchElementException();
+            }
+            Location loc = location(next / cols, next % cols);
+            next = nextItemIndex(next + 1);
+            return loc;
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Iterator to iterate through all locations.
+   * @return - Iterable object
+   */
+  @Override
+  public Iterable<Location> allLocations() {
+    return new Iterable<Location>() {
+
+      @Override
+      public Iterator<Location> iterator() {
+        return new Iterator<Location>() {
+
+          private int next = 0;
+
+          @Override
+          public boolean hasNext() {
+            return next < cells.length();
+          }
+
+          @Override
+          public Location next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            Location loc = location(next / cols, next % cols);
+            next++;
+            return loc;
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Spliterator over the items. The size is not reported because other
+   * threads may change it while the spliterator is in use.
+   * @return - a new Spliterator
+   */
+  @Override
+  public Spliterator<E> spliterator() {
+    return Spliterators.spliteratorUnknownSize(iterator(),
+        Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.CONCURRENT);
+  }
+
+  /**
+   * Spliterator over the item locations; see spliterator().
+   * @return - a new Spliterator
+   */
+  @Override
+  protected Spliterator<Location> itemLocationSpliterator() {
+    return Spliterators.spliteratorUnknownSize(itemLocations().iterator(),
+        Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT
+        | Spliterator.CONCURRENT);
+  }
+
+}
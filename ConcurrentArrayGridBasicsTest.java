@@ -0,0 +1,127 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for the basic and concurrent functionality of the
+ * ConcurrentArrayGrid class.
+ * 
+ * @author Jordan Martin
+ *
+ */
+class ConcurrentArrayGridBasicsTest extends GridBasicsTest {
+
+  @Override
+  public <T> Grid<T> makeGrid(int rows, int cols) {
+    return new ConcurrentArrayGrid<T>(rows, cols);
+  }
+
+  @Test
+  void testPutIfAbsentAndReplace() {
+    ConcurrentArrayGrid<String> grid = new ConcurrentArrayGrid<>(2, 2);
+    assertEquals(null, grid.putIfAbsent(0, 1, "A"));
+    assertEquals("A", grid.putIfAbsent(0, 1, "B"));
+    assertFalse(grid.replace(0, 1, "B", "C"));
+    assertTrue(grid.replace(0, 1, "A", "C"));
+    assertEquals("C", grid.get(0, 1));
+    assertEquals(1, grid.numItems());
+  }
+
+  @Test
+  void testConcurrentWritersKeepCountExact() throws InterruptedException {
+    ConcurrentArrayGrid<Integer> grid = new ConcurrentArrayGrid<>(64, 100);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      final int band = t;
+      threads.add(new Thread(() -> {
+        for (int pass = 0; pass < 20; pass++) {
+          for (int row = band * 8; row < band * 8 + 8; row++) {
+            for (int col = 0; col < 100; col++) {
+              grid.put(row, col, pass);
+              if (col % 2 == 1) {
+                grid.remove(row, col);
+              }
+            }
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(64 * 50, grid.numItems());
+  }
+
+  @Test
+  void testChangedSinceMissesNoConcurrentWrite() throws InterruptedException {
+    ConcurrentArrayGrid<Integer> grid = new ConcurrentArrayGrid<>(64, 64);
+    grid.enableChangeTracking();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      final int seed = t;
+      threads.add(new Thread(() -> {
+        java.util.Random random = new java.util.Random(seed);
+        for (int i = 0; i < 50000; i++) {
+          int row = random.nextInt(64);
+          int col = random.nextInt(64);
+          if (random.nextInt(4) == 0) {
+            grid.remove(row, col);
+          } else {
+            grid.put(row, col, i);
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    // A reader keeps a copy up to date by re-reading only changed tiles.
+    Integer[][] copy = new Integer[64][64];
+    long last = 0;
+    boolean done = false;
+    while (!done) {
+      done = threads.stream().noneMatch(Thread::isAlive);
+      long now = grid.epoch();
+      for (Region tile : grid.changedSince(last)) {
+        for (int row = tile.rowFrom(); row < tile.rowTo(); row++) {
+          for (int col = tile.colFrom(); col < tile.colTo(); col++) {
+            copy[row][col] = grid.get(row, col);
+          }
+        }
+      }
+      last = now;
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (int row = 0; row < 64; row++) {
+      for (int col = 0; col < 64; col++) {
+        assertEquals(grid.get(row, col), copy[row][col]);
+      }
+    }
+  }
+
+  @Test
+  void testIteratorToleratesConcurrentModification() {
+    ConcurrentArrayGrid<Integer> grid = new ConcurrentArrayGrid<>(3, 3);
+    grid.put(0, 0, 1);
+    grid.put(1, 1, 2);
+    grid.put(2, 2, 3);
+    Iterator<Integer> it = grid.iterator();
+    assertEquals(Integer.valueOf(1), it.next());
+    grid.remove(1, 1);
+    grid.put(2, 0, 4);
+    List<Integer> rest = new ArrayList<>();
+    while (it.hasNext()) {
+      rest.add(it.next());
+    }
+    // Cells past the iterator's position are seen as they are when reached.
+    assertEquals(List.of(4, 3), rest.subList(rest.size() - 2, rest.size()));
+  }
+}
@@ -0,0 +1,36 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Spliterator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for the iterator functionality of the ConcurrentArrayGrid
+ * class.
+ * 
+ * @author Jordan Martin
+ *
+ */
+class ConcurrentArrayGridIteratorsTest extends GridIteratorsTest {
+
+  @Override
+  public <T> Grid<T> makeGrid(int rows, int cols) {
+    return new ConcurrentArrayGrid<T>(rows, cols);
+  }
+
+  /**
+   * The item count can change under a concurrent spliterator, so it is
+   * reported as CONCURRENT rather than SIZED.
+   */
+  @Override
+  @Test
+  void testSpliteratorIsSizedAndSplits() {
+    Grid<Integer> grid = makeGrid(8, 8);
+    for (Location loc : grid.allLocations()) {
+      grid.put(loc, loc.getRow());
+    }
+    Spliterator<Integer> spliterator = grid.spliterator();
+    assertTrue(spliterator.hasCharacteristics(Spliterator.CONCURRENT | Spliterator.ORDERED));
+    assertFalse(spliterator.hasCharacteristics(Spliterator.SIZED));
+    assertNotNull(spliterator.trySplit());
+  }
+}
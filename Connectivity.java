@@ -0,0 +1,30 @@
+/**
+ * Which cells touch for region detection: FOUR joins cells that share an
+ * edge, EIGHT also joins cells that share only a corner.
+ *
+ * @author Jordan Martin
+ */
+public enum Connectivity {
+
+  FOUR(Neighborhood.VON_NEUMANN),
+  EIGHT(Neighborhood.MOORE);
+
+  private final Neighborhood neighborhood;
+
+  /**
+   * Constructor for Connectivity enum.
+   * @param neighborhood - cells that touch the center
+   */
+  Connectivity(Neighborhood neighborhood) {
+    this.neighborhood = neighborhood;
+  }
+
+  /**
+   * Get the cells that touch a center cell.
+   * @return - VON_NEUMANN for FOUR, MOORE for EIGHT
+   */
+  public Neighborhood neighborhood() {
+    return neighborhood;
+  }
+
+}
@@ -0,0 +1,59 @@
+/**
+ * When a path may step diagonally, judged by the two orthogonal cells the
+ * step passes between.
+ *
+ * @author Jordan Martin
+ */
+public enum DiagonalRule {
+
+  /**
+   * Only orthogonal steps.
+   */
+  NEVER {
+    @Override
+    boolean allows(boolean firstOpen, boolean secondOpen) {
+      return false;
+    }
+  },
+
+  /**
+   * Diagonal steps whenever the target cell is passable, even between two
+   * blocked cells.
+   */
+  ALWAYS {
+    @Override
+    boolean allows(boolean firstOpen, boolean secondOpen) {
+      return true;
+    }
+  },
+
+  /**
+   * Diagonal steps unless both cells passed between are blocked.
+   */
+  IF_ONE_OPEN {
+    @Override
+    boolean allows(boolean firstOpen, boolean secondOpen) {
+      return firstOpen || secondOpen;
+    }
+  },
+
+  /**
+   * Diagonal steps only when both cells passed between are open, so paths
+   * never clip the corner of an obstacle.
+   */
+  NO_CORNER_CUTTING {
+    @Override
+    boolean allows(boolean firstOpen, boolean secondOpen) {
+      return firstOpen && secondOpen;
+    }
+  };
+
+  /**
+   * Check whether a diagonal step is allowed.
+   * @param firstOpen - true if the first cell passed between is passable
+   * @param secondOpen - true if the second cell passed between is passable
+   * @return - true if the step may be taken
+   */
+  abstract boolean allows(boolean firstOpen, boolean secondOpen);
+
+}
@@ -0,0 +1,60 @@
+/**
+ * Grid of double values stored unboxed in a flat row-major array. The
+ * Location-based Grid methods box on the way in and out; hot loops should
+ * use the getDouble/putDouble accessors instead.
+ *
+ * @author Jordan Martin
+ */
+public class DoubleGrid extends AbstractPrimitiveGrid<Double> {
+
+  private final double[] cells;
+
+  /**
+   * Constructor for DoubleGrid class.
+   * @param rows - number of rows
+   * @param cols - number of columns
+   */
+  public DoubleGrid(int rows, int cols) {
+    super(rows, cols);
+    cells = new double[rows * cols];
+  }
+
+  /**
+   * Get the value at the cell without boxing. Empty cells read as 0.0; use
+   * isOccupied to tell an empty cell from a stored 0.0.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - stored value
+   */
+  public double getDouble(int row, int col) {
+    return cells[index(row, col)];
+  }
+
+  /**
+   * Store a value at the cell without boxing.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @param value - value to be stored
+   */
+  public void putDouble(int row, int col, double value) {
+    int index = index(row, col);
+    cells[index] = value;
+    markOccupied(index, row, col);
+  }
+
+  @Override
+  protected Double boxed(int index) {
+    return cells[index];
+  }
+
+  @Override
+  protected void store(int index, Double item) {
+    cells[index] = item;
+  }
+
+  @Override
+  protected void erase(int index) {
+    cells[index] = 0;
+  }
+
+}
@@ -0,0 +1,487 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * Immutable grid compacted for reading, as built by freeze(). Grids at
+ * least half full keep one flat row-major array with null for empty
+ * cells. Sparser grids use compressed sparse rows: the items' columns and
+ * values sit in two parallel arrays in row-major order, and an offset
+ * array gives where each row's run starts, so a lookup is a binary search
+ * within one row. When far fewer rows are occupied than the grid has, only
+ * the occupied rows are listed (and binary searched), so a huge, nearly
+ * empty grid costs memory in proportion to its items alone.
+ *
+ * @author Jordan Martin
+ */
+final class FrozenGrid<E> extends ReadOnlyGrid<E> {
+
+  // Largest grid, in cells, that may use the flat layout.
+  static final long MAX_DENSE_CELLS = Integer.MAX_VALUE - 8;
+
+  private final int rows;
+  private final int cols;
+  private final int numItems;
+
+  // Flat layout: every cell, null where empty. Null when compressed.
+  private final Object[] cells;
+
+  // Compressed layout: the occupied rows in order (null when every row has
+  // a slot), the start of each slot's run, and the runs themselves.
+  private final int[] rowIds;
+  private final int[] rowStart;
+  private final int[] colIndex;
+  private final Object[] values;
+
+  /**
+   * Constructor for a FrozenGrid in the flat layout.
+   * @param rows - number of rows
+   * @param cols - number of columns
+   * @param cells - row-major cells, null where empty
+   * @param numItems - number of non-null cells
+   */
+  private FrozenGrid(int rows, int cols, Object[] cells, int numItems) {
+    this.rows = rows;
+    this.cols = cols;
+    this.cells = cells;
+    this.numItems = numItems;
+    rowIds = null;
+    rowStart = null;
+    colIndex = null;
+    values = null;
+  }
+
+  /**
+   * Constructor for a FrozenGrid in the compressed layout.
+   * @param rows - number of rows
+   * @param cols - number of columns
+   * @param rowIds - occupied rows, ascending, or null if slot equals row
+   * @param rowStart - start of each slot's run, one extra entry at the end
+   * @param colIndex - column of each item, ascending within each run
+   * @param values - each item
+   */
+  private FrozenGrid(int rows, int cols, int[] rowIds, int[] rowStart, int[] colIndex,
+      Object[] values) {
+    this.rows = rows;
+    this.cols = cols;
+    this.rowIds = rowIds;
+    this.rowStart = rowStart;
+    this.colIndex = colIndex;
+    this.values = values;
+    numItems = values.length;
+    cells = null;
+  }
+
+  /**
+   * Build a frozen copy of a grid, picking the layout from how full it is.
+   * @param grid - grid to copy
+   * @return - frozen grid with the same items
+   */
+  static <E> FrozenGrid<E> copyOf(Grid<E> grid) {
+    int rows = grid.numRows();
+    int cols = grid.numCols();
+    long cellCount = (long) rows * cols;
+    if (cellCount <= MAX_DENSE_CELLS && 2L * grid.numItems() >= cellCount) {
+      Object[] cells = new Object[(int) cellCount];
+      int[] count = new int[1];
+      grid.forEachItemIn(0, 0, rows, cols, (row, col) -> {
+        E item = grid.get(row, col);
+        if (item != null) {
+          cells[row * cols + col] = item;
+          count[0]++;
+        }
+      });
+      return new FrozenGrid<E>(rows, cols, cells, count[0]);
+    }
+
+    Runs<E> runs = new Runs<E>(grid, grid.numItems());
+    grid.forEachItemIn(0, 0, rows, cols, runs);
+    int size = runs.size;
+    int[] colIndex = Arrays.copyOf(runs.cols, size);
+    Object[] values = Arrays.copyOf(runs.values, size);
+    int occupiedRows = runs.numRows;
+    if (rows <= 2L * size + 1) {
+      // Offsets for every row cost little more than the runs themselves.
+      int[] rowStart = new int[rows + 1];
+      int slot = 0;
+      for (int row = 0; row <= rows; row++) {
+        while (slot < occupiedRows && runs.rowIds[slot] < row) {
+          slot++;
+        }
+        rowStart[row] = slot < occupiedRows ? runs.rowStart[slot] : size;
+      }
+      return new FrozenGrid<E>(rows, cols, null, rowStart, colIndex, values);
+    }
+    int[] rowStart = Arrays.copyOf(runs.rowStart, occupiedRows + 1);
+    rowStart[occupiedRows] = size;
+    return new FrozenGrid<E>(rows, cols, Arrays.copyOf(runs.rowIds, occupiedRows), rowStart,
+        colIndex, values);
+  }
+
+  /**
+   * Collects a grid's items in row-major order into growable runs.
+   */
+  private static final class Runs<E> implements IntBinaryConsumer {
+
+    private final Grid<E> grid;
+    int[] rowIds = new int[16];
+    int[] rowStart = new int[16];
+    int numRows;
+    int[] cols;
+    Object[] values;
+    int size;
+
+    Runs(Grid<E> grid, int expected) {
+      this.grid = grid;
+      cols = new int[Math.max(16, expected)];
+      values = new Object[cols.length];
+    }
+
+    @Override
+    public void accept(int row, int col) {
+      E item = grid.get(row, col);
+      if (item == null) {
+        return;
+      }
+      if (numRows == 0 || rowIds[numRows - 1] != row) {
+        if (numRows == rowIds.length) {
+          rowIds = Arrays.copyOf(rowIds, rowIds.length * 2);
+          rowStart = Arrays.copyOf(rowStart, rowStart.length * 2);
+        }
+        rowIds[numRows] = row;
+        rowStart[numRows++] = size;
+      }
+      if (size == cols.length) {
+        cols = Arrays.copyOf(cols, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      cols[size] = col;
+      values[size++] = item;
+    }
+  }
+
+  /**
+   * Check whether the grid uses the flat layout.
+   * @return - true if flat, false if compressed
+   */
+  boolean isDense() {
+    return cells != null;
+  }
+
+  /**
+   * Find the slot of a row in the compressed layout.
+   * @param row - row on the grid
+   * @return - slot of the row's run, or negative if the row is empty
+   */
+  private int slot(int row) {
+    return rowIds == null ? row : Arrays.binarySearch(rowIds, row);
+  }
+
+  /**
+   * Get the row of the run holding an item in the compressed layout.
+   * @param slot - slot of the run
+   * @return - row on the grid
+   */
+  private int rowOf(int slot) {
+    return rowIds == null ? slot : rowIds[slot];
+  }
+
+  /**
+   * Get object at respective position.
+   * @param loc - location to be grabbed
+   * @return - grabbed value
+   */
+  @Override
+  public E get(Location loc) {
+    return get(loc.getRow(), loc.getCol());
+  }
+
+  /**
+   * Get object at respective position: an array read in the flat layout,
+   * a binary search within the row's run otherwise.
+   * @param row - row to be grabbed
+   * @param col - column to be grabbed
+   * @return - grabbed value
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public E get(int row, int col) {
+    if (row < 0 || col < 0 || row >= rows || col >= cols) {
+      throw new IllegalArgumentException();
+    }
+    if (cells != null) {
+      return (E) cells[row * cols + col];
+    }
+    int slot = slot(row);
+    if (slot < 0) {
+      return null;
+    }
+    int at = find(rowStart[slot], rowStart[slot + 1], col);
+    return at < 0 ? null : (E) values[at];
+  }
+
+  /**
+   * Find a column within one row's run. The first probe is where the
+   * column would sit if the run were spread evenly across the row, and the
+   * search gallops outward from there, so evenly spread rows are usually
+   * settled within a cache line or two instead of the log n scattered
+   * reads of a plain binary search.
+   * @param from - start of the run, inclusive
+   * @param to - end of the run, exclusive
+   * @param col - column to find
+   * @return - index of the column, or a negative value as
+   *     Arrays.binarySearch returns when it is absent
+   */
+  private int find(int from, int to, int col) {
+    int length = to - from;
+    if (length <= 8) {
+      return Arrays.binarySearch(colIndex, from, to, col);
+    }
+    int guess = from + (int) ((long) col * length / cols);
+    int step = 1;
+    if (colIndex[guess] < col) {
+      // The column lies after guess.
+      while (guess + step < to && colIndex[guess + step] < col) {
+        guess += step;
+        step <<= 1;
+      }
+      return Arrays.binarySearch(colIndex, guess + 1, Math.min(to, guess + step + 1), col);
+    }
+    // The column lies at or before guess.
+    while (guess - step >= from && colIndex[guess - step] >= col) {
+      guess -= step;
+      step <<= 1;
+    }
+    return Arrays.binarySearch(colIndex, Math.max(from, guess - step), guess + 1, col);
+  }
+
+  /**
+   * Get the number of rows.
+   * @return - number of rows
+   */
+  @Override
+  public int numRows() {
+    return rows;
+  }
+
+  /**
+   * Get the number of columns.
+   * @return - number of columns
+   */
+  @Override
+  public int numCols() {
+    return cols;
+  }
+
+  /**
+   * Get number of items in the grid.
+   * @return - number of items
+   */
+  @Override
+  public Integer numItems() {
+    return numItems;
+  }
+
+  /**
+   * A frozen grid is already frozen.
+   * @return - this grid
+   */
+  @Override
+  public Grid<E> freeze() {
+    return this;
+  }
+
+  /**
+   * Visit every item in a rectangle in row-major order. In the compressed
+   * layout each row's first candidate is found by binary search.
+   * @param rowFrom - first row, inclusive
+   * @param colFrom - first column, inclusive
+   * @param rowTo - last row, exclusive
+   * @param colTo - last column, exclusive
+   * @param action - callback given each occupied cell
+   */
+  @Override
+  public void forEachItemIn(int rowFrom, int colFrom, int rowTo, int colTo,
+      IntBinaryConsumer action) {
+    checkRegion(rowFrom, colFrom, rowTo, colTo);
+    if (cells != null) {
+      for (int row = rowFrom; row < rowTo; row++) {
+        int base = row * cols;
+        for (int col = colFrom; col < colTo; col++) {
+          if (cells[base + col] != null) {
+            action.accept(row, col);
+          }
+        }
+      }
+      return;
+    }
+    if (colFrom == colTo) {
+      return;
+    }
+    int slot = slot(rowFrom);
+    if (slot < 0) {
+      slot = -slot - 1;
+    }
+    int slots = rowStart.length - 1;
+    for (; slot < slots && rowOf(slot) < rowTo; slot++) {
+      int row = rowOf(slot);
+      int end = rowStart[slot + 1];
+      int at = Arrays.binarySearch(colIndex, rowStart[slot], end, colFrom);
+      for (at = at < 0 ? -at - 1 : at; at < end && colIndex[at] < colTo; at++) {
+        action.accept(row, colIndex[at]);
+      }
+    }
+  }
+
+  /**
+   * Spliterator over the items. The compressed layout hands out its value
+   * array directly, so it splits evenly and knows its exact size.
+   * @return - a new Spliterator
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public Spliterator<E> spliterator() {
+    if (cells != null) {
+      return super.spliterator();
+    }
+    return (Spliterator<E>) Spliterators.spliterator(values, Spliterator.ORDERED
+        | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+  }
+
+  /**
+   * Find the first non-null cell at or after an index of the flat layout.
+   * @param index - first index to check
+   * @return - index of the cell, or -1 if there is none
+   */
+  private int nextDenseItem(int index) {
+    while (index < cells.length) {
+      if (cells[index] != null) {
+        return index;
+      }
+      index++;
+    }
+    return -1;
+  }
+
+  /**
+   * Constructor for default iterator; visits items in row-major order.
+   * @return - a new Iterator
+   */
+  @Override
+  public Iterator<E> iterator() {
+    if (cells == null) {
+      return new Iterator<E>() {
+
+        private int next = 0;
+
+        @Override
+        public boolean hasNext() {
+          return next < numItems;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+          if (next >= numItems) {
+            throw new NoSuchElementException();
+          }
+          return (E) values[next++];
+        }
+      };
+    }
+    return new Iterator<E>() {
+
+      private int next = nextDenseItem(0);
+
+      @Override
+      public boolean hasNext() {
+        return next >= 0;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public E next() {
+        if (next < 0) {
+          throw new NoSuchElementException();
+        }
+        E item = (E) cells[next];
+        next = nextDenseItem(next + 1);
+        return item;
+      }
+    };
+  }
+
+  /**
+   * Iterator for all item locations, in row-major order.
+   * @return - Iterable object for all items
+   */
+  @Override
+  public Iterable<Location> itemLocations() {
+    return new Iterable<Location>() {
+
+      @Override
+      public Iterator<Location> iterator() {
+        if (cells == null) {
+          return new Iterator<Location>() {
+
+            private int next = 0;
+            private int slot = 0;
+
+            @Override
+            public boolean hasNext() {
+              return next < numItems;
+            }
+
+            @Override
+            public Location next() {
+              if (next >= numItems) {
+                throw new NoSuchElementException();
+              }
+              while (rowStart[slot + 1] <= next) {
+                slot++;
+              }
+              return location(rowOf(slot), colIndex[next++]);
+            }
+          };
+        }
+        return new Iterator<Location>() {
+
+          private int next = nextDenseItem(0);
+
+          @Override
+          public boolean hasNext() {
+            return next >= 0;
+          }
+
+          @Override
+          public Location next() {
+            if (next < 0) {
+              throw new NoSuchElementException();
+            }
+            Location loc = location(next / cols, next % cols);
+            next = nextDenseItem(next + 1);
+            return loc;
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Iterator to iterate through all locations, in row-major order.
+   * @return - Iterable object
+   */
+  @Override
+  public Iterable<Location> allLocations() {
+    return new Iterable<Location>() {
+
+      @Override
+      public Iterator<Location> iterator() {
+        return cellStream().iterator();
+      }
+    };
+  }
+
+}
@@ -0,0 +1,119 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for the FrozenGrid class.
+ *
+ * @author Jordan Martin
+ *
+ */
+class FrozenGridTest {
+
+  /**
+   * Fill a grid at random to about the given percentage.
+   */
+  private static ArrayGrid<Integer> randomGrid(Random random, int rows, int cols, int percent) {
+    ArrayGrid<Integer> grid = new ArrayGrid<>(rows, cols);
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col++) {
+        if (random.nextInt(100) < percent) {
+          grid.put(row, col, row * cols + col);
+        }
+      }
+    }
+    return grid;
+  }
+
+  /**
+   * Collect the cells forEachItemIn visits.
+   */
+  private static List<Location> itemsIn(Grid<Integer> grid, int rowFrom, int colFrom,
+      int rowTo, int colTo) {
+    List<Location> found = new ArrayList<>();
+    grid.forEachItemIn(rowFrom, colFrom, rowTo, colTo,
+        (row, col) -> found.add(new Location(row, col)));
+    return found;
+  }
+
+  @Test
+  void testLayoutFollowsFill() {
+    Random random = new Random(24);
+    assertTrue(FrozenGrid.copyOf(randomGrid(random, 20, 20, 80)).isDense());
+    assertFalse(FrozenGrid.copyOf(randomGrid(random, 20, 20, 20)).isDense());
+    assertFalse(FrozenGrid.copyOf(new ArrayGrid<Integer>(20, 20)).isDense());
+  }
+
+  @Test
+  void testMatchesSourceAtEveryFill() {
+    Random random = new Random(24);
+    for (int percent : new int[] {0, 1, 10, 45, 55, 100}) {
+      ArrayGrid<Integer> source = randomGrid(random, 37, 29, percent);
+      Grid<Integer> frozen = source.freeze();
+      assertEquals(source.numItems(), frozen.numItems());
+      for (int row = 0; row < 37; row++) {
+        for (int col = 0; col < 29; col++) {
+          assertEquals(source.get(row, col), frozen.get(row, col));
+        }
+      }
+      List<Integer> items = new ArrayList<>();
+      source.forEach(items::add);
+      List<Integer> frozenItems = new ArrayList<>();
+      frozen.forEach(frozenItems::add);
+      assertEquals(items, frozenItems);
+      assertEquals(items.stream().mapToLong(Integer::longValue).sum(),
+          frozen.parallelStream().mapToLong(Integer::longValue).sum());
+      for (int trial = 0; trial < 50; trial++) {
+        int rowFrom = random.nextInt(38);
+        int colFrom = random.nextInt(30);
+        int rowTo = rowFrom + random.nextInt(38 - rowFrom);
+        int colTo = colFrom + random.nextInt(30 - colFrom);
+        assertEquals(itemsIn(source, rowFrom, colFrom, rowTo, colTo),
+            itemsIn(frozen, rowFrom, colFrom, rowTo, colTo));
+      }
+    }
+  }
+
+  @Test
+  void testLookupsInUnevenRows() {
+    // Runs bunched at either end of a row defeat the interpolated first
+    // probe, so the search has to gallop.
+    SparseGrid<Integer> source = new SparseGrid<>(3, 1000);
+    for (int col = 0; col < 40; col++) {
+      source.put(0, col * 2, col);
+      source.put(1, 999 - col * 3, col);
+      source.put(2, col < 20 ? col : 980 + col - 20, col);
+    }
+    Grid<Integer> frozen = source.freeze();
+    for (int row = 0; row < 3; row++) {
+      for (int col = 0; col < 1000; col++) {
+        assertEquals(source.get(row, col), frozen.get(row, col));
+      }
+    }
+  }
+
+  @Test
+  void testHugeSparseGridListsOnlyOccupiedRows() {
+    SparseGrid<String> source = new SparseGrid<>(1000000, 1000000);
+    source.put(5, 999999, "A");
+    source.put(5, 3, "B");
+    source.put(777777, 0, "C");
+    Grid<String> frozen = source.freeze();
+    assertEquals("B", frozen.get(5, 3));
+    assertEquals("A", frozen.get(5, 999999));
+    assertEquals("C", frozen.get(777777, 0));
+    assertEquals(null, frozen.get(6, 3));
+    assertEquals(null, frozen.get(999999, 999999));
+    List<Location> all = new ArrayList<>();
+    frozen.itemLocations().forEach(all::add);
+    assertEquals(List.of(new Location(5, 3), new Location(5, 999999), new Location(777777, 0)),
+        all);
+    List<Location> found = new ArrayList<>();
+    frozen.forEachItemIn(6, 0, 1000000, 10, (row, col) -> found.add(new Location(row, col)));
+    assertEquals(List.of(new Location(777777, 0)), found);
+  }
+
+}
@@ -1,3 +1,8 @@
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
 /**
  * Creation of Grid interface and individual
  * method declarations.
@@ -10,10 +15,24 @@ public interface Grid<E> extends Iterable<E> {
 
   public void put(Location loc, E item);
   
+  public void put(int row, int col, E item);
+  
+  public void put(long packed, E item);
+  
   public E get(Location loc);
   
+  public E get(int row, int col);
+  
+  public E get(long packed);
+  
   public E remove(Location loc);
   
+  public E remove(int row, int col);
+  
+  public E remove(long packed);
+  
+  public boolean isOccupied(int row, int col);
+  
   public int numRows();
   
   public int numCols();
@@ -25,9 +44,63 @@ public interface Grid<E> extends Iterable<E> {
   public Iterable<Location> eightNeighbors(Location loc);
   
   public Iterable<Location> fourNeighbors(Location loc);
+  
+  public void forEachEightNeighbor(int row, int col, IntBinaryConsumer action);
+  
+  public void forEachFourNeighbor(int row, int col, IntBinaryConsumer action);
+  
+  public Iterable<Location> neighbors(Location loc, Neighborhood neighborhood);
+  
+  public void forEachNeighbor(int row, int col, Neighborhood neighborhood,
+      IntBinaryConsumer action);
+  
+  public NeighborCursor neighborCursor();
 
   public Integer numItems();
   
+  public Stream<E> stream();
+  
+  public Stream<E> parallelStream();
+  
+  public Stream<Location> itemLocationStream();
+  
+  public Stream<Location> cellStream();
+  
+  public void fill(int rowFrom, int colFrom, int rowTo, int colTo, E item);
+  
+  public void clear(Region region);
+  
+  public void copyRegion(Grid<? extends E> src, Region srcRegion, Location dst);
+  
+  public void putAll(Map<Location, ? extends E> items);
+  
+  public void forEachItemIn(int rowFrom, int colFrom, int rowTo, int colTo,
+      IntBinaryConsumer action);
+  
+  public Iterable<Location> itemLocationsIn(Region region);
+  
+  public Iterable<E> itemsIn(Region region);
+  
+  public List<Location> nearest(Location loc, int k);
+  
+  public List<Location> withinRadius(Location loc, int radius, Metric metric);
+  
+  public void forEachNearest(int row, int col, int k, Metric metric, IntBinaryConsumer action);
+  
+  public void forEachWithinRadius(int row, int col, int radius, Metric metric,
+      IntBinaryConsumer action);
+  
+  public List<Location> floodFill(Location start, Predicate<? super E> predicate);
+  
+  public long floodFill(int row, int col, Connectivity connectivity,
+      Predicate<? super E> predicate, IntBinaryConsumer action);
+  
+  public Labeling labelComponents(Connectivity connectivity, Predicate<? super E> predicate);
+  
+  public Grid<E> snapshot();
+  
+  public Grid<E> freeze();
+  
   
 }
 
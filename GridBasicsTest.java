@@ -1,5 +1,13 @@
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -147,6 +155,17 @@ abstract class GridBasicsTest {
 
   }
 
+  @Test
+  void testIsOccupiedTracksPutAndRemove() {
+    assertFalse(big.isOccupied(1, 2));
+    big.put(l12, 4);
+    assertTrue(big.isOccupied(1, 2));
+    assertFalse(big.isOccupied(2, 1));
+    big.remove(l12);
+    assertFalse(big.isOccupied(1, 2));
+    assertThrows(IllegalArgumentException.class, () -> small.isOccupied(3, 0));
+  }
+
   // ---------------------------------------------------------------
   // REMOVE TESTS
   // ---------------------------------------------------------------
@@ -198,4 +217,458 @@ abstract class GridBasicsTest {
 
   }
 
+  // ---------------------------------------------------------------
+  // PACKED COORDINATE TESTS
+  // ---------------------------------------------------------------
+  @Test
+  void testPackedCoordinatesRoundTrip() {
+    long packed = Location.pack(2, 4);
+    assertEquals(2, Location.unpackRow(packed));
+    assertEquals(4, Location.unpackCol(packed));
+    assertEquals(new Location(2, 4), Location.fromPacked(packed));
+    assertEquals(packed, new Location(2, 4).toPacked());
+    assertTrue(Location.pack(1, 0) > Location.pack(0, Integer.MAX_VALUE));
+  }
+
+  @Test
+  void testPutGetAndRemoveWithPackedCoordinates() {
+    big.put(Location.pack(2, 3), 9);
+    assertEquals(Integer.valueOf(9), big.get(new Location(2, 3)));
+    assertEquals(Integer.valueOf(9), big.get(Location.pack(2, 3)));
+    assertEquals(Integer.valueOf(9), big.remove(Location.pack(2, 3)));
+    assertEquals(0, big.numItems());
+    assertThrows(IllegalArgumentException.class, () -> small.get(Location.pack(3, 0)));
+  }
+
+  // ---------------------------------------------------------------
+  // BULK REGION TESTS
+  // ---------------------------------------------------------------
+
+  /**
+   * Render a grid row by row, with '.' for empty cells.
+   */
+  static String render(Grid<Integer> grid) {
+    StringBuilder out = new StringBuilder();
+    for (int row = 0; row < grid.numRows(); row++) {
+      if (row > 0) {
+        out.append('/');
+      }
+      for (int col = 0; col < grid.numCols(); col++) {
+        Integer item = grid.get(row, col);
+        out.append(item == null ? "." : item.toString());
+      }
+    }
+    return out.toString();
+  }
+
+  @Test
+  void testFillAndClearRegion() {
+    big.put(l00, 7);
+    big.fill(0, 1, 2, 4, 5);
+    assertEquals("7555./.555./.....", render(big));
+    assertEquals(7, big.numItems());
+    big.fill(0, 0, 3, 5, 1);
+    assertEquals(15, big.numItems());
+    big.clear(new Region(1, 1, 3, 3));
+    assertEquals("11111/1..11/1..11", render(big));
+    assertEquals(11, big.numItems());
+    big.clear(new Region(0, 0, 3, 5));
+    assertEquals(0, big.numItems());
+    assertFalse(big.itemLocations().iterator().hasNext());
+  }
+
+  @Test
+  void testFillWholeRowsAndEmptyRegions() {
+    big.fill(1, 0, 3, 5, 4);
+    assertEquals("...../44444/44444", render(big));
+    big.fill(0, 2, 0, 5, 9);
+    big.clear(new Region(2, 2, 2, 2));
+    assertEquals(10, big.numItems());
+  }
+
+  @Test
+  void testFillAndClearCheckArguments() {
+    assertThrows(NullPointerException.class, () -> big.fill(0, 0, 1, 1, null));
+    assertThrows(IllegalArgumentException.class, () -> big.fill(0, 0, 4, 1, 1));
+    assertThrows(IllegalArgumentException.class, () -> big.fill(0, 0, 1, 6, 1));
+    assertThrows(IllegalArgumentException.class, () -> big.fill(-1, 0, 1, 1, 1));
+    assertThrows(IllegalArgumentException.class, () -> big.fill(2, 0, 1, 1, 1));
+    assertThrows(IllegalArgumentException.class, () -> big.clear(new Region(0, 0, 3, 6)));
+    assertThrows(IllegalArgumentException.class, () -> new Region(1, 0, 0, 0));
+    assertEquals(0, big.numItems());
+  }
+
+  @Test
+  void testCopyRegionFromAnotherGridCopiesEmptyCells() {
+    small.put(l00, 1);
+    small.put(l11, 2);
+    small.put(l21, 3);
+    big.fill(0, 0, 3, 5, 9);
+    big.copyRegion(small, new Region(0, 0, 3, 2), new Location(0, 3));
+    assertEquals("9991./999.2/999.3", render(big));
+    assertEquals(12, big.numItems());
+
+    Grid<Integer> other = makeGrid(3, 5);
+    other.copyRegion(big, new Region(0, 3, 2, 5), l00);
+    assertEquals("1..../.2.../.....", render(other));
+    assertEquals(2, other.numItems());
+  }
+
+  @Test
+  void testCopyRegionWithinOneGridOverlapping() {
+    for (int i = 0; i < 15; i++) {
+      big.put(i / 5, i % 5, i % 10);
+    }
+    big.remove(l11);
+    // Down and right.
+    big.copyRegion(big, new Region(0, 0, 2, 3), l12);
+    assertEquals("01234/5.012/015.7", render(big));
+    assertEquals(13, big.numItems());
+    // Up and left.
+    big.copyRegion(big, new Region(1, 1, 3, 5), l00);
+    assertEquals(".0124/15.72/015.7", render(big));
+    // Sideways within the same rows.
+    big.copyRegion(big, new Region(0, 0, 3, 4), l01);
+    assertEquals("..012/115.7/0015.", render(big));
+    assertEquals(11, big.numItems());
+  }
+
+  @Test
+  void testCopyRegionChecksBounds() {
+    assertThrows(IllegalArgumentException.class,
+        () -> big.copyRegion(small, new Region(0, 0, 3, 3), l00));
+    assertThrows(IllegalArgumentException.class,
+        () -> big.copyRegion(small, new Region(0, 0, 3, 2), new Location(0, 4)));
+    assertThrows(IllegalArgumentException.class,
+        () -> small.copyRegion(big, new Region(0, 0, 1, 1), new Location(3, 0)));
+  }
+
+  @Test
+  void testPutAll() {
+    Map<Location, Integer> items = new HashMap<>();
+    items.put(l00, 1);
+    items.put(l22, 2);
+    items.put(new Location(2, 4), 3);
+    big.put(l00, 8);
+    big.putAll(items);
+    assertEquals("1..../...../..2.3", render(big));
+    assertEquals(3, big.numItems());
+    Map<Location, Integer> outside = new HashMap<>();
+    outside.put(new Location(3, 0), 1);
+    assertThrows(IllegalArgumentException.class, () -> big.putAll(outside));
+    Map<Location, Integer> nulls = new HashMap<>();
+    nulls.put(l01, null);
+    assertThrows(NullPointerException.class, () -> big.putAll(nulls));
+  }
+
+
+  // ---------------------------------------------------------------
+  // CHANGE TRACKING TESTS
+  // ---------------------------------------------------------------
+
+  /**
+   * Make a 40 x 40 grid, three tiles each way, with change tracking on.
+   */
+  private AbstractGrid<Integer> trackedGrid() {
+    AbstractGrid<Integer> grid = (AbstractGrid<Integer>) this.<Integer>makeGrid(40, 40);
+    grid.enableChangeTracking();
+    return grid;
+  }
+
+  @Test
+  void testChangedSinceReportsWrittenTiles() {
+    AbstractGrid<Integer> grid = trackedGrid();
+    long start = grid.epoch();
+    assertEquals(List.of(), grid.changedSince(start));
+    grid.put(1, 1, 1);
+    grid.put(20, 35, 2);
+    grid.put(21, 34, 3);
+    assertEquals(List.of(new Region(0, 0, 16, 16), new Region(16, 32, 32, 40)),
+        grid.changedSince(start));
+    long seen = grid.epoch();
+    assertTrue(seen > start);
+    assertEquals(List.of(), grid.changedSince(seen));
+    // Removing from an empty cell changes nothing.
+    grid.remove(39, 0);
+    assertEquals(List.of(), grid.changedSince(seen));
+    grid.remove(new Location(20, 35));
+    assertEquals(List.of(new Region(16, 32, 32, 40)), grid.changedSince(seen));
+    assertEquals(2, grid.changedSince(start).size());
+  }
+
+  @Test
+  void testBulkWritesAndIteratorRemoveAreTracked() {
+    AbstractGrid<Integer> grid = trackedGrid();
+    long start = grid.epoch();
+    grid.fill(14, 14, 18, 18, 5);
+    assertEquals(List.of(new Region(0, 0, 16, 16), new Region(0, 16, 16, 32),
+        new Region(16, 0, 32, 16), new Region(16, 16, 32, 32)), grid.changedSince(start));
+
+    long seen = grid.epoch();
+    grid.clear(new Region(17, 17, 18, 18));
+    assertEquals(List.of(new Region(16, 16, 32, 32)), grid.changedSince(seen));
+
+    seen = grid.epoch();
+    grid.copyRegion(grid, new Region(14, 14, 15, 15), new Location(39, 39));
+    assertEquals(List.of(new Region(32, 32, 40, 40)), grid.changedSince(seen));
+
+    seen = grid.epoch();
+    Map<Location, Integer> items = new HashMap<>();
+    items.put(new Location(0, 39), 1);
+    grid.putAll(items);
+    assertEquals(List.of(new Region(0, 32, 16, 40)), grid.changedSince(seen));
+
+    seen = grid.epoch();
+    Iterator<Integer> it = grid.iterator();
+    it.next();
+    // The first item in row-major order is the one at (0, 39).
+    it.remove();
+    assertEquals(List.of(new Region(0, 32, 16, 40)), grid.changedSince(seen));
+  }
+
+  @Test
+  void testChangeTrackingOffAndBackOn() {
+    AbstractGrid<Integer> grid = (AbstractGrid<Integer>) this.<Integer>makeGrid(40, 40);
+    assertFalse(grid.isChangeTrackingEnabled());
+    assertThrows(IllegalStateException.class, () -> grid.epoch());
+    assertThrows(IllegalStateException.class, () -> grid.changedSince(0));
+    grid.put(0, 0, 1);
+    grid.enableChangeTracking();
+    assertTrue(grid.isChangeTrackingEnabled());
+    grid.put(39, 39, 1);
+    long seen = grid.epoch();
+    grid.disableChangeTracking();
+    // Writes made while tracking is off go unrecorded, so any older epoch
+    // reports every tile.
+    grid.put(20, 20, 1);
+    grid.enableChangeTracking();
+    assertTrue(grid.epoch() > seen);
+    assertEquals(9, grid.changedSince(seen).size());
+    long now = grid.epoch();
+    assertEquals(List.of(), grid.changedSince(now));
+    grid.put(20, 20, 2);
+    assertEquals(List.of(new Region(16, 16, 32, 32)), grid.changedSince(now));
+  }
+
+
+  // ---------------------------------------------------------------
+  // SNAPSHOT TESTS
+  // ---------------------------------------------------------------
+
+  @Test
+  void testSnapshotIgnoresLaterWrites() {
+    big.put(l00, 1);
+    big.put(l12, 2);
+    big.put(new Location(2, 4), 3);
+    Grid<Integer> snap = big.snapshot();
+    big.put(l00, 9);
+    big.remove(l12);
+    big.put(l21, 4);
+    big.clear(new Region(2, 3, 3, 5));
+    assertEquals("1..../..2../....3", render(snap));
+    assertEquals(3, snap.numItems());
+    assertEquals("9..../...../.4...", render(big));
+    assertEquals(2, big.numItems());
+    assertEquals(List.of(1, 2, 3), snap.stream().collect(Collectors.toList()));
+    assertEquals(List.of(l00, l12, new Location(2, 4)),
+        snap.itemLocationStream().collect(Collectors.toList()));
+    assertEquals(15, snap.cellStream().count());
+  }
+
+  @Test
+  void testSnapshotEveryTickKeepsEachTickIntact() {
+    Grid<Integer> grid = makeGrid(90, 110);
+    Random random = new Random(57);
+    List<Grid<Integer>> snapshots = new ArrayList<>();
+    List<String> expected = new ArrayList<>();
+    List<Integer> counts = new ArrayList<>();
+    for (int tick = 0; tick < 40; tick++) {
+      for (int i = 0; i < 60; i++) {
+        int row = random.nextInt(90);
+        int col = random.nextInt(110);
+        int rowTo = Math.min(90, row + 1 + random.nextInt(5));
+        int colTo = Math.min(110, col + 1 + random.nextInt(40));
+        switch (random.nextInt(8)) {
+          case 0:
+            grid.remove(row, col);
+            break;
+          case 1:
+            grid.fill(row, col, rowTo, colTo, tick);
+            break;
+          case 2:
+            grid.clear(new Region(row, col, rowTo, colTo));
+            break;
+          case 3:
+            grid.copyRegion(grid, new Region(row, col, rowTo, colTo), new Location(
+                random.nextInt(91 - (rowTo - row)), random.nextInt(111 - (colTo - col))));
+            break;
+          case 4:
+            Iterator<Integer> it = grid.iterator();
+            if (it.hasNext()) {
+              it.next();
+              it.remove();
+            }
+            break;
+          default:
+            grid.put(row, col, tick);
+        }
+      }
+      snapshots.add(grid.snapshot());
+      expected.add(render(grid));
+      counts.add(grid.numItems());
+    }
+    for (int tick = 0; tick < 40; tick++) {
+      Grid<Integer> snap = snapshots.get(tick);
+      assertEquals(expected.get(tick), render(snap));
+      assertEquals(counts.get(tick), snap.numItems());
+      assertEquals((long) counts.get(tick), snap.itemLocationStream().count());
+      int[] visited = new int[1];
+      snap.forEachItemIn(0, 0, 90, 110, (row, col) -> visited[0]++);
+      assertEquals(counts.get(tick).intValue(), visited[0]);
+    }
+  }
+
+  @Test
+  void testSnapshotsAfterRewritingEveryCell() {
+    // Rewriting every cell after a snapshot lets paged grids go flat again.
+    Grid<Integer> grid = makeGrid(70, 90);
+    grid.fill(0, 0, 70, 90, 1);
+    Grid<Integer> first = grid.snapshot();
+    for (int row = 0; row < 70; row++) {
+      for (int col = 0; col < 90; col++) {
+        grid.put(row, col, row + col);
+      }
+    }
+    String rewritten = render(grid);
+    Grid<Integer> second = grid.snapshot();
+    grid.fill(10, 10, 20, 80, 7);
+    grid.remove(69, 89);
+    for (int row = 0; row < 70; row++) {
+      for (int col = 0; col < 90; col++) {
+        assertEquals(Integer.valueOf(1), first.get(row, col));
+      }
+    }
+    assertEquals(rewritten, render(second));
+    assertEquals(6300, second.numItems());
+    assertEquals(Integer.valueOf(7), grid.get(15, 15));
+    assertEquals(Integer.valueOf(0), grid.get(0, 0));
+    assertNull(grid.get(69, 89));
+    assertEquals(6299, grid.numItems());
+  }
+
+  @Test
+  void testSnapshotReadByManyThreads() throws InterruptedException {
+    Grid<Integer> grid = makeGrid(200, 300);
+    Random random = new Random(91);
+    for (int i = 0; i < 4000; i++) {
+      grid.put(random.nextInt(200), random.nextInt(300), i);
+    }
+    for (int i = 0; i < 1000; i++) {
+      grid.remove(random.nextInt(200), random.nextInt(300));
+    }
+    Grid<Integer> snap = grid.snapshot();
+    String expected = render(grid);
+    Integer[][] cells = new Integer[200][300];
+    grid.forEachItemIn(0, 0, 200, 300, (row, col) -> cells[row][col] = grid.get(row, col));
+    int count = grid.numItems();
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread[] readers = new Thread[4];
+    for (int t = 0; t < readers.length; t++) {
+      int seed = t;
+      readers[t] = new Thread(() -> {
+        try {
+          Random order = new Random(seed);
+          for (int round = 0; round < 20; round++) {
+            int row = order.nextInt(200);
+            int col = order.nextInt(300);
+            assertEquals(cells[row][col], snap.get(row, col));
+            assertEquals(cells[row][col] != null, snap.isOccupied(row, col));
+            assertEquals((long) count, snap.itemLocationStream().count());
+            int[] visited = new int[1];
+            snap.forEachItemIn(0, 0, 200, 300, (r, c) -> visited[0]++);
+            assertEquals(count, visited[0]);
+            assertEquals(expected, render(snap));
+          }
+        } catch (Throwable e) {
+          failure.compareAndSet(null, e);
+        }
+      });
+      readers[t].start();
+    }
+    for (int i = 0; i < 20000; i++) {
+      if (random.nextBoolean()) {
+        grid.put(random.nextInt(200), random.nextInt(300), -i);
+      } else {
+        grid.remove(random.nextInt(200), random.nextInt(300));
+      }
+    }
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    assertNull(failure.get());
+    assertEquals(expected, render(snap));
+  }
+
+  @Test
+  void testSnapshotCannotBeChanged() {
+    big.put(l00, 1);
+    Grid<Integer> snap = big.snapshot();
+    assertThrows(UnsupportedOperationException.class, () -> snap.put(l01, 2));
+    assertThrows(UnsupportedOperationException.class, () -> snap.put(0, 1, 2));
+    assertThrows(UnsupportedOperationException.class, () -> snap.remove(l00));
+    assertThrows(UnsupportedOperationException.class, () -> snap.remove(0, 0));
+    assertThrows(UnsupportedOperationException.class, () -> snap.fill(0, 0, 1, 1, 2));
+    assertThrows(UnsupportedOperationException.class, () -> snap.clear(new Region(0, 0, 1, 1)));
+    assertThrows(UnsupportedOperationException.class,
+        () -> snap.copyRegion(small, new Region(0, 0, 1, 1), l00));
+    assertThrows(UnsupportedOperationException.class, () -> snap.putAll(new HashMap<>()));
+    Iterator<Integer> it = snap.iterator();
+    it.next();
+    assertThrows(UnsupportedOperationException.class, () -> it.remove());
+    assertEquals(Integer.valueOf(1), snap.get(l00));
+    assertSame(snap, snap.snapshot());
+  }
+
+
+  // ---------------------------------------------------------------
+  // FREEZE TESTS
+  // ---------------------------------------------------------------
+
+  @Test
+  void testFreezeSparseGrid() {
+    big.put(l02, 1);
+    big.put(l10, 2);
+    big.put(new Location(2, 4), 3);
+    Grid<Integer> frozen = big.freeze();
+    big.put(l00, 9);
+    big.remove(l10);
+    assertEquals("..1../2..../....3", render(frozen));
+    assertEquals(3, frozen.numItems());
+    assertEquals(List.of(1, 2, 3), frozen.stream().collect(Collectors.toList()));
+    assertEquals(List.of(l02, l10, new Location(2, 4)),
+        frozen.itemLocationStream().collect(Collectors.toList()));
+    assertThrows(IllegalArgumentException.class, () -> frozen.get(3, 0));
+    assertThrows(IllegalArgumentException.class, () -> frozen.get(0, -1));
+    assertThrows(UnsupportedOperationException.class, () -> frozen.put(l00, 1));
+    assertThrows(UnsupportedOperationException.class, () -> frozen.remove(l02));
+    assertSame(frozen, frozen.freeze());
+    assertSame(frozen, frozen.snapshot());
+  }
+
+  @Test
+  void testFreezeDenseGrid() {
+    big.fill(0, 0, 3, 5, 7);
+    big.remove(l11);
+    big.put(l22, 8);
+    Grid<Integer> frozen = big.freeze();
+    assertEquals("77777/7.777/77877", render(frozen));
+    assertEquals(14, frozen.numItems());
+    assertEquals(14, frozen.itemLocationStream().count());
+    assertEquals(7 * 13 + 8, frozen.stream().mapToInt(Integer::intValue).sum());
+    Iterator<Integer> it = frozen.iterator();
+    it.next();
+    assertThrows(UnsupportedOperationException.class, () -> it.remove());
+    assertEquals("77777/7.777/77877", render(big.snapshot().freeze()));
+  }
+
 }
@@ -1,11 +1,17 @@
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -335,6 +341,39 @@ abstract class GridIteratorsTest {
   
   
 
+  @Test
+  void testItemLocationIteratorRowMajorOrder() {
+    Grid<String> grid = makeGrid(3, 3);
+    grid.put(l22, "E");
+    grid.put(l11, "C");
+    grid.put(l02, "B");
+    grid.put(l20, "D");
+    grid.put(l00, "A");
+
+    ArrayList<Location> iterated = new ArrayList<>();
+    for (Location loc : grid.itemLocations()) {
+      iterated.add(loc);
+    }
+    assertEquals(List.of(l00, l02, l11, l20, l22), iterated);
+
+    ArrayList<String> items = new ArrayList<>();
+    for (String item : grid) {
+      items.add(item);
+    }
+    assertEquals(List.of("A", "B", "C", "D", "E"), items);
+  }
+
+  @Test
+  void testIteratorsReflectChangesBetweenPasses() {
+    big.put(l12, 1);
+    big.put(l01, 2);
+    assertEquals(l01, big.itemLocations().iterator().next());
+    big.put(l00, 3);
+    assertEquals(l00, big.itemLocations().iterator().next());
+    big.remove(l00);
+    assertEquals(Integer.valueOf(2), big.iterator().next());
+  }
+  
   // ---------------------------------------------------------------
   // EIGHT NEIGHBOR TESTS
   // ---------------------------------------------------------------
@@ -618,8 +657,596 @@ abstract class GridIteratorsTest {
     sameItems(correct, iterated);
 
   }
-  
-  
-  
-  
+
+  // ---------------------------------------------------------------
+  // NEIGHBOR VISITOR TESTS
+  // ---------------------------------------------------------------
+  @Test
+  void testForEachEightNeighborMatchesEightNeighbors() {
+    for (Location center : big.allLocations()) {
+      ArrayList<Location> correct = new ArrayList<>();
+      for (Location loc : big.eightNeighbors(center)) {
+        correct.add(loc);
+      }
+      ArrayList<Location> visited = new ArrayList<>();
+      big.forEachEightNeighbor(center.getRow(), center.getCol(),
+          (row, col) -> visited.add(new Location(row, col)));
+      sameItems(correct, visited);
+    }
+  }
+
+  @Test
+  void testForEachFourNeighborMatchesFourNeighbors() {
+    for (Location center : big.allLocations()) {
+      ArrayList<Location> correct = new ArrayList<>();
+      for (Location loc : big.fourNeighbors(center)) {
+        correct.add(loc);
+      }
+      ArrayList<Location> visited = new ArrayList<>();
+      big.forEachFourNeighbor(center.getRow(), center.getCol(),
+          (row, col) -> visited.add(new Location(row, col)));
+      sameItems(correct, visited);
+    }
+  }
+
+  @Test
+  void testForEachNeighborBadLocationThrowsException() {
+    assertThrows(IllegalArgumentException.class, () -> small.forEachEightNeighbor(3, 0, (r, c) -> { }));
+    assertThrows(IllegalArgumentException.class, () -> small.forEachFourNeighbor(0, 2, (r, c) -> { }));
+    assertThrows(IllegalArgumentException.class, () -> small.neighborCursor().eight(-1, 0));
+  }
+
+  @Test
+  void testNeighborCursorCanBeReused() {
+    NeighborCursor cursor = big.neighborCursor();
+
+    ArrayList<Location> iterated = new ArrayList<>();
+    cursor.eight(0, 0);
+    while (cursor.next()) {
+      iterated.add(new Location(cursor.row(), cursor.col()));
+    }
+    List<Location> correct = new ArrayList<Location>(List.of(l01, l10, l11));
+    sameItems(correct, iterated);
+
+    iterated.clear();
+    cursor.four(1, 1);
+    while (cursor.next()) {
+      iterated.add(new Location(cursor.row(), cursor.col()));
+    }
+    correct = new ArrayList<Location>(List.of(l01, l10, l12, l21));
+    sameItems(correct, iterated);
+    assertFalse(cursor.next());
+  }
+
+  // ---------------------------------------------------------------
+  // NEIGHBORHOOD TESTS
+  // ---------------------------------------------------------------
+
+  /**
+   * Apply a neighborhood's offsets by hand, clipping or wrapping at the
+   * edges.
+   */
+  private static List<Location> expectedNeighbors(int rows, int cols, int row, int col,
+      Neighborhood neighborhood) {
+    List<Location> expected = new ArrayList<>();
+    for (int i = 0; i < neighborhood.size(); i++) {
+      long r = (long) row + neighborhood.rowOffset(i);
+      long c = (long) col + neighborhood.colOffset(i);
+      if (neighborhood.isToroidal()) {
+        r = Math.floorMod(r, (long) rows);
+        c = Math.floorMod(c, (long) cols);
+      }
+      if (r >= 0 && c >= 0 && r < rows && c < cols) {
+        expected.add(new Location((int) r, (int) c));
+      }
+    }
+    return expected;
+  }
+
+  /**
+   * Check forEachNeighbor, neighbors and the cursor against the hand
+   * computed neighbors of every cell.
+   */
+  private static void checkNeighborhood(Grid<Integer> grid, Neighborhood neighborhood) {
+    NeighborCursor cursor = grid.neighborCursor();
+    for (Location center : grid.allLocations()) {
+      List<Location> expected = expectedNeighbors(grid.numRows(), grid.numCols(),
+          center.getRow(), center.getCol(), neighborhood);
+
+      List<Location> visited = new ArrayList<>();
+      grid.forEachNeighbor(center.getRow(), center.getCol(), neighborhood,
+          (row, col) -> visited.add(new Location(row, col)));
+      assertEquals(expected, visited);
+
+      List<Location> iterated = new ArrayList<>();
+      for (Location loc : grid.neighbors(center, neighborhood)) {
+        iterated.add(loc);
+      }
+      assertEquals(expected, iterated);
+
+      List<Location> walked = new ArrayList<>();
+      cursor.around(center.getRow(), center.getCol(), neighborhood);
+      while (cursor.next()) {
+        walked.add(new Location(cursor.row(), cursor.col()));
+      }
+      assertEquals(expected, walked);
+    }
+  }
+
+  @Test
+  void testNeighborhoodsMatchHandComputedOffsets() {
+    Grid<Integer> grid = makeGrid(6, 7);
+    Neighborhood[] neighborhoods = {Neighborhood.MOORE, Neighborhood.VON_NEUMANN,
+        Neighborhood.moore(2), Neighborhood.vonNeumann(3), Neighborhood.hexagonal(),
+        Neighborhood.of(new int[] {-2, 0, 1}, new int[] {1, 0, -3})};
+    for (Neighborhood neighborhood : neighborhoods) {
+      checkNeighborhood(grid, neighborhood);
+      checkNeighborhood(grid, neighborhood.toroidal());
+      checkNeighborhood(big, neighborhood);
+      checkNeighborhood(big, neighborhood.toroidal());
+    }
+  }
+
+  @Test
+  void testEightAndFourNeighborsMatchRadiusOne() {
+    for (Location center : big.allLocations()) {
+      List<Location> eight = new ArrayList<>();
+      for (Location loc : big.eightNeighbors(center)) {
+        eight.add(loc);
+      }
+      List<Location> four = new ArrayList<>();
+      for (Location loc : big.fourNeighbors(center)) {
+        four.add(loc);
+      }
+      assertEquals(expectedNeighbors(3, 5, center.getRow(), center.getCol(), Neighborhood.moore(1)), eight);
+      assertEquals(expectedNeighbors(3, 5, center.getRow(), center.getCol(), Neighborhood.vonNeumann(1)), four);
+    }
+  }
+
+  @Test
+  void testToroidalNeighborsWrapAroundCorner() {
+    List<Location> visited = new ArrayList<>();
+    big.forEachNeighbor(0, 0, Neighborhood.MOORE.toroidal(),
+        (row, col) -> visited.add(new Location(row, col)));
+    List<Location> correct = List.of(new Location(2, 4), new Location(2, 0), new Location(2, 1),
+        new Location(0, 4), l01, new Location(1, 4), l10, l11);
+    assertEquals(correct, visited);
+  }
+
+  @Test
+  void testToroidalNeighborsOnTinyGridRepeatCells() {
+    Grid<Integer> grid = makeGrid(1, 1);
+    List<Location> visited = new ArrayList<>();
+    grid.forEachNeighbor(0, 0, Neighborhood.MOORE.toroidal(),
+        (row, col) -> visited.add(new Location(row, col)));
+    assertEquals(8, visited.size());
+    for (Location loc : visited) {
+      assertEquals(l00, loc);
+    }
+  }
+
+  @Test
+  void testCustomNeighborhoodCanVisitCenter() {
+    Neighborhood withCenter = Neighborhood.of(new int[] {0, 0}, new int[] {0, 1});
+    List<Location> visited = new ArrayList<>();
+    big.forEachNeighbor(1, 1, withCenter, (row, col) -> visited.add(new Location(row, col)));
+    assertEquals(List.of(l11, l12), visited);
+  }
+
+  @Test
+  void testNeighborhoodBadArgumentsThrowException() {
+    assertThrows(IllegalArgumentException.class,
+        () -> small.neighbors(new Location(3, 0), Neighborhood.MOORE));
+    assertThrows(IllegalArgumentException.class,
+        () -> small.forEachNeighbor(0, 2, Neighborhood.hexagonal(), (r, c) -> { }));
+    assertThrows(IllegalArgumentException.class,
+        () -> small.neighborCursor().around(-1, 0, Neighborhood.MOORE));
+    assertThrows(NullPointerException.class, () -> small.neighbors(l00, null));
+    assertThrows(NullPointerException.class, () -> small.forEachNeighbor(0, 0, null, (r, c) -> { }));
+    assertThrows(NullPointerException.class, () -> small.neighborCursor().around(0, 0, null));
+  }
+
+  // ---------------------------------------------------------------
+  // REGION TESTS
+  // ---------------------------------------------------------------
+
+  /**
+   * Build a grid from rows of text, holding "#" where the text has '#'.
+   */
+  private Grid<String> parseRegions(String... lines) {
+    Grid<String> grid = makeGrid(lines.length, lines[0].length());
+    for (int row = 0; row < lines.length; row++) {
+      for (int col = 0; col < lines[row].length(); col++) {
+        if (lines[row].charAt(col) == '#') {
+          grid.put(row, col, "#");
+        }
+      }
+    }
+    return grid;
+  }
+
+  /**
+   * Label components with a plain breadth-first search, numbering them in
+   * row-major order of their first cell.
+   */
+  private static int[][] referenceLabels(Grid<?> grid, boolean diagonal) {
+    int rows = grid.numRows();
+    int cols = grid.numCols();
+    int[][] labels = new int[rows][cols];
+    int next = 0;
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col++) {
+        if (!grid.isOccupied(row, col) || labels[row][col] != 0) {
+          continue;
+        }
+        next++;
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        labels[row][col] = next;
+        queue.add(new int[] {row, col});
+        while (!queue.isEmpty()) {
+          int[] cell = queue.poll();
+          for (int dr = -1; dr <= 1; dr++) {
+            for (int dc = -1; dc <= 1; dc++) {
+              if ((dr == 0 && dc == 0) || (!diagonal && dr != 0 && dc != 0)) {
+                continue;
+              }
+              int r = cell[0] + dr;
+              int c = cell[1] + dc;
+              if (r >= 0 && c >= 0 && r < rows && c < cols && grid.isOccupied(r, c)
+                  && labels[r][c] == 0) {
+                labels[r][c] = next;
+                queue.add(new int[] {r, c});
+              }
+            }
+          }
+        }
+      }
+    }
+    return labels;
+  }
+
+  @Test
+  void testFloodFillFourAndEightConnected() {
+    Grid<String> grid = parseRegions("##..#", ".#..#", "..#..", "##...");
+    assertEquals(List.of(l00, l01, l11), grid.floodFill(l00, "#"::equals));
+
+    List<Location> visited = new ArrayList<>();
+    long count = grid.floodFill(1, 1, Connectivity.EIGHT, "#"::equals,
+        (row, col) -> visited.add(new Location(row, col)));
+    assertEquals(6, count);
+    sameItems(new ArrayList<>(List.of(l00, l01, l11, l22, new Location(3, 0),
+        new Location(3, 1))), new ArrayList<>(visited));
+  }
+
+  @Test
+  void testFloodFillEmptyCells() {
+    Grid<String> grid = parseRegions("##..#", ".#..#", "..#..", "##...");
+    assertEquals(List.of(l10, l20, l21), grid.floodFill(l20, Objects::isNull));
+    assertEquals(9, grid.floodFill(0, 2, Connectivity.FOUR, Objects::isNull,
+        (row, col) -> { }));
+  }
+
+  @Test
+  void testFloodFillStartOutsideRegion() {
+    Grid<String> grid = parseRegions("#.", ".#");
+    assertEquals(List.of(), grid.floodFill(l01, "#"::equals));
+    assertEquals(0, grid.floodFill(1, 0, Connectivity.EIGHT, "#"::equals, (row, col) -> fail()));
+  }
+
+  @Test
+  void testFloodFillActionMayRepaint() {
+    Grid<String> grid = parseRegions("###", "#.#", "###");
+    long count = grid.floodFill(0, 0, Connectivity.FOUR, item -> item != null,
+        (row, col) -> grid.put(row, col, "x"));
+    assertEquals(8, count);
+    assertEquals(8, grid.numItems());
+    for (String item : grid) {
+      assertEquals("x", item);
+    }
+  }
+
+  @Test
+  void testLabelComponentsSmallGrid() {
+    Grid<String> grid = parseRegions("##..#", ".#..#", "..#..", "##...");
+    Labeling four = grid.labelComponents(Connectivity.FOUR, "#"::equals);
+    assertEquals(4, four.componentCount());
+    assertArrayEquals(new int[] {0, 3, 2, 1, 2}, four.sizes());
+    assertEquals(1, four.label(1, 1));
+    assertEquals(2, four.label(1, 4));
+    assertEquals(3, four.label(2, 2));
+    assertEquals(4, four.label(3, 0));
+    assertEquals(0, four.label(0, 2));
+    assertFalse(four.labels().isOccupied(0, 2));
+    assertEquals(8, four.labels().numItems());
+
+    Labeling eight = grid.labelComponents(Connectivity.EIGHT, "#"::equals);
+    assertEquals(2, eight.componentCount());
+    assertEquals(6, eight.size(1));
+    assertEquals(2, eight.size(2));
+    assertEquals(1, eight.label(3, 1));
+    assertThrows(IllegalArgumentException.class, () -> eight.size(0));
+    assertThrows(IllegalArgumentException.class, () -> eight.size(3));
+  }
+
+  @Test
+  void testLabelComponentsMatchesBreadthFirstSearch() {
+    // Tall enough to be split into several bands.
+    Grid<Integer> grid = makeGrid(300, 200);
+    Random random = new Random(20);
+    for (int row = 0; row < 300; row++) {
+      for (int col = 0; col < 200; col++) {
+        if (random.nextInt(100) < 55) {
+          grid.put(row, col, 1);
+        }
+      }
+    }
+    for (Connectivity connectivity : Connectivity.values()) {
+      int[][] expected = referenceLabels(grid, connectivity == Connectivity.EIGHT);
+      Labeling labeling = grid.labelComponents(connectivity, item -> item != null);
+      int components = 0;
+      for (int row = 0; row < 300; row++) {
+        for (int col = 0; col < 200; col++) {
+          assertEquals(expected[row][col], labeling.label(row, col));
+          components = Math.max(components, expected[row][col]);
+        }
+      }
+      assertEquals(components, labeling.componentCount());
+      int total = 0;
+      for (int label = 1; label <= components; label++) {
+        total += labeling.size(label);
+      }
+      assertEquals(grid.numItems(), total);
+    }
+  }
+
+  @Test
+  void testRegionBadArgumentsThrowException() {
+    assertThrows(IllegalArgumentException.class, () -> small.floodFill(new Location(3, 0), item -> true));
+    assertThrows(IllegalArgumentException.class,
+        () -> small.floodFill(0, 2, Connectivity.FOUR, item -> true, (row, col) -> { }));
+    assertThrows(NullPointerException.class, () -> small.floodFill(l00, null));
+    assertThrows(NullPointerException.class,
+        () -> small.floodFill(0, 0, null, item -> true, (row, col) -> { }));
+    assertThrows(NullPointerException.class,
+        () -> small.floodFill(0, 0, Connectivity.FOUR, item -> true, null));
+    assertThrows(NullPointerException.class, () -> small.labelComponents(null, item -> true));
+    assertThrows(NullPointerException.class, () -> small.labelComponents(Connectivity.FOUR, null));
+  }
+
+  // ---------------------------------------------------------------
+  // LOCATION CACHE TESTS
+  // ---------------------------------------------------------------
+  @Test
+  void testLocationCacheSharesInstances() {
+    AbstractGrid<Integer> grid = (AbstractGrid<Integer>) big;
+    grid.enableLocationCache();
+    assertTrue(grid.isLocationCacheEnabled());
+    grid.put(l11, 5);
+    Location first = grid.itemLocations().iterator().next();
+    assertSame(first, grid.itemLocations().iterator().next());
+    assertEquals(l11, first);
+
+    Location neighbor = grid.eightNeighbors(l00).iterator().next();
+    assertSame(neighbor, grid.eightNeighbors(l00).iterator().next());
+
+    grid.disableLocationCache();
+    assertFalse(grid.isLocationCacheEnabled());
+  }
+
+  // ---------------------------------------------------------------
+  // STREAM TESTS
+  // ---------------------------------------------------------------
+  @Test
+  void testStreamsVisitItemsInRowMajorOrder() {
+    big.put(l22, 3);
+    big.put(l01, 1);
+    big.put(l12, 2);
+
+    assertEquals(List.of(1, 2, 3), big.stream().collect(Collectors.toList()));
+    assertEquals(List.of(1, 2, 3), big.parallelStream().collect(Collectors.toList()));
+    assertEquals(List.of(l01, l12, l22), big.itemLocationStream().collect(Collectors.toList()));
+    assertEquals(List.of(l01, l12, l22),
+        big.itemLocationStream().parallel().collect(Collectors.toList()));
+  }
+
+  @Test
+  void testParallelStreamMatchesSequentialSum() {
+    Grid<Integer> grid = makeGrid(200, 150);
+    int expected = 0;
+    for (int row = 0; row < 200; row++) {
+      for (int col = (row % 3); col < 150; col += 7) {
+        grid.put(new Location(row, col), row + col);
+        expected += row + col;
+      }
+    }
+    assertEquals(expected, grid.parallelStream().mapToInt(Integer::intValue).sum());
+    assertEquals((long) grid.numItems(), grid.itemLocationStream().parallel().count());
+  }
+
+  @Test
+  void testSpliteratorIsSizedAndSplits() {
+    Grid<Integer> grid = makeGrid(8, 8);
+    for (Location loc : grid.allLocations()) {
+      if ((loc.getRow() + loc.getCol()) % 2 == 0) {
+        grid.put(loc, loc.getRow());
+      }
+    }
+    Spliterator<Integer> high = grid.spliterator();
+    assertTrue(high.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED
+        | Spliterator.ORDERED));
+    assertEquals(32, high.getExactSizeIfKnown());
+
+    Spliterator<Integer> low = high.trySplit();
+    assertNotNull(low);
+    assertEquals(32, low.getExactSizeIfKnown() + high.getExactSizeIfKnown());
+  }
+
+  @Test
+  void testCellStreamVisitsAllLocations() {
+    Grid<String> grid = makeGrid(2, 3);
+    List<Location> correct = List.of(l00, l01, l02, l10, l11, l12);
+    assertEquals(correct, grid.cellStream().collect(Collectors.toList()));
+    assertEquals(correct, grid.cellStream().parallel().collect(Collectors.toList()));
+  }
+
+  // ---------------------------------------------------------------
+  // RANGE QUERY TESTS
+  // ---------------------------------------------------------------
+  @Test
+  void testItemLocationsInRegionInRowMajorOrder() {
+    big.put(new Location(2, 4), 1);
+    big.put(l22, 2);
+    big.put(l12, 3);
+    big.put(l11, 4);
+    big.put(l01, 5);
+    big.put(l00, 6);
+    big.put(new Location(1, 4), 7);
+
+    List<Location> found = new ArrayList<>();
+    for (Location loc : big.itemLocationsIn(new Region(1, 1, 3, 4))) {
+      found.add(loc);
+    }
+    assertEquals(List.of(l11, l12, l22), found);
+
+    List<Integer> items = new ArrayList<>();
+    for (Integer item : big.itemsIn(new Region(0, 1, 2, 5))) {
+      items.add(item);
+    }
+    assertEquals(List.of(5, 4, 3, 7), items);
+
+    List<Location> visited = new ArrayList<>();
+    big.forEachItemIn(0, 0, 3, 5, (row, col) -> visited.add(new Location(row, col)));
+    assertEquals(7, visited.size());
+    assertEquals(List.of(l00, l01, l11, l12, new Location(1, 4), l22, new Location(2, 4)),
+        visited);
+  }
+
+  @Test
+  void testRangeQueriesOnEmptyRegionsAndGrids() {
+    assertFalse(big.itemLocationsIn(new Region(0, 0, 3, 5)).iterator().hasNext());
+    big.put(l11, 1);
+    assertFalse(big.itemsIn(new Region(1, 2, 3, 5)).iterator().hasNext());
+    assertFalse(big.itemsIn(new Region(1, 1, 1, 5)).iterator().hasNext());
+    assertFalse(big.itemsIn(new Region(0, 1, 3, 1)).iterator().hasNext());
+    Iterator<Location> it = big.itemLocationsIn(new Region(1, 1, 2, 2)).iterator();
+    assertEquals(l11, it.next());
+    assertThrows(NoSuchElementException.class, () -> it.next());
+  }
+
+  @Test
+  void testRangeQueriesCheckBounds() {
+    assertThrows(IllegalArgumentException.class,
+        () -> big.itemLocationsIn(new Region(0, 0, 4, 5)));
+    assertThrows(IllegalArgumentException.class, () -> big.itemsIn(new Region(0, 0, 3, 6)));
+    assertThrows(IllegalArgumentException.class,
+        () -> big.forEachItemIn(0, 0, 3, 6, (row, col) -> { }));
+  }
+
+  @Test
+  void testRangeQueryAcrossWordBoundaries() {
+    Grid<Integer> wide = makeGrid(4, 150);
+    wide.put(0, 149, 1);
+    wide.put(1, 63, 2);
+    wide.put(1, 64, 3);
+    wide.put(1, 128, 4);
+    wide.put(3, 70, 5);
+    List<Integer> items = new ArrayList<>();
+    for (Integer item : wide.itemsIn(new Region(1, 64, 4, 129))) {
+      items.add(item);
+    }
+    assertEquals(List.of(3, 4, 5), items);
+  }
+
+  // ---------------------------------------------------------------
+  // PROXIMITY SEARCH TESTS
+  // ---------------------------------------------------------------
+
+  /**
+   * All items of a grid sorted by distance from a center, ties in
+   * row-major order, computed by brute force.
+   */
+  private static List<Location> sortedByDistance(Grid<Integer> grid, Location center,
+      Metric metric) {
+    List<Location> all = new ArrayList<>();
+    for (Location loc : grid.itemLocations()) {
+      all.add(loc);
+    }
+    all.sort(Comparator.comparingLong((Location loc) -> metric.distance(
+        loc.getRow() - center.getRow(), loc.getCol() - center.getCol()))
+        .thenComparing(Comparator.naturalOrder()));
+    return all;
+  }
+
+  @Test
+  void testNearestOnSmallGrid() {
+    big.put(l00, 1);
+    big.put(new Location(2, 4), 2);
+    big.put(l12, 3);
+    big.put(l11, 4);
+    assertEquals(List.of(l11, l12, l00), big.nearest(l11, 3));
+    assertEquals(List.of(l12, l11, l00, new Location(2, 4)), big.nearest(l02, 10));
+    assertEquals(List.of(), big.nearest(l02, 0));
+    assertEquals(List.of(l00, l11, l12), big.withinRadius(l01, 1, Metric.CHEBYSHEV));
+    assertEquals(List.of(l00, l11), big.withinRadius(l01, 1, Metric.MANHATTAN));
+    assertEquals(List.of(l00, l11), big.withinRadius(l01, 1, Metric.EUCLIDEAN));
+    assertEquals(List.of(l00, l11, l12), big.withinRadius(l01, 2, Metric.MANHATTAN));
+  }
+
+  @Test
+  void testNearestAndRadiusMatchBruteForce() {
+    Random random = new Random(17);
+    Grid<Integer> grid = makeGrid(37, 53);
+    for (int i = 0; i < 60; i++) {
+      grid.put(random.nextInt(37), random.nextInt(53), i);
+    }
+    for (Metric metric : Metric.values()) {
+      for (int trial = 0; trial < 20; trial++) {
+        Location center = new Location(random.nextInt(37), random.nextInt(53));
+        List<Location> expected = sortedByDistance(grid, center, metric);
+        List<Location> found = new ArrayList<>();
+        grid.forEachNearest(center.getRow(), center.getCol(), 7, metric,
+            (row, col) -> found.add(new Location(row, col)));
+        assertEquals(expected.subList(0, 7), found);
+
+        int radius = random.nextInt(20);
+        long bound = metric == Metric.EUCLIDEAN ? (long) radius * radius : radius;
+        List<Location> inside = new ArrayList<>();
+        for (Location loc : expected) {
+          if (metric.distance(loc.getRow() - center.getRow(),
+              loc.getCol() - center.getCol()) <= bound) {
+            inside.add(loc);
+          }
+        }
+        assertEquals(inside, grid.withinRadius(center, radius, metric));
+      }
+      assertEquals(sortedByDistance(grid, l00, metric),
+          grid.withinRadius(l00, 100, metric));
+    }
+  }
+
+  @Test
+  void testNearestOnEmptyGridAndArgumentChecks() {
+    assertEquals(List.of(), big.nearest(l11, 5));
+    assertEquals(List.of(), big.withinRadius(l11, 9, Metric.CHEBYSHEV));
+    assertThrows(IllegalArgumentException.class, () -> big.nearest(l11, -1));
+    assertThrows(IllegalArgumentException.class,
+        () -> big.withinRadius(l11, -1, Metric.MANHATTAN));
+    assertThrows(IllegalArgumentException.class, () -> big.nearest(new Location(3, 0), 1));
+    assertThrows(NullPointerException.class, () -> big.withinRadius(l11, 1, null));
+  }
+
+  @Test
+  void testNearestFromInsideCallbackStartsSeparateSearch() {
+    big.put(l00, 1);
+    big.put(new Location(2, 4), 2);
+    List<Location> outer = new ArrayList<>();
+    List<Location> inner = new ArrayList<>();
+    big.forEachNearest(0, 0, 2, Metric.CHEBYSHEV, (row, col) -> {
+      outer.add(new Location(row, col));
+      inner.addAll(big.nearest(new Location(2, 4), 1));
+    });
+    assertEquals(List.of(l00, new Location(2, 4)), outer);
+    assertEquals(List.of(new Location(2, 4), new Location(2, 4)), inner);
+  }
+
 }
@@ -0,0 +1,391 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Operation counts and sampled latencies for one InstrumentedGrid. Each
+ * thread counts into its own stripe, an array no other thread writes, so
+ * a count is a plain load, add and store: no lock prefix, no fence and no
+ * cache line bouncing between cores. Readers add up the stripes, which
+ * may miss counts made in the last instant by a running thread but never
+ * tears or loses them. When a read finds a stripe whose thread has died,
+ * its counts are folded into retired totals and the stripe is dropped, so
+ * pools that churn through threads do not make the metrics grow.
+ *
+ * @author Jordan Martin
+ */
+final class GridMetrics implements GridMetricsMXBean {
+
+  static final int GET_HITS = 0;
+  static final int GET_MISSES = 1;
+  static final int PUT_INSERTS = 2;
+  static final int PUT_OVERWRITES = 3;
+  static final int REMOVE_HITS = 4;
+  static final int REMOVE_MISSES = 5;
+  static final int OCCUPANCY_CHECKS = 6;
+  static final int ITERATIONS = 7;
+  static final int ITERATED_ITEMS = 8;
+  static final int NEIGHBOR_QUERIES = 9;
+  static final int REGION_QUERIES = 10;
+  static final int BULK_OPERATIONS = 11;
+  static final int SEARCHES = 12;
+  static final int COUNTERS = 13;
+
+  // Padding on both sides keeps two threads' stripes off one cache line.
+  private static final int PAD = 8;
+  private static final VarHandle COUNT = MethodHandles.arrayElementVarHandle(long[].class);
+
+  private final int samplePeriod;
+  private final Queue<Stripe> stripes = new ConcurrentLinkedQueue<Stripe>();
+  private final ThreadLocal<Stripe> local = new ThreadLocal<Stripe>() {
+
+    @Override
+    protected Stripe initialValue() {
+      Stripe stripe = new Stripe(Thread.currentThread(), samplePeriod);
+      stripes.add(stripe);
+      return stripe;
+    }
+  };
+  // Stripe of the thread the metrics were first or most recently claimed by.
+  private Stripe recent;
+  // Guarded by this.
+  private final long[] retired = new long[COUNTERS];
+  private final long[] baseline = new long[COUNTERS];
+  final Log2Histogram iteratorLengths = new Log2Histogram();
+  final Log2Histogram getLatency = new Log2Histogram();
+  final Log2Histogram putLatency = new Log2Histogram();
+  final Log2Histogram removeLatency = new Log2Histogram();
+  final Log2Histogram iterationLatency = new Log2Histogram();
+
+  /**
+   * Constructor for GridMetrics class.
+   * @param samplePeriod - average number of operations per timed one
+   */
+  GridMetrics(int samplePeriod) {
+    this.samplePeriod = samplePeriod;
+  }
+
+  /**
+   * Get the calling thread's stripe. The stripe of the first thread to
+   * ask is kept in a field and found by comparing its owner with the
+   * current thread, a few instructions; other threads, and that one too
+   * after it dies, go through a ThreadLocal lookup.
+   * @return - stripe owned by the calling thread
+   */
+  Stripe stripe() {
+    Stripe stripe = recent;
+    if (stripe != null && stripe.owner == Thread.currentThread()) {
+      return stripe;
+    }
+    stripe = local.get();
+    Stripe kept = recent;
+    if (kept == null || !kept.owner.isAlive()) {
+      recent = stripe;
+    }
+    return stripe;
+  }
+
+  /**
+   * Count one occurrence on the calling thread's stripe.
+   * @param counter - counter to bump
+   */
+  void count(int counter) {
+    stripe().count(counter);
+  }
+
+  /**
+   * Add to a counter on the calling thread's stripe.
+   * @param counter - counter to add to
+   * @param amount - amount to add
+   */
+  void add(int counter, long amount) {
+    stripe().add(counter, amount);
+  }
+
+  /**
+   * Add up a counter over every stripe.
+   * @param counter - counter to read
+   * @return - count since the last reset
+   */
+  private synchronized long sum(int counter) {
+    retireDeadStripes();
+    return total(counter) - baseline[counter];
+  }
+
+  /**
+   * Add up a counter over every stripe and the retired totals, ignoring
+   * resets. Callers hold the lock.
+   * @param counter - counter to read
+   * @return - count since the metrics were created
+   */
+  private long total(int counter) {
+    long total = retired[counter];
+    for (Stripe stripe : stripes) {
+      total += (long) COUNT.getOpaque(stripe.counts, PAD + counter);
+    }
+    return total;
+  }
+
+  /**
+   * Fold the stripes of threads that have died into the retired totals
+   * and drop them. A dead thread writes nothing more, and its death
+   * happens-before isAlive returning false, so its counts are final and
+   * visible here. Callers hold the lock.
+   */
+  private void retireDeadStripes() {
+    for (Iterator<Stripe> it = stripes.iterator(); it.hasNext();) {
+      Stripe stripe = it.next();
+      if (!stripe.owner.isAlive()) {
+        it.remove();
+        if (recent == stripe) {
+          recent = null;
+        }
+        for (int counter = 0; counter < COUNTERS; counter++) {
+          retired[counter] += stripe.counts[PAD + counter];
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the number of stripes still held, for tests.
+   * @return - number of stripes
+   */
+  synchronized int stripeCount() {
+    return stripes.size();
+  }
+
+  @Override
+  public long getGetHits() {
+    return sum(GET_HITS);
+  }
+
+  @Override
+  public long getGetMisses() {
+    return sum(GET_MISSES);
+  }
+
+  /**
+   * @return - fraction of gets that found an item, or 0 before any get
+   */
+  @Override
+  public double getGetHitRate() {
+    long hits = sum(GET_HITS);
+    long total = hits + sum(GET_MISSES);
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  @Override
+  public long getPutInserts() {
+    return sum(PUT_INSERTS);
+  }
+
+  @Override
+  public long getPutOverwrites() {
+    return sum(PUT_OVERWRITES);
+  }
+
+  @Override
+  public long getRemoveHits() {
+    return sum(REMOVE_HITS);
+  }
+
+  @Override
+  public long getRemoveMisses() {
+    return sum(REMOVE_MISSES);
+  }
+
+  @Override
+  public long getOccupancyChecks() {
+    return sum(OCCUPANCY_CHECKS);
+  }
+
+  @Override
+  public long getIterations() {
+    return sum(ITERATIONS);
+  }
+
+  @Override
+  public long getIteratedItems() {
+    return sum(ITERATED_ITEMS);
+  }
+
+  @Override
+  public long[] getIteratorLengthHistogram() {
+    return iteratorLengths.counts();
+  }
+
+  @Override
+  public long getNeighborQueries() {
+    return sum(NEIGHBOR_QUERIES);
+  }
+
+  @Override
+  public long getRegionQueries() {
+    return sum(REGION_QUERIES);
+  }
+
+  @Override
+  public long getBulkOperations() {
+    return sum(BULK_OPERATIONS);
+  }
+
+  @Override
+  public long getSearches() {
+    return sum(SEARCHES);
+  }
+
+  @Override
+  public int getSamplePeriod() {
+    return samplePeriod;
+  }
+
+  @Override
+  public long[] getGetLatencyHistogram() {
+    return getLatency.counts();
+  }
+
+  @Override
+  public long[] getPutLatencyHistogram() {
+    return putLatency.counts();
+  }
+
+  @Override
+  public long[] getRemoveLatencyHistogram() {
+    return removeLatency.counts();
+  }
+
+  @Override
+  public long[] getIterationLatencyHistogram() {
+    return iterationLatency.counts();
+  }
+
+  @Override
+  public long getGetLatencyP50Nanos() {
+    return getLatency.percentile(0.5);
+  }
+
+  @Override
+  public long getGetLatencyP99Nanos() {
+    return getLatency.percentile(0.99);
+  }
+
+  @Override
+  public long getPutLatencyP50Nanos() {
+    return putLatency.percentile(0.5);
+  }
+
+  @Override
+  public long getPutLatencyP99Nanos() {
+    return putLatency.percentile(0.99);
+  }
+
+  @Override
+  public long getRemoveLatencyP50Nanos() {
+    return removeLatency.percentile(0.5);
+  }
+
+  @Override
+  public long getRemoveLatencyP99Nanos() {
+    return removeLatency.percentile(0.99);
+  }
+
+  @Override
+  public long getIterationLatencyP50Nanos() {
+    return iterationLatency.percentile(0.5);
+  }
+
+  @Override
+  public long getIterationLatencyP99Nanos() {
+    return iterationLatency.percentile(0.99);
+  }
+
+  /**
+   * Set every count and histogram back to zero.
+   */
+  @Override
+  public void reset() {
+    // Stripes belong to their threads, so rather than zeroing them the
+    // current totals become the new zero.
+    synchronized (this) {
+      retireDeadStripes();
+      for (int counter = 0; counter < COUNTERS; counter++) {
+        baseline[counter] = total(counter);
+      }
+    }
+    iteratorLengths.reset();
+    getLatency.reset();
+    putLatency.reset();
+    removeLatency.reset();
+    iterationLatency.reset();
+  }
+
+  /**
+   * One thread's counts and sampling countdown, written only by that
+   * thread. Counts are stored with opaque writes so readers on other
+   * threads always see a whole, recent value.
+   */
+  static final class Stripe {
+
+    private final Thread owner;
+    private final int samplePeriod;
+    private final long[] counts = new long[PAD + COUNTERS + PAD];
+    private int countdown;
+
+    /**
+     * Constructor for Stripe class.
+     * @param owner - thread that writes the stripe
+     * @param samplePeriod - average number of operations per timed one
+     */
+    Stripe(Thread owner, int samplePeriod) {
+      this.owner = owner;
+      this.samplePeriod = samplePeriod;
+      countdown = gap();
+    }
+
+    /**
+     * Count one occurrence.
+     * @param counter - counter to bump
+     */
+    void count(int counter) {
+      add(counter, 1);
+    }
+
+    /**
+     * Add to a counter.
+     * @param counter - counter to add to
+     * @param amount - amount to add
+     */
+    void add(int counter, long amount) {
+      int index = PAD + counter;
+      COUNT.setOpaque(counts, index, (long) COUNT.getOpaque(counts, index) + amount);
+    }
+
+    /**
+     * Decide whether to time the current operation. Gaps between timed
+     * operations are drawn at random with a mean of samplePeriod, so a
+     * regular access pattern cannot line up with them, but only when one
+     * runs out; the rest of the time this is a decrement and a compare.
+     * @return - true for about one call in samplePeriod
+     */
+    boolean sample() {
+      if (--countdown > 0) {
+        return false;
+      }
+      countdown = gap();
+      return true;
+    }
+
+    /**
+     * Draw the number of operations until the next timed one.
+     * @return - gap from 1 to 2 * samplePeriod - 1
+     */
+    private int gap() {
+      return samplePeriod == 1 ? 1 : 1 + ThreadLocalRandom.current().nextInt(2 * samplePeriod - 1);
+    }
+  }
+
+}
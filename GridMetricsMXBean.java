@@ -0,0 +1,70 @@
+/**
+ * Management interface for the operation counts and latency histograms
+ * of an InstrumentedGrid. Latency histograms hold sampled timings in
+ * nanoseconds and the iterator length histogram holds item counts, each
+ * in 64 power-of-two buckets: bucket 0 counts zeros and bucket b counts
+ * values from 2^(b-1) to 2^b - 1.
+ *
+ * @author Jordan Martin
+ */
+public interface GridMetricsMXBean {
+
+  public long getGetHits();
+
+  public long getGetMisses();
+
+  public double getGetHitRate();
+
+  public long getPutInserts();
+
+  public long getPutOverwrites();
+
+  public long getRemoveHits();
+
+  public long getRemoveMisses();
+
+  public long getOccupancyChecks();
+
+  public long getIterations();
+
+  public long getIteratedItems();
+
+  public long[] getIteratorLengthHistogram();
+
+  public long getNeighborQueries();
+
+  public long getRegionQueries();
+
+  public long getBulkOperations();
+
+  public long getSearches();
+
+  public int getSamplePeriod();
+
+  public long[] getGetLatencyHistogram();
+
+  public long[] getPutLatencyHistogram();
+
+  public long[] getRemoveLatencyHistogram();
+
+  public long[] getIterationLatencyHistogram();
+
+  public long getGetLatencyP50Nanos();
+
+  public long getGetLatencyP99Nanos();
+
+  public long getPutLatencyP50Nanos();
+
+  public long getPutLatencyP99Nanos();
+
+  public long getRemoveLatencyP50Nanos();
+
+  public long getRemoveLatencyP99Nanos();
+
+  public long getIterationLatencyP50Nanos();
+
+  public long getIterationLatencyP99Nanos();
+
+  public void reset();
+
+}
@@ -0,0 +1,309 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Region detection over grids: flood fill from one cell and labeling of
+ * every connected component.
+ *
+ * <p>Flood fill walks an explicit stack of packed coordinates and records
+ * visited cells in a bitset, or in a hash set when the grid is so large
+ * and empty that a bitset would dwarf the grid itself.
+ *
+ * <p>Labeling is the two-pass union-find method. The grid is cut into
+ * bands of rows; each band links every matching cell to the matching
+ * cells before it in the same band, then the band seams are joined, and
+ * finally every cell takes the number of its set's root. Sets are always
+ * rooted at their smallest index, so components come out numbered in
+ * row-major order of their first cell no matter how the bands were
+ * scheduled. Bands run in parallel on dense grids.
+ *
+ * @author Jordan Martin
+ */
+final class GridRegions {
+
+  // Smallest band, in cells, worth handing to another thread.
+  static final int MIN_BAND_CELLS = 1 << 14;
+
+  // Largest grid, in cells, that always gets a bitset visited set.
+  static final long MAX_BITSET_CELLS = 1L << 26;
+
+  /**
+   * Not instantiable.
+   */
+  private GridRegions() {
+  }
+
+  /**
+   * Visit every matching cell connected to a start cell.
+   * @param grid - grid to search
+   * @param row - row of the start cell
+   * @param col - column of the start cell
+   * @param connectivity - which cells touch
+   * @param predicate - test applied to each cell's item (null if empty)
+   * @param action - callback given each cell of the region
+   * @return - number of cells in the region
+   */
+  static <E> long floodFill(Grid<E> grid, int row, int col, Connectivity connectivity,
+      Predicate<? super E> predicate, IntBinaryConsumer action) {
+    if (!predicate.test(grid.get(row, col))) {
+      return 0;
+    }
+    int rows = grid.numRows();
+    int cols = grid.numCols();
+    long cells = (long) rows * cols;
+    boolean small = cells <= MAX_BITSET_CELLS
+        || cells <= 64L * Math.min(grid.numItems(), Integer.MAX_VALUE - 8);
+    Visited visited = small ? new BitVisited(cells, cols) : new HashVisited();
+    Neighborhood neighborhood = connectivity.neighborhood();
+
+    long[] stack = new long[64];
+    int size = 0;
+    long count = 0;
+    visited.mark(row, col);
+    stack[size++] = Location.pack(row, col);
+    while (size > 0) {
+      long key = stack[--size];
+      int r = Location.unpackRow(key);
+      int c = Location.unpackCol(key);
+      count++;
+      action.accept(r, c);
+      for (int i = 0; i < neighborhood.size(); i++) {
+        int nr = r + neighborhood.rowOffset(i);
+        int nc = c + neighborhood.colOffset(i);
+        if (nr < 0 || nc < 0 || nr >= rows || nc >= cols || !visited.mark(nr, nc)
+            || !predicate.test(grid.get(nr, nc))) {
+          continue;
+        }
+        if (size == stack.length) {
+          stack = Arrays.copyOf(stack, size * 2);
+        }
+        stack[size++] = Location.pack(nr, nc);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Label the connected components of matching cells.
+   * @param grid - grid to label, with fewer than 2^31 cells
+   * @param connectivity - which cells touch
+   * @param predicate - test applied to each cell's item (null if empty)
+   * @return - labels and component sizes
+   */
+  static <E> Labeling label(Grid<E> grid, Connectivity connectivity,
+      Predicate<? super E> predicate) {
+    int rows = grid.numRows();
+    int cols = grid.numCols();
+    if ((long) rows * cols > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException();
+    }
+    boolean diagonal = connectivity == Connectivity.EIGHT;
+    boolean parallel = grid instanceof ArrayGrid || grid instanceof AbstractPrimitiveGrid
+        || grid instanceof ConcurrentArrayGrid;
+    int bandRows = Math.max(1, MIN_BAND_CELLS / cols);
+    int bands = (rows + bandRows - 1) / bandRows;
+    int[] parent = new int[rows * cols];
+
+    // First pass: link each matching cell to the cells before it in its band.
+    forEachBand(bands, parallel, band -> {
+      int rowFrom = band * bandRows;
+      int rowTo = Math.min(rows, rowFrom + bandRows);
+      for (int row = rowFrom; row < rowTo; row++) {
+        int index = row * cols;
+        for (int col = 0; col < cols; col++, index++) {
+          if (!predicate.test(grid.get(row, col))) {
+            parent[index] = -1;
+            continue;
+          }
+          parent[index] = index;
+          if (col > 0 && parent[index - 1] >= 0) {
+            union(parent, index - 1, index);
+          }
+          if (row > rowFrom) {
+            linkAbove(parent, index, col, cols, diagonal);
+          }
+        }
+      }
+    });
+
+    // Join the seams between bands.
+    for (int band = 1; band < bands; band++) {
+      int index = band * bandRows * cols;
+      for (int col = 0; col < cols; col++, index++) {
+        if (parent[index] >= 0) {
+          linkAbove(parent, index, col, cols, diagonal);
+        }
+      }
+    }
+
+    // Number the roots, band by band, in row-major order.
+    int[] roots = new int[bands + 1];
+    forEachBand(bands, parallel, band -> {
+      int from = band * bandRows * cols;
+      int to = Math.min(rows, (band + 1) * bandRows) * cols;
+      int count = 0;
+      for (int i = from; i < to; i++) {
+        if (parent[i] == i) {
+          count++;
+        }
+      }
+      roots[band + 1] = count;
+    });
+    for (int band = 0; band < bands; band++) {
+      roots[band + 1] += roots[band];
+    }
+    int[] labels = new int[rows * cols];
+    forEachBand(bands, parallel, band -> {
+      int from = band * bandRows * cols;
+      int to = Math.min(rows, (band + 1) * bandRows) * cols;
+      int next = roots[band];
+      for (int i = from; i < to; i++) {
+        if (parent[i] == i) {
+          labels[i] = ++next;
+        }
+      }
+    });
+
+    // Second pass: every other cell takes its root's number.
+    forEachBand(bands, parallel, band -> {
+      int from = band * bandRows * cols;
+      int to = Math.min(rows, (band + 1) * bandRows) * cols;
+      for (int i = from; i < to; i++) {
+        int root = parent[i];
+        if (root >= 0 && root != i) {
+          while (parent[root] != root) {
+            root = parent[root];
+          }
+          labels[i] = labels[root];
+        }
+      }
+    });
+
+    int[] sizes = new int[roots[bands] + 1];
+    for (int label : labels) {
+      sizes[label]++;
+    }
+    sizes[0] = 0;
+    return new Labeling(new IntGrid(rows, cols, labels), sizes);
+  }
+
+  /**
+   * Link a matching cell to the matching cells touching it in the row
+   * above.
+   * @param parent - union-find forest
+   * @param index - flat index of the cell, not in the first row
+   * @param col - column of the cell
+   * @param cols - number of columns
+   * @param diagonal - true to link the corners as well
+   */
+  private static void linkAbove(int[] parent, int index, int col, int cols, boolean diagonal) {
+    int up = index - cols;
+    if (parent[up] >= 0) {
+      union(parent, up, index);
+    }
+    if (diagonal) {
+      if (col > 0 && parent[up - 1] >= 0) {
+        union(parent, up - 1, index);
+      }
+      if (col < cols - 1 && parent[up + 1] >= 0) {
+        union(parent, up + 1, index);
+      }
+    }
+  }
+
+  /**
+   * Merge the sets holding two cells, rooting the result at the smaller
+   * root.
+   * @param parent - union-find forest
+   * @param a - flat index of a cell
+   * @param b - flat index of a cell
+   */
+  private static void union(int[] parent, int a, int b) {
+    int rootA = find(parent, a);
+    int rootB = find(parent, b);
+    if (rootA < rootB) {
+      parent[rootB] = rootA;
+    } else if (rootB < rootA) {
+      parent[rootA] = rootB;
+    }
+  }
+
+  /**
+   * Find the root of a cell's set, halving the path on the way.
+   * @param parent - union-find forest
+   * @param index - flat index of a cell
+   * @return - flat index of the root
+   */
+  private static int find(int[] parent, int index) {
+    while (parent[index] != index) {
+      parent[index] = parent[parent[index]];
+      index = parent[index];
+    }
+    return index;
+  }
+
+  /**
+   * Run work for every band, in parallel if asked and worthwhile.
+   * @param bands - number of bands
+   * @param parallel - true to spread the bands over the common pool
+   * @param work - callback given each band number
+   */
+  private static void forEachBand(int bands, boolean parallel, IntConsumer work) {
+    IntStream range = IntStream.range(0, bands);
+    (parallel && bands > 1 ? range.parallel() : range).forEach(work);
+  }
+
+  /**
+   * Set of cells already reached by a flood fill.
+   */
+  private interface Visited {
+
+    /**
+     * Record a cell.
+     * @param row - row of the cell
+     * @param col - column of the cell
+     * @return - true if the cell had not been recorded before
+     */
+    boolean mark(int row, int col);
+  }
+
+  /**
+   * Visited set with one bit per grid cell.
+   */
+  private static final class BitVisited implements Visited {
+
+    private final long[] words;
+    private final int cols;
+
+    BitVisited(long cells, int cols) {
+      words = new long[(int) ((cells + 63) >>> 6)];
+      this.cols = cols;
+    }
+
+    @Override
+    public boolean mark(int row, int col) {
+      long index = (long) row * cols + col;
+      int word = (int) (index >>> 6);
+      long bit = 1L << index;
+      long old = words[word];
+      words[word] = old | bit;
+      return (old & bit) == 0;
+    }
+  }
+
+  /**
+   * Visited set that grows with the region instead of the grid.
+   */
+  private static final class HashVisited implements Visited {
+
+    private final LongHashMap<Boolean> cells = new LongHashMap<Boolean>();
+
+    @Override
+    public boolean mark(int row, int col) {
+      return cells.put(Location.pack(row, col), Boolean.TRUE) == null;
+    }
+  }
+
+}
@@ -0,0 +1,490 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads and writes grids in a compact, versioned binary format. Every
+ * snapshot starts with a header (magic, version, layout, value width,
+ * rows, cols) followed by one of two layouts and then the item count:
+ *
+ * <ul>
+ * <li>DENSE: the occupancy bitmap as row-major 64-bit words, in blocks
+ * of 64 words, each followed by the values of its occupied cells in
+ * row-major order.</li>
+ * <li>SPARSE: for each item in row-major order, the row as a varint delta
+ * from the previous item's row plus one and the column as a varint (a
+ * delta from the previous column within the same row), then the value;
+ * a zero byte ends the list.</li>
+ * </ul>
+ *
+ * <p>Values are written by a ValueCodec; variable-width values carry a
+ * varint length prefix. The count comes last so that both layouts are
+ * written in one pass over the grid, holding no more than one block of
+ * values at a time. All I/O goes through a single ByteBuffer, and
+ * loading allocates nothing per cell except the decoded values.
+ *
+ * @author Jordan Martin
+ */
+public final class GridSnapshots {
+
+  static final int MAGIC = 0x47534E50;
+  static final int VERSION = 2;
+  static final int DENSE = 0;
+  static final int SPARSE = 1;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int BLOCK_WORDS = 64;
+
+  /**
+   * Not instantiable.
+   */
+  private GridSnapshots() {
+  }
+
+  /**
+   * Write a grid, choosing the dense layout when at least one cell in
+   * sixteen is occupied and the sparse layout otherwise.
+   * @param grid - grid to write
+   * @param codec - codec for the items
+   * @param out - channel to write to
+   * @throws IOException - if writing fails
+   */
+  public static <E> void write(Grid<E> grid, ValueCodec<E> codec, WritableByteChannel out)
+      throws IOException {
+    long cells = (long) grid.numRows() * grid.numCols();
+    if (cells <= Integer.MAX_VALUE - 8 && (long) grid.numItems() * 16 >= cells) {
+      writeDense(grid, codec, out);
+    } else {
+      writeSparse(grid, codec, out);
+    }
+  }
+
+  /**
+   * Write a grid in the dense layout.
+   * @param grid - grid to write, with fewer than 2^31 cells
+   * @param codec - codec for the items
+   * @param out - channel to write to
+   * @throws IOException - if writing fails
+   */
+  public static <E> void writeDense(Grid<E> grid, ValueCodec<E> codec, WritableByteChannel out)
+      throws IOException {
+    int rows = grid.numRows();
+    int cols = grid.numCols();
+    if ((long) rows * cols > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException();
+    }
+    Output output = new Output(out);
+    writeHeader(output, DENSE, codec, grid);
+    // One get per cell gives both a block's bitmap and its values, so
+    // they agree even if the grid changes while it is being written.
+    int cells = rows * cols;
+    long[] words = new long[BLOCK_WORDS];
+    List<E> values = new ArrayList<E>();
+    int count = 0;
+    int row = 0;
+    int col = 0;
+    for (int blockStart = 0; blockStart < cells; blockStart += BLOCK_WORDS * 64) {
+      int blockCells = Math.min(BLOCK_WORDS * 64, cells - blockStart);
+      Arrays.fill(words, 0L);
+      values.clear();
+      for (int cell = 0; cell < blockCells; cell++) {
+        E item = grid.get(row, col);
+        if (item != null) {
+          words[cell >>> 6] |= 1L << cell;
+          values.add(item);
+        }
+        if (++col == cols) {
+          col = 0;
+          row++;
+        }
+      }
+      for (int i = 0; i < (blockCells + 63) >>> 6; i++) {
+        output.ensure(Long.BYTES).putLong(words[i]);
+      }
+      for (E item : values) {
+        output.writeValue(codec, item);
+      }
+      count += values.size();
+    }
+    output.ensure(Integer.BYTES).putInt(count);
+    output.flush();
+  }
+
+  /**
+   * Write a grid in the sparse layout. The items are visited with
+   * forEachItemIn, which runs in row-major order whatever order the
+   * grid's iterators use.
+   * @param grid - grid to write
+   * @param codec - codec for the items
+   * @param out - channel to write to
+   * @throws IOException - if writing fails
+   */
+  public static <E> void writeSparse(Grid<E> grid, ValueCodec<E> codec, WritableByteChannel out)
+      throws IOException {
+    Output output = new Output(out);
+    writeHeader(output, SPARSE, codec, grid);
+    SparseWriter<E> writer = new SparseWriter<E>(grid, codec, output);
+    try {
+      grid.forEachItemIn(0, 0, grid.numRows(), grid.numCols(), writer);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    output.ensure(1 + Integer.BYTES).put((byte) 0).putInt(writer.count);
+    output.flush();
+  }
+
+  /**
+   * Writes each item it is given as a sparse entry, tracking the previous
+   * coordinates for the deltas.
+   */
+  private static final class SparseWriter<E> implements IntBinaryConsumer {
+
+    private final Grid<E> grid;
+    private final ValueCodec<E> codec;
+    private final Output output;
+    private int lastRow = 0;
+    private int lastCol = -1;
+    int count;
+
+    SparseWriter(Grid<E> grid, ValueCodec<E> codec, Output output) {
+      this.grid = grid;
+      this.codec = codec;
+      this.output = output;
+    }
+
+    @Override
+    public void accept(int row, int col) {
+      // The value is read with get at the location it is written against,
+      // so locations and values cannot drift apart; a cell emptied since
+      // forEachItemIn reached it is left out.
+      E item = grid.get(row, col);
+      if (item == null) {
+        return;
+      }
+      if (row < lastRow || row == lastRow && col <= lastCol) {
+        throw new IllegalStateException("Items not visited in row-major order");
+      }
+      try {
+        ByteBuffer buf = output.ensure(10);
+        putVarint(buf, row - lastRow + 1);
+        putVarint(buf, row == lastRow ? col - lastCol - 1 : col);
+        output.writeValue(codec, item);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      lastRow = row;
+      lastCol = col;
+      count++;
+    }
+  }
+
+  /**
+   * Write the snapshot header.
+   * @param output - destination
+   * @param layout - DENSE or SPARSE
+   * @param codec - codec for the items
+   * @param grid - grid being written
+   * @throws IOException - if writing fails
+   */
+  private static void writeHeader(Output output, int layout, ValueCodec<?> codec, Grid<?> grid)
+      throws IOException {
+    output.ensure(18)
+        .putInt(MAGIC)
+        .put((byte) VERSION)
+        .put((byte) layout)
+        .putInt(codec.fixedSize())
+        .putInt(grid.numRows())
+        .putInt(grid.numCols());
+  }
+
+  /**
+   * Read a snapshot. Dense snapshots load into an ArrayGrid and sparse
+   * snapshots into a SparseGrid.
+   * @param codec - codec for the items, matching the one used to write
+   * @param in - channel to read from
+   * @return - the loaded grid
+   * @throws IOException - if reading fails or the data is not a valid snapshot
+   */
+  public static <E> Grid<E> read(ValueCodec<E> codec, ReadableByteChannel in)
+      throws IOException {
+    Input input = new Input(in);
+    ByteBuffer buf = input.require(18);
+    if (buf.getInt() != MAGIC) {
+      throw new IOException("Not a grid snapshot");
+    }
+    int version = buf.get();
+    if (version != VERSION) {
+      throw new IOException("Unsupported snapshot version: " + version);
+    }
+    int layout = buf.get();
+    if (buf.getInt() != codec.fixedSize()) {
+      throw new IOException("Snapshot was written with a different value codec");
+    }
+    int rows = buf.getInt();
+    int cols = buf.getInt();
+    if (rows <= 0 || cols <= 0) {
+      throw new IOException("Corrupt snapshot header");
+    }
+    Grid<E> grid;
+    if (layout == DENSE) {
+      grid = readDense(input, codec, rows, cols);
+    } else if (layout == SPARSE) {
+      grid = readSparse(input, codec, rows, cols);
+    } else {
+      throw new IOException("Unknown snapshot layout: " + layout);
+    }
+    if (input.require(Integer.BYTES).getInt() != grid.numItems()) {
+      throw new IOException("Snapshot item count does not match its contents");
+    }
+    return grid;
+  }
+
+  /**
+   * Read the body of a dense snapshot.
+   * @param input - source positioned after the header
+   * @param codec - codec for the items
+   * @param rows - number of rows
+   * @param cols - number of columns
+   * @return - the loaded grid
+   * @throws IOException - if reading fails or the data is corrupt
+   */
+  private static <E> Grid<E> readDense(Input input, ValueCodec<E> codec, int rows, int cols)
+      throws IOException {
+    if ((long) rows * cols > Integer.MAX_VALUE - 8) {
+      throw new IOException("Corrupt snapshot header");
+    }
+    int cells = rows * cols;
+    int numWords = (cells + 63) >>> 6;
+    long[] words = new long[BLOCK_WORDS];
+    ArrayGrid<E> grid = new ArrayGrid<E>(rows, cols);
+    for (int blockWord = 0; blockWord < numWords; blockWord += BLOCK_WORDS) {
+      int blockWords = Math.min(BLOCK_WORDS, numWords - blockWord);
+      for (int i = 0; i < blockWords; i++) {
+        words[i] = input.require(Long.BYTES).getLong();
+      }
+      if (blockWord + blockWords == numWords && (cells & 63) != 0
+          && words[blockWords - 1] >>> (cells & 63) != 0) {
+        throw new IOException("Corrupt occupancy bitmap");
+      }
+      for (int i = 0; i < blockWords; i++) {
+        long word = words[i];
+        while (word != 0) {
+          int index = ((blockWord + i) << 6) + Long.numberOfTrailingZeros(word);
+          word &= word - 1;
+          grid.put(index / cols, index % cols, input.readValue(codec));
+        }
+      }
+    }
+    return grid;
+  }
+
+  /**
+   * Read the body of a sparse snapshot.
+   * @param input - source positioned after the header
+   * @param codec - codec for the items
+   * @param rows - number of rows
+   * @param cols - number of columns
+   * @return - the loaded grid
+   * @throws IOException - if reading fails or the data is corrupt
+   */
+  private static <E> Grid<E> readSparse(Input input, ValueCodec<E> codec, int rows, int cols)
+      throws IOException {
+    SparseGrid<E> grid = new SparseGrid<E>(rows, cols);
+    long row = 0;
+    long col = -1;
+    while (true) {
+      ByteBuffer buf = input.fill(10);
+      long rowDelta = getVarint(buf);
+      if (rowDelta == 0) {
+        return grid;
+      }
+      long colValue = getVarint(buf);
+      row += rowDelta - 1;
+      col = rowDelta == 1 ? col + colValue + 1 : colValue;
+      if (row >= rows || col >= cols) {
+        throw new IOException("Corrupt snapshot coordinates");
+      }
+      grid.put((int) row, (int) col, input.readValue(codec));
+    }
+  }
+
+  /**
+   * Write an unsigned varint: seven bits per byte, low bits first, with
+   * the high bit set on every byte but the last.
+   * @param buf - destination with at least 5 bytes remaining
+   * @param value - non-negative value
+   */
+  static void putVarint(ByteBuffer buf, int value) {
+    while ((value & ~0x7F) != 0) {
+      buf.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buf.put((byte) value);
+  }
+
+  /**
+   * Read an unsigned varint written by putVarint.
+   * @param buf - source
+   * @return - decoded value
+   * @throws IOException - if the input ends early or the varint is too long
+   */
+  static long getVarint(ByteBuffer buf) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      if (!buf.hasRemaining()) {
+        throw new EOFException();
+      }
+      int b = buf.get();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IOException("Corrupt varint");
+  }
+
+  /**
+   * Buffered writer over a channel.
+   */
+  private static final class Output {
+
+    private final WritableByteChannel channel;
+    private ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+
+    Output(WritableByteChannel channel) {
+      this.channel = channel;
+    }
+
+    /**
+     * Make room for a number of bytes, flushing or growing the buffer.
+     * @param bytes - bytes about to be written
+     * @return - the buffer, with at least that much room
+     * @throws IOException - if flushing fails
+     */
+    ByteBuffer ensure(int bytes) throws IOException {
+      if (buf.remaining() < bytes) {
+        flush();
+        if (buf.capacity() < bytes) {
+          buf = ByteBuffer.allocate(bytes);
+        }
+      }
+      return buf;
+    }
+
+    /**
+     * Write a value, with a length prefix if its width is not fixed.
+     * @param codec - codec for the value
+     * @param value - value to write
+     * @throws IOException - if flushing fails
+     */
+    <E> void writeValue(ValueCodec<E> codec, E value) throws IOException {
+      if (codec.fixedSize() >= 0) {
+        codec.encode(value, ensure(codec.fixedSize()));
+      } else {
+        int size = codec.size(value);
+        ByteBuffer out = ensure(size + 5);
+        putVarint(out, size);
+        codec.encode(value, out);
+      }
+    }
+
+    /**
+     * Write everything buffered so far to the channel.
+     * @throws IOException - if writing fails
+     */
+    void flush() throws IOException {
+      buf.flip();
+      while (buf.hasRemaining()) {
+        channel.write(buf);
+      }
+      buf.clear();
+    }
+  }
+
+  /**
+   * Buffered reader over a channel.
+   */
+  private static final class Input {
+
+    private final ReadableByteChannel channel;
+    private ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+    private boolean eof;
+
+    Input(ReadableByteChannel channel) {
+      this.channel = channel;
+      buf.flip();
+    }
+
+    /**
+     * Try to buffer a number of bytes; fewer may be available at the end
+     * of the input.
+     * @param bytes - bytes wanted
+     * @return - the buffer
+     * @throws IOException - if reading fails
+     */
+    ByteBuffer fill(int bytes) throws IOException {
+      if (buf.remaining() < bytes && !eof) {
+        if (buf.capacity() < bytes) {
+          ByteBuffer bigger = ByteBuffer.allocate(bytes);
+          bigger.put(buf);
+          buf = bigger;
+        } else {
+          buf.compact();
+        }
+        while (buf.position() < bytes) {
+          if (channel.read(buf) < 0) {
+            eof = true;
+            break;
+          }
+        }
+        buf.flip();
+      }
+      return buf;
+    }
+
+    /**
+     * Buffer a number of bytes.
+     * @param bytes - bytes needed
+     * @return - the buffer, with at least that many bytes remaining
+     * @throws IOException - if reading fails or the input ends first
+     */
+    ByteBuffer require(int bytes) throws IOException {
+      fill(bytes);
+      if (buf.remaining() < bytes) {
+        throw new EOFException();
+      }
+      return buf;
+    }
+
+    /**
+     * Read a value, bounding variable-width values by their length prefix.
+     * @param codec - codec for the value
+     * @return - decoded value
+     * @throws IOException - if reading fails or the value is corrupt
+     */
+    <E> E readValue(ValueCodec<E> codec) throws IOException {
+      if (codec.fixedSize() >= 0) {
+        return codec.decode(require(codec.fixedSize()));
+      }
+      long size = getVarint(fill(5));
+      if (size > Integer.MAX_VALUE - 8) {
+        throw new IOException("Corrupt value length");
+      }
+      require((int) size);
+      int limit = buf.limit();
+      int end = buf.position() + (int) size;
+      buf.limit(end);
+      E value = codec.decode(buf);
+      buf.limit(limit);
+      buf.position(end);
+      return value;
+    }
+  }
+
+}
@@ -0,0 +1,195 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for the GridSnapshots class and the built-in value codecs.
+ * 
+ * @author Jordan Martin
+ *
+ */
+class GridSnapshotsTest {
+
+  /**
+   * Write a grid with the given writer and return the bytes.
+   */
+  private interface Writer<E> {
+    void write(Grid<E> grid, ValueCodec<E> codec, WritableByteChannel out)
+        throws IOException;
+  }
+
+  private static <E> byte[] bytes(Writer<E> writer, Grid<E> grid, ValueCodec<E> codec)
+      throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writer.write(grid, codec, Channels.newChannel(out));
+    return out.toByteArray();
+  }
+
+  private static <E> Grid<E> load(byte[] bytes, ValueCodec<E> codec) throws IOException {
+    return GridSnapshots.read(codec, Channels.newChannel(new ByteArrayInputStream(bytes)));
+  }
+
+  private static <E> void assertSameGrid(Grid<E> expected, Grid<E> actual) {
+    assertEquals(expected.numRows(), actual.numRows());
+    assertEquals(expected.numCols(), actual.numCols());
+    assertEquals(expected.numItems(), actual.numItems());
+    for (Location loc : expected.itemLocations()) {
+      assertEquals(expected.get(loc), actual.get(loc));
+    }
+  }
+
+  @Test
+  void testDenseRoundTrip() throws IOException {
+    ArrayGrid<Integer> grid = new ArrayGrid<>(7, 13);
+    for (int i = 0; i < 91; i += 2) {
+      grid.put(i / 13, i % 13, i - 40);
+    }
+    byte[] bytes = bytes(GridSnapshots::writeDense, grid, ValueCodec.INTEGER);
+    assertEquals(18 + 2 * 8 + grid.numItems() * 4 + 4, bytes.length);
+    Grid<Integer> loaded = load(bytes, ValueCodec.INTEGER);
+    assertTrue(loaded instanceof ArrayGrid);
+    assertSameGrid(grid, loaded);
+  }
+
+  @Test
+  void testSparseRoundTripWithDeltaCoordinates() throws IOException {
+    SparseGrid<Long> grid = new SparseGrid<>(1000000, 1000000);
+    grid.put(0, 0, 1L);
+    grid.put(0, 5, 2L);
+    grid.put(3, 2, 3L);
+    grid.put(999999, 999999, Long.MIN_VALUE);
+    byte[] bytes = bytes(GridSnapshots::writeSparse, grid, ValueCodec.LONG);
+    // Small deltas take one byte per coordinate.
+    assertEquals(18 + 2 + 2 + 2 + 6 + 4 * 8 + 1 + 4, bytes.length);
+    Grid<Long> loaded = load(bytes, ValueCodec.LONG);
+    assertTrue(loaded instanceof SparseGrid);
+    assertSameGrid(grid, loaded);
+  }
+
+  @Test
+  void testDenseRoundTripOverSeveralBlocks() throws IOException {
+    ArrayGrid<Integer> grid = new ArrayGrid<>(100, 101);
+    for (int i = 0; i < 10100; i += 7) {
+      grid.put(i / 101, i % 101, i);
+    }
+    grid.put(99, 100, -1);
+    byte[] bytes = bytes(GridSnapshots::writeDense, grid, ValueCodec.INTEGER);
+    assertEquals(18 + 158 * 8 + grid.numItems() * 4 + 4, bytes.length);
+    assertSameGrid(grid, load(bytes, ValueCodec.INTEGER));
+  }
+
+  @Test
+  void testWritersDoNotRelyOnIterationOrder() throws IOException {
+    // A grid whose item iterators run in column-major order.
+    ArrayGrid<Integer> grid = new ArrayGrid<Integer>(4, 4) {
+
+      private java.util.List<Location> columnMajor() {
+        java.util.List<Location> locations = new java.util.ArrayList<>();
+        for (int col = 0; col < numCols(); col++) {
+          for (int row = 0; row < numRows(); row++) {
+            if (get(row, col) != null) {
+              locations.add(new Location(row, col));
+            }
+          }
+        }
+        return locations;
+      }
+
+      @Override
+      public java.util.Iterator<Integer> iterator() {
+        java.util.List<Integer> items = new java.util.ArrayList<>();
+        for (Location loc : columnMajor()) {
+          items.add(get(loc));
+        }
+        return items.iterator();
+      }
+
+      @Override
+      public Iterable<Location> itemLocations() {
+        return columnMajor();
+      }
+    };
+    grid.put(0, 3, 1);
+    grid.put(1, 0, 2);
+    grid.put(2, 2, 3);
+    grid.put(3, 1, 4);
+    assertSameGrid(grid, load(bytes(GridSnapshots::writeDense, grid, ValueCodec.INTEGER),
+        ValueCodec.INTEGER));
+    assertSameGrid(grid, load(bytes(GridSnapshots::writeSparse, grid, ValueCodec.INTEGER),
+        ValueCodec.INTEGER));
+  }
+
+  @Test
+  void testWriteChoosesLayoutByDensity() throws IOException {
+    ArrayGrid<Double> grid = new ArrayGrid<>(32, 32);
+    grid.put(5, 5, 0.5);
+    assertTrue(load(bytes(GridSnapshots::write, grid, ValueCodec.DOUBLE), ValueCodec.DOUBLE)
+        instanceof SparseGrid);
+    for (int col = 0; col < 32; col++) {
+      grid.put(0, col, (double) col);
+      grid.put(31, col, -1.0 * col);
+    }
+    Grid<Double> loaded = load(bytes(GridSnapshots::write, grid, ValueCodec.DOUBLE),
+        ValueCodec.DOUBLE);
+    assertTrue(loaded instanceof ArrayGrid);
+    assertSameGrid(grid, loaded);
+  }
+
+  @Test
+  void testStringValuesLargerThanTheBuffer() throws IOException {
+    char[] big = new char[200000];
+    Arrays.fill(big, '\u00e9');
+    SparseGrid<String> grid = new SparseGrid<>(3, 3);
+    grid.put(0, 1, "");
+    grid.put(1, 1, new String(big));
+    grid.put(2, 2, "a\u20ac\uD83D\uDE00z");
+    Grid<String> loaded = load(bytes(GridSnapshots::writeSparse, grid, ValueCodec.STRING),
+        ValueCodec.STRING);
+    assertSameGrid(grid, loaded);
+    loaded = load(bytes(GridSnapshots::writeDense, grid, ValueCodec.STRING), ValueCodec.STRING);
+    assertSameGrid(grid, loaded);
+  }
+
+  @Test
+  void testStringCodecMatchesGetBytes() {
+    for (String s : new String[] {"plain", "\u00e9\u20ac", "\uD83D\uDE00", "bad\uD800x", "\uDC00"}) {
+      ByteBuffer buf = ByteBuffer.allocate(32);
+      ValueCodec.STRING.encode(s, buf);
+      byte[] expected = s.getBytes(StandardCharsets.UTF_8);
+      assertEquals(expected.length, ValueCodec.STRING.size(s));
+      assertArrayEquals(expected, Arrays.copyOf(buf.array(), buf.position()));
+    }
+  }
+
+  @Test
+  void testReadRejectsBadInput() throws IOException {
+    ArrayGrid<Integer> grid = new ArrayGrid<>(2, 2);
+    grid.put(1, 1, 9);
+    byte[] bytes = bytes(GridSnapshots::writeDense, grid, ValueCodec.INTEGER);
+
+    assertThrows(IOException.class, () -> load(bytes, ValueCodec.LONG));
+    assertThrows(EOFException.class, () -> load(Arrays.copyOf(bytes, bytes.length - 1),
+        ValueCodec.INTEGER));
+    byte[] badMagic = bytes.clone();
+    badMagic[0] = 0;
+    assertThrows(IOException.class, () -> load(badMagic, ValueCodec.INTEGER));
+    byte[] badVersion = bytes.clone();
+    badVersion[4] = 1;
+    assertThrows(IOException.class, () -> load(badVersion, ValueCodec.INTEGER));
+    byte[] badBitmap = bytes.clone();
+    badBitmap[18] = 1;
+    assertThrows(IOException.class, () -> load(badBitmap, ValueCodec.INTEGER));
+    byte[] badCount = bytes.clone();
+    badCount[bytes.length - 1] = 2;
+    assertThrows(IOException.class, () -> load(badCount, ValueCodec.INTEGER));
+  }
+}
@@ -0,0 +1,173 @@
+import java.util.Iterator;
+import java.util.Spliterator;
+
+/**
+ * Read-only grid over a representation that is never written again, as
+ * handed out by snapshot(). Reads go straight to the wrapped grid;
+ * its iterators do not support remove.
+ *
+ * @author Jordan Martin
+ */
+final class ImmutableGrid<E> extends ReadOnlyGrid<E> {
+
+  private final AbstractGrid<E> grid;
+
+  /**
+   * Constructor for ImmutableGrid class.
+   * @param grid - representation to wrap, never written again
+   */
+  ImmutableGrid(AbstractGrid<E> grid) {
+    this.grid = grid;
+  }
+
+  /**
+   * Get object at respective position.
+   * @param loc - location to be grabbed
+   * @return - grabbed value
+   */
+  @Override
+  public E get(Location loc) {
+    return grid.get(loc);
+  }
+
+  /**
+   * Get object at respective position.
+   * @param row - row to be grabbed
+   * @param col - column to be grabbed
+   * @return - grabbed value
+   */
+  @Override
+  public E get(int row, int col) {
+    return grid.get(row, col);
+  }
+
+  /**
+   * Check whether a cell holds an item.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - true if the cell is occupied
+   */
+  @Override
+  public boolean isOccupied(int row, int col) {
+    return grid.isOccupied(row, col);
+  }
+
+  /**
+   * Get the number of rows.
+   * @return - number of rows
+   */
+  @Override
+  public int numRows() {
+    return grid.numRows();
+  }
+
+  /**
+   * Get the number of columns.
+   * @return - number of columns
+   */
+  @Override
+  public int numCols() {
+    return grid.numCols();
+  }
+
+  /**
+   * Get number of items in the grid.
+   * @return - number of items
+   */
+  @Override
+  public Integer numItems() {
+    return grid.numItems();
+  }
+
+  /**
+   * Visit every item in a rectangle in row-major order.
+   * @param rowFrom - first row, inclusive
+   * @param colFrom - first column, inclusive
+   * @param rowTo - last row, exclusive
+   * @param colTo - last column, exclusive
+   * @param action - callback given each occupied cell
+   */
+  @Override
+  public void forEachItemIn(int rowFrom, int colFrom, int rowTo, int colTo,
+      IntBinaryConsumer action) {
+    grid.forEachItemIn(rowFrom, colFrom, rowTo, colTo, action);
+  }
+
+  /**
+   * Spliterator over the items of the wrapped grid.
+   * @return - a new Spliterator
+   */
+  @Override
+  public Spliterator<E> spliterator() {
+    return grid.spliterator();
+  }
+
+  /**
+   * Spliterator over the item locations of the wrapped grid.
+   * @return - a new Spliterator
+   */
+  @Override
+  protected Spliterator<Location> itemLocationSpliterator() {
+    return grid.itemLocationSpliterator();
+  }
+
+  /**
+   * Constructor for default iterator; remove is not supported.
+   * @return - a new Iterator
+   */
+  @Override
+  public Iterator<E> iterator() {
+    return readOnly(grid.iterator());
+  }
+
+  /**
+   * Iterator for all item locations; remove is not supported.
+   * @return - Iterable object for all items
+   */
+  @Override
+  public Iterable<Location> itemLocations() {
+    return new Iterable<Location>() {
+
+      @Override
+      public Iterator<Location> iterator() {
+        return readOnly(grid.itemLocations().iterator());
+      }
+    };
+  }
+
+  /**
+   * Iterator to iterate through all locations; remove is not supported.
+   * @return - Iterable object
+   */
+  @Override
+  public Iterable<Location> allLocations() {
+    return new Iterable<Location>() {
+
+      @Override
+      public Iterator<Location> iterator() {
+        return readOnly(grid.allLocations().iterator());
+      }
+    };
+  }
+
+  /**
+   * Wrap an iterator so that remove throws.
+   * @param it - iterator to wrap
+   * @return - iterator without remove
+   */
+  private static <T> Iterator<T> readOnly(final Iterator<T> it) {
+    return new Iterator<T>() {
+
+      @Override
+      public boolean hasNext() {
+        return it.hasNext();
+      }
+
+      @Override
+      public T next() {
+        return it.next();
+      }
+    };
+  }
+
+}
@@ -0,0 +1,764 @@
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Grid that forwards to another grid and counts what is done with it:
+ * gets split into hits and misses, puts into inserts and overwrites,
+ * removes into hits and misses, plus iterations, neighbor, region and
+ * search queries and bulk writes. The counts can be read from metrics()
+ * or published over JMX with registerMBean.
+ *
+ * <p>Each thread counts into its own stripe, so an operation costs a
+ * plain add with no lock prefix or fence, even when several threads share
+ * a grid. Latency is timed for about one get, put, remove or iteration in
+ * samplePeriod, at random gaps so a regular access pattern cannot line up
+ * with them; the other operations skip the clock entirely. Telling an
+ * insert from an overwrite takes an isOccupied lookup before each put;
+ * comparing numItems before and after was tried and measured slower.
+ *
+ * <p>On an ArrayGrid whose cells are in cache this adds about 5 to 6 ns
+ * to a get or put. On random access over a grid too big for the cache it
+ * adds 10 to 20 ns, well above that: the extra instructions leave the
+ * processor less room to overlap the cache misses of neighbouring
+ * operations, so code bound by memory misses pays more than the counting
+ * itself costs.
+ *
+ * <p>An iteration's item count and latency are recorded when its iterator
+ * runs out, so iterators that are abandoned early only show up in the
+ * iteration count. Streams and spliterators are counted as iterations but
+ * not measured.
+ *
+ * @author Jordan Martin
+ */
+public final class InstrumentedGrid<E> extends AbstractGrid<E> {
+
+  public static final int DEFAULT_SAMPLE_PERIOD = 64;
+
+  private final Grid<E> grid;
+  private final GridMetrics metrics;
+
+  /**
+   * Constructor for InstrumentedGrid class, timing one operation in 64.
+   * @param grid - grid to forward to
+   */
+  public InstrumentedGrid(Grid<E> grid) {
+    this(grid, DEFAULT_SAMPLE_PERIOD);
+  }
+
+  /**
+   * Constructor for InstrumentedGrid class.
+   * @param grid - grid to forward to
+   * @param samplePeriod - average number of operations per timed one
+   */
+  public InstrumentedGrid(Grid<E> grid, int samplePeriod) {
+    if (grid == null) {
+      throw new NullPointerException();
+    }
+    if (samplePeriod < 1) {
+      throw new IllegalArgumentException();
+    }
+    this.grid = grid;
+    metrics = new GridMetrics(samplePeriod);
+  }
+
+  /**
+   * Get the counts and histograms gathered so far.
+   * @return - live view of the metrics
+   */
+  public GridMetricsMXBean metrics() {
+    return metrics;
+  }
+
+  /**
+   * Publish the metrics on the platform MBean server.
+   * @param name - name to register under, unique among instrumented grids
+   * @return - name the metrics were registered as, for unregistering
+   * @throws JMException - if the name is taken or registration fails
+   */
+  public ObjectName registerMBean(String name) throws JMException {
+    if (name == null) {
+      throw new NullPointerException();
+    }
+    ObjectName objectName = new ObjectName("grid:type=InstrumentedGrid,name="
+        + ObjectName.quote(name));
+    ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+    return objectName;
+  }
+
+  /**
+   * Get object at respective position.
+   * @param loc - location to be grabbed
+   * @return - grabbed value
+   */
+  @Override
+  public E get(Location loc) {
+    return get(loc.getRow(), loc.getCol());
+  }
+
+  /**
+   * Get object at respective position.
+   * @param row - row to be grabbed
+   * @param col - column to be grabbed
+   * @return - grabbed value
+   */
+  @Override
+  public E get(int row, int col) {
+    GridMetrics.Stripe stripe = metrics.stripe();
+    E item;
+    if (stripe.sample()) {
+      long start = System.nanoTime();
+      item = grid.get(row, col);
+      metrics.getLatency.record(System.nanoTime() - start);
+    } else {
+      item = grid.get(row, col);
+    }
+    stripe.count(item == null ? GridMetrics.GET_MISSES : GridMetrics.GET_HITS);
+    return item;
+  }
+
+  /**
+   * Put object at respective position.
+   * @param loc - location for item to be placed
+   * @param item - item to be placed
+   */
+  @Override
+  public void put(Location loc, E item) {
+    if (loc == null) {
+      throw new NullPointerException();
+    }
+    put(loc.getRow(), loc.getCol(), item);
+  }
+
+  /**
+   * Put object at respective position.
+   * @param row - row for item to be placed
+   * @param col - column for item to be placed
+   * @param item - item to be placed
+   */
+  @Override
+  public void put(int row, int col, E item) {
+    if (item == null) {
+      throw new NullPointerException();
+    }
+    boolean occupied = grid.isOccupied(row, col);
+    GridMetrics.Stripe stripe = metrics.stripe();
+    if (stripe.sample()) {
+      long start = System.nanoTime();
+      grid.put(row, col, item);
+      metrics.putLatency.record(System.nanoTime() - start);
+    } else {
+      grid.put(row, col, item);
+    }
+    stripe.count(occupied ? GridMetrics.PUT_OVERWRITES : GridMetrics.PUT_INSERTS);
+  }
+
+  /**
+   * Remove object at respective position.
+   * @param loc - location to be cleared
+   * @return - removed value
+   */
+  @Override
+  public E remove(Location loc) {
+    if (loc == null) {
+      throw new IllegalArgumentException();
+    }
+    return remove(loc.getRow(), loc.getCol());
+  }
+
+  /**
+   * Remove object at respective position.
+   * @param row - row to be cleared
+   * @param col - column to be cleared
+   * @return - removed value
+   */
+  @Override
+  public E remove(int row, int col) {
+    GridMetrics.Stripe stripe = metrics.stripe();
+    E item;
+    if (stripe.sample()) {
+      long start = System.nanoTime();
+      item = grid.remove(row, col);
+      metrics.removeLatency.record(System.nanoTime() - start);
+    } else {
+      item = grid.remove(row, col);
+    }
+    stripe.count(item == null ? GridMetrics.REMOVE_MISSES : GridMetrics.REMOVE_HITS);
+    return item;
+  }
+
+  /**
+   * Check whether a cell holds an item.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - true if the cell is occupied
+   */
+  @Override
+  public boolean isOccupied(int row, int col) {
+    metrics.count(GridMetrics.OCCUPANCY_CHECKS);
+    return grid.isOccupied(row, col);
+  }
+
+  /**
+   * Get the number of rows.
+   * @return - number of rows
+   */
+  @Override
+  public int numRows() {
+    return grid.numRows();
+  }
+
+  /**
+   * Get the number of columns.
+   * @return - number of columns
+   */
+  @Override
+  public int numCols() {
+    return grid.numCols();
+  }
+
+  /**
+   * Get number of items in the grid.
+   * @return - number of items
+   */
+  @Override
+  public Integer numItems() {
+    return grid.numItems();
+  }
+
+  /**
+   * Constructor for default iterator, counted as an iteration.
+   * @return - a new Iterator
+   */
+  @Override
+  public Iterator<E> iterator() {
+    return new CountingIterator<E>(grid.iterator());
+  }
+
+  /**
+   * Iterator for all item locations, counted as an iteration.
+   * @return - Iterable object for all items
+   */
+  @Override
+  public Iterable<Location> itemLocations() {
+    return new Iterable<Location>() {
+
+      @Override
+      public Iterator<Location> iterator() {
+        return new CountingIterator<Location>(grid.itemLocations().iterator());
+      }
+    };
+  }
+
+  /**
+   * Iterator to iterate through all locations, counted as an iteration.
+   * @return - Iterable object
+   */
+  @Override
+  public Iterable<Location> allLocations() {
+    return new Iterable<Location>() {
+
+      @Override
+      public Iterator<Location> iterator() {
+        return new CountingIterator<Location>(grid.allLocations().iterator());
+      }
+    };
+  }
+
+  /**
+   * Spliterator over the items of the wrapped grid, counted as an
+   * iteration.
+   * @return - a new Spliterator
+   */
+  @Override
+  public Spliterator<E> spliterator() {
+    metrics.count(GridMetrics.ITERATIONS);
+    return grid.spliterator();
+  }
+
+  /**
+   * Stream the wrapped grid's items, counted as an iteration.
+   * @return - stream of the wrapped grid's items
+   */
+  @Override
+  public Stream<E> stream() {
+    metrics.count(GridMetrics.ITERATIONS);
+    return grid.stream();
+  }
+
+  /**
+   * Stream the wrapped grid's items in parallel, counted as an iteration.
+   * @return - parallel stream of the wrapped grid's items
+   */
+  @Override
+  public Stream<E> parallelStream() {
+    metrics.count(GridMetrics.ITERATIONS);
+    return grid.parallelStream();
+  }
+
+  /**
+   * Stream the wrapped grid's item locations, counted as an iteration.
+   * @return - stream of the wrapped grid's item locations
+   */
+  @Override
+  public Stream<Location> itemLocationStream() {
+    metrics.count(GridMetrics.ITERATIONS);
+    return grid.itemLocationStream();
+  }
+
+  /**
+   * Stream every cell location of the wrapped grid, counted as an
+   * iteration.
+   * @return - stream of every cell location of the wrapped grid
+   */
+  @Override
+  public Stream<Location> cellStream() {
+    metrics.count(GridMetrics.ITERATIONS);
+    return grid.cellStream();
+  }
+
+  /**
+   * Get the eight neighbors of a location, counted as a neighbor query.
+   * @param loc - location whose neighbors are wanted
+   * @return - Iterable object for the neighbors on the grid
+   */
+  @Override
+  public Iterable<Location> eightNeighbors(Location loc) {
+    metrics.count(GridMetrics.NEIGHBOR_QUERIES);
+    return grid.eightNeighbors(loc);
+  }
+
+  /**
+   * Get the four neighbors of a location, counted as a neighbor query.
+   * @param loc - location whose neighbors are wanted
+   * @return - Iterable object for the neighbors on the grid
+   */
+  @Override
+  public Iterable<Location> fourNeighbors(Location loc) {
+    metrics.count(GridMetrics.NEIGHBOR_QUERIES);
+    return grid.fourNeighbors(loc);
+  }
+
+  /**
+   * Get the neighbors of a location in a neighborhood, counted as a
+   * neighbor query.
+   * @param loc - location whose neighbors are wanted
+   * @param neighborhood - offsets making up the neighborhood
+   * @return - Iterable object for the neighbors on the grid
+   */
+  @Override
+  public Iterable<Location> neighbors(Location loc, Neighborhood neighborhood) {
+    metrics.count(GridMetrics.NEIGHBOR_QUERIES);
+    return grid.neighbors(loc, neighborhood);
+  }
+
+  /**
+   * Visit the eight neighbors of a cell, counted as a neighbor query.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @param action - called with each neighbor on the grid
+   */
+  @Override
+  public void forEachEightNeighbor(int row, int col, IntBinaryConsumer action) {
+    metrics.count(GridMetrics.NEIGHBOR_QUERIES);
+    grid.forEachEightNeighbor(row, col, action);
+  }
+
+  /**
+   * Visit the four neighbors of a cell, counted as a neighbor query.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @param action - called with each neighbor on the grid
+   */
+  @Override
+  public void forEachFourNeighbor(int row, int col, IntBinaryConsumer action) {
+    metrics.count(GridMetrics.NEIGHBOR_QUERIES);
+    grid.forEachFourNeighbor(row, col, action);
+  }
+
+  /**
+   * Visit the neighbors of a cell in a neighborhood, counted as a
+   * neighbor query.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @param neighborhood - offsets making up the neighborhood
+   * @param action - called with each neighbor on the grid
+   */
+  @Override
+  public void forEachNeighbor(int row, int col, Neighborhood neighborhood,
+      IntBinaryConsumer action) {
+    metrics.count(GridMetrics.NEIGHBOR_QUERIES);
+    grid.forEachNeighbor(row, col, neighborhood, action);
+  }
+
+  /**
+   * Get a cursor over the wrapped grid; creating it counts as one
+   * neighbor query, its moves do not.
+   * @return - a new NeighborCursor
+   */
+  @Override
+  public NeighborCursor neighborCursor() {
+    metrics.count(GridMetrics.NEIGHBOR_QUERIES);
+    return grid.neighborCursor();
+  }
+
+  /**
+   * Put the item in every cell of a rectangle, counted as a bulk write.
+   * @param rowFrom - first row, inclusive
+   * @param colFrom - first column, inclusive
+   * @param rowTo - last row, exclusive
+   * @param colTo - last column, exclusive
+   * @param item - item to store
+   */
+  @Override
+  public void fill(int rowFrom, int colFrom, int rowTo, int colTo, E item) {
+    metrics.count(GridMetrics.BULK_OPERATIONS);
+    grid.fill(rowFrom, colFrom, rowTo, colTo, item);
+  }
+
+  /**
+   * Remove every item in a region, counted as a bulk write.
+   * @param region - cells to clear
+   */
+  @Override
+  public void clear(Region region) {
+    metrics.count(GridMetrics.BULK_OPERATIONS);
+    grid.clear(region);
+  }
+
+  /**
+   * Copy a region of a grid so that its top-left cell lands on dst,
+   * counted as a bulk write. Copying from this grid copies from the
+   * wrapped one, so the reads are not counted as well.
+   * @param src - grid to copy from
+   * @param srcRegion - region of src to copy
+   * @param dst - destination of the region's top-left cell
+   */
+  @Override
+  public void copyRegion(Grid<? extends E> src, Region srcRegion, Location dst) {
+    metrics.count(GridMetrics.BULK_OPERATIONS);
+    grid.copyRegion(src == this ? grid : src, srcRegion, dst);
+  }
+
+  /**
+   * Put every item of a map at its location, counted as a bulk write.
+   * @param items - items keyed by location
+   */
+  @Override
+  public void putAll(Map<Location, ? extends E> items) {
+    metrics.count(GridMetrics.BULK_OPERATIONS);
+    grid.putAll(items);
+  }
+
+  /**
+   * Visit every item in a rectangle in row-major order, counted as a
+   * region query.
+   * @param rowFrom - first row, inclusive
+   * @param colFrom - first column, inclusive
+   * @param rowTo - last row, exclusive
+   * @param colTo - last column, exclusive
+   * @param action - callback given each occupied cell
+   */
+  @Override
+  public void forEachItemIn(int rowFrom, int colFrom, int rowTo, int colTo,
+      IntBinaryConsumer action) {
+    metrics.count(GridMetrics.REGION_QUERIES);
+    grid.forEachItemIn(rowFrom, colFrom, rowTo, colTo, action);
+  }
+
+  /**
+   * Iterator for the locations of the items in a region, counted as a
+   * region query.
+   * @param region - cells to search
+   * @return - Iterable object for the items' locations
+   */
+  @Override
+  public Iterable<Location> itemLocationsIn(Region region) {
+    metrics.count(GridMetrics.REGION_QUERIES);
+    return grid.itemLocationsIn(region);
+  }
+
+  /**
+   * Iterator for the items in a region, counted as a region query.
+   * @param region - cells to search
+   * @return - Iterable object for the items
+   */
+  @Override
+  public Iterable<E> itemsIn(Region region) {
+    metrics.count(GridMetrics.REGION_QUERIES);
+    return grid.itemsIn(region);
+  }
+
+  /**
+   * Find the k occupied cells nearest to a location by straight-line
+   * distance, counted as a search.
+   * @param loc - center of the search
+   * @param k - most cells to return
+   * @return - locations in order of distance, ties in row-major order
+   */
+  @Override
+  public List<Location> nearest(Location loc, int k) {
+    metrics.count(GridMetrics.SEARCHES);
+    return grid.nearest(loc, k);
+  }
+
+  /**
+   * Find the occupied cells within a distance of a location, counted as
+   * a search.
+   * @param loc - center of the search
+   * @param radius - largest distance to include (not squared for EUCLIDEAN)
+   * @param metric - distance measure
+   * @return - locations in order of distance, ties in row-major order
+   */
+  @Override
+  public List<Location> withinRadius(Location loc, int radius, Metric metric) {
+    metrics.count(GridMetrics.SEARCHES);
+    return grid.withinRadius(loc, radius, metric);
+  }
+
+  /**
+   * Visit the k occupied cells nearest to a cell, nearest first, counted
+   * as a search.
+   * @param row - row of the center
+   * @param col - column of the center
+   * @param k - most cells to visit
+   * @param metric - distance measure
+   * @param action - callback given each cell
+   */
+  @Override
+  public void forEachNearest(int row, int col, int k, Metric metric,
+      IntBinaryConsumer action) {
+    metrics.count(GridMetrics.SEARCHES);
+    grid.forEachNearest(row, col, k, metric, action);
+  }
+
+  /**
+   * Visit the occupied cells within a distance of a cell, nearest first,
+   * counted as a search.
+   * @param row - row of the center
+   * @param col - column of the center
+   * @param radius - largest distance to include (not squared for EUCLIDEAN)
+   * @param metric - distance measure
+   * @param action - callback given each cell
+   */
+  @Override
+  public void forEachWithinRadius(int row, int col, int radius, Metric metric,
+      IntBinaryConsumer action) {
+    metrics.count(GridMetrics.SEARCHES);
+    grid.forEachWithinRadius(row, col, radius, metric, action);
+  }
+
+  /**
+   * Find the four-connected region of matching cells around a start
+   * cell, counted as a search.
+   * @param start - cell to start from
+   * @param predicate - test a cell's item must pass to join the region
+   * @return - cells of the region in row-major order
+   */
+  @Override
+  public List<Location> floodFill(Location start, Predicate<? super E> predicate) {
+    metrics.count(GridMetrics.SEARCHES);
+    return grid.floodFill(start, predicate);
+  }
+
+  /**
+   * Visit the connected region of matching cells around a start cell,
+   * counted as a search.
+   * @param row - row of the start cell
+   * @param col - column of the start cell
+   * @param connectivity - which cells touch
+   * @param predicate - test a cell's item must pass to join the region
+   * @param action - callback given each cell of the region
+   * @return - number of cells in the region
+   */
+  @Override
+  public long floodFill(int row, int col, Connectivity connectivity,
+      Predicate<? super E> predicate, IntBinaryConsumer action) {
+    metrics.count(GridMetrics.SEARCHES);
+    return grid.floodFill(row, col, connectivity, predicate, action);
+  }
+
+  /**
+   * Label every connected region of matching cells, counted as a search.
+   * @param connectivity - which cells touch
+   * @param predicate - test a cell's item must pass to be labeled
+   * @return - label grid and component sizes
+   */
+  @Override
+  public Labeling labelComponents(Connectivity connectivity, Predicate<? super E> predicate) {
+    metrics.count(GridMetrics.SEARCHES);
+    return grid.labelComponents(connectivity, predicate);
+  }
+
+  /**
+   * Take a snapshot of the wrapped grid; reads of the snapshot are not
+   * counted.
+   * @return - read-only view of the grid as it is now
+   */
+  @Override
+  public Grid<E> snapshot() {
+    return grid.snapshot();
+  }
+
+  /**
+   * Freeze the wrapped grid; reads of the result are not counted.
+   * @return - compact read-only copy of the grid
+   */
+  @Override
+  public Grid<E> freeze() {
+    return grid.freeze();
+  }
+
+  /**
+   * Share Location instances through the wrapped grid's cache.
+   */
+  @Override
+  public void enableLocationCache() {
+    unwrapped().enableLocationCache();
+  }
+
+  /**
+   * Go back to allocating a new Location for every cell handed out.
+   */
+  @Override
+  public void disableLocationCache() {
+    unwrapped().disableLocationCache();
+  }
+
+  /**
+   * Check whether the location cache is enabled.
+   * @return - true if enabled
+   */
+  @Override
+  public boolean isLocationCacheEnabled() {
+    return grid instanceof AbstractGrid && ((AbstractGrid<E>) grid).isLocationCacheEnabled();
+  }
+
+  /**
+   * Start recording writes on the wrapped grid.
+   */
+  @Override
+  public void enableChangeTracking() {
+    unwrapped().enableChangeTracking();
+  }
+
+  /**
+   * Stop recording writes on the wrapped grid.
+   */
+  @Override
+  public void disableChangeTracking() {
+    unwrapped().disableChangeTracking();
+  }
+
+  /**
+   * Check whether change tracking is enabled.
+   * @return - true if enabled
+   */
+  @Override
+  public boolean isChangeTrackingEnabled() {
+    return grid instanceof AbstractGrid && ((AbstractGrid<E>) grid).isChangeTrackingEnabled();
+  }
+
+  /**
+   * Get the epoch of the latest write.
+   * @return - current epoch
+   */
+  @Override
+  public long epoch() {
+    return unwrapped().epoch();
+  }
+
+  /**
+   * Get the tiles written after an epoch.
+   * @param epoch - epoch the caller last saw
+   * @return - changed tiles in row-major order
+   */
+  @Override
+  public List<Region> changedSince(long epoch) {
+    return unwrapped().changedSince(epoch);
+  }
+
+  /**
+   * Get the wrapped grid as one that supports the location cache and
+   * change tracking.
+   * @return - wrapped grid
+   * @throws UnsupportedOperationException - if it is not an AbstractGrid
+   */
+  private AbstractGrid<E> unwrapped() {
+    if (!(grid instanceof AbstractGrid)) {
+      throw new UnsupportedOperationException();
+    }
+    return (AbstractGrid<E>) grid;
+  }
+
+  /**
+   * Iterator that counts the items it hands out and records the count,
+   * and for sampled iterations the time taken, once it runs out.
+   */
+  private final class CountingIterator<T> implements Iterator<T> {
+
+    private final Iterator<T> it;
+    private final boolean timed;
+    private final long start;
+    private long count;
+    private boolean finished;
+
+    /**
+     * Constructor for CountingIterator class.
+     * @param it - iterator to count
+     */
+    CountingIterator(Iterator<T> it) {
+      GridMetrics.Stripe stripe = metrics.stripe();
+      stripe.count(GridMetrics.ITERATIONS);
+      timed = stripe.sample();
+      start = timed ? System.nanoTime() : 0;
+      this.it = it;
+    }
+
+    /**
+     * Check for another element, recording the iteration the first time
+     * the answer is no.
+     * @return - true if there is another element
+     */
+    @Override
+    public boolean hasNext() {
+      boolean more = it.hasNext();
+      if (!more && !finished) {
+        finished = true;
+        metrics.add(GridMetrics.ITERATED_ITEMS, count);
+        metrics.iteratorLengths.record(count);
+        if (timed) {
+          metrics.iterationLatency.record(System.nanoTime() - start);
+        }
+      }
+      return more;
+    }
+
+    /**
+     * Get the next element and count it.
+     * @return - next element
+     */
+    @Override
+    public T next() {
+      T next = it.next();
+      count++;
+      return next;
+    }
+
+    /**
+     * Remove the element last returned, counted as a remove hit.
+     */
+    @Override
+    public void remove() {
+      it.remove();
+      metrics.count(GridMetrics.REMOVE_HITS);
+    }
+  }
+
+}
@@ -0,0 +1,163 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for the basic functionality of the InstrumentedGrid class.
+ * 
+ * @author Jordan Martin
+ *
+ */
+class InstrumentedGridBasicsTest extends GridBasicsTest {
+
+  @Override
+  public <T> Grid<T> makeGrid(int rows, int cols) {
+    return new InstrumentedGrid<T>(new ArrayGrid<T>(rows, cols));
+  }
+
+  private static long sum(long[] counts) {
+    long total = 0;
+    for (long count : counts) {
+      total += count;
+    }
+    return total;
+  }
+
+  @Test
+  void testCountsGetsPutsAndRemoves() {
+    InstrumentedGrid<String> grid = new InstrumentedGrid<>(new SparseGrid<String>(10, 10));
+    grid.put(0, 0, "A");
+    grid.put(new Location(0, 1), "B");
+    grid.put(0, 0, "C");
+    assertEquals("C", grid.get(0, 0));
+    assertEquals("B", grid.get(new Location(0, 1)));
+    assertNull(grid.get(5, 5));
+    assertNull(grid.get(6, 6));
+    assertEquals("C", grid.remove(0, 0));
+    assertNull(grid.remove(new Location(0, 0)));
+    assertTrue(grid.isOccupied(0, 1));
+
+    GridMetricsMXBean metrics = grid.metrics();
+    assertEquals(2, metrics.getPutInserts());
+    assertEquals(1, metrics.getPutOverwrites());
+    assertEquals(2, metrics.getGetHits());
+    assertEquals(2, metrics.getGetMisses());
+    assertEquals(0.5, metrics.getGetHitRate());
+    assertEquals(1, metrics.getRemoveHits());
+    assertEquals(1, metrics.getRemoveMisses());
+    assertEquals(1, metrics.getOccupancyChecks());
+    assertEquals(InstrumentedGrid.DEFAULT_SAMPLE_PERIOD, metrics.getSamplePeriod());
+
+    metrics.reset();
+    assertEquals(0, metrics.getPutInserts());
+    assertEquals(0.0, metrics.getGetHitRate());
+  }
+
+  @Test
+  void testCountsQueriesAndBulkOperations() {
+    InstrumentedGrid<Integer> grid = new InstrumentedGrid<>(new ArrayGrid<Integer>(8, 8));
+    grid.fill(0, 0, 4, 4, 1);
+    grid.clear(new Region(0, 0, 1, 1));
+    grid.putAll(Map.of(new Location(7, 7), 2));
+    grid.fourNeighbors(new Location(2, 2));
+    grid.forEachEightNeighbor(2, 2, (row, col) -> { });
+    grid.itemsIn(new Region(0, 0, 2, 2));
+    grid.forEachItemIn(0, 0, 8, 8, (row, col) -> { });
+    grid.nearest(new Location(7, 0), 3);
+    grid.floodFill(new Location(1, 1), item -> item != null);
+    assertEquals(16, grid.stream().count());
+
+    GridMetricsMXBean metrics = grid.metrics();
+    assertEquals(3, metrics.getBulkOperations());
+    assertEquals(2, metrics.getNeighborQueries());
+    assertEquals(2, metrics.getRegionQueries());
+    assertEquals(2, metrics.getSearches());
+    assertEquals(1, metrics.getIterations());
+  }
+
+  @Test
+  void testCountsFromSeveralThreads() throws InterruptedException {
+    InstrumentedGrid<Integer> grid = new InstrumentedGrid<>(new ConcurrentArrayGrid<Integer>(8, 8));
+    grid.put(0, 0, 1);
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 10000; i++) {
+          grid.get(0, i % 2);
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(20000, grid.metrics().getGetHits());
+    assertEquals(20000, grid.metrics().getGetMisses());
+    // The finished threads' stripes were folded in and dropped on read.
+    assertEquals(1, ((GridMetrics) grid.metrics()).stripeCount());
+    assertEquals(1, grid.metrics().getPutInserts());
+
+    // Counts from threads that have finished survive, and reset clears them.
+    grid.metrics().reset();
+    assertEquals(0, grid.metrics().getGetHits());
+    grid.get(0, 0);
+    assertEquals(1, grid.metrics().getGetHits());
+  }
+
+  @Test
+  void testSamplesLatencies() {
+    InstrumentedGrid<Integer> every = new InstrumentedGrid<>(new ArrayGrid<Integer>(10, 10), 1);
+    for (int i = 0; i < 100; i++) {
+      every.put(i / 10, i % 10, i);
+      every.get(i / 10, i % 10);
+    }
+    every.remove(0, 0);
+    assertEquals(100, sum(every.metrics().getPutLatencyHistogram()));
+    assertEquals(100, sum(every.metrics().getGetLatencyHistogram()));
+    assertEquals(1, sum(every.metrics().getRemoveLatencyHistogram()));
+    assertTrue(every.metrics().getGetLatencyP50Nanos()
+        <= every.metrics().getGetLatencyP99Nanos());
+
+    InstrumentedGrid<Integer> some = new InstrumentedGrid<>(new ArrayGrid<Integer>(100, 100), 16);
+    for (int i = 0; i < 10000; i++) {
+      some.put(i / 100, i % 100, i);
+    }
+    long sampled = sum(some.metrics().getPutLatencyHistogram());
+    assertTrue(sampled > 10000 / 16 / 2 && sampled < 10000 / 16 * 2);
+  }
+
+  @Test
+  void testRegistersAsMXBean() throws JMException {
+    InstrumentedGrid<Integer> grid = new InstrumentedGrid<>(new ArrayGrid<Integer>(5, 5));
+    grid.put(1, 1, 1);
+    grid.get(1, 1);
+    ObjectName name = grid.registerMBean("test \"grid\"");
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      assertEquals(1L, server.getAttribute(name, "GetHits"));
+      assertEquals(1L, server.getAttribute(name, "PutInserts"));
+      assertEquals(64, ((long[]) server.getAttribute(name, "GetLatencyHistogram")).length);
+      GridMetricsMXBean proxy = JMX.newMXBeanProxy(server, name, GridMetricsMXBean.class);
+      proxy.reset();
+      assertEquals(0, grid.metrics().getGetHits());
+      assertThrows(JMException.class, () -> grid.registerMBean("test \"grid\""));
+    } finally {
+      server.unregisterMBean(name);
+    }
+  }
+
+  @Test
+  void testBadArgumentsThrowException() {
+    assertThrows(NullPointerException.class, () -> new InstrumentedGrid<Integer>(null));
+    ArrayGrid<Integer> inner = new ArrayGrid<>(2, 2);
+    assertThrows(IllegalArgumentException.class, () -> new InstrumentedGrid<>(inner, 0));
+    assertThrows(IllegalArgumentException.class, () -> new InstrumentedGrid<>(inner, -4));
+    assertThrows(NullPointerException.class, () -> new InstrumentedGrid<>(inner).registerMBean(null));
+  }
+}
@@ -0,0 +1,75 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Iterator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for the iterator functionality of the InstrumentedGrid class.
+ * 
+ * @author Jordan Martin
+ *
+ */
+class InstrumentedGridIteratorsTest extends GridIteratorsTest {
+
+  @Override
+  public <T> Grid<T> makeGrid(int rows, int cols) {
+    return new InstrumentedGrid<T>(new ArrayGrid<T>(rows, cols));
+  }
+
+  @Test
+  void testIteratorLengthsAreRecordedWhenExhausted() {
+    InstrumentedGrid<Integer> grid = new InstrumentedGrid<>(new SparseGrid<Integer>(50, 50), 1);
+    for (int i = 0; i < 20; i++) {
+      grid.put(i, i, i);
+    }
+    int seen = 0;
+    for (Integer item : grid) {
+      assertEquals(Integer.valueOf(seen), item);
+      seen++;
+    }
+    for (Location loc : grid.itemLocations()) {
+      assertNotNull(loc);
+    }
+
+    // Abandoned early: counted as an iteration but not measured.
+    Iterator<Integer> it = grid.iterator();
+    it.next();
+
+    GridMetricsMXBean metrics = grid.metrics();
+    assertEquals(3, metrics.getIterations());
+    assertEquals(40, metrics.getIteratedItems());
+    // 20 items fall in the bucket for 16 to 31.
+    assertEquals(2, metrics.getIteratorLengthHistogram()[5]);
+    assertEquals(2, sum(metrics.getIterationLatencyHistogram()));
+
+    // hasNext after the end does not record the iteration twice.
+    it = grid.iterator();
+    while (it.hasNext()) {
+      it.next();
+    }
+    assertFalse(it.hasNext());
+    assertEquals(60, metrics.getIteratedItems());
+    assertEquals(3, metrics.getIteratorLengthHistogram()[5]);
+  }
+
+  @Test
+  void testIteratorRemoveIsCounted() {
+    InstrumentedGrid<Integer> grid = new InstrumentedGrid<>(new ArrayGrid<Integer>(4, 4));
+    grid.fill(0, 0, 4, 4, 1);
+    Iterator<Integer> it = grid.iterator();
+    while (it.hasNext()) {
+      it.next();
+      it.remove();
+    }
+    assertEquals(0, grid.numItems());
+    assertEquals(16, grid.metrics().getRemoveHits());
+  }
+
+  private static long sum(long[] counts) {
+    long total = 0;
+    for (long count : counts) {
+      total += count;
+    }
+    return total;
+  }
+}
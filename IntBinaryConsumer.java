@@ -0,0 +1,17 @@
+/**
+ * Callback that accepts a row and a column without boxing them into a
+ * Location.
+ *
+ * @author Jordan Martin
+ */
+@FunctionalInterface
+public interface IntBinaryConsumer {
+
+  /**
+   * Perform the action on a cell.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   */
+  public void accept(int row, int col);
+
+}
@@ -0,0 +1,76 @@
+/**
+ * Grid of int values stored unboxed in a flat row-major array. The
+ * Location-based Grid methods box on the way in and out; hot loops should
+ * use the getInt/putInt accessors instead.
+ *
+ * @author Jordan Martin
+ */
+public class IntGrid extends AbstractPrimitiveGrid<Integer> {
+
+  private final int[] cells;
+
+  /**
+   * Constructor for IntGrid class.
+   * @param rows - number of rows
+   * @param cols - number of columns
+   */
+  public IntGrid(int rows, int cols) {
+    super(rows, cols);
+    cells = new int[rows * cols];
+  }
+
+  /**
+   * Constructor for IntGrid class that takes over an existing array,
+   * treating the nonzero cells as occupied.
+   * @param rows - number of rows
+   * @param cols - number of columns
+   * @param cells - row-major values, rows * cols long
+   */
+  IntGrid(int rows, int cols, int[] cells) {
+    super(rows, cols);
+    if (cells.length != rows * cols) {
+      throw new IllegalArgumentException();
+    }
+    this.cells = cells;
+    numItems = occupied.assign(cells);
+  }
+
+  /**
+   * Get the value at the cell without boxing. Empty cells read as 0; use
+   * isOccupied to tell an empty cell from a stored 0.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - stored value
+   */
+  public int getInt(int row, int col) {
+    return cells[index(row, col)];
+  }
+
+  /**
+   * Store a value at the cell without boxing.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @param value - value to be stored
+   */
+  public void putInt(int row, int col, int value) {
+    int index = index(row, col);
+    cells[index] = value;
+    markOccupied(index, row, col);
+  }
+
+  @Override
+  protected Integer boxed(int index) {
+    return cells[index];
+  }
+
+  @Override
+  protected void store(int index, Integer item) {
+    cells[index] = item;
+  }
+
+  @Override
+  protected void erase(int index) {
+    cells[index] = 0;
+  }
+
+}
@@ -0,0 +1,61 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Iterator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for the basic functionality of the IntGrid class.
+ * 
+ * @author Jordan Martin
+ *
+ */
+class IntGridBasicsTest extends GridBasicsTest {
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T> Grid<T> makeGrid(int rows, int cols) {
+    return (Grid<T>) new IntGrid(rows, cols);
+  }
+
+  @Test
+  void testPutIntThenGetIntAndGet() {
+    IntGrid grid = new IntGrid(3, 5);
+    grid.putInt(1, 2, 42);
+    assertEquals(42, grid.getInt(1, 2));
+    assertEquals(Integer.valueOf(42), grid.get(l12));
+    assertEquals(1, grid.numItems());
+  }
+
+  @Test
+  void testZeroIsStoredAsAnItem() {
+    IntGrid grid = new IntGrid(3, 5);
+    assertFalse(grid.isOccupied(0, 0));
+    grid.putInt(0, 0, 0);
+    assertTrue(grid.isOccupied(0, 0));
+    assertEquals(Integer.valueOf(0), grid.get(l00));
+    assertEquals(1, grid.numItems());
+    assertEquals(Integer.valueOf(0), grid.remove(l00));
+    assertFalse(grid.isOccupied(0, 0));
+    assertEquals(null, grid.get(l00));
+  }
+
+  @Test
+  void testGetIntThrowsExceptionForBadLocation() {
+    IntGrid grid = new IntGrid(3, 2);
+    assertThrows(IllegalArgumentException.class, () -> grid.getInt(3, 0));
+    assertThrows(IllegalArgumentException.class, () -> grid.putInt(0, 2, 1));
+  }
+
+  @Test
+  void testIteratorVisitsItemsInRowMajorOrder() {
+    IntGrid grid = new IntGrid(3, 5);
+    grid.putInt(2, 4, 3);
+    grid.putInt(0, 1, 1);
+    grid.putInt(1, 0, 2);
+    Iterator<Integer> it = grid.iterator();
+    assertEquals(Integer.valueOf(1), it.next());
+    assertEquals(Integer.valueOf(2), it.next());
+    assertEquals(Integer.valueOf(3), it.next());
+    assertFalse(it.hasNext());
+  }
+}
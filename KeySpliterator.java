@@ -0,0 +1,72 @@
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * Spliterator over a range of a sorted array of packed coordinates, as
+ * kept by SparseGrid. Ranges split at the middle index, so each half has
+ * an exact size.
+ *
+ * @author Jordan Martin
+ */
+final class KeySpliterator<T> implements Spliterator<T> {
+
+  private final long[] keys;
+  private final LongFunction<T> element;
+  private int origin;
+  private final int fence;
+
+  /**
+   * Constructor for KeySpliterator class.
+   * @param keys - packed coordinates in row-major order
+   * @param element - maps a packed coordinate to the element reported
+   */
+  KeySpliterator(long[] keys, LongFunction<T> element) {
+    this(keys, element, 0, keys.length);
+  }
+
+  private KeySpliterator(long[] keys, LongFunction<T> element, int origin, int fence) {
+    this.keys = keys;
+    this.element = element;
+    this.origin = origin;
+    this.fence = fence;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    if (origin >= fence) {
+      return false;
+    }
+    action.accept(element.apply(keys[origin++]));
+    return true;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super T> action) {
+    for (; origin < fence; origin++) {
+      action.accept(element.apply(keys[origin]));
+    }
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    int mid = (origin + fence) >>> 1;
+    if (mid <= origin) {
+      return null;
+    }
+    Spliterator<T> low = new KeySpliterator<T>(keys, element, origin, mid);
+    origin = mid;
+    return low;
+  }
+
+  @Override
+  public long estimateSize() {
+    return fence - origin;
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | SIZED | SUBSIZED | NONNULL;
+  }
+
+}
@@ -0,0 +1,70 @@
+/**
+ * Result of connected-component labeling. Components are numbered from 1
+ * in row-major order of their first cell; the label grid holds each
+ * matching cell's component number and leaves every other cell empty.
+ *
+ * @author Jordan Martin
+ */
+public final class Labeling {
+
+  private final IntGrid labels;
+  private final int[] sizes;
+
+  /**
+   * Constructor for Labeling class.
+   * @param labels - component number of every matching cell
+   * @param sizes - cells per component, indexed by component number
+   */
+  Labeling(IntGrid labels, int[] sizes) {
+    this.labels = labels;
+    this.sizes = sizes;
+  }
+
+  /**
+   * Get the label grid. It is not copied, and changing it does not
+   * update the sizes.
+   * @return - grid of component numbers, empty where no component is
+   */
+  public IntGrid labels() {
+    return labels;
+  }
+
+  /**
+   * Get the number of components found.
+   * @return - number of components
+   */
+  public int componentCount() {
+    return sizes.length - 1;
+  }
+
+  /**
+   * Get the component number of a cell.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - component number, or 0 if the cell is in no component
+   */
+  public int label(int row, int col) {
+    return labels.getInt(row, col);
+  }
+
+  /**
+   * Get the number of cells in a component.
+   * @param label - component number, from 1 to componentCount()
+   * @return - number of cells
+   */
+  public int size(int label) {
+    if (label <= 0 || label >= sizes.length) {
+      throw new IllegalArgumentException();
+    }
+    return sizes[label];
+  }
+
+  /**
+   * Get the number of cells in every component.
+   * @return - new array indexed by component number; entry 0 is unused
+   */
+  public int[] sizes() {
+    return sizes.clone();
+  }
+
+}
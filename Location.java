@@ -24,6 +24,51 @@ public class Location implements Comparable<Location> {
     this.col = col;
   }
 
+  /**
+   * Pack a row and column into a single long, with the row in the high 32
+   * bits and the column in the low 32 bits. Packed values of valid
+   * locations are non-negative and sort in row-major order.
+   * 
+   * @param row Row number
+   * @param col Column number
+   * @return The packed coordinate
+   */
+  public static long pack(int row, int col) {
+    return ((long) row << 32) | (col & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Returns the row number of a packed coordinate.
+   */
+  public static int unpackRow(long packed) {
+    return (int) (packed >>> 32);
+  }
+
+  /**
+   * Returns the column number of a packed coordinate.
+   */
+  public static int unpackCol(long packed) {
+    return (int) packed;
+  }
+
+  /**
+   * Create a location from a packed coordinate.
+   * 
+   * @param packed Coordinate produced by {@link #pack(int, int)}
+   * @return The location
+   * @throws IllegalArgumentException for negative row or column
+   */
+  public static Location fromPacked(long packed) {
+    return new Location(unpackRow(packed), unpackCol(packed));
+  }
+
+  /**
+   * Returns this location as a packed coordinate.
+   */
+  public long toPacked() {
+    return pack(row, col);
+  }
+
   /**
    * Returns the row number.
    */
@@ -0,0 +1,87 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative values in power-of-two buckets. Bucket 0
+ * counts zeros and bucket b counts values from 2^(b-1) to 2^b - 1, so 64
+ * buckets cover every long and recording is a leading-zero count and one
+ * atomic add. Percentiles are reported as the upper end of their bucket,
+ * which is within a factor of two of the true value.
+ *
+ * @author Jordan Martin
+ */
+final class Log2Histogram {
+
+  static final int BUCKETS = 64;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  /**
+   * Get the bucket a value falls in.
+   * @param value - value to place; negative values count as 0
+   * @return - bucket number
+   */
+  static int bucket(long value) {
+    return value <= 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(value);
+  }
+
+  /**
+   * Get the largest value a bucket holds.
+   * @param bucket - bucket number
+   * @return - upper end of the bucket
+   */
+  static long upperBound(int bucket) {
+    return bucket == 0 ? 0 : bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+  }
+
+  /**
+   * Record a value.
+   * @param value - value to record
+   */
+  void record(long value) {
+    counts.incrementAndGet(bucket(value));
+  }
+
+  /**
+   * Get the count in every bucket.
+   * @return - new array of BUCKETS counts
+   */
+  long[] counts() {
+    long[] copy = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      copy[i] = counts.get(i);
+    }
+    return copy;
+  }
+
+  /**
+   * Estimate a percentile of the recorded values.
+   * @param fraction - percentile as a fraction, from 0 to 1
+   * @return - upper end of the bucket holding it, or 0 if nothing is recorded
+   */
+  long percentile(double fraction) {
+    long[] copy = counts();
+    long total = 0;
+    for (long count : copy) {
+      total += count;
+    }
+    long rank = (long) Math.ceil(fraction * total);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += copy[i];
+      if (seen >= rank && seen > 0) {
+        return upperBound(i);
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Set every bucket back to zero.
+   */
+  void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+  }
+
+}
@@ -0,0 +1,47 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for the Log2Histogram class.
+ *
+ * @author Jordan Martin
+ *
+ */
+class Log2HistogramTest {
+
+  @Test
+  void testBucketBoundaries() {
+    assertEquals(0, Log2Histogram.bucket(-5));
+    assertEquals(0, Log2Histogram.bucket(0));
+    assertEquals(1, Log2Histogram.bucket(1));
+    assertEquals(2, Log2Histogram.bucket(2));
+    assertEquals(2, Log2Histogram.bucket(3));
+    assertEquals(3, Log2Histogram.bucket(4));
+    assertEquals(63, Log2Histogram.bucket(Long.MAX_VALUE));
+    for (int b = 1; b < Log2Histogram.BUCKETS; b++) {
+      assertEquals(b, Log2Histogram.bucket(Log2Histogram.upperBound(b)));
+      assertEquals(b, Log2Histogram.bucket(Log2Histogram.upperBound(b - 1) + 1));
+    }
+  }
+
+  @Test
+  void testPercentiles() {
+    Log2Histogram histogram = new Log2Histogram();
+    assertEquals(0, histogram.percentile(0.5));
+    for (int i = 0; i < 98; i++) {
+      histogram.record(20);
+    }
+    histogram.record(1000);
+    histogram.record(5000);
+    assertEquals(31, histogram.percentile(0.5));
+    assertEquals(31, histogram.percentile(0.98));
+    assertEquals(1023, histogram.percentile(0.99));
+    assertEquals(8191, histogram.percentile(1.0));
+    assertEquals(98, histogram.counts()[5]);
+
+    histogram.reset();
+    assertEquals(0, histogram.counts()[5]);
+    assertEquals(0, histogram.percentile(0.99));
+  }
+}
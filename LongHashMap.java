@@ -0,0 +1,444 @@
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive long keys to non-null values.
+ * Keys and values live in parallel arrays and collisions are resolved by
+ * linear probing, so there is no entry object or boxed key per mapping.
+ * A null value marks an empty slot, and removal shifts the rest of the
+ * probe run back instead of leaving tombstones, so every operation is a
+ * single probe sequence.
+ *
+ * <p>share() hands out a read-only copy in O(1) by letting it keep the
+ * tables. This map then stops writing them and instead copies a page of
+ * 128 slots out of them the first time the page is written. Pages are
+ * stamped with the generation they were copied in, and each share starts
+ * a new generation, so a page copied before the latest share is copied
+ * again rather than changed under the copy holding it. A resize or clear
+ * builds fresh tables and leaves the shared ones alone, and once every
+ * page has been copied since the latest share the pages are folded back
+ * into fresh tables too.
+ *
+ * @author Jordan Martin
+ */
+public class LongHashMap<V> {
+
+  private static final int MIN_CAPACITY = 16;
+  private static final int PAGE_SHIFT = 7;
+  private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  private long[] keys;
+  private Object[] values;
+  private int mask;
+  private int size;
+  private int resizeAt;
+
+  // Null while this map owns its tables. Once shared, the tables are
+  // never written again and the pages hold the slots copied out of them
+  // since, by page.
+  private long[][] keyPages;
+  private Object[][] valuePages;
+  private long[] stamps;
+  private long generation;
+  private boolean pagesShared;
+  private int copiedPages;
+
+  /**
+   * Constructor for an empty LongHashMap.
+   */
+  public LongHashMap() {
+    this(0);
+  }
+
+  /**
+   * Constructor for LongHashMap sized to hold a number of mappings
+   * without resizing.
+   * @param expectedSize - number of mappings expected
+   */
+  public LongHashMap(int expectedSize) {
+    allocate(capacityFor(expectedSize));
+  }
+
+  /**
+   * Constructor for LongHashMap holding the same mappings as another,
+   * copying its tables as they are instead of rehashing.
+   * @param other - map to copy
+   */
+  public LongHashMap(LongHashMap<? extends V> other) {
+    keys = other.keys;
+    values = other.values;
+    keyPages = other.keyPages;
+    valuePages = other.valuePages;
+    mask = other.mask;
+    size = other.size;
+    resizeAt = other.resizeAt;
+    ownTables();
+  }
+
+  /**
+   * Constructor for a read-only LongHashMap over another's tables and
+   * pages, which the other no longer writes in place.
+   * @param other - map to share with
+   * @param size - number of mappings
+   */
+  private LongHashMap(LongHashMap<V> other, int size) {
+    keys = other.keys;
+    values = other.values;
+    keyPages = other.keyPages;
+    valuePages = other.valuePages;
+    mask = other.mask;
+    this.size = size;
+    resizeAt = other.resizeAt;
+  }
+
+  /**
+   * Get a copy of the map in O(1). The copy shares the tables with this
+   * map and must never be written; this map copies each page before its
+   * next write to it.
+   * @return - read-only map with the same mappings
+   */
+  LongHashMap<V> share() {
+    LongHashMap<V> copy = new LongHashMap<V>(this, size);
+    if (keyPages == null) {
+      int count = (values.length + PAGE_MASK) >>> PAGE_SHIFT;
+      keyPages = new long[count][];
+      valuePages = new Object[count][];
+      stamps = new long[count];
+    } else {
+      pagesShared = true;
+    }
+    generation++;
+    copiedPages = 0;
+    return copy;
+  }
+
+  /**
+   * Read the key in a slot, from its copied page if it has one.
+   * @param slot - table slot
+   * @return - key in the slot
+   */
+  private long keyAt(int slot) {
+    long[][] copied = keyPages;
+    if (copied != null) {
+      long[] page = copied[slot >>> PAGE_SHIFT];
+      if (page != null) {
+        return page[slot & PAGE_MASK];
+      }
+    }
+    return keys[slot];
+  }
+
+  /**
+   * Read the value in a slot, from its copied page if it has one.
+   * @param slot - table slot
+   * @return - value in the slot, or null if it is empty
+   */
+  private Object valueAt(int slot) {
+    Object[][] copied = valuePages;
+    if (copied != null) {
+      Object[] page = copied[slot >>> PAGE_SHIFT];
+      if (page != null) {
+        return page[slot & PAGE_MASK];
+      }
+    }
+    return values[slot];
+  }
+
+  /**
+   * Fill a slot, copying its page first if a copy may still read it.
+   * @param slot - table slot
+   * @param key - key to store
+   * @param value - value to store, or null to empty the slot
+   */
+  private void store(int slot, long key, Object value) {
+    if (keyPages == null) {
+      keys[slot] = key;
+      values[slot] = value;
+      return;
+    }
+    int page = page(slot >>> PAGE_SHIFT);
+    keyPages[page][slot & PAGE_MASK] = key;
+    valuePages[page][slot & PAGE_MASK] = value;
+    if (copiedPages == keyPages.length) {
+      ownTables();
+    }
+  }
+
+  /**
+   * Make sure a page may be written in place, copying it from the shared
+   * tables or from an earlier generation's page if needed.
+   * @param page - page index
+   * @return - the page index
+   */
+  private int page(int page) {
+    if (pagesShared) {
+      keyPages = keyPages.clone();
+      valuePages = valuePages.clone();
+      stamps = stamps.clone();
+      pagesShared = false;
+    }
+    if (keyPages[page] == null) {
+      int start = page << PAGE_SHIFT;
+      int end = start + Math.min(PAGE_SIZE, values.length - start);
+      keyPages[page] = Arrays.copyOfRange(keys, start, end);
+      valuePages[page] = Arrays.copyOfRange(values, start, end);
+      stamps[page] = generation;
+      copiedPages++;
+    } else if (stamps[page] != generation) {
+      keyPages[page] = keyPages[page].clone();
+      valuePages[page] = valuePages[page].clone();
+      stamps[page] = generation;
+      copiedPages++;
+    }
+    return page;
+  }
+
+  /**
+   * Replace the tables with private copies that have every copied page
+   * folded back in, so the map writes in place again.
+   */
+  private void ownTables() {
+    long[] ownKeys = keys.clone();
+    Object[] ownValues = values.clone();
+    if (keyPages != null) {
+      for (int page = 0; page < keyPages.length; page++) {
+        if (keyPages[page] != null) {
+          int start = page << PAGE_SHIFT;
+          System.arraycopy(keyPages[page], 0, ownKeys, start, keyPages[page].length);
+          System.arraycopy(valuePages[page], 0, ownValues, start, valuePages[page].length);
+        }
+      }
+    }
+    keys = ownKeys;
+    values = ownValues;
+    keyPages = null;
+    valuePages = null;
+    stamps = null;
+    pagesShared = false;
+  }
+
+  /**
+   * Mix the bits of a key so that keys differing only in a few bits, such
+   * as neighboring packed coordinates, land in unrelated slots.
+   * @param key - key to hash
+   * @return - well-distributed hash
+   */
+  static long mix(long key) {
+    long h = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+    h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+    return h ^ (h >>> 31);
+  }
+
+  /**
+   * Get the number of mappings.
+   * @return - number of mappings
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Check whether the map is empty.
+   * @return - true if there are no mappings
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Get the value mapped to a key.
+   * @param key - key to look up
+   * @return - mapped value, or null if there is none
+   */
+  @SuppressWarnings("unchecked")
+  public V get(long key) {
+    int slot = (int) mix(key) & mask;
+    Object value;
+    while ((value = valueAt(slot)) != null) {
+      if (keyAt(slot) == key) {
+        return (V) value;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * Check whether a key is mapped.
+   * @param key - key to look up
+   * @return - true if the key has a value
+   */
+  public boolean containsKey(long key) {
+    return get(key) != null;
+  }
+
+  /**
+   * Map a key to a value, replacing any earlier value.
+   * @param key - key to map
+   * @param value - non-null value
+   * @return - previous value, or null if the key was not mapped
+   */
+  @SuppressWarnings("unchecked")
+  public V put(long key, V value) {
+    if (value == null) {
+      throw new NullPointerException();
+    }
+    int slot = (int) mix(key) & mask;
+    Object old;
+    while ((old = valueAt(slot)) != null) {
+      if (keyAt(slot) == key) {
+        store(slot, key, value);
+        return (V) old;
+      }
+      slot = (slot + 1) & mask;
+    }
+    store(slot, key, value);
+    if (++size > resizeAt) {
+      rehash(values.length << 1);
+    }
+    return null;
+  }
+
+  /**
+   * Remove the mapping for a key.
+   * @param key - key to remove
+   * @return - removed value, or null if the key was not mapped
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(long key) {
+    int slot = (int) mix(key) & mask;
+    Object value;
+    while ((value = valueAt(slot)) != null) {
+      if (keyAt(slot) == key) {
+        shiftBack(slot);
+        size--;
+        return (V) value;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * Remove every mapping, keeping the current capacity.
+   */
+  public void clear() {
+    if (keyPages == null) {
+      Arrays.fill(values, null);
+    } else {
+      allocate(values.length);
+      keyPages = null;
+      valuePages = null;
+      stamps = null;
+      pagesShared = false;
+    }
+    size = 0;
+  }
+
+  /**
+   * Grow the table so that it can hold a number of mappings without
+   * resizing again.
+   * @param expectedSize - total number of mappings expected
+   */
+  public void ensureCapacity(int expectedSize) {
+    int capacity = capacityFor(expectedSize);
+    if (capacity > values.length) {
+      rehash(capacity);
+    }
+  }
+
+  /**
+   * Copy the keys into a new array, in table order.
+   * @return - array of all keys
+   */
+  public long[] keys() {
+    long[] result = new long[size];
+    int count = 0;
+    for (int slot = 0; slot < values.length; slot++) {
+      if (valueAt(slot) != null) {
+        result[count++] = keyAt(slot);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Fill the hole left at a slot by moving later entries of the same
+   * probe run back into it.
+   * @param hole - slot being vacated
+   */
+  private void shiftBack(int hole) {
+    int slot = hole;
+    while (true) {
+      slot = (slot + 1) & mask;
+      if (valueAt(slot) == null) {
+        break;
+      }
+      long key = keyAt(slot);
+      int home = (int) mix(key) & mask;
+      // The entry may move into the hole only if its home slot does not
+      // lie cyclically between the hole and its current slot.
+      boolean movable = hole <= slot
+          ? home <= hole || home > slot
+          : home <= hole && home > slot;
+      if (movable) {
+        store(hole, key, valueAt(slot));
+        hole = slot;
+      }
+    }
+    store(hole, 0, null);
+  }
+
+  /**
+   * Compute a power-of-two table size holding the mappings at a load
+   * factor of at most 3/4.
+   * @param expectedSize - number of mappings expected
+   * @return - table size
+   */
+  private static int capacityFor(int expectedSize) {
+    long needed = Math.max(MIN_CAPACITY, (long) expectedSize * 4 / 3 + 1);
+    if (needed > 1 << 30) {
+      throw new IllegalStateException();
+    }
+    return Integer.highestOneBit((int) needed - 1) << 1;
+  }
+
+  /**
+   * Allocate empty tables of the given power-of-two size.
+   * @param capacity - table size
+   */
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new Object[capacity];
+    mask = capacity - 1;
+    resizeAt = capacity / 4 * 3;
+  }
+
+  /**
+   * Move every mapping into tables of a new size.
+   * @param capacity - new table size
+   */
+  private void rehash(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalStateException();
+    }
+    if (keyPages != null) {
+      ownTables();
+    }
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldValues.length; i++) {
+      Object value = oldValues[i];
+      if (value != null) {
+        int slot = (int) mix(oldKeys[i]) & mask;
+        while (values[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = oldKeys[i];
+        values[slot] = value;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,134 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for the LongHashMap class.
+ * 
+ * @author Jordan Martin
+ *
+ */
+class LongHashMapTest {
+
+  @Test
+  void testPutGetAndRemove() {
+    LongHashMap<String> map = new LongHashMap<>();
+    assertEquals(null, map.put(5L, "A"));
+    assertEquals("A", map.put(5L, "B"));
+    assertEquals("B", map.get(5L));
+    assertEquals(1, map.size());
+    assertEquals("B", map.remove(5L));
+    assertEquals(null, map.remove(5L));
+    assertEquals(null, map.get(5L));
+    assertTrue(map.isEmpty());
+  }
+
+  @Test
+  void testPutThrowsExceptionForNullValue() {
+    LongHashMap<String> map = new LongHashMap<>();
+    assertThrows(NullPointerException.class, () -> map.put(1L, null));
+  }
+
+  @Test
+  void testMatchesHashMapUnderRandomOperations() {
+    LongHashMap<Integer> map = new LongHashMap<>();
+    HashMap<Long, Integer> expected = new HashMap<>();
+    Random random = new Random(240);
+
+    for (int i = 0; i < 200000; i++) {
+      long key = Location.pack(random.nextInt(300), random.nextInt(300));
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(key), map.remove(key));
+      } else {
+        assertEquals(expected.put(key, i), map.put(key, i));
+      }
+    }
+
+    assertEquals(expected.size(), map.size());
+    for (long key : map.keys()) {
+      assertEquals(expected.get(key), map.get(key));
+    }
+    for (Long key : expected.keySet()) {
+      assertEquals(expected.get(key), map.get(key));
+    }
+  }
+
+  @Test
+  void testCopyConstructorMakesIndependentCopy() {
+    LongHashMap<String> map = new LongHashMap<>();
+    for (long key = 0; key < 100; key++) {
+      map.put(key * 31, "v" + key);
+    }
+    LongHashMap<String> copy = new LongHashMap<>(map);
+    map.remove(31);
+    map.put(-1, "new");
+    copy.put(62, "changed");
+    assertEquals(100, copy.size());
+    assertEquals("v1", copy.get(31));
+    assertEquals(null, copy.get(-1));
+    assertEquals("v2", map.get(62));
+    for (long key = 100; key < 300; key++) {
+      copy.put(key * 31, "w" + key);
+    }
+    assertEquals(300, copy.size());
+    assertEquals("v99", copy.get(99 * 31));
+  }
+
+  @Test
+  void testSharedCopiesIgnoreLaterWrites() {
+    LongHashMap<Integer> map = new LongHashMap<>();
+    HashMap<Long, Integer> expected = new HashMap<>();
+    List<LongHashMap<Integer>> copies = new ArrayList<>();
+    List<Map<Long, Integer>> copied = new ArrayList<>();
+    Random random = new Random(77);
+    // The map grows past several resizes while copies hold its tables.
+    for (int round = 0; round < 30; round++) {
+      for (int i = 0; i < 400; i++) {
+        long key = Location.pack(random.nextInt(100), random.nextInt(100));
+        if (random.nextInt(4) == 0) {
+          assertEquals(expected.remove(key), map.remove(key));
+        } else {
+          assertEquals(expected.put(key, round), map.put(key, round));
+        }
+      }
+      copies.add(map.share());
+      copied.add(new HashMap<>(expected));
+    }
+    LongHashMap<Integer> copy = new LongHashMap<>(map);
+    map.clear();
+    map.put(1, -1);
+    for (int round = 0; round < copies.size(); round++) {
+      LongHashMap<Integer> shared = copies.get(round);
+      assertEquals(copied.get(round).size(), shared.size());
+      assertEquals(shared.size(), shared.keys().length);
+      for (Map.Entry<Long, Integer> entry : copied.get(round).entrySet()) {
+        assertEquals(entry.getValue(), shared.get(entry.getKey()));
+      }
+    }
+    assertEquals(expected.size(), copy.size());
+    for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+      assertEquals(entry.getValue(), copy.get(entry.getKey()));
+    }
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  void testEnsureCapacityKeepsMappings() {
+    LongHashMap<Integer> map = new LongHashMap<>();
+    for (int i = 0; i < 100; i++) {
+      map.put(i, i);
+    }
+    map.ensureCapacity(10000);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(Integer.valueOf(i), map.get(i));
+    }
+    map.clear();
+    assertEquals(0, map.size());
+    assertEquals(null, map.get(7L));
+  }
+}
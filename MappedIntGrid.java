@@ -0,0 +1,570 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Grid of int values kept in a memory-mapped file instead of on the heap.
+ * The file holds a fixed header, an occupancy bitmap and the row-major
+ * cell values, all in little-endian order and naturally aligned. Opening
+ * a file only validates the header and maps it; pages are read in by the
+ * operating system as cells are touched, so a grid larger than the heap
+ * opens in constant time.
+ *
+ * <p>A single mapping is limited to 2 GB, so the file is mapped as a
+ * series of 1 GB segments. Every field is aligned to its own size, so no
+ * read or write ever straddles two segments.
+ *
+ * @author Jordan Martin
+ */
+public class MappedIntGrid extends AbstractGrid<Integer> implements Closeable {
+
+  static final int MAGIC = 0x44495247;
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 64;
+
+  private static final int MAGIC_OFFSET = 0;
+  private static final int VERSION_OFFSET = 4;
+  private static final int ROWS_OFFSET = 8;
+  private static final int COLS_OFFSET = 12;
+  private static final int ITEMS_OFFSET = 16;
+
+  private static final int SEGMENT_SHIFT = 30;
+  private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+  private final int rows;
+  private final int cols;
+  private final long cells;
+  private final long valuesOffset;
+  private MappedByteBuffer[] segments;
+  private long numItems;
+
+  /**
+   * Constructor for MappedIntGrid class; use create or open.
+   * @param segments - mappings covering the whole file
+   * @param rows - number of rows
+   * @param cols - number of columns
+   */
+  private MappedIntGrid(MappedByteBuffer[] segments, int rows, int cols) {
+    this.segments = segments;
+    this.rows = rows;
+    this.cols = cols;
+    cells = (long) rows * cols;
+    valuesOffset = HEADER_BYTES + bitmapBytes(cells);
+  }
+
+  /**
+   * Get the size of the occupancy bitmap for a number of cells.
+   * @param cells - number of cells
+   * @return - bitmap size in bytes, a multiple of 8
+   */
+  private static long bitmapBytes(long cells) {
+    return ((cells + 63) >>> 6) << 3;
+  }
+
+  /**
+   * Get the size of the file holding a grid.
+   * @param rows - number of rows
+   * @param cols - number of columns
+   * @return - file size in bytes
+   */
+  static long fileSize(int rows, int cols) {
+    long cells = (long) rows * cols;
+    return HEADER_BYTES + bitmapBytes(cells) + cells * Integer.BYTES;
+  }
+
+  /**
+   * Create a new, empty grid file, replacing any existing file.
+   * @param path - file to create
+   * @param rows - number of rows
+   * @param cols - number of columns
+   * @return - grid backed by the new file
+   * @throws IOException - if the file cannot be created or mapped
+   */
+  public static MappedIntGrid create(Path path, int rows, int cols) throws IOException {
+    if (rows <= 0 || cols <= 0) {
+      throw new IllegalArgumentException();
+    }
+    long size = fileSize(rows, cols);
+    MappedByteBuffer[] segments;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      // Writing the last byte extends the file; the rest reads as zeros,
+      // which is an empty bitmap.
+      channel.write(ByteBuffer.allocate(1), size - 1);
+      segments = map(channel, size);
+    }
+    MappedIntGrid grid = new MappedIntGrid(segments, rows, cols);
+    MappedByteBuffer header = segments[0];
+    header.putInt(MAGIC_OFFSET, MAGIC);
+    header.putInt(VERSION_OFFSET, VERSION);
+    header.putInt(ROWS_OFFSET, rows);
+    header.putInt(COLS_OFFSET, cols);
+    header.putLong(ITEMS_OFFSET, 0);
+    return grid;
+  }
+
+  /**
+   * Open an existing grid file. Only the header is read.
+   * @param path - file to open
+   * @return - grid backed by the file
+   * @throws IOException - if the file cannot be mapped or is not a grid file
+   */
+  public static MappedIntGrid open(Path path) throws IOException {
+    MappedByteBuffer[] segments;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      long size = channel.size();
+      if (size < HEADER_BYTES) {
+        throw new IOException("Not a grid file: " + path);
+      }
+      segments = map(channel, size);
+    }
+    MappedByteBuffer header = segments[0];
+    if (header.getInt(MAGIC_OFFSET) != MAGIC) {
+      throw new IOException("Not a grid file: " + path);
+    }
+    if (header.getInt(VERSION_OFFSET) != VERSION) {
+      throw new IOException("Unsupported grid file version: " + header.getInt(VERSION_OFFSET));
+    }
+    int rows = header.getInt(ROWS_OFFSET);
+    int cols = header.getInt(COLS_OFFSET);
+    if (rows <= 0 || cols <= 0 || fileSize(rows, cols) != sizeOf(segments)) {
+      throw new IOException("Corrupt grid file: " + path);
+    }
+    MappedIntGrid grid = new MappedIntGrid(segments, rows, cols);
+    grid.numItems = header.getLong(ITEMS_OFFSET);
+    return grid;
+  }
+
+  /**
+   * Map a file as consecutive segments of at most 1 GB.
+   * @param channel - open channel to the file
+   * @param size - number of bytes to map
+   * @return - mappings in file order
+   * @throws IOException - if mapping fails
+   */
+  private static MappedByteBuffer[] map(FileChannel channel, long size) throws IOException {
+    int count = (int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+    MappedByteBuffer[] segments = new MappedByteBuffer[count];
+    for (int i = 0; i < count; i++) {
+      long base = (long) i << SEGMENT_SHIFT;
+      segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, base,
+          Math.min(1L << SEGMENT_SHIFT, size - base));
+      segments[i].order(ByteOrder.LITTLE_ENDIAN);
+    }
+    return segments;
+  }
+
+  /**
+   * Get the total number of bytes covered by a set of mappings.
+   * @param segments - mappings in file order
+   * @return - total size in bytes
+   */
+  private static long sizeOf(MappedByteBuffer[] segments) {
+    long size = 0;
+    for (MappedByteBuffer segment : segments) {
+      size += segment.capacity();
+    }
+    return size;
+  }
+
+  /**
+   * Get the mappings, failing if the grid has been closed.
+   * @return - mappings in file order
+   * @throws IllegalStateException - if the grid has been closed
+   */
+  private MappedByteBuffer[] segments() {
+    MappedByteBuffer[] segs = segments;
+    if (segs == null) {
+      throw new IllegalStateException();
+    }
+    return segs;
+  }
+
+  /**
+   * Read the int at a file offset.
+   * @param offset - byte offset, a multiple of 4
+   * @return - stored int
+   */
+  private int readInt(long offset) {
+    return segments()[(int) (offset >>> SEGMENT_SHIFT)].getInt((int) (offset & SEGMENT_MASK));
+  }
+
+  /**
+   * Write an int at a file offset.
+   * @param offset - byte offset, a multiple of 4
+   * @param value - int to store
+   */
+  private void writeInt(long offset, int value) {
+    segments()[(int) (offset >>> SEGMENT_SHIFT)].putInt((int) (offset & SEGMENT_MASK), value);
+  }
+
+  /**
+   * Read a word of the occupancy bitmap.
+   * @param word - word index
+   * @return - 64 occupancy bits
+   */
+  private long readWord(long word) {
+    long offset = HEADER_BYTES + (word << 3);
+    return segments()[(int) (offset >>> SEGMENT_SHIFT)].getLong((int) (offset & SEGMENT_MASK));
+  }
+
+  /**
+   * Write a word of the occupancy bitmap.
+   * @param word - word index
+   * @param bits - 64 occupancy bits
+   */
+  private void writeWord(long word, long bits) {
+    long offset = HEADER_BYTES + (word << 3);
+    segments()[(int) (offset >>> SEGMENT_SHIFT)].putLong((int) (offset & SEGMENT_MASK), bits);
+  }
+
+  /**
+   * Store the item count in the header.
+   * @param count - new item count
+   */
+  private void setNumItems(long count) {
+    numItems = count;
+    segments()[0].putLong(ITEMS_OFFSET, count);
+  }
+
+  /**
+   * Convert a row and column into a flat index.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - row-major cell index
+   */
+  private long index(int row, int col) {
+    if (row < 0 || col < 0 || row >= rows || col >= cols) {
+      throw new IllegalArgumentException();
+    }
+    return (long) row * cols + col;
+  }
+
+  /**
+   * Check whether the cell at the flat index holds an item.
+   * @param index - row-major cell index
+   * @return - true if occupied
+   */
+  private boolean occupied(long index) {
+    return (readWord(index >>> 6) & (1L << index)) != 0;
+  }
+
+  /**
+   * Find the first occupied cell at or after the index.
+   * @param from - index to start searching from
+   * @return - next occupied index, or -1 if there is none
+   */
+  private long nextItemIndex(long from) {
+    if (from >= cells) {
+      return -1;
+    }
+    long word = from >>> 6;
+    long words = (cells + 63) >>> 6;
+    long bits = readWord(word) & (-1L << from);
+    while (true) {
+      if (bits != 0) {
+        long index = (word << 6) + Long.numberOfTrailingZeros(bits);
+        return index < cells ? index : -1;
+      }
+      if (++word == words) {
+        return -1;
+      }
+      bits = readWord(word);
+    }
+  }
+
+  /**
+   * Get the value at the cell without boxing. Empty cells read as 0; use
+   * isOccupied to tell an empty cell from a stored 0.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - stored value
+   */
+  public int getInt(int row, int col) {
+    return readInt(valuesOffset + (index(row, col) << 2));
+  }
+
+  /**
+   * Store a value at the cell without boxing.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @param value - value to be stored
+   */
+  public void putInt(int row, int col, int value) {
+    long index = index(row, col);
+    writeInt(valuesOffset + (index << 2), value);
+    long word = index >>> 6;
+    long bits = readWord(word);
+    long bit = 1L << index;
+    if ((bits & bit) == 0) {
+      writeWord(word, bits | bit);
+      setNumItems(numItems + 1);
+    }
+    markChanged(row, col);
+  }
+
+  /**
+   * Put the parameter item into the designated spot.
+   * @param loc -  location for object to be placed
+   * @param item - item to be placed
+   */
+  @Override
+  public void put(Location loc, Integer item) {
+    if (loc == null) {
+      throw new NullPointerException();
+    }
+    put(loc.getRow(), loc.getCol(), item);
+  }
+
+  /**
+   * Put the parameter item into the designated spot.
+   * @param row - row for object to be placed
+   * @param col - column for object to be placed
+   * @param item - item to be placed
+   */
+  @Override
+  public void put(int row, int col, Integer item) {
+    if (item == null) {
+      throw new NullPointerException();
+    }
+    putInt(row, col, item);
+  }
+
+  /**
+   * Get object at respective position.
+   * @param loc - location to be grabbed
+   * @return - boxed value, or null for an empty cell
+   */
+  @Override
+  public Integer get(Location loc) {
+    return get(loc.getRow(), loc.getCol());
+  }
+
+  /**
+   * Get object at respective position.
+   * @param row - row to be grabbed
+   * @param col - column to be grabbed
+   * @return - boxed value, or null for an empty cell
+   */
+  @Override
+  public Integer get(int row, int col) {
+    long index = index(row, col);
+    return occupied(index) ? readInt(valuesOffset + (index << 2)) : null;
+  }
+
+  /**
+   * Remove object at respective location.
+   * @param loc - location to remove
+   * @return - removed value, or null for an empty cell
+   */
+  @Override
+  public Integer remove(Location loc) {
+    if (loc == null) {
+      throw new IllegalArgumentException();
+    }
+    return remove(loc.getRow(), loc.getCol());
+  }
+
+  /**
+   * Remove object at respective location.
+   * @param row - row to remove
+   * @param col - column to remove
+   * @return - removed value, or null for an empty cell
+   */
+  @Override
+  public Integer remove(int row, int col) {
+    return removeAt(index(row, col), row, col);
+  }
+
+  /**
+   * Remove the item at a cell.
+   * @param index - row-major cell index
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - removed value, or null for an empty cell
+   */
+  private Integer removeAt(long index, int row, int col) {
+    long word = index >>> 6;
+    long bits = readWord(word);
+    long bit = 1L << index;
+    if ((bits & bit) == 0) {
+      return null;
+    }
+    long offset = valuesOffset + (index << 2);
+    int element = readInt(offset);
+    writeInt(offset, 0);
+    writeWord(word, bits & ~bit);
+    setNumItems(numItems - 1);
+    markChanged(row, col);
+    return element;
+  }
+
+  /**
+   * Check whether a cell holds an item.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - true if the cell is occupied
+   */
+  @Override
+  public boolean isOccupied(int row, int col) {
+    return occupied(index(row, col));
+  }
+
+  /**
+   * Get the number of rows.
+   * @return - number of rows
+   */
+  @Override
+  public int numRows() {
+    segments();
+    return rows;
+  }
+
+  /**
+   * Get the number of columns.
+   * @return - number of columns
+   */
+  @Override
+  public int numCols() {
+    segments();
+    return cols;
+  }
+
+  /**
+   * Get number of items in the grid, capped at Integer.MAX_VALUE; see
+   * itemCount for the exact count.
+   * @return - number of items
+   */
+  @Override
+  public Integer numItems() {
+    segments();
+    return (int) Math.min(numItems, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Get the exact number of items in the grid.
+   * @return - number of items
+   */
+  public long itemCount() {
+    segments();
+    return numItems;
+  }
+
+  /**
+   * Write every change made so far through to the file.
+   */
+  public void force() {
+    for (MappedByteBuffer segment : segments()) {
+      segment.force();
+    }
+  }
+
+  /**
+   * Write every change through to the file and release the mappings.
+   * Every method but close throws IllegalStateException afterwards;
+   * closing again does nothing.
+   */
+  @Override
+  public void close() {
+    if (segments != null) {
+      force();
+      segments = null;
+    }
+  }
+
+  /**
+   * Constructor for default iterator; visits occupied cells in row-major
+   * order by jumping between set bits of the occupancy bitmap.
+   * @return - a new Iterator
+   */
+  @Override
+  public Iterator<Integer> iterator() {
+    return new Iterator<Integer>() {
+
+      private long next = nextItemIndex(0);
+      private long last = -1;
+
+      @Override
+      public boolean hasNext() {
+        return next >= 0;
+      }
+
+      @Override
+      public Integer next() {
+        if (next < 0) {
+          throw new NoSuchElementException();
+        }
+        last = next;
+        next = nextItemIndex(next + 1);
+        return readInt(valuesOffset + (last << 2));
+      }
+
+      @Override
+      public void remove() {
+        if (last < 0) {
+          throw new IllegalStateException();
+        }
+        removeAt(last, (int) (last / cols), (int) (last % cols));
+        last = -1;
+      }
+    };
+  }
+
+  /**
+   * Iterator for all item locations, in row-major order.
+   * @return - Iterable object for all items
+   */
+  @Override
+  public Iterable<Location> itemLocations() {
+    return new Iterable<Location>() {
+
+      @Override
+      public Iterator<Location> iterator() {
+        return new Iterator<Location>() {
+
+          private long next = nextItemIndex(0);
+
+          @Override
+          public boolean hasNext() {
+            return next >= 0;
+          }
+
+          @Override
+          public Location next() {
+            if (next < 0) {
+              throw new NoSuchElementException();
+            }
+            Location loc = location((int) (next / cols), (int) (next % cols));
+            next = nextItemIndex(next + 1);
+            return loc;
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Iterator to iterate through all locations, in row-major order.
+   * @return - Iterable object
+   */
+  @Override
+  public Iterable<Location> allLocations() {
+    return new Iterable<Location>() {
+
+      @Override
+      public Iterator<Location> iterator() {
+        return cellStream().iterator();
+      }
+    };
+  }
+
+}
@@ -0,0 +1,147 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * JUnit tests for the basic functionality of the MappedIntGrid class.
+ * 
+ * @author Jordan Martin
+ *
+ */
+class MappedIntGridBasicsTest extends GridBasicsTest {
+
+  @TempDir
+  Path dir;
+
+  private final List<MappedIntGrid> opened = new ArrayList<>();
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T> Grid<T> makeGrid(int rows, int cols) {
+    try {
+      MappedIntGrid grid = MappedIntGrid.create(dir.resolve("grid" + opened.size() + ".bin"),
+          rows, cols);
+      opened.add(grid);
+      return (Grid<T>) grid;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @AfterEach
+  void closeGrids() {
+    for (MappedIntGrid grid : opened) {
+      grid.close();
+    }
+    opened.clear();
+  }
+
+  @Test
+  void testPutIntThenGetIntAndGet() throws IOException {
+    try (MappedIntGrid grid = MappedIntGrid.create(dir.resolve("a.grid"), 3, 5)) {
+      grid.putInt(1, 2, 42);
+      grid.putInt(0, 0, 0);
+      assertEquals(42, grid.getInt(1, 2));
+      assertEquals(Integer.valueOf(42), grid.get(l12));
+      assertEquals(Integer.valueOf(0), grid.get(l00));
+      assertEquals(2, grid.numItems());
+      assertEquals(Integer.valueOf(0), grid.remove(l00));
+      assertEquals(null, grid.get(l00));
+      assertEquals(1, grid.itemCount());
+    }
+  }
+
+  @Test
+  void testReopenSeesEarlierWrites() throws IOException {
+    Path file = dir.resolve("b.grid");
+    try (MappedIntGrid grid = MappedIntGrid.create(file, 100, 70)) {
+      grid.putInt(99, 69, -7);
+      grid.putInt(0, 63, 5);
+      grid.putInt(0, 64, 6);
+      grid.remove(0, 63);
+      grid.force();
+    }
+    assertEquals(MappedIntGrid.fileSize(100, 70), Files.size(file));
+    try (MappedIntGrid grid = MappedIntGrid.open(file)) {
+      assertEquals(100, grid.numRows());
+      assertEquals(70, grid.numCols());
+      assertEquals(2, grid.numItems());
+      assertEquals(-7, grid.getInt(99, 69));
+      assertEquals(Integer.valueOf(6), grid.get(0, 64));
+      assertFalse(grid.isOccupied(0, 63));
+    }
+  }
+
+  @Test
+  void testOpenRejectsOtherFiles() throws IOException {
+    Path file = dir.resolve("c.grid");
+    Files.write(file, new byte[100]);
+    assertThrows(IOException.class, () -> MappedIntGrid.open(file));
+
+    Path truncated = dir.resolve("d.grid");
+    MappedIntGrid.create(truncated, 10, 10).close();
+    try (FileChannel channel = FileChannel.open(truncated, StandardOpenOption.WRITE)) {
+      channel.truncate(Files.size(truncated) - 4);
+    }
+    assertThrows(IOException.class, () -> MappedIntGrid.open(truncated));
+
+    Path version = dir.resolve("e.grid");
+    MappedIntGrid.create(version, 10, 10).close();
+    try (FileChannel channel = FileChannel.open(version, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {9, 0, 0, 0}), 4);
+    }
+    assertThrows(IOException.class, () -> MappedIntGrid.open(version));
+  }
+
+  @Test
+  void testGridLargerThanOneSegment() throws IOException {
+    // 300M cells: the values span two 1 GB mappings.
+    Path file = dir.resolve("f.grid");
+    try (MappedIntGrid grid = MappedIntGrid.create(file, 20000, 15000)) {
+      grid.putInt(19999, 14999, 3);
+      grid.putInt(17000, 0, 2);
+      grid.putInt(0, 0, 1);
+      int sum = 0;
+      for (int item : grid) {
+        sum = sum * 10 + item;
+      }
+      assertEquals(123, sum);
+    }
+    try (MappedIntGrid grid = MappedIntGrid.open(file)) {
+      assertEquals(3, grid.getInt(19999, 14999));
+      assertEquals(3, grid.itemCount());
+    }
+  }
+
+  @Test
+  void testClosedGridCannotBeUsed() throws IOException {
+    MappedIntGrid grid = MappedIntGrid.create(dir.resolve("g.grid"), 3, 3);
+    grid.putInt(2, 1, 8);
+    grid.close();
+    grid.close();
+    assertThrows(IllegalStateException.class, () -> grid.getInt(0, 0));
+    assertThrows(IllegalStateException.class, () -> grid.get(0, 0));
+    assertThrows(IllegalStateException.class, () -> grid.putInt(0, 0, 1));
+    assertThrows(IllegalStateException.class, () -> grid.isOccupied(0, 0));
+    assertThrows(IllegalStateException.class, () -> grid.numRows());
+    assertThrows(IllegalStateException.class, () -> grid.numCols());
+    assertThrows(IllegalStateException.class, () -> grid.numItems());
+    assertThrows(IllegalStateException.class, () -> grid.itemCount());
+    assertThrows(IllegalStateException.class, () -> grid.force());
+    try (MappedIntGrid reopened = MappedIntGrid.open(dir.resolve("g.grid"))) {
+      assertEquals(8, reopened.getInt(2, 1));
+      assertEquals(1, reopened.itemCount());
+    }
+  }
+}
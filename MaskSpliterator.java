@@ -0,0 +1,88 @@
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Spliterator over the occupied cells of a row-major index range, as
+ * recorded by an OccupancyMask. Ranges split at row boundaries where
+ * possible, so parallel work is handed out in bands of whole rows, and the
+ * exact size of each half is counted from the mask.
+ *
+ * @author Jordan Martin
+ */
+final class MaskSpliterator<T> implements Spliterator<T> {
+
+  private final OccupancyMask mask;
+  private final IntFunction<T> element;
+  private final int cols;
+  private int origin;
+  private final int fence;
+  private int remaining;
+
+  /**
+   * Constructor for MaskSpliterator class.
+   * @param mask - occupancy of the cells
+   * @param cols - row length, used to split on row boundaries
+   * @param element - maps an occupied cell index to the element reported
+   */
+  MaskSpliterator(OccupancyMask mask, int cols, IntFunction<T> element) {
+    this(mask, cols, element, 0, mask.size(), mask.cardinality(0, mask.size()));
+  }
+
+  private MaskSpliterator(OccupancyMask mask, int cols, IntFunction<T> element,
+      int origin, int fence, int remaining) {
+    this.mask = mask;
+    this.cols = cols;
+    this.element = element;
+    this.origin = origin;
+    this.fence = fence;
+    this.remaining = remaining;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    if (remaining == 0) {
+      return false;
+    }
+    int index = mask.nextSetBit(origin);
+    origin = index + 1;
+    remaining--;
+    action.accept(element.apply(index));
+    return true;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super T> action) {
+    int index = origin;
+    for (; remaining > 0; remaining--) {
+      index = mask.nextSetBit(index);
+      action.accept(element.apply(index));
+      index++;
+    }
+    origin = index;
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    int mid = (int) CellSpliterator.splitPoint(origin, fence, cols);
+    if (mid <= origin || remaining < 2) {
+      return null;
+    }
+    int prefix = mask.cardinality(origin, mid);
+    Spliterator<T> low = new MaskSpliterator<T>(mask, cols, element, origin, mid, prefix);
+    origin = mid;
+    remaining -= prefix;
+    return low;
+  }
+
+  @Override
+  public long estimateSize() {
+    return remaining;
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | SIZED | SUBSIZED | NONNULL;
+  }
+
+}
@@ -0,0 +1,73 @@
+/**
+ * Distance measures between grid cells for proximity searches. EUCLIDEAN
+ * distances are reported squared, so every distance is an exact long.
+ *
+ * @author Jordan Martin
+ */
+public enum Metric {
+
+  /**
+   * Largest of the row and column differences; the eight neighbors are at
+   * distance 1.
+   */
+  CHEBYSHEV {
+    @Override
+    public long distance(long rowDelta, long colDelta) {
+      return Math.max(Math.abs(rowDelta), Math.abs(colDelta));
+    }
+
+    @Override
+    long ringBound(long ring) {
+      return ring;
+    }
+  },
+
+  /**
+   * Sum of the row and column differences; the four neighbors are at
+   * distance 1.
+   */
+  MANHATTAN {
+    @Override
+    public long distance(long rowDelta, long colDelta) {
+      return Math.abs(rowDelta) + Math.abs(colDelta);
+    }
+
+    @Override
+    long ringBound(long ring) {
+      return ring;
+    }
+  },
+
+  /**
+   * Squared straight-line distance.
+   */
+  EUCLIDEAN {
+    @Override
+    public long distance(long rowDelta, long colDelta) {
+      return rowDelta * rowDelta + colDelta * colDelta;
+    }
+
+    @Override
+    long ringBound(long ring) {
+      return ring * ring;
+    }
+  };
+
+  /**
+   * Get the distance between two cells from their offsets.
+   * @param rowDelta - difference between the rows
+   * @param colDelta - difference between the columns
+   * @return - distance (squared for EUCLIDEAN)
+   */
+  public abstract long distance(long rowDelta, long colDelta);
+
+  /**
+   * Get the smallest distance of any cell whose Chebyshev distance is the
+   * parameter ring. It is also the distance that a radius of that size
+   * allows.
+   * @param ring - Chebyshev distance
+   * @return - smallest distance in this metric
+   */
+  abstract long ringBound(long ring);
+
+}
@@ -0,0 +1,125 @@
+/**
+ * Reusable cursor over the neighbors of a cell. A single cursor can be
+ * pointed at any number of cells in turn, so a loop that walks the
+ * neighbors of every cell allocates nothing.
+ *
+ * <pre>
+ * NeighborCursor cursor = grid.neighborCursor();
+ * cursor.eight(row, col);
+ * while (cursor.next()) {
+ *   use(cursor.row(), cursor.col());
+ * }
+ * </pre>
+ *
+ * @author Jordan Martin
+ */
+public final class NeighborCursor {
+
+  private final int rows;
+  private final int cols;
+  private Neighborhood neighborhood = Neighborhood.MOORE;
+  private int centerRow;
+  private int centerCol;
+  private boolean interior;
+  private int offset;
+  private int row;
+  private int col;
+
+  /**
+   * Constructor for NeighborCursor class.
+   * @param rows - number of rows in the grid
+   * @param cols - number of columns in the grid
+   */
+  public NeighborCursor(int rows, int cols) {
+    this.rows = rows;
+    this.cols = cols;
+    offset = neighborhood.size();
+  }
+
+  /**
+   * Point the cursor at the eight neighbors of a cell.
+   * @param row - row of the center cell
+   * @param col - column of the center cell
+   * @return - this cursor
+   */
+  public NeighborCursor eight(int row, int col) {
+    return around(row, col, Neighborhood.MOORE);
+  }
+
+  /**
+   * Point the cursor at the four neighbors of a cell.
+   * @param row - row of the center cell
+   * @param col - column of the center cell
+   * @return - this cursor
+   */
+  public NeighborCursor four(int row, int col) {
+    return around(row, col, Neighborhood.VON_NEUMANN);
+  }
+
+  /**
+   * Point the cursor at the neighbors of a cell in any neighborhood.
+   * @param row - row of the center cell
+   * @param col - column of the center cell
+   * @param neighborhood - offsets to visit
+   * @return - this cursor
+   */
+  public NeighborCursor around(int row, int col, Neighborhood neighborhood) {
+    if (row < 0 || col < 0 || row >= rows || col >= cols) {
+      throw new IllegalArgumentException();
+    }
+    if (neighborhood == null) {
+      throw new NullPointerException();
+    }
+    this.neighborhood = neighborhood;
+    centerRow = row;
+    centerCol = col;
+    interior = neighborhood.fitsAround(row, col, rows, cols);
+    offset = 0;
+    return this;
+  }
+
+  /**
+   * Advance to the next neighbor on the grid.
+   * @return - true if the cursor moved to a neighbor, false when exhausted
+   */
+  public boolean next() {
+    int size = neighborhood.size();
+    if (interior) {
+      if (offset < size) {
+        row = centerRow + neighborhood.rowOffset(offset);
+        col = centerCol + neighborhood.colOffset(offset);
+        offset++;
+        return true;
+      }
+      return false;
+    }
+    while (offset < size) {
+      int r = neighborhood.edgeRow(centerRow, offset, rows);
+      int c = neighborhood.edgeCol(centerCol, offset, cols);
+      offset++;
+      if (r >= 0 && c >= 0) {
+        row = r;
+        col = c;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Get the row of the current neighbor.
+   * @return - row
+   */
+  public int row() {
+    return row;
+  }
+
+  /**
+   * Get the column of the current neighbor.
+   * @return - column
+   */
+  public int col() {
+    return col;
+  }
+
+}
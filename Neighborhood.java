@@ -0,0 +1,309 @@
+import java.util.Arrays;
+
+/**
+ * Neighborhood objects describe which cells around a center count as its
+ * neighbors. A neighborhood is a table of (row, column) offsets, kept in
+ * row-major order, that is built once and applied to any cell of any grid.
+ * Cells whose whole stencil fits on the grid take a fast path with no
+ * per-neighbor checks; cells near an edge either drop the offsets that
+ * fall off the grid or, for a toroidal neighborhood, wrap them around to
+ * the opposite edge.
+ *
+ * <p>On a torus narrower than the stencil, two offsets can wrap onto the
+ * same cell, and that cell is then visited once for each of them.
+ *
+ * @author Jordan Martin
+ *
+ */
+public final class Neighborhood {
+
+  /**
+   * The eight cells around the center.
+   */
+  public static final Neighborhood MOORE = moore(1);
+
+  /**
+   * The four cells sharing an edge with the center.
+   */
+  public static final Neighborhood VON_NEUMANN = vonNeumann(1);
+
+  private final int[] rowOffsets;
+  private final int[] colOffsets;
+  private final boolean toroidal;
+  private final int minRow;
+  private final int maxRow;
+  private final int minCol;
+  private final int maxCol;
+
+  /**
+   * Create a neighborhood from offset tables that are already sorted and
+   * free of duplicates.
+   *
+   * @param rowOffsets Row offsets
+   * @param colOffsets Column offsets, one per row offset
+   * @param toroidal True if offsets wrap around the grid edges
+   */
+  private Neighborhood(int[] rowOffsets, int[] colOffsets, boolean toroidal) {
+    this.rowOffsets = rowOffsets;
+    this.colOffsets = colOffsets;
+    this.toroidal = toroidal;
+    int loRow = 0;
+    int hiRow = 0;
+    int loCol = 0;
+    int hiCol = 0;
+    for (int i = 0; i < rowOffsets.length; i++) {
+      loRow = Math.min(loRow, rowOffsets[i]);
+      hiRow = Math.max(hiRow, rowOffsets[i]);
+      loCol = Math.min(loCol, colOffsets[i]);
+      hiCol = Math.max(hiCol, colOffsets[i]);
+    }
+    minRow = loRow;
+    maxRow = hiRow;
+    minCol = loCol;
+    maxCol = hiCol;
+  }
+
+  /**
+   * Every cell within Chebyshev distance radius of the center, not
+   * counting the center itself.
+   *
+   * @param radius Largest row or column distance
+   * @return The neighborhood
+   * @throws IllegalArgumentException if radius is not positive or the
+   *         stencil is too large for an array
+   */
+  public static Neighborhood moore(int radius) {
+    return square(radius, false);
+  }
+
+  /**
+   * Every cell within Manhattan distance radius of the center, not
+   * counting the center itself.
+   *
+   * @param radius Largest sum of the row and column distances
+   * @return The neighborhood
+   * @throws IllegalArgumentException if radius is not positive or the
+   *         stencil is too large for an array
+   */
+  public static Neighborhood vonNeumann(int radius) {
+    return square(radius, true);
+  }
+
+  /**
+   * The six neighbors of a hexagonal map stored in axial coordinates,
+   * where each row is shifted half a cell right of the row above, so the
+   * neighbors of (r, c) are (r - 1, c), (r - 1, c + 1), (r, c - 1),
+   * (r, c + 1), (r + 1, c - 1) and (r + 1, c).
+   *
+   * @return The neighborhood
+   */
+  public static Neighborhood hexagonal() {
+    return new Neighborhood(new int[] {-1, -1, 0, 0, 1, 1}, new int[] {0, 1, -1, 1, -1, 0},
+        false);
+  }
+
+  /**
+   * A neighborhood made of arbitrary offsets. The offsets may include
+   * (0, 0) to visit the center; they are put into row-major order.
+   *
+   * @param rowOffsets Row offsets
+   * @param colOffsets Column offsets, one per row offset
+   * @return The neighborhood
+   * @throws IllegalArgumentException if the tables differ in length or an
+   *         offset appears twice
+   */
+  public static Neighborhood of(int[] rowOffsets, int[] colOffsets) {
+    if (rowOffsets.length != colOffsets.length) {
+      throw new IllegalArgumentException();
+    }
+    long[] packed = new long[rowOffsets.length];
+    for (int i = 0; i < packed.length; i++) {
+      // Flipping the column's sign bit makes the low half sort as unsigned.
+      packed[i] = (long) rowOffsets[i] << 32 | (colOffsets[i] ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+    }
+    Arrays.sort(packed);
+    int[] rows = new int[packed.length];
+    int[] cols = new int[packed.length];
+    for (int i = 0; i < packed.length; i++) {
+      if (i > 0 && packed[i] == packed[i - 1]) {
+        throw new IllegalArgumentException();
+      }
+      rows[i] = (int) (packed[i] >> 32);
+      cols[i] = (int) packed[i] ^ Integer.MIN_VALUE;
+    }
+    return new Neighborhood(rows, cols, false);
+  }
+
+  /**
+   * Build a square (Moore) or diamond (von Neumann) stencil.
+   *
+   * @param radius Reach of the stencil
+   * @param diamond True to keep only cells within Manhattan distance radius
+   * @return The neighborhood
+   */
+  private static Neighborhood square(int radius, boolean diamond) {
+    if (radius <= 0 || (2L * radius + 1) * (2L * radius + 1) > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException();
+    }
+    int side = 2 * radius + 1;
+    int count = diamond ? 2 * radius * (radius + 1) : side * side - 1;
+    int[] rows = new int[count];
+    int[] cols = new int[count];
+    int n = 0;
+    for (int r = -radius; r <= radius; r++) {
+      int reach = diamond ? radius - Math.abs(r) : radius;
+      for (int c = -reach; c <= reach; c++) {
+        if (r != 0 || c != 0) {
+          rows[n] = r;
+          cols[n] = c;
+          n++;
+        }
+      }
+    }
+    return new Neighborhood(rows, cols, false);
+  }
+
+  /**
+   * Returns this neighborhood with offsets that wrap around the grid
+   * edges instead of being dropped there.
+   */
+  public Neighborhood toroidal() {
+    return toroidal ? this : new Neighborhood(rowOffsets, colOffsets, true);
+  }
+
+  /**
+   * Returns true if offsets wrap around the grid edges.
+   */
+  public boolean isToroidal() {
+    return toroidal;
+  }
+
+  /**
+   * Returns the number of offsets.
+   */
+  public int size() {
+    return rowOffsets.length;
+  }
+
+  /**
+   * Returns the row offset at an index, in row-major order.
+   *
+   * @param index Index of the offset
+   * @return Row offset
+   */
+  public int rowOffset(int index) {
+    return rowOffsets[index];
+  }
+
+  /**
+   * Returns the column offset at an index, in row-major order.
+   *
+   * @param index Index of the offset
+   * @return Column offset
+   */
+  public int colOffset(int index) {
+    return colOffsets[index];
+  }
+
+  /**
+   * Check whether every offset from a cell stays on the grid.
+   *
+   * @param row Row of the center
+   * @param col Column of the center
+   * @param rows Number of rows in the grid
+   * @param cols Number of columns in the grid
+   * @return True if no offset needs clipping or wrapping
+   */
+  boolean fitsAround(int row, int col, int rows, int cols) {
+    return row + minRow >= 0 && (long) row + maxRow < rows && col + minCol >= 0
+        && (long) col + maxCol < cols;
+  }
+
+  /**
+   * Returns the row reached by an offset from row, wrapped onto the grid,
+   * or -1 if it falls off a non-toroidal grid.
+   */
+  int edgeRow(int row, int index, int rows) {
+    return edgeCoordinate((long) row + rowOffsets[index], rows);
+  }
+
+  /**
+   * Returns the column reached by an offset from col, wrapped onto the
+   * grid, or -1 if it falls off a non-toroidal grid.
+   */
+  int edgeCol(int col, int index, int cols) {
+    return edgeCoordinate((long) col + colOffsets[index], cols);
+  }
+
+  /**
+   * Bring a coordinate that may lie off the grid back onto it.
+   *
+   * @param value Coordinate before wrapping
+   * @param limit Size of the grid along that axis
+   * @return The coordinate, wrapped if toroidal, or -1 if off the grid
+   */
+  private int edgeCoordinate(long value, int limit) {
+    if (value >= 0 && value < limit) {
+      return (int) value;
+    }
+    return toroidal ? (int) Math.floorMod(value, (long) limit) : -1;
+  }
+
+  /**
+   * Visit the neighbors of a cell in offset-table order.
+   *
+   * @param row Row of the center, already checked to be on the grid
+   * @param col Column of the center, already checked to be on the grid
+   * @param rows Number of rows in the grid
+   * @param cols Number of columns in the grid
+   * @param action Callback given each neighbor
+   */
+  void forEach(int row, int col, int rows, int cols, IntBinaryConsumer action) {
+    if (fitsAround(row, col, rows, cols)) {
+      for (int i = 0; i < rowOffsets.length; i++) {
+        action.accept(row + rowOffsets[i], col + colOffsets[i]);
+      }
+    } else {
+      for (int i = 0; i < rowOffsets.length; i++) {
+        int r = edgeRow(row, i, rows);
+        int c = edgeCol(col, i, cols);
+        if (r >= 0 && c >= 0) {
+          action.accept(r, c);
+        }
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "Neighborhood [size=" + rowOffsets.length + ", rows=" + minRow + ".." + maxRow
+        + ", cols=" + minCol + ".." + maxCol + (toroidal ? ", toroidal" : "") + "]";
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + Arrays.hashCode(rowOffsets);
+    result = prime * result + Arrays.hashCode(colOffsets);
+    result = prime * result + (toroidal ? 1 : 0);
+    return result;
+  }
+
+  /**
+   * Two neighborhoods are considered equal if they have the same offsets
+   * and the same edge handling.
+   *
+   * @return True if the provided neighborhood is equal to this one
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == null || getClass() != obj.getClass()) {
+      return false;
+    }
+    Neighborhood other = (Neighborhood) obj;
+    return toroidal == other.toroidal && Arrays.equals(rowOffsets, other.rowOffsets)
+        && Arrays.equals(colOffsets, other.colOffsets);
+  }
+
+}
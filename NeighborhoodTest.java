@@ -0,0 +1,85 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for the Neighborhood class.
+ *
+ * @author Jordan Martin
+ *
+ */
+class NeighborhoodTest {
+
+  /**
+   * Render a neighborhood's offsets as "row,col" pairs in table order.
+   */
+  private static String offsets(Neighborhood neighborhood) {
+    StringBuilder out = new StringBuilder();
+    for (int i = 0; i < neighborhood.size(); i++) {
+      if (i > 0) {
+        out.append(' ');
+      }
+      out.append(neighborhood.rowOffset(i)).append(',').append(neighborhood.colOffset(i));
+    }
+    return out.toString();
+  }
+
+  @Test
+  void testRadiusOneMatchesEightAndFourNeighbors() {
+    assertEquals("-1,-1 -1,0 -1,1 0,-1 0,1 1,-1 1,0 1,1", offsets(Neighborhood.MOORE));
+    assertEquals("-1,0 0,-1 0,1 1,0", offsets(Neighborhood.VON_NEUMANN));
+    assertEquals(Neighborhood.MOORE, Neighborhood.moore(1));
+    assertEquals(Neighborhood.VON_NEUMANN, Neighborhood.vonNeumann(1));
+  }
+
+  @Test
+  void testLargerRadiusSizes() {
+    assertEquals(24, Neighborhood.moore(2).size());
+    assertEquals(12, Neighborhood.vonNeumann(2).size());
+    assertEquals(48, Neighborhood.moore(3).size());
+    assertEquals(24, Neighborhood.vonNeumann(3).size());
+    Neighborhood diamond = Neighborhood.vonNeumann(2);
+    for (int i = 0; i < diamond.size(); i++) {
+      int distance = Math.abs(diamond.rowOffset(i)) + Math.abs(diamond.colOffset(i));
+      assertTrue(distance >= 1 && distance <= 2);
+    }
+  }
+
+  @Test
+  void testHexagonal() {
+    assertEquals("-1,0 -1,1 0,-1 0,1 1,-1 1,0", offsets(Neighborhood.hexagonal()));
+  }
+
+  @Test
+  void testCustomOffsetsAreSortedRowMajor() {
+    Neighborhood knight = Neighborhood.of(new int[] {2, -2, 1, -1, 0}, new int[] {-1, 1, 2, -2, 0});
+    assertEquals("-2,1 -1,-2 0,0 1,2 2,-1", offsets(knight));
+    Neighborhood far = Neighborhood.of(new int[] {Integer.MIN_VALUE, 5}, new int[] {-7, Integer.MAX_VALUE});
+    assertEquals(Integer.MIN_VALUE + ",-7 5," + Integer.MAX_VALUE, offsets(far));
+    assertEquals(0, Neighborhood.of(new int[0], new int[0]).size());
+  }
+
+  @Test
+  void testBadArgumentsThrowException() {
+    assertThrows(IllegalArgumentException.class, () -> Neighborhood.moore(0));
+    assertThrows(IllegalArgumentException.class, () -> Neighborhood.vonNeumann(-1));
+    assertThrows(IllegalArgumentException.class, () -> Neighborhood.moore(1 << 20));
+    assertThrows(IllegalArgumentException.class,
+        () -> Neighborhood.of(new int[] {1, 2}, new int[] {1}));
+    assertThrows(IllegalArgumentException.class,
+        () -> Neighborhood.of(new int[] {1, 0, 1}, new int[] {-1, 0, -1}));
+  }
+
+  @Test
+  void testToroidal() {
+    Neighborhood torus = Neighborhood.MOORE.toroidal();
+    assertFalse(Neighborhood.MOORE.isToroidal());
+    assertTrue(torus.isToroidal());
+    assertSame(torus, torus.toroidal());
+    assertEquals(offsets(Neighborhood.MOORE), offsets(torus));
+    assertNotEquals(Neighborhood.MOORE, torus);
+    assertEquals(Neighborhood.moore(1).toroidal(), torus);
+    assertEquals(Neighborhood.moore(1).toroidal().hashCode(), torus.hashCode());
+  }
+
+}
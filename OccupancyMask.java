@@ -0,0 +1,440 @@
+import java.util.Arrays;
+
+/**
+ * Fixed-size bitset with one bit per grid cell, used to record which
+ * cells of a dense grid currently hold an item.
+ *
+ * <p>share() hands out a read-only copy in O(1) by letting it keep the
+ * word array. This mask then stops writing that array and instead copies
+ * a page of 16 words (1024 bits) out of it the first time the page is
+ * written. Pages are stamped with the generation they were copied in, and
+ * each share starts a new generation, so a page copied before the latest
+ * share is copied again rather than changed under the copy holding it.
+ * Once every page has been copied in the current generation the pages are
+ * folded back into a new word array that this mask owns.
+ *
+ * @author Jordan Martin
+ */
+final class OccupancyMask {
+
+  private static final int PAGE_SHIFT = 4;
+  private static final int PAGE_WORDS = 1 << PAGE_SHIFT;
+  private static final int PAGE_MASK = PAGE_WORDS - 1;
+
+  private long[] words;
+  private final int size;
+
+  // Null while this mask owns words. Once shared, words is never written
+  // again and pages holds the words copied out of it since, by page.
+  private long[][] pages;
+  private long[] stamps;
+  private long generation;
+  private boolean pagesShared;
+  private int copiedPages;
+
+  /**
+   * Constructor for OccupancyMask class.
+   * @param size - number of bits (cells) to track
+   */
+  OccupancyMask(int size) {
+    this.size = size;
+    words = new long[(size + 63) >>> 6];
+  }
+
+  /**
+   * Constructor for a read-only OccupancyMask over another's words and
+   * pages, which the other no longer writes in place.
+   * @param other - mask to share with
+   */
+  private OccupancyMask(OccupancyMask other) {
+    size = other.size;
+    words = other.words;
+    pages = other.pages;
+  }
+
+  /**
+   * Get a copy of this mask in O(1). The copy shares every word with this
+   * mask and must never be written; this mask copies each page before
+   * its next write to it.
+   * @return - read-only mask with the same bits
+   */
+  OccupancyMask share() {
+    OccupancyMask copy = new OccupancyMask(this);
+    if (pages == null) {
+      int count = (words.length + PAGE_MASK) >>> PAGE_SHIFT;
+      pages = new long[count][];
+      stamps = new long[count];
+    } else {
+      pagesShared = true;
+    }
+    generation++;
+    copiedPages = 0;
+    return copy;
+  }
+
+  /**
+   * Read a word, from its copied page if it has one.
+   * @param word - word index
+   * @return - the word's bits
+   */
+  private long load(int word) {
+    long[][] copied = pages;
+    if (copied != null) {
+      long[] page = copied[word >>> PAGE_SHIFT];
+      if (page != null) {
+        return page[word & PAGE_MASK];
+      }
+    }
+    return words[word];
+  }
+
+  /**
+   * Overwrite a word, copying its page first if a copy may still read it.
+   * @param word - word index
+   * @param bits - new bits
+   */
+  private void store(int word, long bits) {
+    if (pages == null) {
+      words[word] = bits;
+    } else {
+      page(word >>> PAGE_SHIFT)[word & PAGE_MASK] = bits;
+      if (copiedPages == pages.length) {
+        ownWords();
+      }
+    }
+  }
+
+  /**
+   * Get a page this mask may write in place, copying it from the shared
+   * words or from an earlier generation's page if needed.
+   * @param page - page index
+   * @return - the page's words
+   */
+  private long[] page(int page) {
+    if (pagesShared) {
+      pages = pages.clone();
+      stamps = stamps.clone();
+      pagesShared = false;
+    }
+    long[] copied = pages[page];
+    if (copied == null || stamps[page] != generation) {
+      int start = page << PAGE_SHIFT;
+      copied = copied == null
+          ? Arrays.copyOfRange(words, start, start + PAGE_WORDS) : copied.clone();
+      pages[page] = copied;
+      stamps[page] = generation;
+      copiedPages++;
+    }
+    return copied;
+  }
+
+  /**
+   * Gather the words into a new array that this mask owns and writes in
+   * place again.
+   */
+  private void ownWords() {
+    long[] own = new long[words.length];
+    for (int word = 0; word < own.length; word++) {
+      own[word] = load(word);
+    }
+    words = own;
+    pages = null;
+    stamps = null;
+    pagesShared = false;
+  }
+
+  /**
+   * Start again from a private, all-clear word array, leaving any shared
+   * words and pages to the copies holding them.
+   */
+  private void reset() {
+    words = new long[words.length];
+    pages = null;
+    stamps = null;
+    pagesShared = false;
+  }
+
+  /**
+   * Get the number of bits tracked by this mask.
+   * @return - number of bits
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Check whether the bit at the index is set.
+   * @param index - bit index
+   * @return - true if set
+   */
+  boolean get(int index) {
+    return (load(index >>> 6) & (1L << index)) != 0;
+  }
+
+  /**
+   * Set the bit at the index.
+   * @param index - bit index
+   * @return - true if the bit was previously clear
+   */
+  boolean set(int index) {
+    int word = index >>> 6;
+    long bit = 1L << index;
+    long old = load(word);
+    if ((old & bit) != 0) {
+      return false;
+    }
+    store(word, old | bit);
+    return true;
+  }
+
+  /**
+   * Clear the bit at the index.
+   * @param index - bit index
+   * @return - true if the bit was previously set
+   */
+  boolean clear(int index) {
+    int word = index >>> 6;
+    long bit = 1L << index;
+    long old = load(word);
+    if ((old & bit) == 0) {
+      return false;
+    }
+    store(word, old & ~bit);
+    return true;
+  }
+
+  /**
+   * Set every bit in a range.
+   * @param from - first index, inclusive
+   * @param to - last index, exclusive
+   * @return - number of bits that were previously clear
+   */
+  int setRange(int from, int to) {
+    if (from >= to) {
+      return 0;
+    }
+    int first = from >>> 6;
+    int last = (to - 1) >>> 6;
+    int changed = 0;
+    for (int i = first; i <= last; i++) {
+      long mask = rangeMask(i, first, last, from, to);
+      long old = load(i);
+      changed += Long.bitCount(~old & mask);
+      store(i, old | mask);
+    }
+    return changed;
+  }
+
+  /**
+   * Clear every bit in a range.
+   * @param from - first index, inclusive
+   * @param to - last index, exclusive
+   * @return - number of bits that were previously set
+   */
+  int clearRange(int from, int to) {
+    if (from >= to) {
+      return 0;
+    }
+    int first = from >>> 6;
+    int last = (to - 1) >>> 6;
+    int changed = 0;
+    for (int i = first; i <= last; i++) {
+      long mask = rangeMask(i, first, last, from, to);
+      long old = load(i);
+      changed += Long.bitCount(old & mask);
+      store(i, old & ~mask);
+    }
+    return changed;
+  }
+
+  /**
+   * Read up to 64 consecutive bits.
+   * @param from - index of the first bit
+   * @param count - number of bits, from 1 to 64
+   * @return - the bits, with bit from in the lowest position
+   */
+  long getBits(int from, int count) {
+    int word = from >>> 6;
+    int shift = from & 63;
+    long bits = load(word) >>> shift;
+    if (shift + count > 64) {
+      bits |= load(word + 1) << -shift;
+    }
+    return count == 64 ? bits : bits & ((1L << count) - 1);
+  }
+
+  /**
+   * Overwrite up to 64 consecutive bits.
+   * @param from - index of the first bit
+   * @param count - number of bits, from 1 to 64
+   * @param bits - new bits, with bit from in the lowest position
+   * @return - change in the number of set bits
+   */
+  int setBits(int from, int count, long bits) {
+    int delta = Long.bitCount(bits) - Long.bitCount(getBits(from, count));
+    int word = from >>> 6;
+    int shift = from & 63;
+    long mask = count == 64 ? -1L : (1L << count) - 1;
+    store(word, (load(word) & ~(mask << shift)) | (bits << shift));
+    if (shift + count > 64) {
+      store(word + 1, (load(word + 1) & ~(mask >>> -shift)) | (bits >>> -shift));
+    }
+    return delta;
+  }
+
+  /**
+   * Get the bits of one word that fall inside a range.
+   * @param word - word index
+   * @param first - word holding the first index
+   * @param last - word holding the last index
+   * @param from - first index, inclusive
+   * @param to - last index, exclusive
+   * @return - mask of the word's bits inside the range
+   */
+  private static long rangeMask(int word, int first, int last, int from, int to) {
+    long mask = -1L;
+    if (word == first) {
+      mask &= -1L << from;
+    }
+    if (word == last) {
+      mask &= -1L >>> -to;
+    }
+    return mask;
+  }
+
+  /**
+   * Find the first set bit at or after the index.
+   * @param from - index to start searching from
+   * @return - index of the next set bit, or -1 if there is none
+   */
+  int nextSetBit(int from) {
+    if (from >= size) {
+      return -1;
+    }
+    int word = from >>> 6;
+    long bits = load(word) & (-1L << from);
+    while (true) {
+      if (bits != 0) {
+        int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+        return index < size ? index : -1;
+      }
+      if (++word == words.length) {
+        return -1;
+      }
+      bits = load(word);
+    }
+  }
+
+  /**
+   * Find the first set bit in a range, without looking past its end.
+   * @param from - first index, inclusive
+   * @param to - last index, exclusive
+   * @return - index of the set bit, or -1 if the range has none
+   */
+  int nextSetBit(int from, int to) {
+    if (from >= to) {
+      return -1;
+    }
+    int word = from >>> 6;
+    int last = (to - 1) >>> 6;
+    long bits = load(word) & (-1L << from);
+    while (true) {
+      if (word == last) {
+        bits &= -1L >>> -to;
+      }
+      if (bits != 0) {
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+      }
+      if (word++ == last) {
+        return -1;
+      }
+      bits = load(word);
+    }
+  }
+
+  /**
+   * Set exactly the bits whose entries in the parameter array are not
+   * null, one word at a time.
+   * @param cells - one entry per bit
+   * @return - number of bits set
+   */
+  int assign(Object[] cells) {
+    if (pages != null) {
+      reset();
+    }
+    int count = 0;
+    for (int word = 0; word < words.length; word++) {
+      int base = word << 6;
+      int end = Math.min(size, base + 64);
+      long bits = 0;
+      for (int i = end - 1; i >= base; i--) {
+        // Shift rather than branch; which cells are empty is rarely predictable.
+        bits = bits << 1 | (cells[i] == null ? 0 : 1);
+      }
+      words[word] = bits;
+      count += Long.bitCount(bits);
+    }
+    return count;
+  }
+
+  /**
+   * Set exactly the bits whose entries in the parameter array are not
+   * zero, one word at a time.
+   * @param cells - one entry per bit
+   * @return - number of bits set
+   */
+  int assign(int[] cells) {
+    if (pages != null) {
+      reset();
+    }
+    int count = 0;
+    for (int word = 0; word < words.length; word++) {
+      int base = word << 6;
+      int end = Math.min(size, base + 64);
+      long bits = 0;
+      for (int i = end - 1; i >= base; i--) {
+        bits = bits << 1 | (cells[i] == 0 ? 0 : 1);
+      }
+      words[word] = bits;
+      count += Long.bitCount(bits);
+    }
+    return count;
+  }
+
+  /**
+   * Count the set bits.
+   * @return - number of set bits
+   */
+  int cardinality() {
+    int count = 0;
+    for (int i = 0; i < words.length; i++) {
+      count += Long.bitCount(load(i));
+    }
+    return count;
+  }
+
+  /**
+   * Count the set bits in a range.
+   * @param from - first index, inclusive
+   * @param to - last index, exclusive
+   * @return - number of set bits in the range
+   */
+  int cardinality(int from, int to) {
+    if (from >= to) {
+      return 0;
+    }
+    int first = from >>> 6;
+    int last = (to - 1) >>> 6;
+    long firstMask = -1L << from;
+    long lastMask = -1L >>> -to;
+    if (first == last) {
+      return Long.bitCount(load(first) & firstMask & lastMask);
+    }
+    int count = Long.bitCount(load(first) & firstMask);
+    for (int i = first + 1; i < last; i++) {
+      count += Long.bitCount(load(i));
+    }
+    return count + Long.bitCount(load(last) & lastMask);
+  }
+
+}
@@ -0,0 +1,628 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Finds shortest paths between cells of any grid with fewer than 2^31
+ * cells. Moving into a cell costs whatever the CellCost function says,
+ * times the square root of two for a diagonal step; an infinite or NaN
+ * cost makes the cell impassable.
+ *
+ * <p>All per-cell state lives in int-indexed arrays inside a
+ * SearchContext: distances, parents, an indexed binary heap with
+ * decrease-key, and a bitset of closed cells. Each entry carries the
+ * number of the search that wrote it, so starting a search clears nothing
+ * but the heap and the range of closed words the previous search touched.
+ * Reusing one context per thread, repeated queries allocate nothing.
+ *
+ * <pre>
+ * PathFinder&lt;Tile&gt; finder = new PathFinder&lt;&gt;(grid,
+ *     PathFinder.passableIf(tile -&gt; tile != Tile.WALL), DiagonalRule.NO_CORNER_CUTTING);
+ * PathFinder.SearchContext context = finder.newContext();
+ * if (finder.search(context, PathFinder.Algorithm.A_STAR, fromRow, fromCol, toRow, toCol)) {
+ *   for (int i = 0; i &lt; context.length(); i++) {
+ *     move(context.row(i), context.col(i));
+ *   }
+ * }
+ * </pre>
+ *
+ * @author Jordan Martin
+ */
+public final class PathFinder<E> {
+
+  /**
+   * Search strategy.
+   */
+  public enum Algorithm {
+    /** Fewest steps, ignoring costs except to tell passable from not. */
+    BFS,
+    /** Cheapest path, exploring outward by distance. */
+    DIJKSTRA,
+    /** Cheapest path, guided toward the goal by a distance estimate. */
+    A_STAR
+  }
+
+  /**
+   * Cost of moving into a cell.
+   */
+  @FunctionalInterface
+  public interface CellCost<E> {
+
+    /**
+     * Get the cost of stepping into a cell orthogonally.
+     * @param row - row of the cell
+     * @param col - column of the cell
+     * @param item - item in the cell, or null if empty
+     * @return - nonnegative cost, or infinity if the cell cannot be entered
+     */
+    double cost(int row, int col, E item);
+  }
+
+  private static final double SQRT2 = Math.sqrt(2);
+
+  // Orthogonal moves: up, left, right, down.
+  private static final int[] ORTHO_ROWS = {-1, 0, 0, 1};
+  private static final int[] ORTHO_COLS = {0, -1, 1, 0};
+
+  // Diagonal moves and the two orthogonal moves each one cuts between.
+  private static final int[] DIAG_ROWS = {-1, -1, 1, 1};
+  private static final int[] DIAG_COLS = {-1, 1, -1, 1};
+  private static final int[] DIAG_FIRST = {0, 0, 3, 3};
+  private static final int[] DIAG_SECOND = {1, 2, 1, 2};
+
+  private final Grid<E> grid;
+  private final CellCost<? super E> cost;
+  private final DiagonalRule diagonals;
+  private final double minCost;
+  private final int rows;
+  private final int cols;
+  private final ThreadLocal<SearchContext> contexts;
+
+  /**
+   * Build a cost function that charges 1 for cells whose item passes the
+   * test and blocks every other cell. Empty cells are tested as null.
+   * @param passable - test for cells that can be entered
+   * @return - the cost function
+   */
+  public static <E> CellCost<E> passableIf(Predicate<? super E> passable) {
+    if (passable == null) {
+      throw new NullPointerException();
+    }
+    return (row, col, item) -> passable.test(item) ? 1 : Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Constructor for PathFinder class with a minimum cell cost of 1.
+   * @param grid - grid to search
+   * @param cost - cost of entering each cell
+   * @param diagonals - when diagonal steps are allowed
+   */
+  public PathFinder(Grid<E> grid, CellCost<? super E> cost, DiagonalRule diagonals) {
+    this(grid, cost, diagonals, 1);
+  }
+
+  /**
+   * Constructor for PathFinder class.
+   * @param grid - grid to search
+   * @param cost - cost of entering each cell
+   * @param diagonals - when diagonal steps are allowed
+   * @param minCost - smallest cost any cell can have; A* relies on it to
+   *     stay exact, and 0 turns A* into Dijkstra
+   */
+  public PathFinder(Grid<E> grid, CellCost<? super E> cost, DiagonalRule diagonals,
+      double minCost) {
+    if (grid == null || cost == null || diagonals == null) {
+      throw new NullPointerException();
+    }
+    if (!(minCost >= 0) || minCost == Double.POSITIVE_INFINITY
+        || (long) grid.numRows() * grid.numCols() > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException();
+    }
+    this.grid = grid;
+    this.cost = cost;
+    this.diagonals = diagonals;
+    this.minCost = minCost;
+    rows = grid.numRows();
+    cols = grid.numCols();
+    contexts = ThreadLocal.withInitial(this::newContext);
+  }
+
+  /**
+   * Create a context for repeated searches on this finder's grid. A
+   * context must not be shared between threads.
+   * @return - a new SearchContext
+   */
+  public SearchContext newContext() {
+    return new SearchContext(rows, cols);
+  }
+
+  /**
+   * Find the cheapest path with A*, using this thread's context.
+   * @param from - start cell
+   * @param to - goal cell
+   * @return - cells from start to goal inclusive, or an empty list if the
+   *     goal cannot be reached
+   */
+  public List<Location> findPath(Location from, Location to) {
+    return findPath(Algorithm.A_STAR, from, to);
+  }
+
+  /**
+   * Find a path with the given algorithm, using this thread's context.
+   * @param algorithm - search strategy
+   * @param from - start cell
+   * @param to - goal cell
+   * @return - cells from start to goal inclusive, or an empty list if the
+   *     goal cannot be reached
+   */
+  public List<Location> findPath(Algorithm algorithm, Location from, Location to) {
+    SearchContext context = contexts.get();
+    if (context.inUse) {
+      // A cost function is searching from inside a search.
+      context = newContext();
+    }
+    context.inUse = true;
+    try {
+      search(context, algorithm, from.getRow(), from.getCol(), to.getRow(), to.getCol());
+      return context.path();
+    } finally {
+      context.inUse = false;
+    }
+  }
+
+  /**
+   * Search for a path, leaving the result in the context.
+   * @param context - context created by this finder
+   * @param algorithm - search strategy
+   * @param fromRow - row of the start cell
+   * @param fromCol - column of the start cell
+   * @param toRow - row of the goal cell
+   * @param toCol - column of the goal cell
+   * @return - true if the goal was reached
+   */
+  public boolean search(SearchContext context, Algorithm algorithm, int fromRow, int fromCol,
+      int toRow, int toCol) {
+    if (context == null || algorithm == null) {
+      throw new NullPointerException();
+    }
+    if (context.cells != rows * cols || context.cols != cols) {
+      throw new IllegalArgumentException();
+    }
+    checkCell(fromRow, fromCol);
+    checkCell(toRow, toCol);
+    context.begin();
+    int start = fromRow * cols + fromCol;
+    int goal = toRow * cols + toCol;
+    if (start != goal && !(enterCost(toRow, toCol) < Double.POSITIVE_INFINITY)) {
+      return false;
+    }
+    if (algorithm == Algorithm.BFS) {
+      breadthFirst(context, start, goal);
+    } else {
+      bestFirst(context, start, goal, algorithm == Algorithm.A_STAR);
+    }
+    if (context.found) {
+      context.tracePath(goal);
+    }
+    return context.found;
+  }
+
+  /**
+   * Throw if the cell is not on the grid.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   */
+  private void checkCell(int row, int col) {
+    if (row < 0 || col < 0 || row >= rows || col >= cols) {
+      throw new IllegalArgumentException();
+    }
+  }
+
+  /**
+   * Get the cost of entering a cell, with NaN treated as impassable.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - cost, or infinity if the cell cannot be entered
+   */
+  private double enterCost(int row, int col) {
+    double c = cost.cost(row, col, grid.get(row, col));
+    return c >= 0 ? c : Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Estimate the cost from a cell to the goal without overestimating.
+   * @param cell - flat index of the cell
+   * @param goal - flat index of the goal
+   * @return - lower bound on the remaining cost
+   */
+  private double estimate(int cell, int goal) {
+    int dr = Math.abs(cell / cols - goal / cols);
+    int dc = Math.abs(cell % cols - goal % cols);
+    if (diagonals == DiagonalRule.NEVER) {
+      return minCost * (dr + dc);
+    }
+    int diagonal = Math.min(dr, dc);
+    return minCost * (Math.max(dr, dc) - diagonal + SQRT2 * diagonal);
+  }
+
+  /**
+   * Dijkstra's algorithm, or A* when guided.
+   * @param context - search state
+   * @param start - flat index of the start cell
+   * @param goal - flat index of the goal cell
+   * @param guided - true to order the heap by distance plus estimate
+   */
+  private void bestFirst(SearchContext context, int start, int goal, boolean guided) {
+    context.open(start, -1, 0, guided ? estimate(start, goal) : 0);
+    while (context.heapSize > 0) {
+      int cell = context.pop();
+      if (cell == goal) {
+        context.found = true;
+        context.cost = context.distance[cell];
+        return;
+      }
+      context.close(cell);
+      context.expanded++;
+      int count = neighbors(context, cell);
+      double base = context.distance[cell];
+      for (int i = 0; i < count; i++) {
+        int next = context.neighborCell[i];
+        if (context.isClosed(next)) {
+          continue;
+        }
+        double distance = base + context.neighborCost[i];
+        if (context.stamp[next] != context.search || distance < context.distance[next]) {
+          context.open(next, cell, distance, distance + (guided ? estimate(next, goal) : 0));
+        }
+      }
+    }
+  }
+
+  /**
+   * Breadth-first search for the path with the fewest steps.
+   * @param context - search state
+   * @param start - flat index of the start cell
+   * @param goal - flat index of the goal cell
+   */
+  private void breadthFirst(SearchContext context, int start, int goal) {
+    int[] queue = context.heap;
+    int head = 0;
+    int tail = 0;
+    context.visit(start, -1, 0);
+    queue[tail++] = start;
+    while (head < tail) {
+      int cell = queue[head++];
+      if (cell == goal) {
+        context.found = true;
+        context.cost = context.distance[cell];
+        return;
+      }
+      context.expanded++;
+      int count = neighbors(context, cell);
+      double steps = context.distance[cell] + 1;
+      for (int i = 0; i < count; i++) {
+        int next = context.neighborCell[i];
+        if (context.stamp[next] != context.search) {
+          context.visit(next, cell, steps);
+          queue[tail++] = next;
+        }
+      }
+    }
+  }
+
+  /**
+   * List the passable neighbors of a cell and the cost of stepping into
+   * each, in the context's neighbor arrays.
+   * @param context - search state
+   * @param cell - flat index of the cell
+   * @return - number of neighbors found
+   */
+  private int neighbors(SearchContext context, int cell) {
+    int row = cell / cols;
+    int col = cell - row * cols;
+    double[] ortho = context.orthoCost;
+    int count = 0;
+    for (int i = 0; i < 4; i++) {
+      int r = row + ORTHO_ROWS[i];
+      int c = col + ORTHO_COLS[i];
+      ortho[i] = r < 0 || c < 0 || r >= rows || c >= cols ? Double.POSITIVE_INFINITY
+          : enterCost(r, c);
+      if (ortho[i] < Double.POSITIVE_INFINITY) {
+        context.neighborCell[count] = r * cols + c;
+        context.neighborCost[count] = ortho[i];
+        count++;
+      }
+    }
+    if (diagonals == DiagonalRule.NEVER) {
+      return count;
+    }
+    for (int i = 0; i < 4; i++) {
+      int r = row + DIAG_ROWS[i];
+      int c = col + DIAG_COLS[i];
+      if (r < 0 || c < 0 || r >= rows || c >= cols) {
+        continue;
+      }
+      boolean first = ortho[DIAG_FIRST[i]] < Double.POSITIVE_INFINITY;
+      boolean second = ortho[DIAG_SECOND[i]] < Double.POSITIVE_INFINITY;
+      if (!diagonals.allows(first, second)) {
+        continue;
+      }
+      double enter = enterCost(r, c);
+      if (enter < Double.POSITIVE_INFINITY) {
+        context.neighborCell[count] = r * cols + c;
+        context.neighborCost[count] = enter * SQRT2;
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Reusable state for searches on one grid size: per-cell distances,
+   * parents and heap positions, the heap, the closed bitset and the last
+   * path found. Entries are valid only when their stamp matches the
+   * current search number.
+   */
+  public static final class SearchContext {
+
+    private final int cells;
+    private final int cols;
+    private final int[] stamp;
+    private final double[] distance;
+    private final double[] priority;
+    private final int[] parent;
+    private final int[] heapIndex;
+    private final int[] heap;
+    private final long[] closed;
+    private final int[] neighborCell = new int[8];
+    private final double[] neighborCost = new double[8];
+    private final double[] orthoCost = new double[4];
+    private int[] path = new int[64];
+    private int pathLength;
+    private int heapSize;
+    private int closedFrom;
+    private int closedTo;
+    private int search;
+    private boolean found;
+    private double cost;
+    private int expanded;
+    private boolean inUse;
+
+    /**
+     * Constructor for SearchContext class.
+     * @param rows - number of rows in the grid
+     * @param cols - number of columns in the grid
+     */
+    private SearchContext(int rows, int cols) {
+      cells = rows * cols;
+      this.cols = cols;
+      stamp = new int[cells];
+      distance = new double[cells];
+      priority = new double[cells];
+      parent = new int[cells];
+      heapIndex = new int[cells];
+      Arrays.fill(heapIndex, -1);
+      heap = new int[cells];
+      closed = new long[(cells + 63) >>> 6];
+      closedFrom = closed.length;
+    }
+
+    /**
+     * Forget the previous search.
+     */
+    private void begin() {
+      for (int i = 0; i < heapSize; i++) {
+        heapIndex[heap[i]] = -1;
+      }
+      heapSize = 0;
+      if (closedFrom < closedTo) {
+        Arrays.fill(closed, closedFrom, closedTo, 0);
+      }
+      closedFrom = closed.length;
+      closedTo = 0;
+      if (++search == 0) {
+        // The stamps wrapped around; start them over.
+        Arrays.fill(stamp, 0);
+        search = 1;
+      }
+      found = false;
+      cost = Double.POSITIVE_INFINITY;
+      expanded = 0;
+      pathLength = 0;
+    }
+
+    /**
+     * Record a cell reached by breadth-first search.
+     */
+    private void visit(int cell, int from, double steps) {
+      stamp[cell] = search;
+      distance[cell] = steps;
+      parent[cell] = from;
+    }
+
+    /**
+     * Record a better route to a cell and put it on the heap, or move it
+     * up if it is already there.
+     */
+    private void open(int cell, int from, double dist, double key) {
+      visit(cell, from, dist);
+      priority[cell] = key;
+      int i = heapIndex[cell];
+      if (i < 0) {
+        i = heapSize++;
+      }
+      siftUp(i, cell);
+    }
+
+    /**
+     * Take the cell with the smallest key off the heap.
+     */
+    private int pop() {
+      int top = heap[0];
+      heapIndex[top] = -1;
+      int last = heap[--heapSize];
+      if (heapSize > 0) {
+        siftDown(0, last);
+      }
+      return top;
+    }
+
+    /**
+     * Check whether heap entry a should come out before cell b.
+     */
+    private boolean before(int a, int b) {
+      return priority[a] < priority[b] || priority[a] == priority[b] && distance[a] > distance[b];
+    }
+
+    /**
+     * Move a cell up from heap slot i to where it belongs.
+     */
+    private void siftUp(int i, int cell) {
+      while (i > 0) {
+        int parentIndex = (i - 1) >>> 1;
+        int above = heap[parentIndex];
+        if (!before(cell, above)) {
+          break;
+        }
+        heap[i] = above;
+        heapIndex[above] = i;
+        i = parentIndex;
+      }
+      heap[i] = cell;
+      heapIndex[cell] = i;
+    }
+
+    /**
+     * Move a cell down from heap slot i to where it belongs.
+     */
+    private void siftDown(int i, int cell) {
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= heapSize) {
+          break;
+        }
+        if (child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+          child++;
+        }
+        if (!before(heap[child], cell)) {
+          break;
+        }
+        heap[i] = heap[child];
+        heapIndex[heap[i]] = i;
+        i = child;
+      }
+      heap[i] = cell;
+      heapIndex[cell] = i;
+    }
+
+    /**
+     * Mark a cell as settled, widening the range of words to clear.
+     */
+    private void close(int cell) {
+      int word = cell >>> 6;
+      closed[word] |= 1L << cell;
+      closedFrom = Math.min(closedFrom, word);
+      closedTo = Math.max(closedTo, word + 1);
+    }
+
+    /**
+     * Check whether a cell has been settled.
+     */
+    private boolean isClosed(int cell) {
+      return (closed[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Copy the path ending at the goal into the path buffer, start first.
+     */
+    private void tracePath(int goal) {
+      int length = 0;
+      for (int cell = goal; cell >= 0; cell = parent[cell]) {
+        if (length == path.length) {
+          path = Arrays.copyOf(path, length * 2);
+        }
+        path[length++] = cell;
+      }
+      for (int i = 0, j = length - 1; i < j; i++, j--) {
+        int swap = path[i];
+        path[i] = path[j];
+        path[j] = swap;
+      }
+      pathLength = length;
+    }
+
+    /**
+     * Check whether the last search reached its goal.
+     * @return - true if a path was found
+     */
+    public boolean found() {
+      return found;
+    }
+
+    /**
+     * Get the cost of the last path found; for BFS, its number of steps.
+     * @return - path cost, or infinity if no path was found
+     */
+    public double cost() {
+      return cost;
+    }
+
+    /**
+     * Get the number of cells the last search expanded.
+     * @return - cells taken off the open set
+     */
+    public int expanded() {
+      return expanded;
+    }
+
+    /**
+     * Get the number of cells on the last path, start and goal included.
+     * @return - path length, or 0 if no path was found
+     */
+    public int length() {
+      return pathLength;
+    }
+
+    /**
+     * Get the row of a cell on the last path.
+     * @param index - position on the path, 0 for the start
+     * @return - row
+     */
+    public int row(int index) {
+      return flatIndex(index) / cols;
+    }
+
+    /**
+     * Get the column of a cell on the last path.
+     * @param index - position on the path, 0 for the start
+     * @return - column
+     */
+    public int col(int index) {
+      return flatIndex(index) % cols;
+    }
+
+    /**
+     * Get the flat index of a cell on the last path.
+     */
+    private int flatIndex(int index) {
+      if (index < 0 || index >= pathLength) {
+        throw new IllegalArgumentException();
+      }
+      return path[index];
+    }
+
+    /**
+     * Get the last path as locations.
+     * @return - new list from start to goal, empty if no path was found
+     */
+    public List<Location> path() {
+      List<Location> locations = new ArrayList<Location>(pathLength);
+      for (int i = 0; i < pathLength; i++) {
+        locations.add(new Location(row(i), col(i)));
+      }
+      return locations;
+    }
+  }
+
+}
@@ -0,0 +1,267 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for the PathFinder class.
+ *
+ * @author Jordan Martin
+ *
+ */
+class PathFinderTest {
+
+  private static final PathFinder.CellCost<Integer> WEIGHT = (row, col, item) ->
+      item == null ? Double.POSITIVE_INFINITY : item;
+
+  /**
+   * Build a grid from rows of text: '#' is a wall, any other character is
+   * open floor holding 1.
+   */
+  private static ArrayGrid<Integer> maze(String... lines) {
+    ArrayGrid<Integer> grid = new ArrayGrid<>(lines.length, lines[0].length());
+    for (int row = 0; row < lines.length; row++) {
+      for (int col = 0; col < lines[row].length(); col++) {
+        if (lines[row].charAt(col) != '#') {
+          grid.put(row, col, 1);
+        }
+      }
+    }
+    return grid;
+  }
+
+  /**
+   * Check that a path starts and ends at the right cells and only steps
+   * between touching, passable cells.
+   */
+  private static void checkPath(Grid<Integer> grid, List<Location> path, Location from,
+      Location to, boolean diagonal) {
+    assertEquals(from, path.get(0));
+    assertEquals(to, path.get(path.size() - 1));
+    for (int i = 1; i < path.size(); i++) {
+      int dr = Math.abs(path.get(i).getRow() - path.get(i - 1).getRow());
+      int dc = Math.abs(path.get(i).getCol() - path.get(i - 1).getCol());
+      assertTrue(Math.max(dr, dc) == 1 && (diagonal || dr + dc == 1));
+      assertNotNull(grid.get(path.get(i)));
+    }
+  }
+
+  /**
+   * Cheapest cost from one cell to every other, by textbook Dijkstra with
+   * a java.util.PriorityQueue.
+   */
+  private static double referenceCost(Grid<Integer> grid, int from, int to, DiagonalRule rule) {
+    int rows = grid.numRows();
+    int cols = grid.numCols();
+    double[] dist = new double[rows * cols];
+    Arrays.fill(dist, Double.POSITIVE_INFINITY);
+    dist[from] = 0;
+    PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+    queue.add(new double[] {0, from});
+    while (!queue.isEmpty()) {
+      double[] top = queue.poll();
+      int cell = (int) top[1];
+      if (top[0] > dist[cell]) {
+        continue;
+      }
+      int row = cell / cols;
+      int col = cell % cols;
+      for (int dr = -1; dr <= 1; dr++) {
+        for (int dc = -1; dc <= 1; dc++) {
+          int r = row + dr;
+          int c = col + dc;
+          if ((dr == 0 && dc == 0) || r < 0 || c < 0 || r >= rows || c >= cols
+              || grid.get(r, c) == null) {
+            continue;
+          }
+          double step = grid.get(r, c);
+          if (dr != 0 && dc != 0) {
+            boolean first = grid.get(r, col) != null;
+            boolean second = grid.get(row, c) != null;
+            if (rule == DiagonalRule.NEVER || (rule == DiagonalRule.IF_ONE_OPEN && !first
+                && !second) || (rule == DiagonalRule.NO_CORNER_CUTTING && !(first && second))) {
+              continue;
+            }
+            step *= Math.sqrt(2);
+          }
+          if (dist[cell] + step < dist[r * cols + c]) {
+            dist[r * cols + c] = dist[cell] + step;
+            queue.add(new double[] {dist[r * cols + c], r * cols + c});
+          }
+        }
+      }
+    }
+    return dist[to];
+  }
+
+  @Test
+  void testMazeShortestPath() {
+    ArrayGrid<Integer> grid = maze(
+        "......",
+        ".####.",
+        ".#..#.",
+        ".#.##.",
+        "...#..");
+    PathFinder<Integer> finder = new PathFinder<>(grid, WEIGHT, DiagonalRule.NEVER);
+    Location from = new Location(2, 2);
+    Location to = new Location(4, 5);
+    for (PathFinder.Algorithm algorithm : PathFinder.Algorithm.values()) {
+      List<Location> path = finder.findPath(algorithm, from, to);
+      checkPath(grid, path, from, to, false);
+      // Down to (4,2), left to (4,0), up the left side, across the top and down the right.
+      assertEquals(18, path.size());
+    }
+  }
+
+  @Test
+  void testMatchesReferenceDijkstra() {
+    Random random = new Random(21);
+    ArrayGrid<Integer> grid = new ArrayGrid<>(40, 60);
+    for (int row = 0; row < 40; row++) {
+      for (int col = 0; col < 60; col++) {
+        if (random.nextInt(100) < 75) {
+          grid.put(row, col, 1 + random.nextInt(5));
+        }
+      }
+    }
+    for (DiagonalRule rule : DiagonalRule.values()) {
+      PathFinder<Integer> finder = new PathFinder<>(grid, WEIGHT, rule);
+      PathFinder.SearchContext context = finder.newContext();
+      for (int trial = 0; trial < 40; trial++) {
+        int fromRow = random.nextInt(40);
+        int fromCol = random.nextInt(60);
+        int toRow = random.nextInt(40);
+        int toCol = random.nextInt(60);
+        double expected = referenceCost(grid, fromRow * 60 + fromCol, toRow * 60 + toCol, rule);
+        if (grid.get(toRow, toCol) == null && (fromRow != toRow || fromCol != toCol)) {
+          expected = Double.POSITIVE_INFINITY;
+        }
+        for (PathFinder.Algorithm algorithm : new PathFinder.Algorithm[] {
+            PathFinder.Algorithm.DIJKSTRA, PathFinder.Algorithm.A_STAR}) {
+          boolean found = finder.search(context, algorithm, fromRow, fromCol, toRow, toCol);
+          assertEquals(expected < Double.POSITIVE_INFINITY, found);
+          assertEquals(expected, context.cost(), 1e-9);
+          if (found) {
+            double total = 0;
+            for (int i = 1; i < context.length(); i++) {
+              double step = grid.get(context.row(i), context.col(i));
+              boolean diagonal = context.row(i) != context.row(i - 1)
+                  && context.col(i) != context.col(i - 1);
+              total += diagonal ? step * Math.sqrt(2) : step;
+            }
+            assertEquals(expected, total, 1e-9);
+            checkPath(grid, context.path(), new Location(fromRow, fromCol),
+                new Location(toRow, toCol), rule != DiagonalRule.NEVER);
+          } else {
+            assertEquals(0, context.length());
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void testBreadthFirstCountsSteps() {
+    ArrayGrid<Integer> grid = new ArrayGrid<>(5, 5);
+    grid.fill(0, 0, 5, 5, 9);
+    PathFinder<Integer> finder = new PathFinder<>(grid, WEIGHT, DiagonalRule.ALWAYS);
+    PathFinder.SearchContext context = finder.newContext();
+    assertTrue(finder.search(context, PathFinder.Algorithm.BFS, 0, 0, 4, 3));
+    assertEquals(4.0, context.cost());
+    assertEquals(5, context.length());
+    assertTrue(finder.search(context, PathFinder.Algorithm.DIJKSTRA, 0, 0, 4, 3));
+    assertEquals(9 * (1 + 3 * Math.sqrt(2)), context.cost(), 1e-9);
+  }
+
+  @Test
+  void testDiagonalRules() {
+    // Walls on both sides of the diagonal step from (0,0) to (1,1).
+    ArrayGrid<Integer> closed = maze(".#", "#.");
+    // A wall on one side only.
+    ArrayGrid<Integer> half = maze(".#", "..");
+    Location from = new Location(0, 0);
+    Location to = new Location(1, 1);
+
+    assertEquals(2, new PathFinder<>(closed, WEIGHT, DiagonalRule.ALWAYS).findPath(from, to).size());
+    assertEquals(0, new PathFinder<>(closed, WEIGHT, DiagonalRule.IF_ONE_OPEN).findPath(from, to).size());
+    assertEquals(2, new PathFinder<>(half, WEIGHT, DiagonalRule.IF_ONE_OPEN).findPath(from, to).size());
+    assertEquals(3, new PathFinder<>(half, WEIGHT, DiagonalRule.NO_CORNER_CUTTING).findPath(from, to).size());
+    assertEquals(3, new PathFinder<>(half, WEIGHT, DiagonalRule.NEVER).findPath(from, to).size());
+  }
+
+  @Test
+  void testUnreachableGoal() {
+    ArrayGrid<Integer> grid = maze("..#..", "..#..");
+    PathFinder<Integer> finder = new PathFinder<>(grid, WEIGHT, DiagonalRule.ALWAYS);
+    PathFinder.SearchContext context = finder.newContext();
+    for (PathFinder.Algorithm algorithm : PathFinder.Algorithm.values()) {
+      assertFalse(finder.search(context, algorithm, 0, 0, 1, 4));
+      assertFalse(context.found());
+      assertEquals(Double.POSITIVE_INFINITY, context.cost());
+      assertEquals(0, context.length());
+      // The goal itself is a wall.
+      assertFalse(finder.search(context, algorithm, 0, 0, 0, 2));
+    }
+    assertEquals(List.of(), finder.findPath(new Location(0, 0), new Location(1, 3)));
+  }
+
+  @Test
+  void testStartIsGoal() {
+    ArrayGrid<Integer> grid = maze("#.");
+    PathFinder<Integer> finder = new PathFinder<>(grid, WEIGHT, DiagonalRule.NEVER);
+    Location wall = new Location(0, 0);
+    assertEquals(List.of(wall), finder.findPath(wall, wall));
+  }
+
+  @Test
+  void testPassableIfAndSparseGrids() {
+    SparseGrid<String> grid = new SparseGrid<>(30, 30);
+    for (int row = 0; row < 29; row++) {
+      grid.put(row, 15, "wall");
+    }
+    PathFinder<String> finder = new PathFinder<>(grid,
+        PathFinder.passableIf(item -> item == null), DiagonalRule.NEVER);
+    List<Location> path = finder.findPath(new Location(0, 0), new Location(0, 29));
+    assertEquals(new Location(29, 15), path.get(29 + 15));
+    assertEquals(29 + 15 + 29 + 14 + 1, path.size());
+  }
+
+  @Test
+  void testContextReuseAndForeignContext() {
+    ArrayGrid<Integer> grid = maze("....", "....");
+    PathFinder<Integer> finder = new PathFinder<>(grid, WEIGHT, DiagonalRule.NEVER);
+    PathFinder.SearchContext context = finder.newContext();
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(finder.search(context, PathFinder.Algorithm.A_STAR, 0, i % 4, 1, 3 - i % 4));
+      assertEquals(1 + Math.abs(3 - 2 * (i % 4)), context.cost(), 1e-9);
+    }
+    PathFinder<Integer> other = new PathFinder<>(new ArrayGrid<Integer>(4, 2), WEIGHT,
+        DiagonalRule.NEVER);
+    assertThrows(IllegalArgumentException.class,
+        () -> other.search(context, PathFinder.Algorithm.BFS, 0, 0, 1, 1));
+  }
+
+  @Test
+  void testBadArgumentsThrowException() {
+    ArrayGrid<Integer> grid = maze("...", "...");
+    assertThrows(NullPointerException.class, () -> new PathFinder<Integer>(null, WEIGHT, DiagonalRule.NEVER));
+    assertThrows(NullPointerException.class, () -> new PathFinder<>(grid, null, DiagonalRule.NEVER));
+    assertThrows(NullPointerException.class, () -> new PathFinder<>(grid, WEIGHT, null));
+    assertThrows(NullPointerException.class, () -> PathFinder.passableIf(null));
+    assertThrows(IllegalArgumentException.class,
+        () -> new PathFinder<>(grid, WEIGHT, DiagonalRule.NEVER, -1));
+    assertThrows(IllegalArgumentException.class,
+        () -> new PathFinder<>(new SparseGrid<Integer>(1 << 20, 1 << 20), WEIGHT, DiagonalRule.NEVER));
+    PathFinder<Integer> finder = new PathFinder<>(grid, WEIGHT, DiagonalRule.NEVER);
+    PathFinder.SearchContext context = finder.newContext();
+    assertThrows(IllegalArgumentException.class,
+        () -> finder.search(context, PathFinder.Algorithm.BFS, 0, 0, 2, 0));
+    assertThrows(NullPointerException.class,
+        () -> finder.search(context, null, 0, 0, 1, 1));
+    assertThrows(IllegalArgumentException.class, () -> context.row(0));
+  }
+
+}
@@ -0,0 +1,42 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for the unboxed accessors of LongGrid and DoubleGrid.
+ * 
+ * @author Jordan Martin
+ *
+ */
+class PrimitiveGridsTest {
+
+  @Test
+  void testLongGridPutLongThenGet() {
+    LongGrid grid = new LongGrid(2, 3);
+    grid.putLong(1, 2, Long.MAX_VALUE);
+    assertEquals(Long.MAX_VALUE, grid.getLong(1, 2));
+    assertEquals(Long.valueOf(Long.MAX_VALUE), grid.get(new Location(1, 2)));
+    grid.put(new Location(0, 0), 7L);
+    assertEquals(2, grid.numItems());
+    assertEquals(Long.valueOf(7L), grid.remove(new Location(0, 0)));
+    assertEquals(0L, grid.getLong(0, 0));
+    assertEquals(1, grid.numItems());
+  }
+
+  @Test
+  void testDoubleGridPutDoubleThenGet() {
+    DoubleGrid grid = new DoubleGrid(2, 3);
+    grid.putDouble(0, 1, 2.5);
+    assertEquals(2.5, grid.getDouble(0, 1), 0.0);
+    assertEquals(Double.valueOf(2.5), grid.get(new Location(0, 1)));
+    assertEquals(null, grid.get(new Location(0, 0)));
+    grid.putDouble(0, 1, -1.0);
+    assertEquals(1, grid.numItems());
+    assertEquals(-1.0, grid.getDouble(0, 1), 0.0);
+  }
+
+  @Test
+  void testConstructorRejectsGridsTooLargeForAnArray() {
+    assertThrows(IllegalArgumentException.class, () -> new IntGrid(100000, 100000));
+  }
+}
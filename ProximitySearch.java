@@ -0,0 +1,241 @@
+import java.util.Arrays;
+
+/**
+ * Finds the items around a cell in order of distance. The search grows
+ * Chebyshev rings outward from the center, using the grid's
+ * forEachItemIn index to find the items on each ring, and keeps the
+ * candidates in a binary heap keyed on (distance, packed coordinate).
+ * Every cell on a later ring is at least ring-bound away, so a candidate
+ * below the next ring's bound can be reported as soon as the current ring
+ * is done.
+ *
+ * <p>When the rings have covered many more cells than the grid holds
+ * items, the rest is found with one pass over all items instead. Each
+ * thread reuses one search object, so steady-state searches do not
+ * allocate.
+ *
+ * @author Jordan Martin
+ */
+final class ProximitySearch implements IntBinaryConsumer {
+
+  private static final ThreadLocal<ProximitySearch> CACHE =
+      ThreadLocal.withInitial(ProximitySearch::new);
+
+  // Largest heap kept between searches.
+  private static final int MAX_RETAINED = 1 << 12;
+
+  // Heap of candidates, ordered by distance and then row-major position.
+  private long[] distances = new long[64];
+  private long[] keys = new long[64];
+  private int size;
+
+  private boolean inUse;
+  private Metric metric;
+  private int centerRow;
+  private int centerCol;
+  private long limit;
+  private long skipRing;
+
+  /**
+   * Get this thread's search object, or a new one if it is already busy
+   * (a callback started another search).
+   * @return - an idle search object
+   */
+  static ProximitySearch acquire() {
+    ProximitySearch search = CACHE.get();
+    if (search.inUse) {
+      search = new ProximitySearch();
+    }
+    search.inUse = true;
+    return search;
+  }
+
+  /**
+   * Report the items around a cell in order of distance, ties broken in
+   * row-major order, until count items have been reported or none within
+   * the limit remain.
+   * @param grid - grid to search
+   * @param row - row of the center
+   * @param col - column of the center
+   * @param metric - distance measure
+   * @param count - most items to report
+   * @param limit - largest distance to report
+   * @param action - callback given each item's cell
+   */
+  void run(Grid<?> grid, int row, int col, Metric metric, long count, long limit,
+      IntBinaryConsumer action) {
+    this.metric = metric;
+    centerRow = row;
+    centerCol = col;
+    this.limit = limit;
+    skipRing = -1;
+    size = 0;
+    try {
+      int rows = grid.numRows();
+      int cols = grid.numCols();
+      long lastRing = Math.max(Math.max(row, rows - 1L - row), Math.max(col, cols - 1L - col));
+      long items = grid.numItems();
+      long ring = 0;
+      while (count > 0 && ring <= lastRing && metric.ringBound(ring) <= limit) {
+        if ((2 * ring + 1) * (2 * ring + 1) > 8 * items + 64) {
+          // Rings inside this one are done; sweep everything else at once.
+          skipRing = ring - 1;
+          grid.forEachItemIn(0, 0, rows, cols, this);
+          break;
+        }
+        scanRing(grid, rows, cols, ring);
+        count = report(count, metric.ringBound(ring + 1), action);
+        ring++;
+      }
+      // Every remaining candidate within the limit is now in the heap.
+      report(count, Long.MAX_VALUE, action);
+    } finally {
+      size = 0;
+      inUse = false;
+      if (keys.length > MAX_RETAINED) {
+        distances = new long[64];
+        keys = new long[64];
+      }
+    }
+  }
+
+  /**
+   * Push the items on one Chebyshev ring, clipped to the grid.
+   * @param grid - grid to search
+   * @param rows - number of rows
+   * @param cols - number of columns
+   * @param ring - Chebyshev distance of the ring
+   */
+  private void scanRing(Grid<?> grid, int rows, int cols, long ring) {
+    long top = centerRow - ring;
+    long bottom = centerRow + ring;
+    long left = centerCol - ring;
+    long right = centerCol + ring;
+    int colFrom = (int) Math.max(0, left);
+    int colTo = (int) Math.min(cols, right + 1);
+    if (top >= 0) {
+      grid.forEachItemIn((int) top, colFrom, (int) top + 1, colTo, this);
+    }
+    if (ring == 0) {
+      return;
+    }
+    if (bottom < rows) {
+      grid.forEachItemIn((int) bottom, colFrom, (int) bottom + 1, colTo, this);
+    }
+    int rowFrom = (int) Math.max(0, top + 1);
+    int rowTo = (int) Math.min(rows, bottom);
+    if (left >= 0) {
+      grid.forEachItemIn(rowFrom, (int) left, rowTo, (int) left + 1, this);
+    }
+    if (right < cols) {
+      grid.forEachItemIn(rowFrom, (int) right, rowTo, (int) right + 1, this);
+    }
+  }
+
+  /**
+   * Collect one item found on the grid.
+   * @param row - row of the item
+   * @param col - column of the item
+   */
+  @Override
+  public void accept(int row, int col) {
+    long rowDelta = (long) row - centerRow;
+    long colDelta = (long) col - centerCol;
+    if (Math.max(Math.abs(rowDelta), Math.abs(colDelta)) <= skipRing) {
+      return;
+    }
+    long distance = metric.distance(rowDelta, colDelta);
+    if (distance <= limit) {
+      push(distance, Location.pack(row, col));
+    }
+  }
+
+  /**
+   * Report candidates closer than a bound, nearest first.
+   * @param count - most items still to report
+   * @param bound - report only distances below this
+   * @param action - callback given each item's cell
+   * @return - items still to report
+   */
+  private long report(long count, long bound, IntBinaryConsumer action) {
+    while (count > 0 && size > 0 && distances[0] < bound) {
+      long key = keys[0];
+      pop();
+      count--;
+      action.accept(Location.unpackRow(key), Location.unpackCol(key));
+    }
+    return count;
+  }
+
+  /**
+   * Check whether heap entry a comes before heap entry b.
+   * @param a - heap index
+   * @param b - heap index
+   * @return - true if a is nearer, or as near and earlier in row-major order
+   */
+  private boolean before(int a, int b) {
+    return distances[a] < distances[b] || distances[a] == distances[b] && keys[a] < keys[b];
+  }
+
+  /**
+   * Add a candidate to the heap.
+   * @param distance - distance from the center
+   * @param key - packed coordinate
+   */
+  private void push(long distance, long key) {
+    if (size == keys.length) {
+      distances = Arrays.copyOf(distances, size * 2);
+      keys = Arrays.copyOf(keys, size * 2);
+    }
+    int i = size++;
+    distances[i] = distance;
+    keys[i] = key;
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (!before(i, parent)) {
+        break;
+      }
+      swap(i, parent);
+      i = parent;
+    }
+  }
+
+  /**
+   * Remove the nearest candidate from the heap.
+   */
+  private void pop() {
+    size--;
+    distances[0] = distances[size];
+    keys[0] = keys[size];
+    int i = 0;
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && before(child + 1, child)) {
+        child++;
+      }
+      if (!before(child, i)) {
+        break;
+      }
+      swap(i, child);
+      i = child;
+    }
+  }
+
+  /**
+   * Swap two heap entries.
+   * @param a - heap index
+   * @param b - heap index
+   */
+  private void swap(int a, int b) {
+    long distance = distances[a];
+    distances[a] = distances[b];
+    distances[b] = distance;
+    long key = keys[a];
+    keys[a] = keys[b];
+    keys[b] = key;
+  }
+
+}
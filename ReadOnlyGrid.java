@@ -0,0 +1,125 @@
+import java.util.Map;
+
+/**
+ * Base for grids that never change once built. Every method that would
+ * change the grid throws UnsupportedOperationException, and a read-only
+ * grid is its own snapshot.
+ *
+ * @author Jordan Martin
+ */
+abstract class ReadOnlyGrid<E> extends AbstractGrid<E> {
+
+  /**
+   * Not supported.
+   * @param loc - ignored
+   * @param item - ignored
+   */
+  @Override
+  public void put(Location loc, E item) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Not supported.
+   * @param row - ignored
+   * @param col - ignored
+   * @param item - ignored
+   */
+  @Override
+  public void put(int row, int col, E item) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Not supported.
+   * @param packed - ignored
+   * @param item - ignored
+   */
+  @Override
+  public void put(long packed, E item) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Not supported.
+   * @param loc - ignored
+   * @return - never returns
+   */
+  @Override
+  public E remove(Location loc) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Not supported.
+   * @param row - ignored
+   * @param col - ignored
+   * @return - never returns
+   */
+  @Override
+  public E remove(int row, int col) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Not supported.
+   * @param packed - ignored
+   * @return - never returns
+   */
+  @Override
+  public E remove(long packed) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Not supported.
+   * @param rowFrom - ignored
+   * @param colFrom - ignored
+   * @param rowTo - ignored
+   * @param colTo - ignored
+   * @param item - ignored
+   */
+  @Override
+  public void fill(int rowFrom, int colFrom, int rowTo, int colTo, E item) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Not supported.
+   * @param region - ignored
+   */
+  @Override
+  public void clear(Region region) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Not supported.
+   * @param src - ignored
+   * @param srcRegion - ignored
+   * @param dst - ignored
+   */
+  @Override
+  public void copyRegion(Grid<? extends E> src, Region srcRegion, Location dst) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Not supported.
+   * @param items - ignored
+   */
+  @Override
+  public void putAll(Map<Location, ? extends E> items) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * A snapshot never changes, so it is its own snapshot.
+   * @return - this grid
+   */
+  @Override
+  public Grid<E> snapshot() {
+    return this;
+  }
+
+}
@@ -0,0 +1,127 @@
+/**
+ * Region objects represent a rectangle of cells in a two dimensional grid.
+ * The lower bounds are inclusive and the upper bounds exclusive, so a
+ * region may be empty.
+ *
+ * @author Jordan Martin
+ *
+ */
+public final class Region {
+  private final int rowFrom;
+  private final int colFrom;
+  private final int rowTo;
+  private final int colTo;
+
+  /**
+   * Create a region covering rows rowFrom to rowTo - 1 and columns
+   * colFrom to colTo - 1.
+   *
+   * @param rowFrom First row, inclusive
+   * @param colFrom First column, inclusive
+   * @param rowTo Last row, exclusive
+   * @param colTo Last column, exclusive
+   * @throws IllegalArgumentException for negative bounds or an upper bound
+   *         below its lower bound
+   */
+  public Region(int rowFrom, int colFrom, int rowTo, int colTo) {
+    if (rowFrom < 0 || colFrom < 0 || rowTo < rowFrom || colTo < colFrom) {
+      throw new IllegalArgumentException();
+    }
+    this.rowFrom = rowFrom;
+    this.colFrom = colFrom;
+    this.rowTo = rowTo;
+    this.colTo = colTo;
+  }
+
+  /**
+   * Returns the first row, inclusive.
+   */
+  public int rowFrom() {
+    return rowFrom;
+  }
+
+  /**
+   * Returns the first column, inclusive.
+   */
+  public int colFrom() {
+    return colFrom;
+  }
+
+  /**
+   * Returns the last row, exclusive.
+   */
+  public int rowTo() {
+    return rowTo;
+  }
+
+  /**
+   * Returns the last column, exclusive.
+   */
+  public int colTo() {
+    return colTo;
+  }
+
+  /**
+   * Returns the number of rows covered.
+   */
+  public int numRows() {
+    return rowTo - rowFrom;
+  }
+
+  /**
+   * Returns the number of columns covered.
+   */
+  public int numCols() {
+    return colTo - colFrom;
+  }
+
+  /**
+   * Returns the number of cells covered.
+   */
+  public long area() {
+    return (long) numRows() * numCols();
+  }
+
+  /**
+   * Check whether a cell lies in the region.
+   *
+   * @param row Row number
+   * @param col Column number
+   * @return True if the cell is inside the region
+   */
+  public boolean contains(int row, int col) {
+    return row >= rowFrom && row < rowTo && col >= colFrom && col < colTo;
+  }
+
+  @Override
+  public String toString() {
+    return "Region [rows=" + rowFrom + ".." + rowTo + ", cols=" + colFrom + ".." + colTo + "]";
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + rowFrom;
+    result = prime * result + colFrom;
+    result = prime * result + rowTo;
+    result = prime * result + colTo;
+    return result;
+  }
+
+  /**
+   * Two regions are considered equal if they have the same bounds.
+   *
+   * @return True if the provided region is equal to this region
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == null || getClass() != obj.getClass()) {
+      return false;
+    }
+    Region other = (Region) obj;
+    return rowFrom == other.rowFrom && colFrom == other.colFrom && rowTo == other.rowTo
+        && colTo == other.colTo;
+  }
+
+}
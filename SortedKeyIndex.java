@@ -0,0 +1,258 @@
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Row-major index of the packed keys of a SparseGrid, kept up to date as
+ * the grid changes instead of being re-sorted after every write.
+ *
+ * <p>The index is a large sorted base array plus a small sorted array of
+ * keys added since the base was built. A put that fills a new cell only
+ * appends its key to an unsorted log; the next query sorts the log and
+ * merges it into the small array, and the small array is merged into the
+ * base once it passes a few times the square root of the base size. A
+ * query after d writes therefore costs O(d log d + sqrt(n)) on top of the
+ * O(log n + k) range walk, rather than the O(n log n) of a full re-sort.
+ *
+ * <p>Removes cost nothing here: the key is left behind as stale and
+ * queries check keys against the map while any stale ones exist. Once
+ * more than half the indexed keys are stale they are dropped in one pass.
+ * Arrays are replaced rather than modified, so an iterator can keep
+ * walking the array it was given while the grid changes, and a snapshot's
+ * index shares the sorted ones.
+ *
+ * @author Jordan Martin
+ */
+final class SortedKeyIndex {
+
+  private static final long[] EMPTY = new long[0];
+  private static final int MIN_ADDED = 256;
+
+  private final LongHashMap<?> live;
+  private long[] base = EMPTY;
+  private long[] added = EMPTY;
+  private long[] pending = EMPTY;
+  private int pendingCount;
+  // A copy never writes its fields, so threads can share it.
+  private final boolean readOnly;
+
+  /**
+   * Constructor for SortedKeyIndex class.
+   * @param live - map whose keys are indexed, empty to begin with
+   */
+  SortedKeyIndex(LongHashMap<?> live) {
+    this.live = live;
+    readOnly = false;
+  }
+
+  /**
+   * Constructor for a read-only index over a copy of another index's map.
+   * The other index sorts its log first, which it would do on its next
+   * query anyway, and the copy shares the sorted arrays, since they are
+   * never modified. The copy has nothing left to sort, so reading it
+   * never writes and any number of threads may read it at once.
+   * @param other - index to copy
+   * @param live - copy of the other index's map, never written
+   */
+  SortedKeyIndex(SortedKeyIndex other, LongHashMap<?> live) {
+    other.flush();
+    this.live = live;
+    base = other.base;
+    added = other.added;
+    readOnly = true;
+  }
+
+  /**
+   * Record a key that has just become present in the map.
+   * @param key - packed key
+   */
+  void add(long key) {
+    if (pendingCount == pending.length) {
+      pending = Arrays.copyOf(pending, Math.max(16, pendingCount * 2));
+    }
+    pending[pendingCount++] = key;
+    // A grid written to but never queried keeps its log bounded.
+    if (pendingCount > MIN_ADDED && pendingCount > base.length + added.length + live.size()) {
+      flush();
+    }
+  }
+
+  /**
+   * Get every present key in row-major order, as one array that is never
+   * modified afterwards. A read-only copy merges its arrays into a new
+   * one on every call rather than keeping the result.
+   * @return - sorted array of present keys
+   */
+  long[] keys() {
+    if (readOnly) {
+      return added.length > 0 || stale() > 0 ? merge(base, added, stale() > 0) : base;
+    }
+    flush();
+    if (added.length > 0 || stale() > 0) {
+      base = merge(base, added, stale() > 0);
+      added = EMPTY;
+    }
+    return base;
+  }
+
+  /**
+   * Visit the present keys in a rectangle in row-major order. Binary
+   * search skips straight to the first key of each row that can fall
+   * inside the rectangle, in both sorted arrays.
+   * @param rowFrom - first row, inclusive
+   * @param colFrom - first column, inclusive
+   * @param rowTo - last row, exclusive
+   * @param colTo - last column, exclusive
+   * @param action - called with each key
+   */
+  void forEachKeyIn(int rowFrom, int colFrom, int rowTo, int colTo, LongConsumer action) {
+    if (colFrom >= colTo) {
+      return;
+    }
+    if (!readOnly) {
+      flush();
+    }
+    long[] big = base;
+    long[] small = added;
+    boolean filter = stale() > 0;
+    long start = Location.pack(rowFrom, colFrom);
+    long end = Location.pack(rowTo, 0);
+    int i = next(big, lowerBound(big, 0, start), colFrom, colTo, end);
+    int j = next(small, lowerBound(small, 0, start), colFrom, colTo, end);
+    while (i < big.length || j < small.length) {
+      long key;
+      if (j >= small.length || (i < big.length && big[i] < small[j])) {
+        key = big[i];
+        i = next(big, i + 1, colFrom, colTo, end);
+      } else {
+        key = small[j];
+        j = next(small, j + 1, colFrom, colTo, end);
+      }
+      if (!filter || live.containsKey(key)) {
+        action.accept(key);
+      }
+    }
+  }
+
+  /**
+   * Get the number of indexed keys no longer in the map. Only exact once
+   * the log has been flushed.
+   * @return - number of stale keys
+   */
+  private int stale() {
+    return base.length + added.length - live.size();
+  }
+
+  /**
+   * Sort the log into the small array, dropping keys that are already
+   * indexed or no longer present, and fold the small array into the base
+   * once it has grown past its limit.
+   */
+  private void flush() {
+    if (pendingCount > 0) {
+      long[] fresh = Arrays.copyOf(pending, pendingCount);
+      pendingCount = 0;
+      Arrays.sort(fresh);
+      int count = 0;
+      long previous = 0;
+      for (int i = 0; i < fresh.length; i++) {
+        long key = fresh[i];
+        boolean repeat = i > 0 && key == previous;
+        previous = key;
+        if (repeat || !live.containsKey(key) || contains(base, key) || contains(added, key)) {
+          continue;
+        }
+        fresh[count++] = key;
+      }
+      if (count > 0) {
+        added = merge(added, Arrays.copyOf(fresh, count), false);
+        if (added.length > Math.max(MIN_ADDED, 4 * (int) Math.sqrt(base.length))) {
+          base = merge(base, added, false);
+          added = EMPTY;
+        }
+      }
+    }
+    if (2L * stale() > base.length + added.length) {
+      base = merge(base, added, true);
+      added = EMPTY;
+    }
+  }
+
+  /**
+   * Merge two sorted, disjoint key arrays into a new one.
+   * @param first - sorted keys
+   * @param second - sorted keys
+   * @param dropStale - true to leave out keys no longer in the map
+   * @return - new sorted array
+   */
+  private long[] merge(long[] first, long[] second, boolean dropStale) {
+    long[] merged = new long[dropStale ? live.size() : first.length + second.length];
+    int i = 0;
+    int j = 0;
+    int count = 0;
+    while (i < first.length || j < second.length) {
+      long key = j >= second.length || (i < first.length && first[i] < second[j])
+          ? first[i++] : second[j++];
+      if (!dropStale || live.containsKey(key)) {
+        merged[count++] = key;
+      }
+    }
+    return count == merged.length ? merged : Arrays.copyOf(merged, count);
+  }
+
+  /**
+   * Find the next key at or after a position that lies inside a
+   * rectangle, jumping over the parts of rows outside its columns.
+   * @param keys - sorted keys
+   * @param i - first position to consider
+   * @param colFrom - first column, inclusive
+   * @param colTo - last column, exclusive
+   * @param end - packed key of the first cell below the rectangle
+   * @return - position of the key, or keys.length if there is none
+   */
+  private static int next(long[] keys, int i, int colFrom, int colTo, long end) {
+    while (i < keys.length && keys[i] < end) {
+      int row = Location.unpackRow(keys[i]);
+      int col = Location.unpackCol(keys[i]);
+      if (col < colFrom) {
+        i = lowerBound(keys, i, Location.pack(row, colFrom));
+      } else if (col >= colTo) {
+        i = lowerBound(keys, i, Location.pack(row + 1, colFrom));
+      } else {
+        return i;
+      }
+    }
+    return keys.length;
+  }
+
+  /**
+   * Check whether a sorted key array holds a key.
+   * @param keys - sorted keys
+   * @param key - key to look for
+   * @return - true if present
+   */
+  private static boolean contains(long[] keys, long key) {
+    return Arrays.binarySearch(keys, key) >= 0;
+  }
+
+  /**
+   * Find the first position in a sorted key array holding a key at least
+   * as large as the parameter key. The search gallops forward from the
+   * first position before bisecting, since the key sought is usually the
+   * start of the next row, a short way ahead.
+   * @param keys - sorted keys
+   * @param from - first position to consider
+   * @param key - key to search for
+   * @return - position of the first key not below the parameter key
+   */
+  private static int lowerBound(long[] keys, int from, long key) {
+    int low = from;
+    int step = 1;
+    while (low + step < keys.length && keys[low + step] < key) {
+      low += step;
+      step <<= 1;
+    }
+    int found = Arrays.binarySearch(keys, low, Math.min(keys.length, low + step + 1), key);
+    return found >= 0 ? found : -found - 1;
+  }
+
+}
@@ -0,0 +1,106 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for the SortedKeyIndex class.
+ *
+ * @author Jordan Martin
+ *
+ */
+class SortedKeyIndexTest {
+
+  private static final int SIDE = 200;
+
+  private static long[] query(SortedKeyIndex index, int rowFrom, int colFrom, int rowTo,
+      int colTo) {
+    List<Long> found = new ArrayList<>();
+    index.forEachKeyIn(rowFrom, colFrom, rowTo, colTo, found::add);
+    return found.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  private static long[] expected(TreeSet<Long> keys, int rowFrom, int colFrom, int rowTo,
+      int colTo) {
+    List<Long> found = new ArrayList<>();
+    for (int row = rowFrom; row < rowTo && colFrom < colTo; row++) {
+      found.addAll(keys.subSet(Location.pack(row, colFrom), Location.pack(row, colTo)));
+    }
+    return found.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  @Test
+  void testMatchesTreeSetWithWritesBetweenQueries() {
+    LongHashMap<Boolean> map = new LongHashMap<>();
+    SortedKeyIndex index = new SortedKeyIndex(map);
+    TreeSet<Long> keys = new TreeSet<>();
+    Random random = new Random(16);
+    for (int step = 0; step < 5000; step++) {
+      // Writes lean towards inserts early and removes later, so the index
+      // goes through merges into the base and through compaction.
+      int writes = 1 + random.nextInt(step % 200 == 0 ? 2000 : 4);
+      boolean growing = step < 2500;
+      for (int w = 0; w < writes; w++) {
+        long key = Location.pack(random.nextInt(SIDE), random.nextInt(SIDE));
+        if (random.nextInt(10) < (growing ? 7 : 2)) {
+          if (map.put(key, Boolean.TRUE) == null) {
+            index.add(key);
+          }
+          keys.add(key);
+        } else {
+          map.remove(key);
+          keys.remove(key);
+        }
+      }
+      int rowFrom = random.nextInt(SIDE);
+      int colFrom = random.nextInt(SIDE);
+      int rowTo = rowFrom + random.nextInt(SIDE - rowFrom + 1);
+      int colTo = colFrom + random.nextInt(SIDE - colFrom + 1);
+      assertArrayEquals(expected(keys, rowFrom, colFrom, rowTo, colTo),
+          query(index, rowFrom, colFrom, rowTo, colTo));
+      if (step % 250 == 0) {
+        assertArrayEquals(expected(keys, 0, 0, SIDE, SIDE), index.keys());
+      }
+    }
+  }
+
+  @Test
+  void testKeysArrayIsNotModifiedByLaterWrites() {
+    LongHashMap<Boolean> map = new LongHashMap<>();
+    SortedKeyIndex index = new SortedKeyIndex(map);
+    for (int i = 0; i < 10; i++) {
+      map.put(i, Boolean.TRUE);
+      index.add(i);
+    }
+    long[] keys = index.keys();
+    long[] copy = keys.clone();
+    for (int i = 10; i < 1000; i++) {
+      map.put(i, Boolean.TRUE);
+      index.add(i);
+      map.remove(i - 10);
+    }
+    index.keys();
+    assertArrayEquals(copy, keys);
+  }
+
+  @Test
+  void testCopySharesNothingMutable() {
+    LongHashMap<Boolean> map = new LongHashMap<>();
+    SortedKeyIndex index = new SortedKeyIndex(map);
+    map.put(5, Boolean.TRUE);
+    index.add(5);
+    SortedKeyIndex copy = new SortedKeyIndex(index, map.share());
+    map.put(3, Boolean.TRUE);
+    index.add(3);
+    map.remove(5);
+    assertArrayEquals(new long[] {3}, index.keys());
+    // The log is started afresh, not refilled under the copy.
+    map.put(7, Boolean.TRUE);
+    index.add(7);
+    assertArrayEquals(new long[] {5}, copy.keys());
+    assertArrayEquals(new long[] {3, 7}, index.keys());
+  }
+}
@@ -1,8 +1,8 @@
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
 
 /**
  * Creation of SparseGrid class and individual
@@ -14,10 +14,10 @@ import java.util.Set;
  */
 public class SparseGrid<E> extends AbstractGrid<E> {
   
-  private HashMap<Location, E> data;
+  private LongHashMap<E> data;
+  private SortedKeyIndex index;
   private int numRows;
   private int numCols;
-  private int numItems;
   
   /**
    * Constructor for SparseGrid class.
@@ -30,21 +30,48 @@ public class SparseGrid<E> extends AbstractGrid<E> {
     }
     numRows = rows;
     numCols = cols;
-    numItems = 0;
-    data = new HashMap<Location, E>();
+    data = new LongHashMap<E>();
+    index = new SortedKeyIndex(data);
+  }
+
+  /**
+   * Constructor for a read-only SparseGrid sharing another's hash tables
+   * and key index, which the other no longer writes in place.
+   * @param other - grid to share with
+   */
+  private SparseGrid(SparseGrid<E> other) {
+    numRows = other.numRows;
+    numCols = other.numCols;
+    data = other.data.share();
+    index = new SortedKeyIndex(other.index, data);
   }
   
   /**
-   * Constructor for default iterator.
+   * Constructor for default iterator; visits items in row-major order.
    * @return - a new Iterator
    */
   public Iterator<E> iterator() {
     return new Iterator<E>() {
     
-      private int currPosX = 0;
-      private int currPosY = 0;
-      private E last = null;
-      private Location loc = new Location(0, 0);
+      private final long[] keys = sortedKeys();
+      private int next = 0;
+      private long last = -1;
+      private E item = advance();
+
+      /**
+       * Move to the next key that still has an item.
+       * @return - item for that key, or null when exhausted
+       */
+      private E advance() {
+        while (next < keys.length) {
+          E found = data.get(keys[next]);
+          if (found != null) {
+            return found;
+          }
+          next++;
+        }
+        return null;
+      }
 
       /**
        * Check if a grid has a next spot.
@@ -52,18 +79,7 @@ public class SparseGrid<E> extends AbstractGrid<E> {
        */
       @Override
       public boolean hasNext() {
-        for (int row = currPosY; row < numRows(); row++) {
-          for (int col = currPosX; col < numCols(); col++) {
-            loc = new Location(row, col);
-            if (data.get(loc) != null && last != data.get(loc)) {
-              currPosX = col;
-              currPosY = row;
-              return true;
-            }
-          }
-        }
-        
-        return false;
+        return item != null;
       }
       
       /**
@@ -72,12 +88,13 @@ public class SparseGrid<E> extends AbstractGrid<E> {
        */
       @Override
       public E next() {
-        if (!hasNext()) {
+        if (item == null) {
           throw new NoSuchElementException();
-        } else {
-          last = data.get(loc);
-          return last;
         }
+        E current = item;
+        last = keys[next++];
+        item = advance();
+        return current;
       }
       
       /**
@@ -85,37 +102,67 @@ public class SparseGrid<E> extends AbstractGrid<E> {
        */
       @Override
       public void remove() {
-        if (numItems <= 0) {
+        if (last < 0) {
           throw new IllegalStateException();
         }
         
-        data.remove(loc);
-        numItems--;
+        if (data.remove(last) != null) {
+          markChanged(Location.unpackRow(last), Location.unpackCol(last));
+        }
+        last = -1;
       }
     };
   }
 
+  /**
+   * Spliterator over the items in row-major order, splitting by index
+   * ranges of the sorted key array.
+   * @return - a new Spliterator
+   */
+  @Override
+  public Spliterator<E> spliterator() {
+    return new KeySpliterator<E>(sortedKeys(), data::get);
+  }
+
+  /**
+   * Spliterator over the item locations in row-major order.
+   * @return - a new Spliterator
+   */
+  @Override
+  protected Spliterator<Location> itemLocationSpliterator() {
+    return new KeySpliterator<Location>(sortedKeys(),
+        key -> location(Location.unpackRow(key), Location.unpackCol(key)));
+  }
+
   /**
    * Put the parameter item into the designated spot.
    * @param loc -  location for object to be placed
    * @param item - item to be placed
    */
   public void put(Location loc, E item) {
-    if (loc == null || item == null) {
+    if (loc == null) {
       throw new NullPointerException();
     }
     
-    if (loc.getRow() < numRows && loc.getCol() < numCols) {
-      if (data.get(loc) != null) {
-        data.replace(loc, item);
-      } else {
-        data.put(loc, item);
-        numItems++;
-      }
-      
-    } else {
-      throw new IllegalArgumentException();
+    put(loc.getRow(), loc.getCol(), item);
+  }
+
+  /**
+   * Put the parameter item into the designated spot.
+   * @param row - row for object to be placed
+   * @param col - column for object to be placed
+   * @param item - item to be placed
+   */
+  public void put(int row, int col, E item) {
+    if (item == null) {
+      throw new NullPointerException();
+    }
+    
+    long key = key(row, col);
+    if (data.put(key, item) == null) {
+      index.add(key);
     }
+    markChanged(row, col);
   }
 
   /**
@@ -124,13 +171,18 @@ public class SparseGrid<E> extends AbstractGrid<E> {
    * @return - grabbed value
    */
   public E get(Location loc) {
-    if (loc.getRow() >= numRows() || loc.getCol() >= numCols) {
-      throw new IllegalArgumentException();
-    } else if (loc == null || data.get(loc) == null) {
-      return null;
-    }
+    return get(loc.getRow(), loc.getCol());
     
-    return data.get(loc);
+  }
+
+  /**
+   * Get object at respective position.
+   * @param row - row to be grabbed
+   * @param col - column to be grabbed
+   * @return - grabbed value
+   */
+  public E get(int row, int col) {
+    return data.get(key(row, col));
     
   }
 
@@ -141,20 +193,209 @@ public class SparseGrid<E> extends AbstractGrid<E> {
    * @return - removed value
    */
   public E remove(Location loc) {
-    if (loc == null || loc.getCol() >= numCols || loc.getRow() >= numRows) {
+    if (loc == null) {
       throw new IllegalArgumentException();
-      
-    }   
+    }
     
-    if (data.get(loc) != null) {
-      numItems--;
-      return data.remove(loc);
+    return remove(loc.getRow(), loc.getCol());
+
+  }
+
+  /**
+   * Remove object at respective location.
+   * @param row - row to remove
+   * @param col - column to remove
+   * @return - removed value
+   */
+  public E remove(int row, int col) {
+    E element = data.remove(key(row, col));
+    if (element != null) {
+      markChanged(row, col);
     }
     
-    return null;
+    return element;
 
   }
 
+  /**
+   * Put the item into every cell of a rectangle. The map is grown once up
+   * front.
+   * @param rowFrom - first row, inclusive
+   * @param colFrom - first column, inclusive
+   * @param rowTo - last row, exclusive
+   * @param colTo - last column, exclusive
+   * @param item - item to be placed
+   */
+  @Override
+  public void fill(int rowFrom, int colFrom, int rowTo, int colTo, E item) {
+    if (item == null) {
+      throw new NullPointerException();
+    }
+    checkRegion(rowFrom, colFrom, rowTo, colTo);
+    long area = (long) (rowTo - rowFrom) * (colTo - colFrom);
+    data.ensureCapacity((int) Math.min(Integer.MAX_VALUE, data.size() + area));
+    for (int row = rowFrom; row < rowTo; row++) {
+      for (int col = colFrom; col < colTo; col++) {
+        long key = Location.pack(row, col);
+        if (data.put(key, item) == null) {
+          index.add(key);
+        }
+      }
+    }
+    markChanged(rowFrom, colFrom, rowTo, colTo);
+  }
+
+  /**
+   * Remove every item in a region. Only the stored items inside the region
+   * are visited, found by binary search on the sorted keys.
+   * @param region - cells to clear
+   */
+  @Override
+  public void clear(Region region) {
+    checkRegion(region.rowFrom(), region.colFrom(), region.rowTo(), region.colTo());
+    int before = data.size();
+    forEachKeyIn(region.rowFrom(), region.colFrom(), region.rowTo(), region.colTo(),
+        key -> data.remove(key));
+    if (data.size() != before) {
+      markChanged(region.rowFrom(), region.colFrom(), region.rowTo(), region.colTo());
+    }
+  }
+
+  /**
+   * Copy a region of a grid so that its top-left cell lands on dst. When
+   * the source is a SparseGrid only its stored items are visited: they are
+   * collected first, the destination region is cleared, and then they are
+   * put back shifted, so the regions may overlap.
+   * @param src - grid to copy from
+   * @param srcRegion - region of src to copy
+   * @param dst - destination of the region's top-left cell
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public void copyRegion(Grid<? extends E> src, Region srcRegion, Location dst) {
+    if (!(src instanceof SparseGrid)) {
+      super.copyRegion(src, srcRegion, dst);
+      return;
+    }
+    checkCopy(src, srcRegion, dst);
+    SparseGrid<? extends E> from = (SparseGrid<? extends E>) src;
+    int[] count = new int[1];
+    from.forEachKeyIn(srcRegion.rowFrom(), srcRegion.colFrom(), srcRegion.rowTo(),
+        srcRegion.colTo(), key -> count[0]++);
+    long[] moved = new long[count[0]];
+    Object[] items = new Object[count[0]];
+    int rowShift = dst.getRow() - srcRegion.rowFrom();
+    int colShift = dst.getCol() - srcRegion.colFrom();
+    count[0] = 0;
+    from.forEachKeyIn(srcRegion.rowFrom(), srcRegion.colFrom(), srcRegion.rowTo(),
+        srcRegion.colTo(), key -> {
+          moved[count[0]] = Location.pack(Location.unpackRow(key) + rowShift,
+              Location.unpackCol(key) + colShift);
+          items[count[0]++] = from.data.get(key);
+        });
+    clear(new Region(dst.getRow(), dst.getCol(), dst.getRow() + srcRegion.numRows(),
+        dst.getCol() + srcRegion.numCols()));
+    data.ensureCapacity(data.size() + moved.length);
+    for (int i = 0; i < moved.length; i++) {
+      if (data.put(moved[i], (E) items[i]) == null) {
+        index.add(moved[i]);
+      }
+    }
+    if (moved.length > 0) {
+      markChanged(dst.getRow(), dst.getCol(), dst.getRow() + srcRegion.numRows(),
+          dst.getCol() + srcRegion.numCols());
+    }
+  }
+
+  /**
+   * Put every entry of a map into the grid, growing the map once up front.
+   * @param items - items keyed by location
+   */
+  @Override
+  public void putAll(Map<Location, ? extends E> items) {
+    data.ensureCapacity(data.size() + items.size());
+    for (Map.Entry<Location, ? extends E> entry : items.entrySet()) {
+      Location loc = entry.getKey();
+      E item = entry.getValue();
+      if (loc == null || item == null) {
+        throw new NullPointerException();
+      }
+      long key = key(loc.getRow(), loc.getCol());
+      if (data.put(key, item) == null) {
+        index.add(key);
+      }
+      markChanged(loc.getRow(), loc.getCol());
+    }
+  }
+
+  /**
+   * Visit every item in a rectangle in row-major order. Binary search on
+   * the sorted keys finds each row's first candidate, so the cost is
+   * O(log n) per occupied row crossed plus one step per item reported.
+   * @param rowFrom - first row, inclusive
+   * @param colFrom - first column, inclusive
+   * @param rowTo - last row, exclusive
+   * @param colTo - last column, exclusive
+   * @param action - callback given each occupied cell
+   */
+  @Override
+  public void forEachItemIn(int rowFrom, int colFrom, int rowTo, int colTo,
+      IntBinaryConsumer action) {
+    checkRegion(rowFrom, colFrom, rowTo, colTo);
+    forEachKeyIn(rowFrom, colFrom, rowTo, colTo,
+        key -> action.accept(Location.unpackRow(key), Location.unpackCol(key)));
+  }
+
+  /**
+   * Visit the packed key of every item in a rectangle, in row-major
+   * order.
+   * @param rowFrom - first row, inclusive
+   * @param colFrom - first column, inclusive
+   * @param rowTo - last row, exclusive
+   * @param colTo - last column, exclusive
+   * @param action - called with each key
+   */
+  private void forEachKeyIn(int rowFrom, int colFrom, int rowTo, int colTo,
+      LongConsumer action) {
+    index.forEachKeyIn(rowFrom, colFrom, rowTo, colTo, action);
+  }
+
+  /**
+   * Take a read-only snapshot of the grid without copying the hash
+   * tables. The snapshot keeps them, and this grid copies a page of 128
+   * slots at a time as it writes to them; the sorted key arrays are
+   * shared outright, since they are never modified.
+   * @return - immutable grid with the same items
+   */
+  @Override
+  public Grid<E> snapshot() {
+    return new ImmutableGrid<E>(new SparseGrid<E>(this));
+  }
+
+  /**
+   * Get the packed keys of all items in row-major order. The array is
+   * never modified once handed out, so iterators can keep walking it
+   * while the grid changes.
+   * @return - sorted array of packed keys
+   */
+  private long[] sortedKeys() {
+    return index.keys();
+  }
+
+  /**
+   * Build the packed map key for a cell, checking that it is on the grid.
+   * @param row - row of the cell
+   * @param col - column of the cell
+   * @return - key for the cell
+   */
+  private long key(int row, int col) {
+    if (row < 0 || col < 0 || row >= numRows || col >= numCols) {
+      throw new IllegalArgumentException();
+    }
+    
+    return Location.pack(row, col);
+  }
+
   /**
    * Get the number of rows.
    * @return - number of rows
@@ -225,11 +466,11 @@ public class SparseGrid<E> extends AbstractGrid<E> {
         @Override
         public Location next() {
           if (hasNext() && !currEnd) {
-            currLoc = new Location(currRow, currCol);
+            currLoc = location(currRow, currCol);
             currCol++;
             return currLoc;
           } else if (currEnd) {
-            currLoc = new Location(currRow, currCol);
+            currLoc = location(currRow, currCol);
             currRow = currLoc.getRow() + 1;
             currCol = 0;
             currEnd = false;
@@ -259,21 +500,52 @@ public class SparseGrid<E> extends AbstractGrid<E> {
    * @return - number of items
    */
   public Integer numItems() {
-    return numItems;
+    return data.size();
   }
 
 
+  /**
+   * Iterator for all item locations, in row-major order.
+   * @return - Iterable object for all items
+   */
   @Override
   public Iterable<Location> itemLocations() {
     return new Iterable<Location>() {
 
       @Override
-        public Iterator<Location> iterator() {
-          Set<Location> loc = Collections.unmodifiableSet(data.keySet());
-          return loc.iterator();
-        }
+      public Iterator<Location> iterator() {
+        return new Iterator<Location>() {
+
+          private final long[] keys = sortedKeys();
+          private int next = 0;
+
+          /**
+           * Skip keys whose items have been removed since the keys were
+           * taken.
+           */
+          private void advance() {
+            while (next < keys.length && !data.containsKey(keys[next])) {
+              next++;
+            }
+          }
+
+          @Override
+          public boolean hasNext() {
+            advance();
+            return next < keys.length;
+          }
+
+          @Override
+          public Location next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            long key = keys[next++];
+            return location(Location.unpackRow(key), Location.unpackCol(key));
+          }
+        };
+      }
     
     };
   }
 }
-
@@ -1,5 +1,8 @@
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -24,4 +27,38 @@ class SparseGridBasicsTest extends GridBasicsTest {
     assertEquals("A", grid.remove(new Location(999999, 999999)));
     assertEquals(null, grid.remove(new Location(999999, 999999)));
   }
+
+  @Test
+  void testRegionQueriesSeeEveryWrite() {
+    SparseGrid<Integer> grid = new SparseGrid<>(300, 300);
+    Random random = new Random(17);
+    for (int i = 0; i < 5000; i++) {
+      grid.put(random.nextInt(300), random.nextInt(300), i);
+    }
+    for (int step = 0; step < 3000; step++) {
+      // One agent moves, then looks around.
+      int row = random.nextInt(300);
+      int col = random.nextInt(300);
+      if (step % 2 == 0) {
+        grid.remove(row, col);
+      } else {
+        grid.put(row, col, step);
+      }
+      int rowFrom = Math.max(0, row - 10);
+      int colFrom = Math.max(0, col - 10);
+      int rowTo = Math.min(300, row + 11);
+      int colTo = Math.min(300, col + 11);
+      List<Location> found = new ArrayList<>();
+      grid.forEachItemIn(rowFrom, colFrom, rowTo, colTo, (r, c) -> found.add(new Location(r, c)));
+      List<Location> expected = new ArrayList<>();
+      for (int r = rowFrom; r < rowTo; r++) {
+        for (int c = colFrom; c < colTo; c++) {
+          if (grid.get(r, c) != null) {
+            expected.add(new Location(r, c));
+          }
+        }
+      }
+      assertEquals(expected, found);
+    }
+  }
 }
@@ -24,4 +24,40 @@ class SparseGridIteratorsTest extends GridIteratorsTest {
     Iterator<Location> it = huge.itemLocations().iterator();
     assertEquals(new Location(999999, 999999), it.next());
   }
+
+  @Test
+  void testDefaultIteratorHugeSparseGrid() {
+    Grid<String> huge = makeGrid(1000000, 1000000);
+    huge.put(new Location(999999, 999999), "C");
+    huge.put(new Location(500000, 3), "B");
+    huge.put(new Location(0, 999999), "A");
+    Iterator<String> it = huge.iterator();
+    assertEquals("A", it.next());
+    assertEquals("B", it.next());
+    it.remove();
+    assertEquals("C", it.next());
+    assertFalse(it.hasNext());
+    assertEquals(2, huge.numItems());
+  }
+
+  @Test
+  void testItemLocationIteratorSkipsRemovedItems() {
+    Grid<String> grid = makeGrid(10, 10);
+    grid.put(new Location(0, 0), "A");
+    grid.put(new Location(1, 1), "B");
+    grid.put(new Location(2, 2), "C");
+    grid.put(new Location(3, 3), "D");
+    Iterator<Location> it = grid.itemLocations().iterator();
+    assertEquals(new Location(0, 0), it.next());
+    grid.remove(new Location(1, 1));
+    grid.remove(new Location(3, 3));
+    assertEquals(new Location(2, 2), it.next());
+    assertFalse(it.hasNext());
+  }
+
+  @Test
+  void testLocationCacheRejectsHugeGrid() {
+    SparseGrid<String> huge = new SparseGrid<String>(1000000, 1000000);
+    assertThrows(IllegalStateException.class, () -> huge.enableLocationCache());
+  }
 }
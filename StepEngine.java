@@ -0,0 +1,333 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs generation-based simulations, such as cellular automata, over an
+ * ArrayGrid. Each step computes the next state of every cell from the
+ * current generation into a second buffer and then swaps it in, so a rule
+ * always sees the whole grid as it was at the start of the step.
+ *
+ * <p>The grid is split into bands of rows that run in parallel on a
+ * ForkJoinPool. Bands only write their own rows of the new buffer and read
+ * the old one, which nobody writes during the step, so the halo rows above
+ * and below a band are simply read in place. The two buffers are reused
+ * from step to step and the rule is handed a shared read-only view, so a
+ * step allocates nothing beyond what the rule itself creates. The
+ * exception is a step after grid.snapshot(): the snapshot keeps the
+ * current buffer, so the step copies the cells into a new one.
+ *
+ * <pre>
+ * StepEngine&lt;Boolean&gt; life = new StepEngine&lt;&gt;(grid, (row, col, alive, cells) -&gt; {
+ *   int n = cells.occupiedNeighbors(row, col);
+ *   return n == 3 || (alive != null &amp;&amp; n == 2) ? Boolean.TRUE : null;
+ * });
+ * life.step(100);
+ * </pre>
+ *
+ * @author Jordan Martin
+ */
+public final class StepEngine<E> {
+
+  /**
+   * Computes the next state of one cell.
+   */
+  @FunctionalInterface
+  public interface Rule<E> {
+
+    /**
+     * Get the next state of a cell. The rule may be called from several
+     * threads at once and must not modify the grid.
+     * @param row - row of the cell
+     * @param col - column of the cell
+     * @param current - current state, or null if the cell is empty
+     * @param cells - read-only view of the current generation
+     * @return - next state, or null to leave the cell empty
+     */
+    E next(int row, int col, E current, Cells<E> cells);
+  }
+
+  /**
+   * Read-only view of the current generation handed to a rule. Neighbor
+   * queries use the engine's neighborhood, with the linear index offsets
+   * of interior cells worked out once for the grid's width.
+   */
+  public static final class Cells<E> {
+
+    private final int rows;
+    private final int cols;
+    private final Neighborhood neighborhood;
+    private final int[] deltas;
+    private Object[] current;
+
+    /**
+     * Constructor for Cells class.
+     * @param rows - number of rows
+     * @param cols - number of columns
+     * @param neighborhood - neighbors to visit
+     */
+    private Cells(int rows, int cols, Neighborhood neighborhood) {
+      this.rows = rows;
+      this.cols = cols;
+      this.neighborhood = neighborhood;
+      deltas = new int[neighborhood.size()];
+      for (int i = 0; i < deltas.length; i++) {
+        // Only used for cells whose neighborhood fits, where this fits in an int.
+        deltas[i] = (int) ((long) neighborhood.rowOffset(i) * cols + neighborhood.colOffset(i));
+      }
+    }
+
+    /**
+     * Get the neighborhood used by the neighbor queries.
+     * @return - the engine's neighborhood
+     */
+    public Neighborhood neighborhood() {
+      return neighborhood;
+    }
+
+    /**
+     * Get a cell's state in the current generation.
+     * @param row - row of the cell
+     * @param col - column of the cell
+     * @return - state, or null if empty
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int row, int col) {
+      if (row < 0 || col < 0 || row >= rows || col >= cols) {
+        throw new IllegalArgumentException();
+      }
+      return (E) current[row * cols + col];
+    }
+
+    /**
+     * Count the occupied neighbors of a cell.
+     * @param row - row of the cell
+     * @param col - column of the cell
+     * @return - number of neighbors holding an item
+     */
+    public int occupiedNeighbors(int row, int col) {
+      Object[] cells = current;
+      int count = 0;
+      if (neighborhood.fitsAround(row, col, rows, cols)) {
+        int index = row * cols + col;
+        for (int delta : deltas) {
+          count += cells[index + delta] == null ? 0 : 1;
+        }
+      } else {
+        for (int i = 0; i < deltas.length; i++) {
+          int r = neighborhood.edgeRow(row, i, rows);
+          int c = neighborhood.edgeCol(col, i, cols);
+          if (r >= 0 && c >= 0 && cells[r * cols + c] != null) {
+            count++;
+          }
+        }
+      }
+      return count;
+    }
+
+    /**
+     * Count the neighbors of a cell whose state equals the parameter value.
+     * @param row - row of the cell
+     * @param col - column of the cell
+     * @param value - state to look for
+     * @return - number of matching neighbors
+     */
+    public int countNeighbors(int row, int col, Object value) {
+      if (value == null) {
+        throw new NullPointerException();
+      }
+      Object[] cells = current;
+      int count = 0;
+      if (neighborhood.fitsAround(row, col, rows, cols)) {
+        int index = row * cols + col;
+        for (int delta : deltas) {
+          if (value.equals(cells[index + delta])) {
+            count++;
+          }
+        }
+      } else {
+        for (int i = 0; i < deltas.length; i++) {
+          int r = neighborhood.edgeRow(row, i, rows);
+          int c = neighborhood.edgeCol(col, i, cols);
+          if (r >= 0 && c >= 0 && value.equals(cells[r * cols + c])) {
+            count++;
+          }
+        }
+      }
+      return count;
+    }
+
+    /**
+     * Visit the neighbors of a cell, for rules that need more than counts.
+     * @param row - row of the cell
+     * @param col - column of the cell
+     * @param action - callback given each neighbor
+     */
+    public void forEachNeighbor(int row, int col, IntBinaryConsumer action) {
+      if (row < 0 || col < 0 || row >= rows || col >= cols) {
+        throw new IllegalArgumentException();
+      }
+      neighborhood.forEach(row, col, rows, cols, action);
+    }
+  }
+
+  // Smallest band, in cells, worth handing to another thread.
+  static final int MIN_BAND_CELLS = 1 << 14;
+
+  private final ArrayGrid<E> grid;
+  private final Rule<E> rule;
+  private final ForkJoinPool pool;
+  private final Cells<E> cells;
+  private final int minBandRows;
+  private Object[] spare;
+  private long generation;
+  private long elapsedNanos;
+  private long lastStepNanos;
+
+  /**
+   * Constructor for StepEngine class using the eight neighbors and the
+   * common pool.
+   * @param grid - grid to step
+   * @param rule - next-state rule
+   */
+  public StepEngine(ArrayGrid<E> grid, Rule<E> rule) {
+    this(grid, Neighborhood.MOORE, rule, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructor for StepEngine class.
+   * @param grid - grid to step
+   * @param neighborhood - neighbors seen by the rule's neighbor queries
+   * @param rule - next-state rule
+   * @param pool - pool that runs the bands
+   */
+  public StepEngine(ArrayGrid<E> grid, Neighborhood neighborhood, Rule<E> rule,
+      ForkJoinPool pool) {
+    if (grid == null || neighborhood == null || rule == null || pool == null) {
+      throw new NullPointerException();
+    }
+    this.grid = grid;
+    this.rule = rule;
+    this.pool = pool;
+    cells = new Cells<E>(grid.numRows(), grid.numCols(), neighborhood);
+    minBandRows = Math.max(1, MIN_BAND_CELLS / grid.numCols());
+  }
+
+  /**
+   * Get the grid being stepped.
+   * @return - the grid
+   */
+  public ArrayGrid<E> grid() {
+    return grid;
+  }
+
+  /**
+   * Advance the grid by one generation. If the rule throws, the grid is
+   * left at the generation it had before the step.
+   */
+  public void step() {
+    long start = System.nanoTime();
+    Object[] current = grid.cells();
+    if (spare == null || spare.length != current.length) {
+      spare = new Object[current.length];
+    }
+    cells.current = current;
+    int rows = grid.numRows();
+    if (rows <= minBandRows || pool.getParallelism() == 1) {
+      computeRows(0, rows, current, spare);
+    } else {
+      pool.invoke(new Band(0, rows, current, spare));
+    }
+    spare = grid.swapCells(spare);
+    cells.current = null;
+    generation++;
+    lastStepNanos = System.nanoTime() - start;
+    elapsedNanos += lastStepNanos;
+  }
+
+  /**
+   * Advance the grid by several generations.
+   * @param generations - number of steps to run
+   */
+  public void step(int generations) {
+    if (generations < 0) {
+      throw new IllegalArgumentException();
+    }
+    for (int i = 0; i < generations; i++) {
+      step();
+    }
+  }
+
+  /**
+   * Get the number of steps run so far.
+   * @return - number of generations
+   */
+  public long generation() {
+    return generation;
+  }
+
+  /**
+   * Get the time the last step took.
+   * @return - nanoseconds, or 0 before the first step
+   */
+  public long lastStepNanos() {
+    return lastStepNanos;
+  }
+
+  /**
+   * Get the average step rate so far.
+   * @return - generations per second, or 0 before the first step
+   */
+  public double ticksPerSecond() {
+    return elapsedNanos == 0 ? 0 : generation * 1e9 / elapsedNanos;
+  }
+
+  /**
+   * Compute the next state of every cell in a band of rows.
+   * @param rowFrom - first row, inclusive
+   * @param rowTo - last row, exclusive
+   * @param current - current generation
+   * @param next - buffer receiving the next generation
+   */
+  @SuppressWarnings("unchecked")
+  private void computeRows(int rowFrom, int rowTo, Object[] current, Object[] next) {
+    int cols = grid.numCols();
+    int index = rowFrom * cols;
+    for (int row = rowFrom; row < rowTo; row++) {
+      for (int col = 0; col < cols; col++, index++) {
+        next[index] = rule.next(row, col, (E) current[index], cells);
+      }
+    }
+  }
+
+  /**
+   * Band of rows that splits in half until it is small enough to compute
+   * directly.
+   */
+  private final class Band extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int rowFrom;
+    private final int rowTo;
+    private final transient Object[] current;
+    private final transient Object[] next;
+
+    Band(int rowFrom, int rowTo, Object[] current, Object[] next) {
+      this.rowFrom = rowFrom;
+      this.rowTo = rowTo;
+      this.current = current;
+      this.next = next;
+    }
+
+    @Override
+    protected void compute() {
+      if (rowTo - rowFrom <= minBandRows) {
+        computeRows(rowFrom, rowTo, current, next);
+      } else {
+        int mid = (rowFrom + rowTo) >>> 1;
+        invokeAll(new Band(rowFrom, mid, current, next), new Band(mid, rowTo, current, next));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,215 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for the StepEngine class.
+ *
+ * @author Jordan Martin
+ *
+ */
+class StepEngineTest {
+
+  private static final StepEngine.Rule<Boolean> LIFE = (row, col, alive, cells) -> {
+    int n = cells.occupiedNeighbors(row, col);
+    return n == 3 || (alive != null && n == 2) ? Boolean.TRUE : null;
+  };
+
+  /**
+   * Build a grid from rows of text, with '#' for a live cell.
+   */
+  private static ArrayGrid<Boolean> parse(String... lines) {
+    ArrayGrid<Boolean> grid = new ArrayGrid<>(lines.length, lines[0].length());
+    for (int row = 0; row < lines.length; row++) {
+      for (int col = 0; col < lines[row].length(); col++) {
+        if (lines[row].charAt(col) == '#') {
+          grid.put(row, col, Boolean.TRUE);
+        }
+      }
+    }
+    return grid;
+  }
+
+  /**
+   * Render a grid as rows of text, with '#' for an occupied cell.
+   */
+  private static String render(Grid<?> grid) {
+    StringBuilder out = new StringBuilder();
+    for (int row = 0; row < grid.numRows(); row++) {
+      for (int col = 0; col < grid.numCols(); col++) {
+        out.append(grid.isOccupied(row, col) ? '#' : '.');
+      }
+      out.append('\n');
+    }
+    return out.toString();
+  }
+
+  @Test
+  void testBlinkerOscillates() {
+    ArrayGrid<Boolean> grid = parse(".....", "..#..", "..#..", "..#..", ".....");
+    String vertical = render(grid);
+    StepEngine<Boolean> engine = new StepEngine<>(grid, LIFE);
+    engine.step();
+    assertEquals(".....\n.....\n.###.\n.....\n.....\n", render(grid));
+    assertEquals(3, grid.numItems());
+    engine.step();
+    assertEquals(vertical, render(grid));
+    assertEquals(2, engine.generation());
+  }
+
+  @Test
+  void testSnapshotsBetweenStepsKeepTheirGeneration() {
+    ArrayGrid<Boolean> grid = parse(".#......", "..#.....", "###.....", "........",
+        "........", "........", "........", "........");
+    StepEngine<Boolean> engine = new StepEngine<>(grid, LIFE);
+    List<Grid<Boolean>> snapshots = new ArrayList<>();
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      snapshots.add(grid.snapshot());
+      expected.add(render(grid));
+      engine.step(i % 2 + 1);
+    }
+    for (int i = 0; i < 6; i++) {
+      Grid<Boolean> snap = snapshots.get(i);
+      assertEquals(expected.get(i), render(snap));
+      assertEquals(5, snap.numItems());
+      for (int row = 0; row < 8; row++) {
+        for (int col = 0; col < 8; col++) {
+          assertEquals(snap.isOccupied(row, col), snap.get(row, col) != null);
+        }
+      }
+    }
+  }
+
+  @Test
+  void testGliderWrapsAroundTorus() {
+    ArrayGrid<Boolean> grid = parse(".#....", "..#...", "###...", "......", "......", "......");
+    String start = render(grid);
+    StepEngine<Boolean> engine = new StepEngine<>(grid, Neighborhood.MOORE.toroidal(), LIFE,
+        ForkJoinPool.commonPool());
+    // A glider moves one cell diagonally every four generations.
+    engine.step(24);
+    assertEquals(start, render(grid));
+    assertEquals(5, grid.numItems());
+  }
+
+  @Test
+  void testParallelBandsMatchCellByCellStep() {
+    int rows = 301;
+    int cols = 257;
+    ArrayGrid<Integer> grid = new ArrayGrid<>(rows, cols);
+    ArrayGrid<Integer> expected = new ArrayGrid<>(rows, cols);
+    Random random = new Random(19);
+    for (int i = 0; i < rows * cols / 3; i++) {
+      int row = random.nextInt(rows);
+      int col = random.nextInt(cols);
+      int value = random.nextInt(3);
+      grid.put(row, col, value);
+      expected.put(row, col, value);
+    }
+    StepEngine.Rule<Integer> rule = (row, col, current, cells) -> {
+      int occupied = cells.occupiedNeighbors(row, col);
+      int twos = cells.countNeighbors(row, col, 2);
+      int sum = (current == null ? 0 : current) + occupied + twos;
+      return sum % 4 == 0 ? null : sum % 3;
+    };
+    StepEngine<Integer> engine = new StepEngine<>(grid, Neighborhood.moore(2), rule,
+        new ForkJoinPool(4));
+
+    for (int generation = 0; generation < 5; generation++) {
+      ArrayGrid<Integer> next = new ArrayGrid<>(rows, cols);
+      for (int row = 0; row < rows; row++) {
+        for (int col = 0; col < cols; col++) {
+          int occupied = 0;
+          int twos = 0;
+          for (int r = row - 2; r <= row + 2; r++) {
+            for (int c = col - 2; c <= col + 2; c++) {
+              if ((r != row || c != col) && r >= 0 && c >= 0 && r < rows && c < cols
+                  && expected.get(r, c) != null) {
+                occupied++;
+                if (expected.get(r, c) == 2) {
+                  twos++;
+                }
+              }
+            }
+          }
+          Integer current = expected.get(row, col);
+          int sum = (current == null ? 0 : current) + occupied + twos;
+          if (sum % 4 != 0) {
+            next.put(row, col, sum % 3);
+          }
+        }
+      }
+      expected = next;
+      engine.step();
+
+      assertEquals(expected.numItems(), grid.numItems());
+      for (int row = 0; row < rows; row++) {
+        for (int col = 0; col < cols; col++) {
+          assertEquals(expected.get(row, col), grid.get(row, col));
+          assertEquals(expected.isOccupied(row, col), grid.isOccupied(row, col));
+        }
+      }
+    }
+  }
+
+  @Test
+  void testRuleSeesOnlyCurrentGeneration() {
+    // Every cell copies its left neighbor, so a single item should move one
+    // column per step rather than sweeping across the row.
+    ArrayGrid<String> grid = new ArrayGrid<>(1, 6);
+    grid.put(0, 0, "x");
+    StepEngine<String> engine = new StepEngine<>(grid,
+        (row, col, current, cells) -> col == 0 ? null : cells.get(row, col - 1));
+    engine.step();
+    assertNull(grid.get(0, 0));
+    assertEquals("x", grid.get(0, 1));
+    assertNull(grid.get(0, 2));
+    engine.step(3);
+    assertEquals("x", grid.get(0, 4));
+    assertEquals(1, grid.numItems());
+  }
+
+  @Test
+  void testGridIsUnchangedWhenRuleThrows() {
+    ArrayGrid<Boolean> grid = parse("##.", "...");
+    StepEngine<Boolean> engine = new StepEngine<>(grid, (row, col, current, cells) -> {
+      if (row == 1 && col == 2) {
+        throw new IllegalStateException();
+      }
+      return Boolean.TRUE;
+    });
+    assertThrows(IllegalStateException.class, () -> engine.step());
+    assertEquals("##.\n...\n", render(grid));
+    assertEquals(2, grid.numItems());
+    assertEquals(0, engine.generation());
+  }
+
+  @Test
+  void testTicksPerSecond() {
+    StepEngine<Boolean> engine = new StepEngine<>(new ArrayGrid<>(20, 20), LIFE);
+    assertEquals(0.0, engine.ticksPerSecond());
+    engine.step(10);
+    assertEquals(10, engine.generation());
+    assertTrue(engine.ticksPerSecond() > 0);
+    assertTrue(engine.lastStepNanos() > 0);
+  }
+
+  @Test
+  void testBadArgumentsThrowException() {
+    ArrayGrid<Boolean> grid = new ArrayGrid<>(2, 2);
+    assertThrows(NullPointerException.class, () -> new StepEngine<Boolean>(null, LIFE));
+    assertThrows(NullPointerException.class, () -> new StepEngine<Boolean>(grid, null));
+    assertThrows(NullPointerException.class,
+        () -> new StepEngine<>(grid, null, LIFE, ForkJoinPool.commonPool()));
+    assertThrows(IllegalArgumentException.class, () -> new StepEngine<>(grid, LIFE).step(-1));
+    StepEngine<Boolean> outOfBounds = new StepEngine<>(grid,
+        (row, col, current, cells) -> cells.get(row + 2, col));
+    assertThrows(IllegalArgumentException.class, () -> outOfBounds.step());
+  }
+
+}
@@ -0,0 +1,197 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts grid items to and from bytes for GridSnapshots. A codec either
+ * has a fixed width, in which case values are stored back to back, or a
+ * variable width, in which case each value is stored with a length prefix
+ * and decode sees a buffer whose limit is the end of the value.
+ *
+ * @author Jordan Martin
+ */
+public interface ValueCodec<E> {
+
+  /**
+   * Get the number of bytes every value takes, if that is fixed.
+   * @return - fixed width in bytes, or -1 for variable-width values
+   */
+  int fixedSize();
+
+  /**
+   * Get the number of bytes encode will write for a value.
+   * @param value - value to measure
+   * @return - encoded size in bytes
+   */
+  int size(E value);
+
+  /**
+   * Write a value at the buffer's position, advancing it by size(value).
+   * @param value - value to write
+   * @param out - buffer with at least size(value) bytes remaining
+   */
+  void encode(E value, ByteBuffer out);
+
+  /**
+   * Read a value at the buffer's position, advancing past it. For
+   * variable-width codecs the value runs to the buffer's limit.
+   * @param in - buffer holding the value
+   * @return - decoded value
+   */
+  E decode(ByteBuffer in);
+
+  /**
+   * Codec for Integer values, 4 bytes each.
+   */
+  ValueCodec<Integer> INTEGER = new ValueCodec<Integer>() {
+
+    @Override
+    public int fixedSize() {
+      return Integer.BYTES;
+    }
+
+    @Override
+    public int size(Integer value) {
+      return Integer.BYTES;
+    }
+
+    @Override
+    public void encode(Integer value, ByteBuffer out) {
+      out.putInt(value);
+    }
+
+    @Override
+    public Integer decode(ByteBuffer in) {
+      return in.getInt();
+    }
+  };
+
+  /**
+   * Codec for Long values, 8 bytes each.
+   */
+  ValueCodec<Long> LONG = new ValueCodec<Long>() {
+
+    @Override
+    public int fixedSize() {
+      return Long.BYTES;
+    }
+
+    @Override
+    public int size(Long value) {
+      return Long.BYTES;
+    }
+
+    @Override
+    public void encode(Long value, ByteBuffer out) {
+      out.putLong(value);
+    }
+
+    @Override
+    public Long decode(ByteBuffer in) {
+      return in.getLong();
+    }
+  };
+
+  /**
+   * Codec for Double values, 8 bytes each.
+   */
+  ValueCodec<Double> DOUBLE = new ValueCodec<Double>() {
+
+    @Override
+    public int fixedSize() {
+      return Double.BYTES;
+    }
+
+    @Override
+    public int size(Double value) {
+      return Double.BYTES;
+    }
+
+    @Override
+    public void encode(Double value, ByteBuffer out) {
+      out.putDouble(value);
+    }
+
+    @Override
+    public Double decode(ByteBuffer in) {
+      return in.getDouble();
+    }
+  };
+
+  /**
+   * Codec for String values in UTF-8. Encoding writes straight into the
+   * buffer without an intermediate byte array; unpaired surrogates are
+   * written as '?', as String.getBytes does.
+   */
+  ValueCodec<String> STRING = new ValueCodec<String>() {
+
+    @Override
+    public int fixedSize() {
+      return -1;
+    }
+
+    @Override
+    public int size(String value) {
+      int size = 0;
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        if (c < 0x80) {
+          size += 1;
+        } else if (c < 0x800) {
+          size += 2;
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+            && Character.isLowSurrogate(value.charAt(i + 1))) {
+          size += 4;
+          i++;
+        } else if (Character.isSurrogate(c)) {
+          size += 1;
+        } else {
+          size += 3;
+        }
+      }
+      return size;
+    }
+
+    @Override
+    public void encode(String value, ByteBuffer out) {
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        if (c < 0x80) {
+          out.put((byte) c);
+        } else if (c < 0x800) {
+          out.put((byte) (0xC0 | (c >> 6)));
+          out.put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+            && Character.isLowSurrogate(value.charAt(i + 1))) {
+          int cp = Character.toCodePoint(c, value.charAt(++i));
+          out.put((byte) (0xF0 | (cp >> 18)));
+          out.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+          out.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+          out.put((byte) (0x80 | (cp & 0x3F)));
+        } else if (Character.isSurrogate(c)) {
+          out.put((byte) '?');
+        } else {
+          out.put((byte) (0xE0 | (c >> 12)));
+          out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+          out.put((byte) (0x80 | (c & 0x3F)));
+        }
+      }
+    }
+
+    @Override
+    public String decode(ByteBuffer in) {
+      int length = in.remaining();
+      String value;
+      if (in.hasArray()) {
+        value = new String(in.array(), in.arrayOffset() + in.position(), length,
+            StandardCharsets.UTF_8);
+        in.position(in.limit());
+      } else {
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        value = new String(bytes, StandardCharsets.UTF_8);
+      }
+      return value;
+    }
+  };
+
+}
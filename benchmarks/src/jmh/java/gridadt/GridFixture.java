@@ -0,0 +1,96 @@
+package gridadt;
+
+import java.util.Random;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark state: a square grid of the requested implementation, filled
+ * to the requested density, plus precomputed random probe cells so the
+ * benchmarks themselves do no setup work.
+ *
+ * @author Jordan Martin
+ */
+@State(Scope.Thread)
+public class GridFixture {
+
+  static final int PROBES = 1024;
+
+  @Param({"ArrayGrid", "SparseGrid"})
+  public String implementation;
+
+  @Param({"100", "1000"})
+  public int size;
+
+  @Param({"0.001", "0.1", "0.9"})
+  public double density;
+
+  Grid<Integer> grid;
+  Location[] occupied;
+  Location[] empty;
+  Location[] anywhere;
+  int probe;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    grid = makeGrid();
+    Random random = new Random(240);
+    long target = Math.max(1, Math.round(density * size * size));
+    for (long i = 0; i < target; i++) {
+      int row;
+      int col;
+      do {
+        row = random.nextInt(size);
+        col = random.nextInt(size);
+      } while (grid.get(row, col) != null);
+      grid.put(row, col, (int) i);
+    }
+
+    occupied = new Location[PROBES];
+    empty = new Location[PROBES];
+    anywhere = new Location[PROBES];
+    for (int i = 0; i < PROBES; i++) {
+      occupied[i] = pick(random, true);
+      empty[i] = pick(random, false);
+      anywhere[i] = new Location(random.nextInt(size), random.nextInt(size));
+    }
+  }
+
+  private Grid<Integer> makeGrid() {
+    switch (implementation) {
+      case "ArrayGrid":
+        return new ArrayGrid<Integer>(size, size);
+      case "SparseGrid":
+        return new SparseGrid<Integer>(size, size);
+      default:
+        throw new IllegalArgumentException(implementation);
+    }
+  }
+
+  /**
+   * Pick a random cell that is occupied or empty. A grid with no cell of
+   * the requested kind falls back to any cell.
+   */
+  private Location pick(Random random, boolean wantOccupied) {
+    for (int attempt = 0; attempt < 10000; attempt++) {
+      Location loc = new Location(random.nextInt(size), random.nextInt(size));
+      if ((grid.get(loc) != null) == wantOccupied) {
+        return loc;
+      }
+    }
+    return new Location(random.nextInt(size), random.nextInt(size));
+  }
+
+  /**
+   * Advance to the next probe slot.
+   * @return - index into the probe arrays
+   */
+  int nextProbe() {
+    probe = (probe + 1) & (PROBES - 1);
+    return probe;
+  }
+
+}
@@ -0,0 +1,56 @@
+package gridadt;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Whole-grid passes and neighbor queries.
+ *
+ * @author Jordan Martin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GridIterationBenchmark {
+
+  @Benchmark
+  public void defaultIterator(GridFixture fixture, Blackhole hole) {
+    for (Integer item : fixture.grid) {
+      hole.consume(item);
+    }
+  }
+
+  @Benchmark
+  public void allLocations(GridFixture fixture, Blackhole hole) {
+    for (Location loc : fixture.grid.allLocations()) {
+      hole.consume(loc);
+    }
+  }
+
+  @Benchmark
+  public void itemLocations(GridFixture fixture, Blackhole hole) {
+    for (Location loc : fixture.grid.itemLocations()) {
+      hole.consume(loc);
+    }
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public void eightNeighbors(GridFixture fixture, Blackhole hole) {
+    for (Location loc : fixture.grid.eightNeighbors(fixture.anywhere[fixture.nextProbe()])) {
+      hole.consume(loc);
+    }
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public void fourNeighbors(GridFixture fixture, Blackhole hole) {
+    for (Location loc : fixture.grid.fourNeighbors(fixture.anywhere[fixture.nextProbe()])) {
+      hole.consume(loc);
+    }
+  }
+
+}
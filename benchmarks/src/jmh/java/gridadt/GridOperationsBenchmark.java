@@ -0,0 +1,55 @@
+package gridadt;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+/**
+ * Single-cell operations: get, put and remove.
+ *
+ * @author Jordan Martin
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GridOperationsBenchmark {
+
+  @Benchmark
+  public Integer get(GridFixture fixture) {
+    return fixture.grid.get(fixture.anywhere[fixture.nextProbe()]);
+  }
+
+  @Benchmark
+  public void putOverwrite(GridFixture fixture) {
+    int probe = fixture.nextProbe();
+    fixture.grid.put(fixture.occupied[probe], probe);
+  }
+
+  /**
+   * Insert into an empty cell and remove the item again, so the grid
+   * keeps its density across invocations.
+   */
+  @Benchmark
+  public Integer putThenRemove(GridFixture fixture) {
+    int probe = fixture.nextProbe();
+    Location loc = fixture.empty[probe];
+    fixture.grid.put(loc, probe);
+    return fixture.grid.remove(loc);
+  }
+
+  /**
+   * Remove an item and put it back, so the grid keeps its density across
+   * invocations.
+   */
+  @Benchmark
+  public Integer removeThenPut(GridFixture fixture) {
+    Location loc = fixture.occupied[fixture.nextProbe()];
+    Integer item = fixture.grid.remove(loc);
+    if (item != null) {
+      fixture.grid.put(loc, item);
+    }
+    return item;
+  }
+
+}